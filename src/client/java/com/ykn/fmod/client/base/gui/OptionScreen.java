@@ -8,10 +8,12 @@ package com.ykn.fmod.client.base.gui;
 import java.util.Arrays;
 import java.util.List;
 
+import com.ykn.fmod.server.base.util.EntityDensityAlgorithm;
 import com.ykn.fmod.server.base.util.EnumI18n;
 import com.ykn.fmod.server.base.util.MessageReceiver;
 import com.ykn.fmod.server.base.util.MessageLocation;
 import com.ykn.fmod.server.base.util.Util;
+import com.ykn.fmod.server.flow.tool.NodeRegistry;
 
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.gui.DrawContext;
@@ -84,6 +86,7 @@ public class OptionScreen extends Screen {
             this.addEntry(new ButtonConfigEntry(
                 ButtonWidget.builder(getBoolStateText(Util.serverConfig.isEnableServerTranslation()), button -> {
                     Util.serverConfig.setEnableServerTranslation(!Util.serverConfig.isEnableServerTranslation());
+                    NodeRegistry.refreshMetadata();
                     button.setMessage(getBoolStateText(Util.serverConfig.isEnableServerTranslation()));
                 }).size(200, 20).build(),
                 Text.translatable("fmod.options.translate"),
@@ -149,6 +152,86 @@ public class OptionScreen extends Screen {
                 Text.translatable("fmod.options.flowhistory"),
                 Text.translatable("fmod.options.hint.flowhistory")
             ));
+            // Flow History Details (non-linear slider)
+            SliderWidget flowDetailSlider = new SliderWidget(0, 0, 200, 20, 
+                Text.literal(Integer.toString(Util.serverConfig.getKeepFlowHistoryDetailNumber())),
+                Math.log((double) Util.serverConfig.getKeepFlowHistoryDetailNumber()) / Math.log(2147483647.0)
+            ) {
+                @Override
+                protected void updateMessage() {
+                    this.setMessage(Text.literal(Integer.toString((int) Math.exp(this.value * Math.log(2147483647.0)))));
+                }
+                
+                @Override
+                protected void applyValue() {
+                    Util.serverConfig.setKeepFlowHistoryDetailNumber((int) Math.exp(this.value * Math.log(2147483647.0)));
+                }
+            };
+            this.addEntry(new NumberConfigEntry(
+                flowDetailSlider,
+                Text.translatable("fmod.options.flowdetail"),
+                Text.translatable("fmod.options.hint.flowdetail")
+            ));
+            // Flow History Memory (KB) (non-linear slider)
+            SliderWidget flowMemorySlider = new SliderWidget(0, 0, 200, 20, 
+                Text.literal(Integer.toString(Util.serverConfig.getKeepFlowHistoryKilobytes())),
+                Math.log((double) Util.serverConfig.getKeepFlowHistoryKilobytes() + 1.0) / Math.log(2147483647.0)
+            ) {
+                @Override
+                protected void updateMessage() {
+                    this.setMessage(Text.literal(Integer.toString((int) Math.exp(this.value * Math.log(2147483647.0)) - 1)));
+                }
+                
+                @Override
+                protected void applyValue() {
+                    Util.serverConfig.setKeepFlowHistoryKilobytes((int) Math.exp(this.value * Math.log(2147483647.0)) - 1);
+                }
+            };
+            this.addEntry(new NumberConfigEntry(
+                flowMemorySlider,
+                Text.translatable("fmod.options.flowmemory"),
+                Text.translatable("fmod.options.hint.flowmemory")
+            ));
+            // Flow Time Slice (μs) (non-linear slider)
+            SliderWidget flowTimeSliceSlider = new SliderWidget(0, 0, 200, 20, 
+                Text.literal(Integer.toString(Util.serverConfig.getFlowTimeSlice())),
+                Math.log((double) Util.serverConfig.getFlowTimeSlice() + 1.0) / Math.log(1000000.0)
+            ) {
+                @Override
+                protected void updateMessage() {
+                    this.setMessage(Text.literal(Integer.toString((int) Math.exp(this.value * Math.log(1000000.0)) - 1)));
+                }
+                
+                @Override
+                protected void applyValue() {
+                    Util.serverConfig.setFlowTimeSlice((int) Math.exp(this.value * Math.log(1000000.0)) - 1);
+                }
+            };
+            this.addEntry(new NumberConfigEntry(
+                flowTimeSliceSlider,
+                Text.translatable("fmod.options.flowslice"),
+                Text.translatable("fmod.options.hint.flowslice")
+            ));
+            // Flow Tick Budget (μs) (non-linear slider)
+            SliderWidget flowTickBudgetSlider = new SliderWidget(0, 0, 200, 20, 
+                Text.literal(Integer.toString(Util.serverConfig.getFlowTickBudget())),
+                Math.log((double) Util.serverConfig.getFlowTickBudget() + 1.0) / Math.log(1000000.0)
+            ) {
+                @Override
+                protected void updateMessage() {
+                    this.setMessage(Text.literal(Integer.toString((int) Math.exp(this.value * Math.log(1000000.0)) - 1)));
+                }
+                
+                @Override
+                protected void applyValue() {
+                    Util.serverConfig.setFlowTickBudget((int) Math.exp(this.value * Math.log(1000000.0)) - 1);
+                }
+            };
+            this.addEntry(new NumberConfigEntry(
+                flowTickBudgetSlider,
+                Text.translatable("fmod.options.flowbudget"),
+                Text.translatable("fmod.options.hint.flowbudget")
+            ));
             // Normal Entity Death Message
             this.addEntry(new ButtonConfigEntry(
                 ButtonWidget.builder(EnumI18n.getMessageLocationI18n(Util.serverConfig.getEntityDeathMessage()), button -> {
@@ -753,6 +836,67 @@ public class OptionScreen extends Screen {
                 Text.translatable("fmod.options.densityinterval"),
                 Text.translatable("fmod.options.hint.densityinterval")
             ));
+            // Density Algorithm
+            this.addEntry(new ButtonConfigEntry(
+                ButtonWidget.builder(EnumI18n.getEntityDensityAlgorithmI18n(Util.serverConfig.getEntityDensityAlgorithm()), button -> {
+                    final List<Enum<?>> values = Arrays.asList(EntityDensityAlgorithm.values());
+                    int currentIndex = values.indexOf(Util.serverConfig.getEntityDensityAlgorithm());
+                    currentIndex = (currentIndex + 1) % values.size();
+                    Util.serverConfig.setEntityDensityAlgorithm((EntityDensityAlgorithm) values.get(currentIndex));
+                    button.setMessage(EnumI18n.getEntityDensityAlgorithmI18n(Util.serverConfig.getEntityDensityAlgorithm()));
+                }).size(200, 20).build(),
+                Text.translatable("fmod.options.densityalgorithm"),
+                Text.translatable("fmod.options.hint.densityalgorithm")
+            ));
+            // Density Parallelism (Range: 1 ~ 16 Threads)
+            SliderWidget densityParallelismSlider = new SliderWidget(0, 0, 200, 20, 
+                Text.literal(Integer.toString(Util.serverConfig.getEntityDensityParallelism())),
+                ((double) Util.serverConfig.getEntityDensityParallelism() - 1.0) / 15.0 
+            ) {
+                @Override
+                protected void updateMessage() {
+                    this.setMessage(Text.literal(Integer.toString((int) (this.value * 15.0 + 1.0))));
+                }
+                
+                @Override
+                protected void applyValue() {
+                    Util.serverConfig.setEntityDensityParallelism((int) (this.value * 15.0 + 1.0));
+                }
+            };
+            this.addEntry(new NumberConfigEntry(
+                densityParallelismSlider,
+                Text.translatable("fmod.options.densityparallelism"),
+                Text.translatable("fmod.options.hint.densityparallelism")
+            ));
+            // Density Time Limit (Range: 0 ~ 60000 Milliseconds)
+            SliderWidget densityTimeLimitSlider = new SliderWidget(0, 0, 200, 20,
+                Text.literal(Integer.toString(Util.serverConfig.getEntityDensityTimeLimit())),
+                (double) Util.serverConfig.getEntityDensityTimeLimit() / 60000.0
+            ) {
+                @Override
+                protected void updateMessage() {
+                    this.setMessage(Text.literal(Integer.toString((int) (this.value * 60000.0))));
+                }
+
+                @Override
+                protected void applyValue() {
+                    Util.serverConfig.setEntityDensityTimeLimit((int) (this.value * 60000.0));
+                }
+            };
+            this.addEntry(new NumberConfigEntry(
+                densityTimeLimitSlider,
+                Text.translatable("fmod.options.densitytimelimit"),
+                Text.translatable("fmod.options.hint.densitytimelimit")
+            ));
+            // Density Hot Sections
+            this.addEntry(new ButtonConfigEntry(
+                ButtonWidget.builder(getBoolStateText(Util.serverConfig.isEnableEntityDensityHotSections()), button -> {
+                    Util.serverConfig.setEnableEntityDensityHotSections(!Util.serverConfig.isEnableEntityDensityHotSections());
+                    button.setMessage(getBoolStateText(Util.serverConfig.isEnableEntityDensityHotSections()));
+                }).size(200, 20).build(),
+                Text.translatable("fmod.options.densityhotsections"),
+                Text.translatable("fmod.options.hint.densityhotsections")
+            ));
             // Player Seriously Hurt Location
             this.addEntry(new ButtonConfigEntry(
                 ButtonWidget.builder(EnumI18n.getMessageLocationI18n(Util.serverConfig.getPlayerSeriousHurtLocation()), button -> {
@@ -0,0 +1,138 @@
+/**
+ * Copyright (c) ykn
+ * This file is under the MIT License
+ */
+
+package com.ykn.fmod.server.base.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import net.minecraft.util.math.Vec2f;
+
+/**
+ * Compares {@link TypeAdaptor#autoCast()} with the eager {@link LegacyAutoCast} on the constant values
+ * of the flow files in {@code src/jmh/resources/autocast}, which is what loading a flow file auto-casts.
+ * <p>
+ * The setup fails if both give a different result for any value, so a run also checks that the lazy
+ * classification did not change what a flow file loads as. Each operation auto-casts the whole corpus once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AutoCastBenchmark {
+
+    private static final String[] CORPUS = {"autocast/death_broadcast.flow", "autocast/crowd_control.flow"};
+
+    public enum Implementation {
+        LEGACY,
+        CURRENT
+    }
+
+    @Param({"LEGACY", "CURRENT"})
+    public Implementation implementation;
+
+    private String[] values;
+
+    @Setup
+    public void setup() throws IOException {
+        this.values = loadCorpus();
+        List<String> mismatches = new ArrayList<>();
+        for (String value : this.values) {
+            String legacy = describe(LegacyAutoCast.autoCast(value));
+            String current = describe(TypeAdaptor.parse(value).autoCast());
+            if (!legacy.equals(current)) {
+                mismatches.add("\"" + value + "\": " + legacy + " != " + current);
+            }
+        }
+        if (!mismatches.isEmpty()) {
+            throw new IllegalStateException("autoCast results differ: " + String.join(", ", mismatches));
+        }
+    }
+
+    @Benchmark
+    public void autoCast(Blackhole blackhole) {
+        if (this.implementation == Implementation.LEGACY) {
+            for (String value : this.values) {
+                blackhole.consume(LegacyAutoCast.autoCast(value));
+            }
+        } else {
+            for (String value : this.values) {
+                blackhole.consume(TypeAdaptor.parse(value).autoCast());
+            }
+        }
+    }
+
+    /**
+     * Gets the constant values of all flow files in the corpus.
+     *
+     * @return The constant values, in the order they appear in the files
+     * @throws IOException If a file cannot be read
+     */
+    static String[] loadCorpus() throws IOException {
+        List<String> values = new ArrayList<>();
+        for (String file : CORPUS) {
+            InputStream stream = AutoCastBenchmark.class.getClassLoader().getResourceAsStream(file);
+            if (stream == null) {
+                throw new IOException("Missing corpus file " + file);
+            }
+            try (Reader reader = new InputStreamReader(stream, StandardCharsets.UTF_8)) {
+                JsonObject flow = JsonParser.parseReader(reader).getAsJsonObject();
+                for (JsonElement node : flow.getAsJsonArray("nodes")) {
+                    for (JsonElement input : node.getAsJsonObject().getAsJsonArray("inputs")) {
+                        JsonObject ref = input.getAsJsonObject();
+                        if ("const".equals(ref.get("type").getAsString())) {
+                            values.add(ref.get("value").getAsString());
+                        }
+                    }
+                }
+            }
+        }
+        return values.toArray(new String[0]);
+    }
+
+    /**
+     * Describes an auto-cast result by its type and value, as {@link Vec2f} does not implement equals.
+     */
+    private static String describe(Object o) {
+        if (o == null) {
+            return "null";
+        } else if (o instanceof Vec2f) {
+            Vec2f vec2f = (Vec2f) o;
+            return "Vec2f(" + vec2f.x + ", " + vec2f.y + ")";
+        } else if (o instanceof List) {
+            List<String> items = new ArrayList<>();
+            for (Object item : (List<?>) o) {
+                items.add(describe(item));
+            }
+            return "List" + items;
+        }
+        return o.getClass().getSimpleName() + "(" + o + ")";
+    }
+}
@@ -0,0 +1,120 @@
+/**
+ * Copyright (c) ykn
+ * This file is under the MIT License
+ */
+
+package com.ykn.fmod.server.base.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.minecraft.util.math.Vec2f;
+import net.minecraft.util.math.Vec3d;
+
+/**
+ * The eager {@link TypeAdaptor#autoCast()} as it was before it classified values lazily, kept to compare
+ * the results and the timings of both. Only strings are handled, which is what flow files contain.
+ * Every conversion is attempted before the first successful one is picked, like the original.
+ */
+final class LegacyAutoCast {
+
+    private LegacyAutoCast() {
+    }
+
+    static Object autoCast(String s) {
+        Vec3d vec3d = asVec3d(s);
+        Vec2f vec2f = asVec2f(s);
+        List<Object> list = asList(s);
+        Double d = asDouble(s);
+        Boolean b = asBoolean(s);
+        if ("null".equals(s)) {
+            return null;
+        } else if (vec3d != null) {
+            return vec3d;
+        } else if (vec2f != null) {
+            return vec2f;
+        } else if (list != null) {
+            return list;
+        } else if (d != null) {
+            return d;
+        } else if (b != null) {
+            return b;
+        } else {
+            return s;
+        }
+    }
+
+    private static Boolean asBoolean(String s) {
+        String str = s.strip();
+        if ("yes".equalsIgnoreCase(str) || "true".equalsIgnoreCase(str) || "on".equalsIgnoreCase(str) ||
+            "enable".equalsIgnoreCase(str) || "open".equalsIgnoreCase(str)) {
+            return true;
+        } else if ("no".equalsIgnoreCase(str) || "false".equalsIgnoreCase(str) || "off".equalsIgnoreCase(str) ||
+                   "disable".equalsIgnoreCase(str) || "close".equalsIgnoreCase(str)) {
+            return false;
+        } else {
+            return null;
+        }
+    }
+
+    private static Double asDouble(String s) {
+        try {
+            return Double.parseDouble(s.strip());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Vec3d asVec3d(String s) {
+        String str = s.strip();
+        if (str.startsWith("(") && str.endsWith(")")) {
+            String[] parts = str.substring(1, str.length() - 1).strip().split(",");
+            if (parts.length == 3) {
+                try {
+                    double x = Double.parseDouble(parts[0].strip());
+                    double y = Double.parseDouble(parts[1].strip());
+                    double z = Double.parseDouble(parts[2].strip());
+                    return new Vec3d(x, y, z);
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static Vec2f asVec2f(String s) {
+        String str = s.strip();
+        if (str.startsWith("(") && str.endsWith(")")) {
+            String[] parts = str.substring(1, str.length() - 1).strip().split(",");
+            if (parts.length == 2) {
+                try {
+                    float x = Float.parseFloat(parts[0].strip());
+                    float y = Float.parseFloat(parts[1].strip());
+                    return new Vec2f(x, y);
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static List<Object> asList(String s) {
+        String str = s.strip();
+        if (str.startsWith("[") && str.endsWith("]")) {
+            // We will not parse nested lists here
+            String[] parts = str.substring(1, str.length() - 1).strip().split(",");
+            List<Object> list = new ArrayList<>();
+            for (String part : parts) {
+                if (part.strip().startsWith("[") && part.strip().endsWith("]")) {
+                    list.add(part.strip());
+                } else {
+                    list.add(autoCast(part.strip()));
+                }
+            }
+            return list;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,153 @@
+/**
+ * Copyright (c) ykn
+ * This file is under the MIT License
+ */
+
+package com.ykn.fmod.server.flow.logic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ykn.fmod.server.base.util.FlowTraceLevel;
+import com.ykn.fmod.server.flow.tool.NodeRegistry;
+
+/**
+ * Measures the time and the allocation per executed node of a loop flow, with node inputs resolved
+ * into the reusable input buffer of the context, and with a new list per node execution as before.
+ * <p>
+ * Run it with {@code gradlew jmh}, which enables the GC profiler. The {@code gc.alloc.rate.norm}
+ * result is the number of bytes allocated per executed node, as each operation is one node.
+ * <p>
+ * The {@code LIST} mode uses a node that copies the resolved inputs into a new list, which is the
+ * allocation {@link FlowNode#resolveInputs(ExecutionContext)} made for every node before the inputs
+ * were resolved into the buffer.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NodeInputBenchmark {
+
+    /**
+     * How many times the count node loops, and the number of nodes executed per flow with the start node.
+     */
+    private static final int LOOPS = 1000;
+    private static final int NODES = LOOPS + 1;
+
+    /**
+     * Outputs the number of loops.
+     */
+    public static class StartNode extends EventNode {
+
+        public StartNode(long id, String name) {
+            super(id, name, 0, 1, 1);
+            this.type = "BenchmarkStartNode";
+        }
+    }
+
+    /**
+     * Adds the step to its own last output, and loops back to itself until the limit is reached.
+     * The inputs are its own output, the output of the start node and a constant, so every kind of input is resolved.
+     */
+    public static class CountNode extends FlowNode {
+
+        public CountNode(long id, String name) {
+            super(id, name, 3, 1, 1);
+            this.type = "BenchmarkCountNode";
+        }
+
+        @Override
+        protected boolean isFeedbackInput(int index) {
+            return index == 0;
+        }
+
+        @Override
+        protected void onExecute(ExecutionContext context, NodeStatus status, List<Object> resolvedInputs) throws LogicException {
+            Object count = resolvedInputs.get(0);
+            double step = (Double) resolvedInputs.get(2);
+            status.setOutput(0, count == null ? step : (Double) count + step);
+        }
+
+        @Override
+        public long getNextNodeId(ExecutionContext context, NodeStatus status, List<Object> resolvedInputs) throws LogicException {
+            double count = (Double) status.outputs.get(0);
+            double limit = (Double) resolvedInputs.get(1);
+            return count < limit ? this.getId() : -1;
+        }
+    }
+
+    /**
+     * Resolves its inputs into a new list on every execution.
+     */
+    public static class ListCountNode extends CountNode {
+
+        public ListCountNode(long id, String name) {
+            super(id, name);
+            this.type = "BenchmarkListCountNode";
+        }
+
+        @Override
+        protected List<Object> resolveInputs(ExecutionContext context) throws LogicException {
+            return new ArrayList<>(super.resolveInputs(context));
+        }
+    }
+
+    public enum InputMode {
+        BUFFER,
+        LIST
+    }
+
+    @Param({"BUFFER", "LIST"})
+    public InputMode inputMode;
+
+    @Param({"OFF", "FULL"})
+    public FlowTraceLevel traceLevel;
+
+    private FlowPlan plan;
+    private List<Object> startNodeOutputs;
+
+    @Setup
+    public void setup() {
+        NodeRegistry.registerEvent("BenchmarkStartNode", StartNode::new);
+        NodeRegistry.register("BenchmarkCountNode", CountNode::new);
+        NodeRegistry.register("BenchmarkListCountNode", ListCountNode::new);
+        LogicFlow flow = new LogicFlow("benchmark");
+        StartNode start = new StartNode(flow.generateId(), "start");
+        flow.addNode(start);
+        flow.startNodeId = start.getId();
+        CountNode count = this.inputMode == InputMode.BUFFER ? new CountNode(flow.generateId(), "count") : new ListCountNode(flow.generateId(), "count");
+        count.setInput(0, DataReference.createNodeOutputReference(count.getId(), 0));
+        count.setInput(1, DataReference.createNodeOutputReference(start.getId(), 0));
+        count.setInput(2, DataReference.createConstantReference(1.0));
+        flow.addNode(count);
+        start.setNextNodeId(0, count.getId());
+        this.plan = FlowPlan.compile(flow);
+        this.startNodeOutputs = Arrays.asList((Object) (double) LOOPS);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NODES)
+    public ExecutionContext executeLoop() {
+        ExecutionContext context = new ExecutionContext(this.plan, null, NODES, 1);
+        context.setTraceLevel(this.traceLevel);
+        context.execute(this.startNodeOutputs, null);
+        return context;
+    }
+}
@@ -7,6 +7,7 @@
 package com.ykn.fmod.server;
 
 import net.fabricmc.api.ModInitializer;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerEntityEvents;
 import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
 import net.fabricmc.fabric.api.event.lifecycle.v1.ServerWorldEvents;
 
@@ -14,6 +15,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.ykn.fmod.server.base.command.CommandRegistrater;
+import com.ykn.fmod.server.base.event.EntityTracking;
 import com.ykn.fmod.server.base.event.NewLevel;
 import com.ykn.fmod.server.base.event.WorldTick;
 import com.ykn.fmod.server.base.util.Util;
@@ -36,6 +38,16 @@ public class FMod implements ModInitializer {
 			newLevel.onNewLevel();
 		});
 
+		ServerEntityEvents.ENTITY_LOAD.register((entity, world) -> {
+			EntityTracking entityTracking = new EntityTracking(entity, world);
+			entityTracking.onEntityLoad();
+		});
+
+		ServerEntityEvents.ENTITY_UNLOAD.register((entity, world) -> {
+			EntityTracking entityTracking = new EntityTracking(entity, world);
+			entityTracking.onEntityUnload();
+		});
+
 		ServerTickEvents.END_SERVER_TICK.register(server -> {
 			WorldTick worldTick = new WorldTick(server);
 			worldTick.onWorldTick();
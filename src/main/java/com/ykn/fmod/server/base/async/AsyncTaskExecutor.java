@@ -29,11 +29,31 @@ import com.ykn.fmod.server.base.util.Util;
  * - Override {@link #taskAfterCompletion()} to perform the main-thread-only follow-up.
  * - Optionally override {@link #handleAsyncException(Exception)} and
  *   {@link #handleAfterCompletionException(Exception)} to change error handling.
+ *
+ * <p>Long-running tasks can cooperate with the caller:
+ * - Poll {@link #shouldStop()} regularly and stop early once it returns true. This happens
+ *   when the task is cancelled with {@link #cancel()} or when its wall-clock budget set by
+ *   {@link #setTimeBudget(long)} has expired.
+ * - Report the fraction of work done with {@link #setProgress(double)}, so that callers
+ *   can poll it with {@link #getProgress()}.
  */
 public class AsyncTaskExecutor implements Runnable {
 
     private final AtomicBoolean asyncFinished = new AtomicBoolean(false);
     private final AtomicBoolean afterCompletionExecuted = new AtomicBoolean(false);
+    private final AtomicBoolean cancelled = new AtomicBoolean(false);
+
+    /**
+     * The wall-clock budget of the async task in nanoseconds, 0 if unlimited.
+     */
+    private volatile long timeBudget = 0L;
+
+    /**
+     * The {@link System#nanoTime()} at which the budget expires, only valid once the task is running.
+     */
+    private volatile long deadline = 0L;
+    private volatile boolean running = false;
+    private volatile double progress = 0.0;
 
     /**
      * Implement this method with the actual async logic in the subclass.
@@ -60,6 +80,66 @@ public class AsyncTaskExecutor implements Runnable {
         this.asyncFinished.set(true);
     }
 
+    /**
+     * Request the async task to stop as soon as possible.
+     * The task is still marked as finished and {@link #taskAfterCompletion()} still runs,
+     * which can check {@link #isCancelled()} to skip its follow-up.
+     * This method can be called from any thread.
+     */
+    public final void cancel() {
+        this.cancelled.set(true);
+    }
+
+    /**
+     * Check if the task has been cancelled.
+     * @return True if {@link #cancel()} has been called, false otherwise.
+     */
+    public final boolean isCancelled() {
+        return this.cancelled.get();
+    }
+
+    /**
+     * Set the wall-clock budget of the async task, counted from the moment it starts running.
+     * Must be called before the task is submitted.
+     * @param milliseconds The budget in milliseconds, 0 or less for no limit.
+     */
+    public final void setTimeBudget(long milliseconds) {
+        this.timeBudget = milliseconds > 0 ? milliseconds * 1000000L : 0L;
+    }
+
+    /**
+     * Check if the wall-clock budget of the async task has expired.
+     * @return True if the task has a budget, has started running and has run out of time.
+     */
+    public final boolean isBudgetExpired() {
+        return this.timeBudget > 0 && this.running && System.nanoTime() - this.deadline >= 0;
+    }
+
+    /**
+     * Call this regularly from {@link #executeAsyncTask()} to check whether the task should stop early.
+     * @return True if the task has been cancelled or its budget has expired.
+     */
+    protected final boolean shouldStop() {
+        return this.isCancelled() || this.isBudgetExpired();
+    }
+
+    /**
+     * Report the fraction of the async work that has been done.
+     * @param progress A value between 0 and 1, values outside are clamped.
+     */
+    protected final void setProgress(double progress) {
+        this.progress = Math.max(0.0, Math.min(1.0, progress));
+    }
+
+    /**
+     * Get the fraction of the async work that has been done.
+     * This method can be called from any thread.
+     * @return A value between 0 and 1, 1 once the async task has finished.
+     */
+    public final double getProgress() {
+        return this.isAsyncFinished() ? 1.0 : this.progress;
+    }
+
     /**
      * Handle exceptions thrown during async task execution.
      * @param e The exception thrown.
@@ -81,7 +161,11 @@ public class AsyncTaskExecutor implements Runnable {
     @Override
     public final void run() {
         try {
-            executeAsyncTask();
+            this.deadline = System.nanoTime() + this.timeBudget;
+            this.running = true;
+            if (!this.isCancelled()) {
+                executeAsyncTask();
+            }
         } catch (Exception e) {
             handleAsyncException(e);
         } finally {
@@ -6,19 +6,26 @@
 package com.ykn.fmod.server.base.async;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.jetbrains.annotations.Nullable;
 import org.slf4j.LoggerFactory;
 
 import com.mojang.brigadier.context.CommandContext;
+import com.ykn.fmod.server.base.util.EntityDensityAlgorithm;
 import com.ykn.fmod.server.base.util.Util;
 
 import net.minecraft.entity.Entity;
 import net.minecraft.entity.EntityType;
 import net.minecraft.server.command.ServerCommandSource;
+import net.minecraft.text.MutableText;
 import net.minecraft.text.Text;
 import net.minecraft.util.Identifier;
 
@@ -35,14 +42,74 @@ import net.minecraft.util.Identifier;
  * </ul>
  * <p>
  * The calculation is performed asynchronously to avoid blocking the main server thread,
- * as it has O(n²log₂n) complexity where n is the number of entities. Results are
- * communicated back to the command source upon completion.
+ * as the brute force algorithm has O(n²log₂n) complexity where n is the number of entities.
+ * The spatial grid algorithm gives identical results, but only visits the grid cells near
+ * each candidate center until no farther entity can produce a higher density.
+ * The approximate algorithm runs the same search, but only from the entities in the most crowded
+ * grid cells and a uniform random sample of all entities, see {@link #APPROXIMATE_SAMPLES} for
+ * its error bound.
+ * All algorithms can split the candidate centers across multiple threads, configured by
+ * {@link com.ykn.fmod.server.base.config.ServerConfig#getEntityDensityParallelism()}.
+ * Results are communicated back to the command source upon completion.
  * <p>
- * This class creates immutable snapshots of entity positions to ensure
- * thread-safe processing. Entity references are preserved for result retrieval but
- * must never be accessed in the async context.
+ * The search reports its progress, stops early when cancelled, and gives up after the time limit
+ * configured by {@link com.ykn.fmod.server.base.config.ServerConfig#getEntityDensityTimeLimit()}.
+ * In that case, the most crowded area found so far is reported. Further commands asking for the
+ * same search can attach to a running calculator with {@link #addContext(CommandContext)}.
+ * <p>
+ * Instead of the single most crowded area, the calculator can also report several non-overlapping
+ * crowded areas with their entity type breakdown, see {@link #getHotspots()}. This searches every
+ * center against the best area of its own grid cell, and runs on a single thread.
+ * <p>
+ * The entity positions are read from an {@link EntitySnapshotBuffer} filled on the main thread,
+ * which can be reused between calculations once {@link #taskAfterCompletion()} has executed.
+ * Entity references are preserved for result retrieval but must never be accessed in the async context.
  */
 public class EntityDensityCalculator extends AsyncTaskExecutor {
+
+    /**
+     * The number of most crowded grid cells whose entities are searched as centers in approximate mode.
+     * Cells are ranked by the number of entities in their 3x3x3 cell neighborhood.
+     */
+    private static final int APPROXIMATE_TOP_CELLS = 16;
+
+    /**
+     * The maximum number of centers taken from each of the most crowded grid cells in approximate mode.
+     * Entities in the same cell have nearly the same neighborhood, so a few of them are enough.
+     */
+    private static final int APPROXIMATE_CELL_CENTERS = 64;
+
+    /**
+     * The fraction of entities that may be the center of a denser region than the approximate result.
+     */
+    private static final double APPROXIMATE_RANK_ERROR = 0.001;
+
+    /**
+     * The probability that the approximate result misses the bound of {@link #APPROXIMATE_RANK_ERROR}.
+     */
+    private static final double APPROXIMATE_FAILURE_PROBABILITY = 0.01;
+
+    /**
+     * The number of uniformly sampled centers per dimension in approximate mode.
+     * <p>
+     * If a fraction ε of all entities are centers of denser regions than the result, at least one
+     * dimension has that fraction of its own entities as denser centers, and all samples in that
+     * dimension miss them with probability (1 - ε)^n ≤ e^(-εn). With n = ln(1/δ) / ε samples, this is
+     * at most δ. So with probability at least 1 - {@link #APPROXIMATE_FAILURE_PROBABILITY}, fewer than
+     * {@link #APPROXIMATE_RANK_ERROR} of all entities are centers of a denser region than the result.
+     * Dimensions with no more entities than this are searched exactly.
+     */
+    private static final int APPROXIMATE_SAMPLES = (int) Math.ceil(Math.log(1.0 / APPROXIMATE_FAILURE_PROBABILITY) / APPROXIMATE_RANK_ERROR);
+
+    /**
+     * The number of entity types listed for each crowded area in hotspot mode.
+     */
+    private static final int HOTSPOT_REPORTED_TYPES = 3;
+
+    /**
+     * The number of centers searched between two progress updates.
+     */
+    private static final int SEARCH_BLOCK_SIZE = 64;
     
     // Input parameters
     
@@ -64,39 +131,87 @@ public class EntityDensityCalculator extends AsyncTaskExecutor {
      * with the highest possible density.
      */
     private final int minNumber;
+
+    /**
+     * The maximum radius (in blocks) of a candidate sphere, infinity if not limited.
+     * Only limited if the snapshots do not hold every entity, see {@link #setMaxRadius(double)}.
+     * Set on the main server thread before the task is submitted.
+     */
+    private double maxRadius;
+
+    /**
+     * Whether the snapshots only hold part of the loaded entities, see {@link #setPartial()}.
+     * Only accessed from the main server thread.
+     */
+    private boolean partial;
     
     /**
-     * The command context from which this calculation was initiated.
-     * Used to send feedback messages to the command source upon completion.
-     * May be null if no feedback is required.
+     * The command contexts waiting for this calculation, the one it was initiated from first.
+     * Used to send feedback messages to the command sources upon completion.
+     * Empty if no feedback is required. Only accessed from the main server thread.
      */
-    private final CommandContext<ServerCommandSource> context;
+    private final List<CommandContext<ServerCommandSource>> contexts;
+
+    /**
+     * The algorithm used to search for the highest-density region.
+     */
+    private final EntityDensityAlgorithm algorithm;
+
+    /**
+     * The number of threads used to search candidate centers, never more than the available processors.
+     * 1 means the search runs on the async task thread only.
+     */
+    private int parallelism;
+
+    /**
+     * The pool that runs the parallel search, usually the one shared through the server data.
+     * If no pool is given, the common pool is used instead.
+     */
+    @Nullable
+    private ForkJoinPool searchPool;
+
+    /**
+     * The number of non-overlapping crowded areas to find.
+     * 1 only finds the most crowded area, larger values are searched on a single thread.
+     */
+    private final int hotspotCount;
 
     // Snapshot of entities for thread-safe processing
     
     /**
-     * Immutable snapshots of all entities to be analyzed.
-     * Created at construction time to ensure thread-safe processing in the async context.
-     * Each snapshot captures the entity's position, dimension, biome, and type identifier.
+     * Snapshots of all entities to be analyzed.
+     * Filled on the main thread before the task is submitted and not modified until the
+     * calculation has completed.
+     */
+    private final EntitySnapshotBuffer snapshots;
+
+    /**
+     * The number of entities provided as input, kept so that it remains available after
+     * the snapshot buffer has been reused.
+     */
+    private final int inputNumber;
+
+    /**
+     * The number of loaded entities reported in the messages, which may be more than
+     * {@link #inputNumber} if only part of the entities were snapshotted.
+     * Only accessed from the main server thread.
      */
-    private final List<EntitySnapshot> snapshots;
+    private int totalNumber;
 
     // Async Result fields
     
     /**
-     * The entity at the center of the highest-density region found.
-     * This is the location where the maximum entity density was detected.
-     * Null if no valid region was found.
+     * The snapshot index of the entity at the center of the highest-density region.
+     * -1 if no valid region was found.
      */
-    private volatile EntitySnapshot resultEntity;
+    private volatile int resultIndex;
     
     /**
-     * The nearest entity of the dominant type within the highest-density region.
+     * The snapshot index of the nearest entity of the dominant type within the highest-density region.
      * The "dominant type" is the entity type that appears most frequently in the region.
-     * This helps identify what is causing the high density.
-     * Null if no valid region was found.
+     * -1 if no valid region was found.
      */
-    private volatile EntitySnapshot resultCause;
+    private volatile int resultCauseIndex;
     
     /**
      * The radius (in blocks) of the highest-density region.
@@ -124,7 +239,7 @@ public class EntityDensityCalculator extends AsyncTaskExecutor {
     /**
      * The total number of entities within the highest-density region.
      * This includes all entity types within the sphere of radius {@link #finalRadius}
-     * centered at {@link #resultEntity}.
+     * centered at the result entity.
      */
     private volatile int finalCount;
     
@@ -133,81 +248,510 @@ public class EntityDensityCalculator extends AsyncTaskExecutor {
      * The dominant type is the entity type that appears most frequently in the region.
      */
     private volatile int finalNumber;
-        
+
     /**
-     * Immutable snapshot of an entity's state at a point in time.
-     * <p>
-     * This class captures all relevant information about an entity for spatial analysis
-     * without retaining references to non-thread-safe Minecraft objects like World.
-     * The snapshot includes:
-     * <ul>
-     *   <li>3D position coordinates (x, y, z)</li>
-     *   <li>Dimension identifier for cross-dimension comparisons</li>
-     *   <li>Biome identifier for potential biome-based analysis</li>
-     *   <li>Entity type identifier for grouping and classification</li>
-     *   <li>Original entity reference (for main-thread result retrieval only)</li>
-     * </ul>
+     * The number of entities searched as centers if the result is approximate, -1 if it is exact.
+     */
+    private volatile int searchedCenters;
+
+    /**
+     * Whether the search was stopped early by cancellation or the time limit.
+     */
+    private volatile boolean searchStopped;
+
+    /**
+     * The number of candidate centers to search and the number already searched, for progress reporting.
+     */
+    private volatile int totalCenters;
+    private final AtomicInteger finishedCenters;
+
+    /**
+     * The non-overlapping crowded areas found in hotspot mode, most crowded first.
+     * Null if only the most crowded area was searched.
+     */
+    private volatile List<EntityHotspot> hotspots;
+
+    // Main thread result fields, copied from the snapshot buffer in taskAfterCompletion()
+
+    private Entity resultEntity;
+    private Entity resultCause;
+    private double resultX;
+    private double resultY;
+    private double resultZ;
+    private Identifier resultDimension;
+    private Identifier resultBiome;
+
+    /**
+     * The best candidate region found so far during the density search.
+     * A candidate only replaces the current one if its density is strictly higher,
+     * so the first candidate in search order wins ties.
      * <p>
-     * Thread Safety: All fields except {@link #entity} are safe to access from any thread.
-     * The {@link #entity} field must only be accessed from the main server thread.
-     */
-    private static class EntitySnapshot {
-
-        final double x;
-        final double y;
-        final double z;
-        final Identifier dimension;
-        final Identifier biome;
-        final Identifier entityType;
-        final Entity entity;
-        
+     * In parallel mode every task has its own candidate, and all candidates of a calculation
+     * publish their density to a shared maximum. Tasks use it to skip work that cannot beat
+     * any other task, and the candidates are merged in search order afterwards.
+     */
+    private static class DensityCandidate {
+
+        double density = Double.NEGATIVE_INFINITY;
+        int index = -1;
+        double radiusSquared = 0.0;
+        @Nullable
+        final AtomicLong sharedDensity;
+
+        DensityCandidate(@Nullable AtomicLong sharedDensity) {
+            this.sharedDensity = sharedDensity;
+        }
+
+        void offer(double density, int index, double radiusSquared) {
+            if (density > this.density) {
+                this.density = density;
+                this.index = index;
+                this.radiusSquared = radiusSquared;
+                if (this.sharedDensity != null) {
+                    long current = this.sharedDensity.get();
+                    while (density > Double.longBitsToDouble(current) && !this.sharedDensity.compareAndSet(current, Double.doubleToLongBits(density))) {
+                        current = this.sharedDensity.get();
+                    }
+                }
+            }
+        }
+
         /**
-         * Creates an immutable snapshot of an entity's current state.
+         * Checks whether no candidate with a density of at most {@code bound} can change the result.
          * <p>
-         * This constructor extracts all necessary information from the entity and its
-         * world context, creating a thread-safe representation that can be safely
-         * processed asynchronously.
+         * Candidates found by other tasks may come later in search order, so they only rule out
+         * strictly lower densities. Equal densities must still be found, because the earlier one wins.
          *
-         * @param entity The entity to snapshot. Must not be null and must have a valid world.
+         * @param bound An upper bound of the density of the remaining candidates.
+         * @return True if the remaining candidates can be skipped.
          */
-        EntitySnapshot(Entity entity) {
-            this.x = entity.getX();
-            this.y = entity.getY();
-            this.z = entity.getZ();
-            this.dimension = entity.getWorld().getRegistryKey().getValue();
-            this.biome = entity.getWorld().getBiome(entity.getBlockPos()).getKey().map(key -> key.getValue()).orElse(null);
-            this.entityType = EntityType.getId(entity.getType());
-            this.entity = entity;
+        boolean cannotBeat(double bound) {
+            if (bound <= this.density) {
+                return true;
+            }
+            return this.sharedDensity != null && bound < Double.longBitsToDouble(this.sharedDensity.get());
         }
 
         /**
-         * Calculates the squared Euclidean distance to another entity snapshot.
-         * <p>
-         * Using squared distance avoids expensive square root calculations during
-         * comparison operations. The actual distance can be obtained by taking the
-         * square root of this value if needed.
+         * Merges a candidate that comes later in search order into this one.
+         *
+         * @param later The candidate found after this one.
+         */
+        void merge(DensityCandidate later) {
+            if (later.density > this.density) {
+                this.density = later.density;
+                this.index = later.index;
+                this.radiusSquared = later.radiusSquared;
+            }
+        }
+    }
+
+    /**
+     * One of the non-overlapping crowded areas found in hotspot mode.
+     * <p>
+     * The snapshot indices and the type breakdown are filled by the async search, the entity,
+     * position and identifiers are copied out of the snapshot buffer on the main thread in
+     * {@link #taskAfterCompletion()}, after that the hotspot no longer depends on the buffer.
+     */
+    public static class EntityHotspot {
+
+        private final int index;
+        private final double radius;
+        private final double density;
+        private final int count;
+        private final int[] typeIds;
+        private final int[] typeCounts;
+
+        private Entity entity;
+        private double x;
+        private double y;
+        private double z;
+        private Identifier dimension;
+        private Identifier biome;
+        private List<Identifier> entityTypes;
+        private List<Integer> entityTypeCounts;
+
+        EntityHotspot(int index, double radius, double density, int count, int[] typeIds, int[] typeCounts) {
+            this.index = index;
+            this.radius = radius;
+            this.density = density;
+            this.count = count;
+            this.typeIds = typeIds;
+            this.typeCounts = typeCounts;
+        }
+
+        void resolve(EntitySnapshotBuffer snapshots) {
+            this.entity = snapshots.getEntity(this.index);
+            this.x = snapshots.getX(this.index);
+            this.y = snapshots.getY(this.index);
+            this.z = snapshots.getZ(this.index);
+            this.dimension = snapshots.getDimension(snapshots.getDimensionId(this.index));
+            this.biome = snapshots.getBiome(this.index);
+            this.entityTypes = new ArrayList<>();
+            this.entityTypeCounts = new ArrayList<>();
+            for (int i = 0; i < this.typeIds.length; i++) {
+                this.entityTypes.add(snapshots.getEntityType(this.typeIds[i]));
+                this.entityTypeCounts.add(this.typeCounts[i]);
+            }
+        }
+
+        /**
+         * Gets the entity at the center of the area.
+         * @return The center entity.
+         */
+        public Entity getEntity() {
+            return this.entity;
+        }
+
+        /**
+         * Gets the X coordinate of the center of the area.
+         * @return The X coordinate of the center entity.
+         */
+        public double getX() {
+            return this.x;
+        }
+
+        /**
+         * Gets the Y coordinate of the center of the area.
+         * @return The Y coordinate of the center entity.
+         */
+        public double getY() {
+            return this.y;
+        }
+
+        /**
+         * Gets the Z coordinate of the center of the area.
+         * @return The Z coordinate of the center entity.
+         */
+        public double getZ() {
+            return this.z;
+        }
+
+        /**
+         * Gets the dimension the area is in.
+         * @return The dimension identifier.
+         */
+        public Identifier getDimension() {
+            return this.dimension;
+        }
+
+        /**
+         * Gets the biome at the center of the area.
+         * @return The biome identifier, or null if the biome has no identifier.
+         */
+        @Nullable
+        public Identifier getBiome() {
+            return this.biome;
+        }
+
+        /**
+         * Gets the radius of the sphere around the center entity.
+         * @return The radius in blocks.
+         */
+        public double getRadius() {
+            return this.radius;
+        }
+
+        /**
+         * Gets the density of the area, the number of entities divided by the volume of the sphere.
+         * @return The density in entities per cubic block.
+         */
+        public double getDensity() {
+            return this.density;
+        }
+
+        /**
+         * Gets the number of entities of all types within the area.
+         * @return The number of entities.
+         */
+        public int getCount() {
+            return this.count;
+        }
+
+        /**
+         * Gets the entity types within the area, the most frequent type first.
+         * @return The entity type identifiers, matching {@link #getEntityTypeCounts()}.
+         */
+        public List<Identifier> getEntityTypes() {
+            return this.entityTypes;
+        }
+
+        /**
+         * Gets the number of entities of each type within the area.
+         * @return The numbers in descending order, matching {@link #getEntityTypes()}.
+         */
+        public List<Integer> getEntityTypeCounts() {
+            return this.entityTypeCounts;
+        }
+    }
+
+    /**
+     * The best candidate sphere of every grid cell of a dimension, used to find non-overlapping hotspots.
+     * <p>
+     * Candidates are kept per cell, so that the many centers of a single crowded area do not
+     * take all hotspot places. The hotspots are then picked greedily, most crowded first,
+     * skipping every candidate whose sphere overlaps an already picked one.
+     */
+    private class HotspotCells {
+
+        final DensityCandidate[] cells;
+        double threshold;
+
+        HotspotCells(int cellCount) {
+            this.cells = new DensityCandidate[cellCount];
+            this.threshold = Double.NEGATIVE_INFINITY;
+        }
+
+        double getDensity(int cell) {
+            return this.cells[cell] == null ? Double.NEGATIVE_INFINITY : this.cells[cell].density;
+        }
+
+        void offer(int cell, DensityCandidate candidate) {
+            if (candidate.density > this.getDensity(cell)) {
+                this.cells[cell] = candidate;
+            }
+        }
+
+        /**
+         * Gets the density of the least crowded hotspot picked from the current candidates.
+         * A center that cannot beat it is unlikely to change the hotspots anymore.
+         *
+         * @return The density, or negative infinity if there are not enough hotspots yet.
+         */
+        double getThreshold() {
+            // The threshold usually only grows, so try the candidates above the last one first
+            List<DensityCandidate> picked = this.pick(this.threshold);
+            if (picked.size() < hotspotCount) {
+                picked = this.pick(Double.NEGATIVE_INFINITY);
+            }
+            this.threshold = picked.size() < hotspotCount ? Double.NEGATIVE_INFINITY : picked.get(picked.size() - 1).density;
+            return this.threshold;
+        }
+
+        /**
+         * Picks up to {@link #hotspotCount} non-overlapping candidates, most crowded first.
+         *
+         * @param minDensity Candidates with a lower density are ignored.
+         * @return The picked candidates.
+         */
+        List<DensityCandidate> pick(double minDensity) {
+            List<DensityCandidate> sorted = new ArrayList<>();
+            for (DensityCandidate candidate : this.cells) {
+                if (candidate != null && candidate.density >= minDensity) {
+                    sorted.add(candidate);
+                }
+            }
+            // Ties are broken by the snapshot index, so that the result does not depend on the cell layout
+            sorted.sort((first, second) -> first.density != second.density ? Double.compare(second.density, first.density) : Integer.compare(first.index, second.index));
+            List<DensityCandidate> picked = new ArrayList<>();
+            for (DensityCandidate candidate : sorted) {
+                if (picked.size() >= hotspotCount) {
+                    break;
+                }
+                boolean overlaps = false;
+                for (DensityCandidate other : picked) {
+                    double distance = Math.sqrt(snapshots.squaredDistance(candidate.index, other.index));
+                    if (distance < Math.sqrt(candidate.radiusSquared) + Math.sqrt(other.radiusSquared)) {
+                        overlaps = true;
+                        break;
+                    }
+                }
+                if (!overlaps) {
+                    picked.add(candidate);
+                }
+            }
+            return picked;
+        }
+    }
+
+    /**
+     * The entities of a single dimension, prepared for the density search.
+     * Immutable after construction, so the same instance can be searched from multiple threads.
+     */
+    private class DimensionSearch {
+
+        final int[] entities;
+        final double[] x;
+        final double[] y;
+        final double[] z;
+        final EntitySpatialGrid grid;
+
+        /**
+         * The local indices of the entities searched as centers in ascending order,
+         * null if every entity is searched.
+         */
+        final int[] centers;
+
+        DimensionSearch(int[] entities) {
+            this.entities = entities;
+            if (algorithm == EntityDensityAlgorithm.BRUTE_FORCE && hotspotCount <= 1) {
+                this.x = null;
+                this.y = null;
+                this.z = null;
+                this.grid = null;
+                this.centers = null;
+                return;
+            }
+            final int size = entities.length;
+            this.x = new double[size];
+            this.y = new double[size];
+            this.z = new double[size];
+            for (int i = 0; i < size; i++) {
+                this.x[i] = snapshots.getX(entities[i]);
+                this.y[i] = snapshots.getY(entities[i]);
+                this.z[i] = snapshots.getZ(entities[i]);
+            }
+            // Cells of about the minimum radius make the first few rings cover the smallest candidate spheres
+            this.grid = new EntitySpatialGrid(this.x, this.y, this.z, size, minRadius);
+            if (algorithm == EntityDensityAlgorithm.APPROXIMATE && size > APPROXIMATE_SAMPLES) {
+                this.centers = this.selectApproximateCenters();
+            } else {
+                this.centers = null;
+            }
+        }
+
+        /**
+         * Selects the entities of the most crowded grid cells and a uniform random sample of all entities.
+         * The sample gives the error bound, the crowded cells make it very likely to hit the exact result anyway.
+         */
+        private int[] selectApproximateCenters() {
+            final int size = this.entities.length;
+            boolean[] selected = new boolean[size];
+            // Rank the cells by their neighborhood population, the cell index is kept in the lower bits
+            int[] populations = this.grid.getNeighborhoodPopulations();
+            long[] ranking = new long[populations.length];
+            for (int cell = 0; cell < populations.length; cell++) {
+                ranking[cell] = ((long) populations[cell] << 32) | cell;
+            }
+            Arrays.sort(ranking);
+            for (int r = ranking.length - 1; r >= Math.max(0, ranking.length - APPROXIMATE_TOP_CELLS); r--) {
+                int cell = (int) ranking[r];
+                int population = this.grid.getCellPopulation(cell);
+                int step = Math.max(1, population / APPROXIMATE_CELL_CENTERS);
+                for (int member = 0; member < population; member += step) {
+                    selected[this.grid.getCellMember(cell, member)] = true;
+                }
+            }
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < APPROXIMATE_SAMPLES; i++) {
+                selected[random.nextInt(size)] = true;
+            }
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                if (selected[i]) {
+                    count++;
+                }
+            }
+            int[] result = new int[count];
+            count = 0;
+            for (int i = 0; i < size; i++) {
+                if (selected[i]) {
+                    result[count++] = i;
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Gets the number of centers to search.
+         *
+         * @return The number of entities searched as centers.
+         */
+        int getCenterCount() {
+            return this.centers == null ? this.entities.length : this.centers.length;
+        }
+
+        /**
+         * Searches the candidate spheres centered at the centers in {@code [from, to)}.
+         *
+         * @param from The first center, inclusive.
+         * @param to The last center, exclusive.
+         * @param best The best candidate found so far, updated in place.
+         */
+        void search(int from, int to, DensityCandidate best) {
+            final double[] distancesSquared = new double[this.entities.length];
+            for (int blockFrom = from; blockFrom < to && !searchStopped; blockFrom += SEARCH_BLOCK_SIZE) {
+                int blockTo = Math.min(to, blockFrom + SEARCH_BLOCK_SIZE);
+                if (this.grid == null) {
+                    searchBruteForce(this, blockFrom, blockTo, best, distancesSquared);
+                } else {
+                    searchSpatialGrid(this, blockFrom, blockTo, best, distancesSquared);
+                }
+                setProgress((double) finishedCenters.addAndGet(blockTo - blockFrom) / totalCenters);
+            }
+        }
+
+        /**
+         * Searches the densest candidate sphere of every center, keeping the best one per grid cell.
          * <p>
-         * Entities in different dimensions are considered infinitely far apart.
+         * A center is only searched until it can no longer beat the best sphere of its own cell or
+         * the least dense of the hotspots selected so far, so the cost stays close to a single search.
          *
-         * @param other The other entity snapshot to measure distance to.
-         * @return The squared distance in blocks², or NaN if the entities are in
-         *         different dimensions or if other is null.
+         * @param cells The best candidate per grid cell, updated in place.
          */
-        double squaredDistanceTo(EntitySnapshot other) {
-            if (other == null || !this.dimension.equals(other.dimension)) {
-                return Double.NaN; // Different dimensions
+        void searchHotspots(HotspotCells cells) {
+            final double[] distancesSquared = new double[this.entities.length];
+            final int centerCount = this.getCenterCount();
+            for (int blockFrom = 0; blockFrom < centerCount && !searchStopped; blockFrom += SEARCH_BLOCK_SIZE) {
+                int blockTo = Math.min(centerCount, blockFrom + SEARCH_BLOCK_SIZE);
+                final double threshold = cells.getThreshold();
+                for (int c = blockFrom; c < blockTo; c++) {
+                    int cell = this.grid.getCellIndex(this.centers == null ? c : this.centers[c]);
+                    DensityCandidate local = new DensityCandidate(null);
+                    local.density = Math.max(cells.getDensity(cell), threshold);
+                    searchSpatialGrid(this, c, c + 1, local, distancesSquared);
+                    if (local.index >= 0) {
+                        cells.offer(cell, local);
+                    }
+                }
+                setProgress((double) finishedCenters.addAndGet(blockTo - blockFrom) / totalCenters);
+            }
+        }
+    }
+
+    /**
+     * Searches a range of candidate centers of a single dimension on a {@link ForkJoinPool}.
+     * Ranges larger than {@link #SPLIT_THRESHOLD} are split in half, and the results are
+     * merged in search order so that the result is identical to the sequential search.
+     */
+    private static class DensitySearchTask extends RecursiveTask<DensityCandidate> {
+
+        private static final int SPLIT_THRESHOLD = 64;
+
+        private final DimensionSearch dimension;
+        private final int from;
+        private final int to;
+        private final AtomicLong sharedDensity;
+
+        DensitySearchTask(DimensionSearch dimension, int from, int to, AtomicLong sharedDensity) {
+            this.dimension = dimension;
+            this.from = from;
+            this.to = to;
+            this.sharedDensity = sharedDensity;
+        }
+
+        @Override
+        protected DensityCandidate compute() {
+            if (this.to - this.from <= SPLIT_THRESHOLD) {
+                DensityCandidate best = new DensityCandidate(this.sharedDensity);
+                this.dimension.search(this.from, this.to, best);
+                return best;
             }
-            double dx = this.x - other.x;
-            double dy = this.y - other.y;
-            double dz = this.z - other.z;
-            return dx * dx + dy * dy + dz * dz;
+            int middle = (this.from + this.to) >>> 1;
+            DensitySearchTask left = new DensitySearchTask(this.dimension, this.from, middle, this.sharedDensity);
+            DensitySearchTask right = new DensitySearchTask(this.dimension, middle, this.to, this.sharedDensity);
+            left.fork();
+            DensityCandidate rightResult = right.compute();
+            DensityCandidate result = left.join();
+            result.merge(rightResult);
+            return result;
         }
     }
     
     /**
      * Constructs a new entity density calculator with the specified parameters.
      * <p>
-     * This constructor creates immutable snapshots of all provided entities to ensure
+     * This constructor creates snapshots of all provided entities to ensure
      * thread-safe processing. The actual calculation is performed asynchronously when
      * the task is executed.
      *
@@ -222,101 +766,235 @@ public class EntityDensityCalculator extends AsyncTaskExecutor {
      *                  Absolute value is used.
      */
     public EntityDensityCalculator(CommandContext<ServerCommandSource> context, Iterable<Entity> entities, double minRadius, int minNumber) {
-        this.context = context;
+        this(context, entities, minRadius, minNumber, Util.serverConfig.getEntityDensityAlgorithm());
+    }
+
+    /**
+     * Constructs a new entity density calculator using the specified search algorithm.
+     *
+     * @param context The command context for sending feedback messages. May be null if
+     *                no feedback is required.
+     * @param entities An iterable of entities to analyze. Must not be null.
+     * @param minRadius The minimum radius constraint in blocks. Absolute value is used.
+     * @param minNumber The minimum number of entities required in the density region.
+     *                  Absolute value is used.
+     * @param algorithm The algorithm used to search for the highest-density region.
+     *                  Null falls back to {@link EntityDensityAlgorithm#SPATIAL_GRID}.
+     */
+    public EntityDensityCalculator(CommandContext<ServerCommandSource> context, Iterable<Entity> entities, double minRadius, int minNumber, EntityDensityAlgorithm algorithm) {
+        this(context, createSnapshots(entities), minRadius, minNumber, algorithm, 1);
+    }
+
+    /**
+     * Constructs a new entity density calculator that finds several non-overlapping crowded areas.
+     *
+     * @param context The command context for sending feedback messages. May be null if
+     *                no feedback is required.
+     * @param entities An iterable of entities to analyze. Must not be null.
+     * @param minRadius The minimum radius constraint in blocks. Absolute value is used.
+     * @param minNumber The minimum number of entities required in the density region.
+     *                  Absolute value is used.
+     * @param algorithm The algorithm used to search for the highest-density region.
+     *                  Null falls back to {@link EntityDensityAlgorithm#SPATIAL_GRID}.
+     * @param hotspotCount The number of crowded areas to find, see {@link #getHotspots()}.
+     */
+    public EntityDensityCalculator(CommandContext<ServerCommandSource> context, Iterable<Entity> entities, double minRadius, int minNumber, EntityDensityAlgorithm algorithm, int hotspotCount) {
+        this(context, createSnapshots(entities), minRadius, minNumber, algorithm, hotspotCount);
+    }
+
+    /**
+     * Constructs a new entity density calculator over an already filled snapshot buffer.
+     * <p>
+     * The buffer must not be modified until {@link #taskAfterCompletion()} has executed,
+     * after that it may be cleared and reused for the next calculation.
+     *
+     * @param context The command context for sending feedback messages. May be null if
+     *                no feedback is required.
+     * @param snapshots The snapshots of the entities to analyze. Must not be null.
+     * @param minRadius The minimum radius constraint in blocks. Absolute value is used.
+     * @param minNumber The minimum number of entities required in the density region.
+     *                  Absolute value is used.
+     * @param algorithm The algorithm used to search for the highest-density region.
+     *                  Null falls back to {@link EntityDensityAlgorithm#SPATIAL_GRID}.
+     */
+    public EntityDensityCalculator(CommandContext<ServerCommandSource> context, EntitySnapshotBuffer snapshots, double minRadius, int minNumber, EntityDensityAlgorithm algorithm) {
+        this(context, snapshots, minRadius, minNumber, algorithm, 1);
+    }
+
+    /**
+     * Constructs a new entity density calculator over an already filled snapshot buffer
+     * that finds several non-overlapping crowded areas.
+     * <p>
+     * The buffer must not be modified until {@link #taskAfterCompletion()} has executed,
+     * after that it may be cleared and reused for the next calculation.
+     *
+     * @param context The command context for sending feedback messages. May be null if
+     *                no feedback is required.
+     * @param snapshots The snapshots of the entities to analyze. Must not be null.
+     * @param minRadius The minimum radius constraint in blocks. Absolute value is used.
+     * @param minNumber The minimum number of entities required in the density region.
+     *                  Absolute value is used.
+     * @param algorithm The algorithm used to search for the highest-density region.
+     *                  Null falls back to {@link EntityDensityAlgorithm#SPATIAL_GRID}.
+     * @param hotspotCount The number of crowded areas to find, see {@link #getHotspots()}.
+     *                     Values below 1 are treated as 1.
+     */
+    public EntityDensityCalculator(CommandContext<ServerCommandSource> context, EntitySnapshotBuffer snapshots, double minRadius, int minNumber, EntityDensityAlgorithm algorithm, int hotspotCount) {
+        this.contexts = new ArrayList<>();
+        if (context != null) {
+            this.contexts.add(context);
+        }
+        this.algorithm = algorithm == null ? EntityDensityAlgorithm.SPATIAL_GRID : algorithm;
+        this.parallelism = Math.min(Util.serverConfig.getEntityDensityParallelism(), Runtime.getRuntime().availableProcessors());
+        this.searchPool = null;
+        this.hotspotCount = Math.max(1, hotspotCount);
         this.minRadius = Math.abs(minRadius);
         this.minNumber = Math.abs(minNumber);
-        
-        // Create snapshots
-        this.snapshots = new ArrayList<>();
-        for (Entity entity : entities) {
-            this.snapshots.add(new EntitySnapshot(entity));
-        }
+        this.maxRadius = Double.POSITIVE_INFINITY;
+        this.partial = false;
+        this.snapshots = snapshots;
+        this.inputNumber = snapshots.size();
+        this.totalNumber = this.inputNumber;
 
-        this.resultEntity = null;
-        this.resultCause = null;
+        this.resultIndex = -1;
+        this.resultCauseIndex = -1;
         this.finalRadius = Double.NaN;
         this.finalDensity = Double.NaN;
         this.finalCount = 0;
         this.finalNumber = 0;
+        this.searchedCenters = -1;
+        this.searchStopped = false;
+        this.hotspots = null;
+        this.totalCenters = 1;
+        this.finishedCenters = new AtomicInteger(0);
+        this.setTimeBudget(Util.serverConfig.getEntityDensityTimeLimit());
+    }
+
+    private static EntitySnapshotBuffer createSnapshots(Iterable<Entity> entities) {
+        EntitySnapshotBuffer snapshots = new EntitySnapshotBuffer();
+        snapshots.addAll(entities);
+        return snapshots;
     }
 
     /**
-     * Groups all entity snapshots by their dimension identifier.
+     * Groups all snapshot indices by their dimension id.
      * <p>
      * This is used to ensure that density calculations only consider entities within
      * the same dimension, as cross-dimensional distances are not meaningful.
      *
-     * @return A map where keys are dimension identifiers and values are lists of
-     *         entity snapshots in that dimension.
+     * @return An array indexed by dimension id, each holding the snapshot indices in that dimension.
      */
-    private Map<Identifier, List<EntitySnapshot>> groupByDimension() {
-        Map<Identifier, List<EntitySnapshot>> map = new HashMap<>();
-        for (EntitySnapshot snapshot : snapshots) {
-            map.computeIfAbsent(snapshot.dimension, k -> new ArrayList<>()).add(snapshot);
+    private int[][] groupByDimension() {
+        int[] counts = new int[snapshots.getDimensionCount()];
+        for (int i = 0; i < snapshots.size(); i++) {
+            counts[snapshots.getDimensionId(i)]++;
+        }
+        int[][] groups = new int[counts.length][];
+        for (int dimension = 0; dimension < counts.length; dimension++) {
+            groups[dimension] = new int[counts[dimension]];
+            counts[dimension] = 0;
+        }
+        for (int i = 0; i < snapshots.size(); i++) {
+            int dimension = snapshots.getDimensionId(i);
+            groups[dimension][counts[dimension]++] = i;
         }
-        return map;
+        return groups;
     }
 
     /**
-     * Identifies the dominant entity type in a collection and returns all entities of that type.
+     * Gets the snapshot indices of all entities, in input order.
+     *
+     * @return An array containing every snapshot index.
+     */
+    private int[] getAllIndices() {
+        int[] indices = new int[snapshots.size()];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = i;
+        }
+        return indices;
+    }
+
+    /**
+     * Identifies the dominant entity type in a collection.
      * <p>
      * The dominant type is defined as the entity type that appears most frequently in the
-     * provided list. This helps identify what is causing high entity density (e.g., a mob
+     * provided entities. This helps identify what is causing high entity density (e.g., a mob
      * farm with many cows, or a village with many villagers).
      *
-     * @param entities The list of entity snapshots to analyze. Must not be null or empty.
-     * @return A list containing all entities of the most common type. If multiple types
-     *         tie for most common, returns one of the tied groups.
+     * @param indices The snapshot indices to analyze.
+     * @param length The number of valid entries in {@code indices}. Must be positive.
+     * @return A two-element array of the dominant type id and the number of entities of that type.
+     *         If multiple types tie for most common, the type that first reached the count wins.
      */
-    private List<EntitySnapshot> getDominantEntities(List<EntitySnapshot> entities) {
-        Map<Identifier, List<EntitySnapshot>> typeMap = new HashMap<>();
+    private int[] getDominantType(int[] indices, int length) {
+        int[] typeCounts = new int[snapshots.getTypeCount()];
         int maxCount = 0;
-        List<EntitySnapshot> dominantList = new ArrayList<>();
-        for (EntitySnapshot snapshot : entities) {
-            List<EntitySnapshot> list = typeMap.computeIfAbsent(snapshot.entityType, k -> new ArrayList<>());
-            list.add(snapshot);
-            if (list.size() > maxCount) {
-                maxCount = list.size();
-                dominantList = list;
+        int dominantType = -1;
+        for (int j = 0; j < length; j++) {
+            int type = snapshots.getTypeId(indices[j]);
+            typeCounts[type]++;
+            if (typeCounts[type] > maxCount) {
+                maxCount = typeCounts[type];
+                dominantType = type;
             }
         }
-        return dominantList;
+        return new int[] {dominantType, maxCount};
     }
 
     /**
-     * Finds the entity nearest to a specified center point from a list of candidates.
+     * Finds the entity of a given type nearest to a specified center.
      * <p>
      * This is used to identify the closest entity of the dominant type, which helps
      * pinpoint the specific cause of high density within a region.
      *
-     * @param entities The list of candidate entities to search. Must not be null.
-     * @param center The reference point to measure distances from. Must not be null.
-     * @param fallback The entity to return if no valid nearest entity is found
-     *                 (e.g., all entities are in different dimensions).
-     * @return The nearest entity to the center, or the fallback if none found.
+     * @param indices The snapshot indices to search.
+     * @param length The number of valid entries in {@code indices}.
+     * @param type The entity type id to look for.
+     * @param center The snapshot index to measure distances from.
+     * @return The nearest entity of that type in the same dimension as the center. If there
+     *         is none, the first entity of that type is returned as a fallback.
      */
-    private EntitySnapshot getNearestEntity(List<EntitySnapshot> entities, EntitySnapshot center, EntitySnapshot fallback) {
-        EntitySnapshot nearest = null;
+    private int getNearestEntity(int[] indices, int length, int type, int center) {
+        int nearest = -1;
+        int fallback = -1;
         double minDistSq = Double.POSITIVE_INFINITY;
-        for (EntitySnapshot snapshot : entities) {
-            double distSq = center.squaredDistanceTo(snapshot);
+        for (int j = 0; j < length; j++) {
+            int index = indices[j];
+            if (snapshots.getTypeId(index) != type) {
+                continue;
+            }
+            if (fallback < 0) {
+                fallback = index;
+            }
+            double distSq = snapshots.squaredDistance(center, index);
             if (!Double.isNaN(distSq) && distSq < minDistSq) {
                 minDistSq = distSq;
-                nearest = snapshot;
+                nearest = index;
             }
         }
-        if (nearest == null) {
+        if (nearest < 0) {
             return fallback;
         }
         return nearest;
     }
+
+    /**
+     * Sets the result to the whole given collection of entities, used by the special cases.
+     */
+    private void setWholeResult(int[] indices, int center, double radius, double density) {
+        int[] dominant = getDominantType(indices, indices.length);
+        resultIndex = center;
+        resultCauseIndex = getNearestEntity(indices, indices.length, dominant[0], center);
+        finalRadius = radius;
+        finalDensity = density;
+        finalCount = indices.length;
+        finalNumber = dominant[1];
+    }
     
     /**
      * Executes the entity density calculation algorithm asynchronously.
      * <p>
-     * This method implements a sophisticated spatial analysis algorithm with O(n²log₂n)
-     * complexity, where n is the number of entities. The algorithm handles several
-     * special cases before performing the main density calculation:
+     * The algorithm handles several special cases before performing the main density calculation:
      * <ol>
      *   <li>Empty entity set: Returns no result.</li>
      *   <li>NaN radius: Considers all entities regardless of distance.</li>
@@ -330,9 +1008,9 @@ public class EntityDensityCalculator extends AsyncTaskExecutor {
      * the optimal radius that maximizes density while satisfying the minRadius and
      * minNumber constraints.
      * <p>
-     * Thread Safety: This method runs on a background thread and only accesses
-     * thread-safe snapshot data. It calls {@link #markAsyncFinished()} upon completion
-     * to signal that results are ready.
+     * Thread Safety: This method runs on a background thread and only reads the
+     * positions and ids of the snapshot buffer. It calls {@link #markAsyncFinished()}
+     * upon completion to signal that results are ready.
      *
      * @see AsyncTaskExecutor#executeAsyncTask()
      */
@@ -340,8 +1018,8 @@ public class EntityDensityCalculator extends AsyncTaskExecutor {
     protected void executeAsyncTask() {
         // Case 1: No entities
         if (snapshots.isEmpty()) {
-            resultEntity = null;
-            resultCause = null;
+            resultIndex = -1;
+            resultCauseIndex = -1;
             finalRadius = Double.NaN;
             finalDensity = Double.NaN;
             finalCount = 0;
@@ -352,60 +1030,38 @@ public class EntityDensityCalculator extends AsyncTaskExecutor {
         
         // Case 2: minRadius is NaN - all entities are considered within range
         if (Double.isNaN(minRadius)) {
-            List<EntitySnapshot> dominantEntities = getDominantEntities(snapshots);
-            EntitySnapshot nearestDominant = getNearestEntity(dominantEntities, snapshots.get(0), dominantEntities.get(0));
-            resultEntity = snapshots.get(0);
-            resultCause = nearestDominant;
-            finalRadius = Double.NaN;
-            finalDensity = Double.NaN;
-            finalCount = snapshots.size();
-            finalNumber = dominantEntities.size();
+            setWholeResult(getAllIndices(), 0, Double.NaN, Double.NaN);
             markAsyncFinished();
             return;
         }
         
         // Case 3: minRadius is infinity - find dimension with max entities
-        Map<Identifier, List<EntitySnapshot>> dimensionMap = groupByDimension();
-        Identifier maxDimension = null;
+        int[][] dimensionGroups = groupByDimension();
+        int[] maxEntities = null;
         int maxCount = 0;
-        for (Map.Entry<Identifier, List<EntitySnapshot>> entry : dimensionMap.entrySet()) {
-            if (entry.getValue().size() > maxCount) {
-                maxCount = entry.getValue().size();
-                maxDimension = entry.getKey();
+        for (int[] group : dimensionGroups) {
+            if (group.length > maxCount) {
+                maxCount = group.length;
+                maxEntities = group;
             }
         }
-        List<EntitySnapshot> maxEntities = dimensionMap.get(maxDimension);
         if (Double.isInfinite(minRadius)) {
-            List<EntitySnapshot> dominantEntities = getDominantEntities(maxEntities);
-            EntitySnapshot nearestDominant = getNearestEntity(dominantEntities, maxEntities.get(0), dominantEntities.get(0));
-            resultEntity = maxEntities.get(0);
-            resultCause = nearestDominant;
-            finalRadius = Double.POSITIVE_INFINITY;
-            finalDensity = 0.0;
-            finalCount = maxEntities.size();
-            finalNumber = dominantEntities.size();
+            setWholeResult(maxEntities, maxEntities[0], Double.POSITIVE_INFINITY, 0.0);
             markAsyncFinished();
             return;
         }
 
         // Case 4: Check if minNumber is achievable
         if (minNumber > maxCount) {
-            List<EntitySnapshot> dominantEntities = getDominantEntities(snapshots);
-            EntitySnapshot nearestDominant = getNearestEntity(dominantEntities, snapshots.get(0), dominantEntities.get(0));
-            resultEntity = snapshots.get(0);
-            resultCause = nearestDominant;
-            finalRadius = Double.NaN;
-            finalDensity = Double.NaN;
-            finalCount = snapshots.size();
-            finalNumber = dominantEntities.size();
+            setWholeResult(getAllIndices(), 0, Double.NaN, Double.NaN);
             markAsyncFinished();
             return;
         }
         
         // Case 5: minRadius == 0 && minNumber <= 1 - infinitesimal radius
         if (minRadius == 0.0 && minNumber <= 1) {
-            resultEntity = snapshots.get(0);
-            resultCause = snapshots.get(0);
+            resultIndex = 0;
+            resultCauseIndex = 0;
             finalRadius = 0.0;
             finalDensity = Double.POSITIVE_INFINITY;
             finalCount = 1;
@@ -415,46 +1071,52 @@ public class EntityDensityCalculator extends AsyncTaskExecutor {
         }
         
         // Main algorithm: Find maximum density
-        double maxDensity = Double.NEGATIVE_INFINITY;
-        EntitySnapshot bestEntity = null;
-        double bestRadiusSquared = 0.0;
-        final double minRadiusSquared = minRadius * minRadius;
-        for (List<EntitySnapshot> availableEntities : dimensionMap.values()) {
-            if (availableEntities.size() < minNumber) {
+        List<DimensionSearch> searches = new ArrayList<>();
+        for (int[] availableEntities : dimensionGroups) {
+            if (shouldStop()) {
+                // Building the grids takes time as well, search the dimensions prepared so far
+                searchStopped = true;
+                break;
+            }
+            if (availableEntities.length < minNumber) {
                 // Not enough entities in this dimension, skip
                 continue; 
             }
-
-            for (EntitySnapshot currentCenter : availableEntities) {
-                // Collect distances to all other entities in the same dimension
-                List<Double> distancesSquared = new ArrayList<>();
-                for (EntitySnapshot other : availableEntities) {
-                    distancesSquared.add(currentCenter.squaredDistanceTo(other));
-                }
-                distancesSquared.sort(Double::compare); // assert distancesSquared.get(0) == 0.0 because of self-distance
-                int potentialIndex = Math.max(0, minNumber - 1);  // O(n²log₂(n)) complexity
-                for (int i = potentialIndex; i < distancesSquared.size(); i++) {
-                    if (distancesSquared.get(i) < minRadiusSquared) {
-                        continue;
-                    }
-                    double potentialRadiusSquared = distancesSquared.get(i);
-                    double potentialRadius = Math.sqrt(potentialRadiusSquared);
-                    double potentialVolume = (4.0 / 3.0) * Math.PI * potentialRadius * potentialRadiusSquared;
-                    double potentialDensity = (1.0 + i) / potentialVolume;
-                    if (potentialDensity > maxDensity) {
-                        maxDensity = potentialDensity;
-                        bestEntity = currentCenter;
-                        bestRadiusSquared = potentialRadiusSquared;
-                    }
-                }
+            searches.add(new DimensionSearch(availableEntities));
+        }
+        int centerCount = 0;
+        boolean sampled = false;
+        for (DimensionSearch search : searches) {
+            centerCount += search.getCenterCount();
+            sampled |= search.centers != null;
+        }
+        searchedCenters = sampled ? centerCount : -1;
+        totalCenters = Math.max(1, centerCount);
+        DensityCandidate best;
+        if (hotspotCount > 1) {
+            List<DensityCandidate> picked = searchHotspots(searches);
+            best = picked.isEmpty() ? new DensityCandidate(null) : picked.get(0);
+            hotspots = createHotspots(picked, dimensionGroups);
+        } else if (parallelism > 1) {
+            best = searchParallel(searches);
+        } else {
+            best = new DensityCandidate(null);
+            for (DimensionSearch search : searches) {
+                search.search(0, search.getCenterCount(), best);
             }
         }
+        final double maxDensity = best.density;
+        final int bestEntity = best.index;
+        final double bestRadiusSquared = best.radiusSquared;
+        final double minRadiusSquared = minRadius * minRadius;
 
-        if (bestEntity == null) {
-            // Unlikely to happen
-            LoggerFactory.getLogger(Util.LOGGERNAME).error("FMinecraftMod: Failed to find candidate entity for density calculation.");
-            resultEntity = null;
-            resultCause = null;
+        if (bestEntity < 0) {
+            if (!searchStopped) {
+                // Unlikely to happen
+                LoggerFactory.getLogger(Util.LOGGERNAME).error("FMinecraftMod: Failed to find candidate entity for density calculation.");
+            }
+            resultIndex = -1;
+            resultCauseIndex = -1;
             finalRadius = Double.NaN;
             finalDensity = Double.NaN;
             finalCount = 0;
@@ -463,31 +1125,273 @@ public class EntityDensityCalculator extends AsyncTaskExecutor {
             return;
         }
         
-        List<EntitySnapshot> candidateEntities = dimensionMap.get(bestEntity.dimension);
-        List<EntitySnapshot> entitiesInRange = new ArrayList<>();
-        for (EntitySnapshot snapshot : candidateEntities) {
-            double distSq = bestEntity.squaredDistanceTo(snapshot);
+        int[] candidateEntities = dimensionGroups[snapshots.getDimensionId(bestEntity)];
+        int[] entitiesInRange = new int[candidateEntities.length];
+        int inRangeCount = 0;
+        for (int index : candidateEntities) {
+            double distSq = snapshots.squaredDistance(bestEntity, index);
             if (!Double.isNaN(distSq) && distSq <= bestRadiusSquared) {
-                entitiesInRange.add(snapshot);
+                entitiesInRange[inRangeCount++] = index;
             }
         }
 
-        if (entitiesInRange.size() < minNumber || bestRadiusSquared < minRadiusSquared) {
+        if (inRangeCount < minNumber || bestRadiusSquared < minRadiusSquared) {
             // Unlikely to happen
             LoggerFactory.getLogger(Util.LOGGERNAME).warn("FMinecraftMod: Failed to validate the candidate entity's neighborhood.");
         }
 
-        List<EntitySnapshot> dominantEntities = getDominantEntities(entitiesInRange);
-        EntitySnapshot nearestDominant = getNearestEntity(dominantEntities, bestEntity, dominantEntities.get(0));
-        resultEntity = bestEntity;
-        resultCause = nearestDominant;
+        int[] dominant = getDominantType(entitiesInRange, inRangeCount);
+        resultIndex = bestEntity;
+        resultCauseIndex = getNearestEntity(entitiesInRange, inRangeCount, dominant[0], bestEntity);
         finalRadius = Math.sqrt(bestRadiusSquared);
         finalDensity = maxDensity;
-        finalCount = entitiesInRange.size();
-        finalNumber = dominantEntities.size();
+        finalCount = inRangeCount;
+        finalNumber = dominant[1];
         markAsyncFinished();
     }
 
+    /**
+     * Calculates the density of a sphere containing the given number of entities.
+     * Both search algorithms use this method so that they produce bitwise identical densities.
+     *
+     * @param count The number of entities within the sphere.
+     * @param radiusSquared The squared radius of the sphere in blocks².
+     * @return The density in entities per cubic block.
+     */
+    private static double getSphereDensity(double count, double radiusSquared) {
+        double radius = Math.sqrt(radiusSquared);
+        double volume = (4.0 / 3.0) * Math.PI * radius * radiusSquared;
+        return count / volume;
+    }
+
+    /**
+     * Searches all dimensions on the {@link #searchPool}, or on the common pool if none is given.
+     * <p>
+     * The candidate centers of every dimension are split into tasks, the best candidate of each
+     * task is merged in search order, which gives the same result as the sequential search.
+     *
+     * @param searches The prepared dimensions to search.
+     * @return The best candidate over all dimensions.
+     */
+    private DensityCandidate searchParallel(List<DimensionSearch> searches) {
+        AtomicLong sharedDensity = new AtomicLong(Double.doubleToLongBits(Double.NEGATIVE_INFINITY));
+        ForkJoinPool pool = searchPool == null ? ForkJoinPool.commonPool() : searchPool;
+        List<ForkJoinTask<DensityCandidate>> tasks = new ArrayList<>();
+        for (DimensionSearch search : searches) {
+            tasks.add(pool.submit(new DensitySearchTask(search, 0, search.getCenterCount(), sharedDensity)));
+        }
+        DensityCandidate best = new DensityCandidate(null);
+        for (ForkJoinTask<DensityCandidate> task : tasks) {
+            best.merge(task.join());
+        }
+        return best;
+    }
+
+    /**
+     * Searches the {@link #hotspotCount} most crowded non-overlapping regions of all dimensions.
+     * <p>
+     * Every center is searched on the same spatial grid as {@link #searchSpatialGrid(DimensionSearch, int, int, DensityCandidate, double[])},
+     * but against the best candidate of its own grid cell instead of the global best one. Regions in
+     * different dimensions never overlap, so the picked regions of all dimensions are merged by density.
+     *
+     * @param searches The prepared dimensions to search.
+     * @return The picked candidates, most crowded first.
+     */
+    private List<DensityCandidate> searchHotspots(List<DimensionSearch> searches) {
+        List<DensityCandidate> picked = new ArrayList<>();
+        for (DimensionSearch search : searches) {
+            HotspotCells cells = new HotspotCells(search.grid.getCellCount());
+            search.searchHotspots(cells);
+            picked.addAll(cells.pick(Double.NEGATIVE_INFINITY));
+        }
+        picked.sort((first, second) -> Double.compare(second.density, first.density));
+        return new ArrayList<>(picked.subList(0, Math.min(hotspotCount, picked.size())));
+    }
+
+    /**
+     * Counts the entities of every type within each picked region.
+     *
+     * @param picked The picked candidates.
+     * @param dimensionGroups The snapshot indices grouped by dimension id.
+     * @return The hotspots in the same order.
+     */
+    private List<EntityHotspot> createHotspots(List<DensityCandidate> picked, int[][] dimensionGroups) {
+        List<EntityHotspot> result = new ArrayList<>();
+        for (DensityCandidate candidate : picked) {
+            int[] typeCounts = new int[snapshots.getTypeCount()];
+            int count = 0;
+            for (int index : dimensionGroups[snapshots.getDimensionId(candidate.index)]) {
+                if (snapshots.squaredDistance(candidate.index, index) <= candidate.radiusSquared) {
+                    typeCounts[snapshots.getTypeId(index)]++;
+                    count++;
+                }
+            }
+            int typeNumber = 0;
+            for (int typeCount : typeCounts) {
+                if (typeCount > 0) {
+                    typeNumber++;
+                }
+            }
+            // Sort the present types by their count, the first seen type wins ties
+            long[] order = new long[typeNumber];
+            typeNumber = 0;
+            for (int type = 0; type < typeCounts.length; type++) {
+                if (typeCounts[type] > 0) {
+                    order[typeNumber++] = ((long) (Integer.MAX_VALUE - typeCounts[type]) << 32) | type;
+                }
+            }
+            Arrays.sort(order);
+            int[] sortedTypes = new int[typeNumber];
+            int[] sortedCounts = new int[typeNumber];
+            for (int i = 0; i < typeNumber; i++) {
+                sortedTypes[i] = (int) order[i];
+                sortedCounts[i] = typeCounts[sortedTypes[i]];
+            }
+            result.add(new EntityHotspot(candidate.index, Math.sqrt(candidate.radiusSquared), candidate.density, count, sortedTypes, sortedCounts));
+        }
+        return result;
+    }
+
+    /**
+     * Searches the highest-density region in a single dimension by comparing every pair of entities.
+     * <p>
+     * For each entity as center, the distances to all other entities are sorted, and the
+     * i-th nearest entity defines a candidate sphere containing i + 1 entities.
+     * This has O(n²log₂n) complexity.
+     *
+     * @param dimension The entities in a single dimension.
+     * @param from The first center, inclusive.
+     * @param to The last center, exclusive.
+     * @param best The best candidate found so far, updated in place.
+     * @param distancesSquared A scratch buffer with room for every entity of the dimension.
+     */
+    private void searchBruteForce(DimensionSearch dimension, int from, int to, DensityCandidate best, double[] distancesSquared) {
+        final int[] availableEntities = dimension.entities;
+        final double minRadiusSquared = minRadius * minRadius;
+        final double maxRadiusSquared = maxRadius * maxRadius;
+        for (int center = from; center < to; center++) {
+            if (shouldStop()) {
+                searchStopped = true;
+                return;
+            }
+            final int currentCenter = availableEntities[center];
+            // Collect distances to all other entities in the same dimension
+            for (int j = 0; j < availableEntities.length; j++) {
+                distancesSquared[j] = snapshots.squaredDistance(currentCenter, availableEntities[j]);
+            }
+            Arrays.sort(distancesSquared); // assert distancesSquared[0] == 0.0 because of self-distance
+            int potentialIndex = Math.max(0, minNumber - 1);  // O(n²log₂(n)) complexity
+            for (int i = potentialIndex; i < distancesSquared.length; i++) {
+                if (distancesSquared[i] < minRadiusSquared) {
+                    continue;
+                }
+                if (distancesSquared[i] > maxRadiusSquared) {
+                    break;
+                }
+                double potentialRadiusSquared = distancesSquared[i];
+                best.offer(getSphereDensity(1.0 + i, potentialRadiusSquared), currentCenter, potentialRadiusSquared);
+            }
+        }
+    }
+
+    /**
+     * Searches the highest-density region in a single dimension using a spatial grid.
+     * <p>
+     * This produces exactly the same result as {@link #searchBruteForce(DimensionSearch, int, int, DensityCandidate, double[])}.
+     * Centers are visited in the same order, and for each center the sorted distances are
+     * produced ring by ring around the center cell. After collecting ring k, every distance
+     * below {@link EntitySpatialGrid#getRingDistance(int)} is known to be in its final sorted
+     * position, so the candidate spheres up to that distance can be evaluated. Distances below
+     * the minimum radius are only counted and never sorted, which keeps large mob farms cheap.
+     * <p>
+     * Any candidate that has not been evaluated yet has a radius of at least that distance
+     * and contains at most all entities of the dimension, which gives an upper bound of its
+     * density. Once the bound can no longer beat the best candidate, the remaining rings of
+     * this center are skipped. Since only candidates that could not have replaced the best one
+     * are skipped, the result is identical to the brute force search.
+     *
+     * <p>
+     * In approximate mode, only the selected centers of the dimension are visited.
+     *
+     * @param dimension The entities in a single dimension.
+     * @param from The first center, inclusive.
+     * @param to The last center, exclusive.
+     * @param best The best candidate found so far, updated in place.
+     * @param distancesSquared A scratch buffer with room for every entity of the dimension.
+     */
+    private void searchSpatialGrid(DimensionSearch dimension, int from, int to, DensityCandidate best, double[] distancesSquared) {
+        final int[] availableEntities = dimension.entities;
+        final EntitySpatialGrid grid = dimension.grid;
+        final int size = availableEntities.length;
+        final double minRadiusSquared = minRadius * minRadius;
+        final double maxRadiusSquared = maxRadius * maxRadius;
+        final int potentialIndex = Math.max(0, minNumber - 1);
+
+        for (int c = from; c < to; c++) {
+            if (shouldStop()) {
+                searchStopped = true;
+                return;
+            }
+            if (best.cannotBeat(getSphereDensity(size, minRadiusSquared))) {
+                // Even the smallest sphere containing every entity cannot beat the best candidate
+                return;
+            }
+            final int center = dimension.centers == null ? c : dimension.centers[c];
+            final double px = dimension.x[center];
+            final double py = dimension.y[center];
+            final double pz = dimension.z[center];
+            final int cx = grid.cellOf(px);
+            final int cy = grid.cellOf(py);
+            final int cz = grid.cellOf(pz);
+            final int maxRing = grid.getMaxRing(cx, cy, cz);
+            // Distances below the minimum radius are never candidates, so only their number matters
+            int below = 0;
+            int count = 0;
+            int finalized = 0;
+            for (int k = 0; k <= maxRing; k++) {
+                double limitSquared;
+                boolean lastRing;
+                int collected;
+                if (k < maxRing && EntitySpatialGrid.getRingCellCount(k) <= grid.getCellCount()) {
+                    collected = grid.collectRing(cx, cy, cz, k, px, py, pz, distancesSquared, count);
+                    double limit = grid.getRingDistance(k);
+                    limitSquared = limit * limit;
+                    lastRing = false;
+                } else {
+                    // The rings are larger than the occupied area, collect everything left at once
+                    collected = grid.collectRemaining(cx, cy, cz, k, px, py, pz, distancesSquared, count);
+                    limitSquared = Double.POSITIVE_INFINITY;
+                    lastRing = true;
+                }
+                for (int j = count; j < collected; j++) {
+                    if (distancesSquared[j] < minRadiusSquared) {
+                        below++;
+                    } else {
+                        distancesSquared[count++] = distancesSquared[j];
+                    }
+                }
+                Arrays.sort(distancesSquared, finalized, count);
+                boolean tooLarge = false;
+                while (finalized < count && distancesSquared[finalized] < limitSquared) {
+                    // The rank of this distance among all distances, same as the index in the brute force search
+                    int i = below + finalized;
+                    double potentialRadiusSquared = distancesSquared[finalized++];
+                    if (potentialRadiusSquared > maxRadiusSquared) {
+                        // The remaining spheres of this center are larger than allowed
+                        tooLarge = true;
+                        break;
+                    }
+                    if (i >= potentialIndex) {
+                        best.offer(getSphereDensity(1.0 + i, potentialRadiusSquared), availableEntities[center], potentialRadiusSquared);
+                    }
+                }
+                if (tooLarge || lastRing || best.cannotBeat(getSphereDensity(size, Math.max(limitSquared, minRadiusSquared)))) {
+                    break;
+                }
+            }
+        }
+    }
+
     /**
      * Sends feedback messages to the command source after calculation completes.
      * <p>
@@ -495,37 +1399,259 @@ public class EntityDensityCalculator extends AsyncTaskExecutor {
      * It formats and sends appropriate feedback messages based on whether a high-density
      * region was found.
      * <p>
-     * If no context was provided during construction, or if the executing player has
-     * disconnected, this method returns silently without sending feedback.
+     * The result entities, coordinates and biome are copied out of the snapshot buffer first,
+     * so that the buffer can be reused once this method has executed.
+     * <p>
+     * Feedback is sent to every attached command context. Contexts of disconnected players are
+     * skipped, and nothing is sent if the calculation has been cancelled.
      *
      * @see AsyncTaskExecutor#taskAfterCompletion()
      */
     @Override
     protected void taskAfterCompletion() {
-        if (context == null) {
+        if (resultIndex >= 0 && resultCauseIndex >= 0) {
+            resultEntity = snapshots.getEntity(resultIndex);
+            resultCause = snapshots.getEntity(resultCauseIndex);
+            resultX = snapshots.getX(resultIndex);
+            resultY = snapshots.getY(resultIndex);
+            resultZ = snapshots.getZ(resultIndex);
+            resultDimension = snapshots.getDimension(snapshots.getDimensionId(resultIndex));
+            resultBiome = snapshots.getBiome(resultIndex);
+        }
+        if (hotspots != null) {
+            for (EntityHotspot hotspot : hotspots) {
+                hotspot.resolve(snapshots);
+            }
+        }
+
+        if (isCancelled()) {
             return;
         }
 
-        if (context.getSource().isExecutedByPlayer()) {
-            if (context.getSource().getPlayer() == null || context.getSource().getPlayer().isDisconnected()) {
-                LoggerFactory.getLogger(Util.LOGGERNAME).info("FMinecraftMod: Get entity density command executed but the player has disconnected.");
-                return;
+        for (CommandContext<ServerCommandSource> context : contexts) {
+            if (context.getSource().isExecutedByPlayer()) {
+                if (context.getSource().getPlayer() == null || context.getSource().getPlayer().isDisconnected()) {
+                    LoggerFactory.getLogger(Util.LOGGERNAME).info("FMinecraftMod: Get entity density command executed but the player has disconnected.");
+                    continue;
+                }
             }
+            sendFeedback(context);
         }
+    }
 
+    private void sendFeedback(CommandContext<ServerCommandSource> context) {
+        if (hotspots != null && !hotspots.isEmpty()) {
+            sendHotspotFeedback(context);
+            return;
+        }
         if (resultEntity == null || resultCause == null) {
             // No result
-            context.getSource().sendFeedback(() -> Util.parseTranslatableText("fmod.message.entitywarning", snapshots.size()), false);
+            context.getSource().sendFeedback(() -> Util.parseTranslatableText("fmod.message.entitywarning", totalNumber), false);
         } else {
             // Has result
-            final String totalCount = Integer.toString(snapshots.size());
-            final Text coordText = Util.parseCoordText(resultEntity.dimension, resultEntity.biome, resultEntity.x, resultEntity.y, resultEntity.z);
+            final String totalCount = Integer.toString(totalNumber);
+            final Text coordText = Util.parseCoordText(resultDimension, resultBiome, resultX, resultY, resultZ);
             final String entityRadius = String.format("%.2f", finalRadius);
             final String entityCount = Integer.toString(finalCount);
             final String causeCount = Integer.toString(finalNumber);
-            final Text entityCauseText = resultCause.entity.getDisplayName();
+            final Text entityCauseText = resultCause.getDisplayName();
             context.getSource().sendFeedback(() -> Util.parseTranslatableText("fmod.message.entitydensity", totalCount, coordText, entityRadius, entityCount, causeCount, entityCauseText), false);
+            final MutableText errorBoundText = getErrorBoundText();
+            if (errorBoundText != null) {
+                context.getSource().sendFeedback(() -> errorBoundText, false);
+            }
+        }
+    }
+
+    private void sendHotspotFeedback(CommandContext<ServerCommandSource> context) {
+        final String totalCount = Integer.toString(totalNumber);
+        final String hotspotNumber = Integer.toString(hotspots.size());
+        context.getSource().sendFeedback(() -> Util.parseTranslatableText("fmod.message.entityhotspot.title", totalCount, hotspotNumber), false);
+        for (int i = 0; i < hotspots.size(); i++) {
+            final EntityHotspot hotspot = hotspots.get(i);
+            final String rank = Integer.toString(i + 1);
+            final Text coordText = Util.parseCoordText(hotspot.getDimension(), hotspot.getBiome(), hotspot.getX(), hotspot.getY(), hotspot.getZ());
+            final String entityRadius = String.format("%.2f", hotspot.getRadius());
+            final String entityCount = Integer.toString(hotspot.getCount());
+            final MutableText typesText = Text.empty();
+            for (int j = 0; j < Math.min(HOTSPOT_REPORTED_TYPES, hotspot.getEntityTypes().size()); j++) {
+                if (j > 0) {
+                    typesText.append(Text.literal(", "));
+                }
+                final Identifier type = hotspot.getEntityTypes().get(j);
+                final Text typeName = EntityType.get(type.toString()).map(EntityType::getName).orElse(Text.literal(type.toString()));
+                typesText.append(Util.parseTranslatableText("fmod.message.entityhotspot.type", hotspot.getEntityTypeCounts().get(j), typeName));
+            }
+            context.getSource().sendFeedback(() -> Util.parseTranslatableText("fmod.message.entityhotspot", rank, entityCount, entityRadius, coordText, typesText), false);
+        }
+        final MutableText errorBoundText = getErrorBoundText();
+        if (errorBoundText != null) {
+            context.getSource().sendFeedback(() -> errorBoundText, false);
+        }
+    }
+
+    /**
+     * Attaches another command context to this calculation, so that it also receives the result.
+     * This is used to answer repeated commands asking for the same search without searching again.
+     * This must be called from the main server thread.
+     *
+     * @param context The command context to send the result to.
+     * @return True if the context was attached, false if the result has already been sent.
+     */
+    public boolean addContext(CommandContext<ServerCommandSource> context) {
+        if (isAfterCompletionExecuted() || isCancelled()) {
+            return false;
+        }
+        contexts.add(context);
+        return true;
+    }
+
+    /**
+     * Checks whether this calculation searches with the given parameters.
+     *
+     * @param minRadius The minimum radius constraint in blocks. Absolute value is used.
+     * @param minNumber The minimum number of entities. Absolute value is used.
+     * @param algorithm The search algorithm. Null means {@link EntityDensityAlgorithm#SPATIAL_GRID}.
+     * @param hotspotCount The number of crowded areas to find.
+     * @return True if the parameters match this calculation.
+     */
+    public boolean isSameSearch(double minRadius, int minNumber, EntityDensityAlgorithm algorithm, int hotspotCount) {
+        EntityDensityAlgorithm other = algorithm == null ? EntityDensityAlgorithm.SPATIAL_GRID : algorithm;
+        return Double.compare(this.minRadius, Math.abs(minRadius)) == 0 && this.minNumber == Math.abs(minNumber) && this.algorithm == other && this.hotspotCount == Math.max(1, hotspotCount);
+    }
+
+    /**
+     * Gets the non-overlapping crowded areas, most crowded first.
+     * The first area is the same as the single result of this calculator.
+     *
+     * @return The crowded areas, or null if this calculator only searched the most crowded one,
+     *         or if no search was needed because of the special cases of the parameters.
+     * @throws IllegalStateException If called before the calculation has completed.
+     */
+    @Nullable
+    public List<EntityHotspot> getHotspots() throws IllegalStateException {
+        if (!isAfterCompletionExecuted()) {
+            throw new IllegalStateException("EntityDensityCalculator: Task not finished yet.");
+        }
+        return hotspots;
+    }
+
+    /**
+     * Gets the fraction of candidate centers that were searched.
+     * Unlike {@link #getProgress()}, this stays below 1 if the search was stopped early.
+     *
+     * @return A value between 0 and 1.
+     */
+    public double getSearchedFraction() {
+        return Math.min(1.0, (double) finishedCenters.get() / totalCenters);
+    }
+
+    /**
+     * Checks whether the search was stopped before all candidate centers were searched,
+     * because the calculation was cancelled or ran out of time.
+     *
+     * @return True if the result is the best one found before stopping.
+     */
+    public boolean isSearchStopped() {
+        return searchStopped;
+    }
+
+    /**
+     * Sets the number of loaded entities reported in the messages.
+     * Use this if only part of the loaded entities were snapshotted.
+     * This must be called from the main server thread before the task is submitted.
+     *
+     * @param totalNumber The number of loaded entities.
+     */
+    public void setTotalNumber(int totalNumber) {
+        this.totalNumber = totalNumber;
+    }
+
+    /**
+     * Limits the number of threads used to search candidate centers.
+     * Use 1 if the calculation runs on the main server thread, so that it does not wait for a thread pool.
+     * This must be called before the task is run.
+     *
+     * @param parallelism The maximum number of threads, at least 1.
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, Math.min(this.parallelism, parallelism));
+    }
+
+    /**
+     * Sets the pool that runs the parallel search, so that the searches share one pool instead of
+     * each creating its own. It is only used if the parallelism is larger than 1.
+     * This must be called before the task is run.
+     *
+     * @param searchPool The pool to search on, usually {@link com.ykn.fmod.server.base.data.ServerData#getDensitySearchPool()}.
+     */
+    public void setSearchPool(@Nullable ForkJoinPool searchPool) {
+        this.searchPool = searchPool;
+    }
+
+    /**
+     * Marks this calculation as searching only part of the loaded entities, for example only
+     * the entities around the crowded sections. Commands never wait for such a calculation,
+     * since its result is not the answer for the whole server.
+     * This must be called from the main server thread before the task is submitted.
+     */
+    public void setPartial() {
+        this.partial = true;
+    }
+
+    /**
+     * Checks whether this calculation searches only part of the loaded entities.
+     *
+     * @return True if {@link #setPartial()} has been called.
+     */
+    public boolean isPartial() {
+        return partial;
+    }
+
+    /**
+     * Limits the radius of the candidate spheres.
+     * Use this if only the entities near some area were snapshotted, so that a sphere that reaches
+     * beyond the snapshotted area is never counted against the missing entities.
+     * This must be called from the main server thread before the task is submitted.
+     *
+     * @param maxRadius The maximum radius in blocks, at least the minimum radius.
+     */
+    public void setMaxRadius(double maxRadius) {
+        this.maxRadius = Math.max(this.minRadius, Math.abs(maxRadius));
+    }
+
+    /**
+     * Gets the number of loaded entities reported in the messages.
+     *
+     * @return The number of loaded entities, by default the number of snapshotted entities.
+     */
+    public int getTotalNumber() {
+        return totalNumber;
+    }
+
+    /**
+     * Gets a message describing the error bound of an approximate result, or how much of the
+     * search was done if it was stopped by the time limit.
+     *
+     * @return The message, or null if the result is exact.
+     * @throws IllegalStateException If called before the calculation has completed.
+     */
+    @Nullable
+    public MutableText getErrorBoundText() throws IllegalStateException {
+        if (!isAfterCompletionExecuted()) {
+            throw new IllegalStateException("EntityDensityCalculator: Task not finished yet.");
+        }
+        if (searchStopped) {
+            final String progress = String.format("%.1f%%", getSearchedFraction() * 100.0);
+            return Util.parseTranslatableText("fmod.message.entitydensity.partial", progress);
+        }
+        final int centers = searchedCenters;
+        if (centers < 0) {
+            return null;
         }
+        final String confidence = String.format("%.0f%%", (1.0 - APPROXIMATE_FAILURE_PROBABILITY) * 100.0);
+        final String rankError = String.format("%.1f%%", APPROXIMATE_RANK_ERROR * 100.0);
+        return Util.parseTranslatableText("fmod.message.entitydensity.approximate", Integer.toString(centers), Integer.toString(inputNumber), confidence, rankError);
     }
 
     /**
@@ -543,10 +1669,7 @@ public class EntityDensityCalculator extends AsyncTaskExecutor {
         if (!isAfterCompletionExecuted()) {
             throw new IllegalStateException("EntityDensityCalculator: Task not finished yet.");
         }
-        if (resultEntity == null) {
-            return null;
-        }
-        return resultEntity.entity;
+        return resultEntity;
     }
 
     /**
@@ -564,10 +1687,7 @@ public class EntityDensityCalculator extends AsyncTaskExecutor {
         if (!isAfterCompletionExecuted()) {
             throw new IllegalStateException("EntityDensityCalculator: Task not finished yet.");
         }
-        if (resultCause == null) {
-            return null;
-        }
-        return resultCause.entity;
+        return resultCause;
     }
 
     /**
@@ -581,7 +1701,7 @@ public class EntityDensityCalculator extends AsyncTaskExecutor {
         if (!isAfterCompletionExecuted() || resultEntity == null) {
             throw new IllegalStateException("EntityDensityCalculator: Task not finished yet or no entity found.");
         }
-        return resultEntity.x;
+        return resultX;
     }
 
     /**
@@ -595,7 +1715,7 @@ public class EntityDensityCalculator extends AsyncTaskExecutor {
         if (!isAfterCompletionExecuted() || resultEntity == null) {
             throw new IllegalStateException("EntityDensityCalculator: Task not finished yet or no entity found.");
         }
-        return resultEntity.y;
+        return resultY;
     }
 
     /**
@@ -609,7 +1729,7 @@ public class EntityDensityCalculator extends AsyncTaskExecutor {
         if (!isAfterCompletionExecuted() || resultEntity == null) {
             throw new IllegalStateException("EntityDensityCalculator: Task not finished yet or no entity found.");
         }
-        return resultEntity.z;
+        return resultZ;
     }
 
     /**
@@ -623,7 +1743,7 @@ public class EntityDensityCalculator extends AsyncTaskExecutor {
         if (!isAfterCompletionExecuted() || resultEntity == null) {
             throw new IllegalStateException("EntityDensityCalculator: Task not finished yet or no entity found.");
         }
-        return resultEntity.dimension;
+        return resultDimension;
     }
 
     /**
@@ -638,7 +1758,7 @@ public class EntityDensityCalculator extends AsyncTaskExecutor {
         if (!isAfterCompletionExecuted() || resultEntity == null) {
             throw new IllegalStateException("EntityDensityCalculator: Task not finished yet or no entity found.");
         }
-        return resultEntity.biome;
+        return resultBiome;
     }
 
     /**
@@ -715,6 +1835,18 @@ public class EntityDensityCalculator extends AsyncTaskExecutor {
      * @return The total number of input entities.
      */
     public int getInputNumber() {
-        return snapshots.size();
+        return inputNumber;
+    }
+
+    /**
+     * Gets the snapshot buffer this calculator reads from.
+     * <p>
+     * Once {@link #taskAfterCompletion()} has executed, the buffer is no longer used by
+     * this calculator and can be cleared and reused.
+     *
+     * @return The snapshot buffer.
+     */
+    public EntitySnapshotBuffer getSnapshots() {
+        return snapshots;
     }
 }
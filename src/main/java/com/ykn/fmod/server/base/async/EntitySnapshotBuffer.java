@@ -0,0 +1,288 @@
+/**
+ * Copyright (c) ykn
+ * This file is under the MIT License
+ */
+
+package com.ykn.fmod.server.base.async;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jetbrains.annotations.Nullable;
+
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.EntityType;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+
+/**
+ * A reusable, struct-of-arrays snapshot of entity positions for async analysis.
+ * <p>
+ * Instead of allocating one snapshot object per entity, the buffer stores the coordinates in
+ * parallel primitive arrays and the dimension and entity type as small integer ids interned
+ * through a dictionary. The arrays only grow, so a buffer that is cleared and refilled for
+ * every periodic check does not allocate once it has reached the size of the server.
+ * <p>
+ * Biomes are not captured. They are only needed for the few entities that end up in a
+ * result message, so they are looked up on demand with {@link #getBiome(int)}.
+ * <p>
+ * Thread Safety: The buffer must be filled on the main server thread. After it has been handed
+ * over to an async task, the coordinate and id accessors are safe to call from that task as
+ * long as the main thread does not modify the buffer anymore. {@link #getEntity(int)} and
+ * {@link #getBiome(int)} must only be called from the main server thread.
+ */
+public class EntitySnapshotBuffer {
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private double[] x;
+    private double[] y;
+    private double[] z;
+    private int[] dimensionIds;
+    private int[] typeIds;
+    private Entity[] entities;
+    private int size;
+
+    private final List<Identifier> dimensions;
+    private final Map<Identifier, Integer> dimensionIndex;
+    private final List<Identifier> types;
+    private final Map<EntityType<?>, Integer> typeIndex;
+
+    // Entities of the same world usually come in a row, cache the last lookup
+    private World lastWorld;
+    private int lastDimensionId;
+
+    public EntitySnapshotBuffer() {
+        this.x = new double[INITIAL_CAPACITY];
+        this.y = new double[INITIAL_CAPACITY];
+        this.z = new double[INITIAL_CAPACITY];
+        this.dimensionIds = new int[INITIAL_CAPACITY];
+        this.typeIds = new int[INITIAL_CAPACITY];
+        this.entities = new Entity[INITIAL_CAPACITY];
+        this.size = 0;
+        this.dimensions = new ArrayList<>();
+        this.dimensionIndex = new HashMap<>();
+        this.types = new ArrayList<>();
+        this.typeIndex = new HashMap<>();
+        this.lastWorld = null;
+        this.lastDimensionId = -1;
+    }
+
+    /**
+     * Removes all snapshots while keeping the allocated arrays for reuse.
+     * Entity references are released so that the buffer does not keep removed entities alive.
+     */
+    public void clear() {
+        Arrays.fill(this.entities, 0, this.size, null);
+        this.size = 0;
+        this.dimensions.clear();
+        this.dimensionIndex.clear();
+        this.types.clear();
+        this.typeIndex.clear();
+        this.lastWorld = null;
+        this.lastDimensionId = -1;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= this.x.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, this.x.length + (this.x.length >> 1));
+        this.x = Arrays.copyOf(this.x, newCapacity);
+        this.y = Arrays.copyOf(this.y, newCapacity);
+        this.z = Arrays.copyOf(this.z, newCapacity);
+        this.dimensionIds = Arrays.copyOf(this.dimensionIds, newCapacity);
+        this.typeIds = Arrays.copyOf(this.typeIds, newCapacity);
+        this.entities = Arrays.copyOf(this.entities, newCapacity);
+    }
+
+    private int internDimension(World world) {
+        if (world != this.lastWorld) {
+            Identifier dimension = world.getRegistryKey().getValue();
+            Integer id = this.dimensionIndex.get(dimension);
+            if (id == null) {
+                id = this.dimensions.size();
+                this.dimensions.add(dimension);
+                this.dimensionIndex.put(dimension, id);
+            }
+            this.lastWorld = world;
+            this.lastDimensionId = id;
+        }
+        return this.lastDimensionId;
+    }
+
+    private int internType(EntityType<?> type) {
+        Integer id = this.typeIndex.get(type);
+        if (id == null) {
+            id = this.types.size();
+            this.types.add(EntityType.getId(type));
+            this.typeIndex.put(type, id);
+        }
+        return id;
+    }
+
+    /**
+     * Captures the current state of an entity.
+     * This must be called from the main server thread.
+     *
+     * @param entity The entity to snapshot. Must not be null and must have a valid world.
+     */
+    public void add(Entity entity) {
+        this.ensureCapacity(this.size + 1);
+        int index = this.size++;
+        this.x[index] = entity.getX();
+        this.y[index] = entity.getY();
+        this.z[index] = entity.getZ();
+        this.dimensionIds[index] = this.internDimension(entity.getWorld());
+        this.typeIds[index] = this.internType(entity.getType());
+        this.entities[index] = entity;
+    }
+
+    /**
+     * Captures the current state of all entities.
+     * This must be called from the main server thread.
+     *
+     * @param entities The entities to snapshot.
+     */
+    public void addAll(Iterable<Entity> entities) {
+        for (Entity entity : entities) {
+            this.add(entity);
+        }
+    }
+
+    /**
+     * Captures all loaded entities of a world that have not been removed.
+     * Equivalent to adding the result of {@link com.ykn.fmod.server.base.util.Util#getAllEntities(ServerWorld)},
+     * but without building an intermediate list.
+     * This must be called from the main server thread.
+     *
+     * @param world The world to collect entities from.
+     */
+    public void addWorld(ServerWorld world) {
+        for (Entity entity : world.iterateEntities()) {
+            if (entity != null && !entity.isRemoved()) {
+                this.add(entity);
+            }
+        }
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    public double getX(int index) {
+        return this.x[index];
+    }
+
+    public double getY(int index) {
+        return this.y[index];
+    }
+
+    public double getZ(int index) {
+        return this.z[index];
+    }
+
+    /**
+     * Gets the interned dimension id of a snapshot.
+     * Ids are dense, starting from 0 in the order the dimensions were first seen.
+     *
+     * @param index The snapshot index.
+     * @return The dimension id, see {@link #getDimension(int)}.
+     */
+    public int getDimensionId(int index) {
+        return this.dimensionIds[index];
+    }
+
+    /**
+     * Gets the interned entity type id of a snapshot.
+     * Ids are dense, starting from 0 in the order the entity types were first seen.
+     *
+     * @param index The snapshot index.
+     * @return The entity type id, see {@link #getEntityType(int)}.
+     */
+    public int getTypeId(int index) {
+        return this.typeIds[index];
+    }
+
+    public int getDimensionCount() {
+        return this.dimensions.size();
+    }
+
+    public int getTypeCount() {
+        return this.types.size();
+    }
+
+    /**
+     * Gets the dimension identifier of an interned dimension id.
+     *
+     * @param dimensionId The dimension id.
+     * @return The dimension identifier (e.g., "minecraft:overworld").
+     */
+    public Identifier getDimension(int dimensionId) {
+        return this.dimensions.get(dimensionId);
+    }
+
+    /**
+     * Gets the entity type identifier of an interned entity type id.
+     *
+     * @param typeId The entity type id.
+     * @return The entity type identifier (e.g., "minecraft:cow").
+     */
+    public Identifier getEntityType(int typeId) {
+        return this.types.get(typeId);
+    }
+
+    /**
+     * Calculates the squared Euclidean distance between two snapshots.
+     *
+     * @param first The index of the first snapshot.
+     * @param second The index of the second snapshot.
+     * @return The squared distance in blocks², or NaN if the snapshots are in different dimensions.
+     */
+    public double squaredDistance(int first, int second) {
+        if (this.dimensionIds[first] != this.dimensionIds[second]) {
+            return Double.NaN; // Different dimensions
+        }
+        double dx = this.x[first] - this.x[second];
+        double dy = this.y[first] - this.y[second];
+        double dz = this.z[first] - this.z[second];
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /**
+     * Gets the original entity of a snapshot.
+     * This must only be called from the main server thread.
+     *
+     * @param index The snapshot index.
+     * @return The entity.
+     */
+    public Entity getEntity(int index) {
+        return this.entities[index];
+    }
+
+    /**
+     * Looks up the biome at the captured position of a snapshot.
+     * This must only be called from the main server thread.
+     *
+     * @param index The snapshot index.
+     * @return The biome identifier, or null if the biome has no identifier.
+     */
+    @Nullable
+    public Identifier getBiome(int index) {
+        Entity entity = this.entities[index];
+        if (entity == null) {
+            return null;
+        }
+        BlockPos pos = BlockPos.ofFloored(this.x[index], this.y[index], this.z[index]);
+        return entity.getWorld().getBiome(pos).getKey().map(key -> key.getValue()).orElse(null);
+    }
+}
@@ -0,0 +1,372 @@
+/**
+ * Copyright (c) ykn
+ * This file is under the MIT License
+ */
+
+package com.ykn.fmod.server.base.async;
+
+import java.util.Arrays;
+
+/**
+ * A uniform spatial hash grid over a set of points in a single dimension.
+ * <p>
+ * Points are bucketed into cubic cells of a fixed size. The grid is stored in a compact,
+ * allocation-free layout: the occupied cells are kept as a sorted array of packed cell keys,
+ * and the points of each cell are stored contiguously in {@link #members}. Looking up a cell
+ * is a binary search over the occupied cell keys, so no boxing or hashing is involved.
+ * <p>
+ * The grid is designed for nearest-neighbour style queries that expand outward from a center
+ * cell ring by ring. All points in ring {@code k + 1} or further are guaranteed to be at least
+ * {@code k * cellSize} away from any point inside the center cell.
+ * <p>
+ * Thread Safety: The grid is immutable after construction and can be queried from any thread.
+ */
+public class EntitySpatialGrid {
+
+    /**
+     * The minimum edge length of a cell in blocks.
+     * Together with the packing layout of the cell keys, this keeps every coordinate inside
+     * the world border mapped to a unique cell key.
+     */
+    public static final double MIN_CELL_SIZE = 4.0;
+
+    private final double cellSize;
+    private final double[] x;
+    private final double[] y;
+    private final double[] z;
+    private final int size;
+
+    /**
+     * The packed keys of all occupied cells, sorted in ascending order.
+     */
+    private final long[] cellKeys;
+
+    /**
+     * The start offset of each occupied cell in {@link #members}.
+     * Has one more entry than {@link #cellKeys}, the last entry being the number of points.
+     */
+    private final int[] cellStarts;
+
+    /**
+     * The point indices ordered by their cell.
+     */
+    private final int[] members;
+
+    private final int minCellX;
+    private final int maxCellX;
+    private final int minCellY;
+    private final int maxCellY;
+    private final int minCellZ;
+    private final int maxCellZ;
+
+    /**
+     * Builds a grid over the first {@code size} points of the given coordinate arrays.
+     * <p>
+     * The arrays are referenced, not copied, and must not be modified while the grid is in use.
+     *
+     * @param x The x-coordinates of the points.
+     * @param y The y-coordinates of the points.
+     * @param z The z-coordinates of the points.
+     * @param size The number of points to index.
+     * @param cellSize The preferred edge length of a cell in blocks. Values below
+     *                 {@link #MIN_CELL_SIZE} (including NaN) are raised to it.
+     */
+    public EntitySpatialGrid(double[] x, double[] y, double[] z, int size, double cellSize) {
+        this.cellSize = (cellSize >= MIN_CELL_SIZE && Double.isFinite(cellSize)) ? cellSize : MIN_CELL_SIZE;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.size = size;
+
+        // Compute the cell key of every point and the bounds of the occupied cells
+        long[] keys = new long[size];
+        int minX = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE;
+        int minY = Integer.MAX_VALUE, maxY = Integer.MIN_VALUE;
+        int minZ = Integer.MAX_VALUE, maxZ = Integer.MIN_VALUE;
+        for (int i = 0; i < size; i++) {
+            int cx = this.cellOf(x[i]);
+            int cy = this.cellOf(y[i]);
+            int cz = this.cellOf(z[i]);
+            minX = Math.min(minX, cx);
+            maxX = Math.max(maxX, cx);
+            minY = Math.min(minY, cy);
+            maxY = Math.max(maxY, cy);
+            minZ = Math.min(minZ, cz);
+            maxZ = Math.max(maxZ, cz);
+            keys[i] = packKey(cx, cy, cz);
+        }
+        this.minCellX = minX;
+        this.maxCellX = maxX;
+        this.minCellY = minY;
+        this.maxCellY = maxY;
+        this.minCellZ = minZ;
+        this.maxCellZ = maxZ;
+
+        // Deduplicate the keys, then bucket the point indices by their cell
+        long[] sortedKeys = Arrays.copyOf(keys, size);
+        Arrays.sort(sortedKeys);
+        int distinct = 0;
+        for (int i = 0; i < size; i++) {
+            if (i == 0 || sortedKeys[i] != sortedKeys[i - 1]) {
+                sortedKeys[distinct++] = sortedKeys[i];
+            }
+        }
+        this.cellKeys = Arrays.copyOf(sortedKeys, distinct);
+        this.cellStarts = new int[distinct + 1];
+        for (int i = 0; i < size; i++) {
+            this.cellStarts[Arrays.binarySearch(this.cellKeys, keys[i]) + 1]++;
+        }
+        for (int i = 0; i < distinct; i++) {
+            this.cellStarts[i + 1] += this.cellStarts[i];
+        }
+        int[] cursor = Arrays.copyOf(this.cellStarts, distinct);
+        this.members = new int[size];
+        for (int i = 0; i < size; i++) {
+            int cell = Arrays.binarySearch(this.cellKeys, keys[i]);
+            this.members[cursor[cell]++] = i;
+        }
+    }
+
+    /**
+     * Packs three cell coordinates into a single key.
+     * The x and z coordinates use 24 bits each and the y coordinate uses 16 bits, which is
+     * enough for the whole world border at {@link #MIN_CELL_SIZE}.
+     */
+    private static long packKey(int cx, int cy, int cz) {
+        return ((long) (cx & 0xFFFFFF) << 40) | ((long) (cy & 0xFFFF) << 24) | (long) (cz & 0xFFFFFF);
+    }
+
+    /**
+     * Gets the cell coordinate of a block coordinate on any axis.
+     *
+     * @param coordinate The block coordinate.
+     * @return The cell coordinate.
+     */
+    public int cellOf(double coordinate) {
+        return (int) Math.floor(coordinate / this.cellSize);
+    }
+
+    /**
+     * Gets the edge length of a cell in blocks.
+     *
+     * @return The cell size.
+     */
+    public double getCellSize() {
+        return this.cellSize;
+    }
+
+    /**
+     * Gets a lower bound of the distance from any point inside a center cell to any point
+     * in ring {@code k + 1} or further.
+     * <p>
+     * The exact bound is {@code k * cellSize}. A tiny margin is subtracted so that points lying
+     * exactly on a cell boundary, whose cell may be affected by floating point rounding, are
+     * still covered.
+     *
+     * @param k The index of the last collected ring.
+     * @return The minimum distance in blocks of any point that has not been collected yet.
+     */
+    public double getRingDistance(int k) {
+        return Math.max(0.0, k * this.cellSize - 1.0E-6);
+    }
+
+    /**
+     * Gets the number of indexed points.
+     *
+     * @return The number of points.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Gets the number of occupied cells.
+     *
+     * @return The number of cells containing at least one point.
+     */
+    public int getCellCount() {
+        return this.cellKeys.length;
+    }
+
+    /**
+     * Gets the largest ring index around a center cell that can still contain points.
+     * Rings beyond this index are guaranteed to be empty.
+     *
+     * @param cx The x-coordinate of the center cell.
+     * @param cy The y-coordinate of the center cell.
+     * @param cz The z-coordinate of the center cell.
+     * @return The largest non-trivial ring index.
+     */
+    public int getMaxRing(int cx, int cy, int cz) {
+        int ring = Math.max(Math.abs(cx - this.minCellX), Math.abs(cx - this.maxCellX));
+        ring = Math.max(ring, Math.max(Math.abs(cy - this.minCellY), Math.abs(cy - this.maxCellY)));
+        ring = Math.max(ring, Math.max(Math.abs(cz - this.minCellZ), Math.abs(cz - this.maxCellZ)));
+        return ring;
+    }
+
+    /**
+     * Gets the number of cells in ring {@code k}, occupied or not.
+     * Ring {@code k} consists of all cells whose Chebyshev distance to the center cell is exactly {@code k}.
+     *
+     * @param k The ring index.
+     * @return The number of cells in the ring.
+     */
+    public static long getRingCellCount(int k) {
+        if (k == 0) {
+            return 1;
+        }
+        long side = 2L * k + 1;
+        return side * side * side - (side - 2) * (side - 2) * (side - 2);
+    }
+
+    /**
+     * Appends the squared distances from a query point to every point in ring {@code k}
+     * around the center cell.
+     *
+     * @param cx The x-coordinate of the center cell.
+     * @param cy The y-coordinate of the center cell.
+     * @param cz The z-coordinate of the center cell.
+     * @param k The ring index.
+     * @param px The x-coordinate of the query point.
+     * @param py The y-coordinate of the query point.
+     * @param pz The z-coordinate of the query point.
+     * @param out The buffer to append squared distances to. Must have room for all points.
+     * @param offset The number of values already present in {@code out}.
+     * @return The number of values present in {@code out} after appending.
+     */
+    public int collectRing(int cx, int cy, int cz, int k, double px, double py, double pz, double[] out, int offset) {
+        int count = offset;
+        if (k == 0) {
+            return this.collectCell(packKey(cx, cy, cz), px, py, pz, out, count);
+        }
+        for (int ix = cx - k; ix <= cx + k; ix++) {
+            boolean xEdge = (ix == cx - k || ix == cx + k);
+            for (int iy = cy - k; iy <= cy + k; iy++) {
+                boolean yEdge = (iy == cy - k || iy == cy + k);
+                if (xEdge || yEdge) {
+                    for (int iz = cz - k; iz <= cz + k; iz++) {
+                        count = this.collectCell(packKey(ix, iy, iz), px, py, pz, out, count);
+                    }
+                } else {
+                    count = this.collectCell(packKey(ix, iy, cz - k), px, py, pz, out, count);
+                    count = this.collectCell(packKey(ix, iy, cz + k), px, py, pz, out, count);
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Appends the squared distances from a query point to every point in ring {@code k} or further.
+     * <p>
+     * This scans the occupied cells instead of enumerating the rings, which is cheaper once the
+     * rings have more cells than the grid has occupied cells. Sparse grids with a few far away
+     * outliers therefore never enumerate empty space.
+     *
+     * @param cx The x-coordinate of the center cell.
+     * @param cy The y-coordinate of the center cell.
+     * @param cz The z-coordinate of the center cell.
+     * @param k The first ring index to collect.
+     * @param px The x-coordinate of the query point.
+     * @param py The y-coordinate of the query point.
+     * @param pz The z-coordinate of the query point.
+     * @param out The buffer to append squared distances to. Must have room for all points.
+     * @param offset The number of values already present in {@code out}.
+     * @return The number of values present in {@code out} after appending.
+     */
+    public int collectRemaining(int cx, int cy, int cz, int k, double px, double py, double pz, double[] out, int offset) {
+        int count = offset;
+        for (int cell = 0; cell < this.cellKeys.length; cell++) {
+            int first = this.members[this.cellStarts[cell]];
+            int dx = Math.abs(this.cellOf(this.x[first]) - cx);
+            int dy = Math.abs(this.cellOf(this.y[first]) - cy);
+            int dz = Math.abs(this.cellOf(this.z[first]) - cz);
+            if (Math.max(dx, Math.max(dy, dz)) >= k) {
+                count = this.collectCellAt(cell, px, py, pz, out, count);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Gets the number of points in the 3x3x3 cell neighborhood of every occupied cell.
+     * <p>
+     * With cells of at least the query radius, this is an upper bound of the number of points
+     * within that radius of any point inside the cell, so it works as a coarse density histogram.
+     *
+     * @return An array indexed like the occupied cells, see {@link #getCellPopulation(int)}.
+     */
+    public int[] getNeighborhoodPopulations() {
+        int[] populations = new int[this.cellKeys.length];
+        for (int cell = 0; cell < this.cellKeys.length; cell++) {
+            int first = this.members[this.cellStarts[cell]];
+            int cx = this.cellOf(this.x[first]);
+            int cy = this.cellOf(this.y[first]);
+            int cz = this.cellOf(this.z[first]);
+            int population = 0;
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    for (int dz = -1; dz <= 1; dz++) {
+                        int neighbor = Arrays.binarySearch(this.cellKeys, packKey(cx + dx, cy + dy, cz + dz));
+                        if (neighbor >= 0) {
+                            population += this.cellStarts[neighbor + 1] - this.cellStarts[neighbor];
+                        }
+                    }
+                }
+            }
+            populations[cell] = population;
+        }
+        return populations;
+    }
+
+    /**
+     * Gets the occupied cell containing an indexed point.
+     *
+     * @param point The index of the point.
+     * @return The index of the occupied cell, between 0 and {@link #getCellCount()}.
+     */
+    public int getCellIndex(int point) {
+        return Arrays.binarySearch(this.cellKeys, packKey(this.cellOf(this.x[point]), this.cellOf(this.y[point]), this.cellOf(this.z[point])));
+    }
+
+    /**
+     * Gets the number of points in an occupied cell.
+     *
+     * @param cell The index of the occupied cell, between 0 and {@link #getCellCount()}.
+     * @return The number of points in the cell.
+     */
+    public int getCellPopulation(int cell) {
+        return this.cellStarts[cell + 1] - this.cellStarts[cell];
+    }
+
+    /**
+     * Gets a point of an occupied cell.
+     *
+     * @param cell The index of the occupied cell, between 0 and {@link #getCellCount()}.
+     * @param member The index of the point within the cell, between 0 and {@link #getCellPopulation(int)}.
+     * @return The index of the point.
+     */
+    public int getCellMember(int cell, int member) {
+        return this.members[this.cellStarts[cell] + member];
+    }
+
+    private int collectCell(long key, double px, double py, double pz, double[] out, int offset) {
+        int cell = Arrays.binarySearch(this.cellKeys, key);
+        if (cell < 0) {
+            return offset;
+        }
+        return this.collectCellAt(cell, px, py, pz, out, offset);
+    }
+
+    private int collectCellAt(int cell, double px, double py, double pz, double[] out, int offset) {
+        int count = offset;
+        for (int m = this.cellStarts[cell]; m < this.cellStarts[cell + 1]; m++) {
+            int i = this.members[m];
+            double dx = px - this.x[i];
+            double dy = py - this.y[i];
+            double dz = pz - this.z[i];
+            out[count++] = dx * dx + dy * dy + dz * dz;
+        }
+        return count;
+    }
+}
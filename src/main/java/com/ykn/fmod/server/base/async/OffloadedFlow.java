@@ -0,0 +1,59 @@
+/**
+ * Copyright (c) ykn
+ * This file is under the MIT License
+ */
+
+package com.ykn.fmod.server.base.async;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.ykn.fmod.server.base.data.ServerData;
+import com.ykn.fmod.server.flow.logic.ExecutionContext;
+import com.ykn.fmod.server.flow.tool.FlowManager;
+
+/**
+ * Executes a sub-graph of world-safe nodes of a suspended flow execution on the async pool,
+ * and continues the execution on the main thread once the sub-graph has been left.
+ *
+ * <p>The execution context is only touched by the background thread until
+ * {@link #taskAfterCompletion()} runs on the main thread, which resumes the
+ * execution like a sliced one. If the flow has been deleted in the meantime,
+ * or the task has been cancelled, the execution is aborted instead.</p>
+ *
+ * @see com.ykn.fmod.server.base.util.FlowExecutionMode#OFFLOADED
+ * @see ExecutionContext#executeOffloaded(java.util.function.BooleanSupplier)
+ */
+public class OffloadedFlow extends AsyncTaskExecutor {
+
+    private final FlowManager flowManager;
+    private final ExecutionContext executionContext;
+    private final ServerData serverData;
+
+    public OffloadedFlow(@NotNull FlowManager flowManager, @NotNull ExecutionContext executionContext, @NotNull ServerData serverData) {
+        this.flowManager = flowManager;
+        this.executionContext = executionContext;
+        this.serverData = serverData;
+    }
+
+    @NotNull
+    public FlowManager getFlowManager() {
+        return this.flowManager;
+    }
+
+    @Override
+    protected void executeAsyncTask() {
+        this.executionContext.executeOffloaded(this::shouldStop);
+        this.markAsyncFinished();
+    }
+
+    @Override
+    protected void taskAfterCompletion() {
+        if (this.isCancelled() || !this.serverData.logicFlows.containsValue(this.flowManager)) {
+            this.flowManager.abort(this.serverData, this.executionContext);
+            return;
+        }
+        if (!this.flowManager.resume(this.serverData, this.executionContext)) {
+            this.flowManager.continueLater(this.serverData, this.executionContext);
+        }
+    }
+}
@@ -34,6 +34,8 @@ import com.mojang.brigadier.context.CommandContext;
 import com.mojang.brigadier.tree.LiteralCommandNode;
 import com.ykn.fmod.server.base.async.EntityDensityCalculator;
 import com.ykn.fmod.server.base.async.GptCommandExecutor;
+import com.ykn.fmod.server.base.data.EntityCensus;
+import com.ykn.fmod.server.base.data.FlowQueryCache;
 import com.ykn.fmod.server.base.data.GptData;
 import com.ykn.fmod.server.base.data.PlayerData;
 import com.ykn.fmod.server.base.data.ServerData;
@@ -41,7 +43,11 @@ import com.ykn.fmod.server.base.schedule.ScheduledTask;
 import com.ykn.fmod.server.base.schedule.PlaySong;
 import com.ykn.fmod.server.base.song.NbsSongDecoder;
 import com.ykn.fmod.server.base.song.NoteBlockSong;
+import com.ykn.fmod.server.base.util.EntityDensityAlgorithm;
 import com.ykn.fmod.server.base.util.EnumI18n;
+import com.ykn.fmod.server.base.util.FlowExecutionMode;
+import com.ykn.fmod.server.base.util.FlowOverloadPolicy;
+import com.ykn.fmod.server.base.util.FlowTraceLevel;
 import com.ykn.fmod.server.base.util.GameMath;
 import com.ykn.fmod.server.base.util.MarkdownToTextConverter;
 import com.ykn.fmod.server.base.util.MessageReceiver;
@@ -50,12 +56,13 @@ import com.ykn.fmod.server.base.util.TypeAdaptor;
 import com.ykn.fmod.server.base.util.MessageLocation;
 import com.ykn.fmod.server.base.util.Util;
 import com.ykn.fmod.server.flow.logic.DataReference;
-import com.ykn.fmod.server.flow.logic.ExecutionContext;
 import com.ykn.fmod.server.flow.logic.FlowNode;
 import com.ykn.fmod.server.flow.logic.LogicException;
 import com.ykn.fmod.server.flow.logic.LogicFlow;
 import com.ykn.fmod.server.flow.node.TriggerNode;
+import com.ykn.fmod.server.flow.tool.ExecutionHistory;
 import com.ykn.fmod.server.flow.tool.FlowManager;
+import com.ykn.fmod.server.flow.tool.FlowScheduler;
 import com.ykn.fmod.server.flow.tool.FlowSerializer;
 import com.ykn.fmod.server.flow.tool.NodeRegistry;
 
@@ -144,7 +151,7 @@ public class CommandRegistrater {
             flowManager.setConstInput("Send get x result to all players", 0, "chat");
             flowManager.setReferenceInput("Send get x result to all players", 1, "Get var x again", 0);
             flowManager.setNextNode("Send calculated result to all players", 0, "Send get x result to all players");
-            serverData.logicFlows.put(flowManager.flow.name, flowManager);
+            serverData.putLogicFlow(flowManager);
             context.getSource().sendFeedback(() -> Text.literal("Saved the example logic flow"), false);
         } else {
             context.getSource().sendFeedback(() -> Text.literal("Logic flow already exists, not saving"), false);
@@ -1116,16 +1123,33 @@ public class CommandRegistrater {
         return players.size();
     }
 
-    private int runGetCrowdedPlaceCommand(int number, double radius, CommandContext<ServerCommandSource> context) {
+    /**
+     * Gets the configured density algorithm if it is exact, or the spatial grid algorithm otherwise.
+     */
+    private EntityDensityAlgorithm getExactDensityAlgorithm() {
+        EntityDensityAlgorithm algorithm = Util.serverConfig.getEntityDensityAlgorithm();
+        return algorithm == EntityDensityAlgorithm.APPROXIMATE ? EntityDensityAlgorithm.SPATIAL_GRID : algorithm;
+    }
+
+    private int runGetCrowdedPlaceCommand(int number, double radius, EntityDensityAlgorithm algorithm, int hotspotCount, CommandContext<ServerCommandSource> context) {
         try {
+            ServerData serverData = Util.getServerData(context.getSource().getServer());
+            EntityDensityCalculator runningCalculator = serverData.findDensityCalculator(radius, number, algorithm, hotspotCount, false);
+            if (runningCalculator != null && runningCalculator.addContext(context)) {
+                // Wait for the running search instead of queueing the same search again
+                final String progress = String.format("%.1f%%", runningCalculator.getProgress() * 100.0);
+                context.getSource().sendFeedback(() -> Util.parseTranslatableText("fmod.command.get.crowd.running", progress), false);
+                return Command.SINGLE_SUCCESS;
+            }
             List<Entity> allEntities = new ArrayList<>();
+            EntityCensus census = serverData.getEntityCensus();
             for (ServerWorld world : context.getSource().getServer().getWorlds()) {
-                List<Entity> entities = Util.getAllEntities(world);
-                allEntities.addAll(entities);
+                allEntities.addAll(census.getEntities(world));
             }
-            EntityDensityCalculator calculator = new EntityDensityCalculator(context, allEntities, radius, number);
-            ServerData serverData = Util.getServerData(context.getSource().getServer());
-            context.getSource().sendFeedback(() -> Util.parseTranslatableText("fmod.command.get.crowd"), false);
+            EntityDensityCalculator calculator = new EntityDensityCalculator(context, allEntities, radius, number, algorithm, hotspotCount);
+            calculator.setSearchPool(serverData.getDensitySearchPool());
+            final String startKey = hotspotCount > 1 ? "fmod.command.get.hotspots" : "fmod.command.get.crowd";
+            context.getSource().sendFeedback(() -> Util.parseTranslatableText(startKey), false);
             serverData.submitAsyncTask(calculator);
         } catch (CommandException e) {
             throw e;
@@ -1170,7 +1194,7 @@ public class CommandRegistrater {
                 throw new CommandException(Util.parseTranslatableText("fmod.command.flow.event.unknown", eventNode));
             }
             FlowManager flowManager = new FlowManager(name, eventNode, eventNodeName);
-            data.logicFlows.put(name, flowManager);
+            data.putLogicFlow(flowManager);
             context.getSource().sendFeedback(() -> Util.parseTranslatableText("fmod.command.flow.create.success", eventNode, name), true);
         } catch (CommandException e) {
             throw e;
@@ -1195,7 +1219,7 @@ public class CommandRegistrater {
             }
             FlowManager copiedFlow = new FlowManager(sourceFlow.flow.copy());
             copiedFlow.flow.name = targetName;
-            data.logicFlows.put(targetName, copiedFlow);
+            data.putLogicFlow(copiedFlow);
             context.getSource().sendFeedback(() -> Util.parseTranslatableText("fmod.command.flow.copy.success", sourceName, targetName), true);
         } catch (CommandException e) {
             throw e;
@@ -1233,8 +1257,8 @@ public class CommandRegistrater {
                         continue;
                     }
                     FlowManager flowManager = new FlowManager(flow);
-                    data.logicFlows.put(flow.name, flowManager);
-                    flowManager.isEnabled = true;
+                    data.putLogicFlow(flowManager);
+                    flowManager.setEnabled(true);
                     loadedCount++;
                 }
                 int loadedCountFinal = loadedCount;
@@ -1253,9 +1277,10 @@ public class CommandRegistrater {
                 throw new CommandException(Util.parseTranslatableText("fmod.command.flow.exists", flow.name));
             }
             FlowManager flowManager = new FlowManager(flow);
-            data.logicFlows.put(flow.name, flowManager);
-            flowManager.isEnabled = true;
+            data.putLogicFlow(flowManager);
+            flowManager.setEnabled(true);
             context.getSource().sendFeedback(() -> Util.parseTranslatableText("fmod.command.flow.load.success", flow.name), true);
+            this.sendFlowProblems(flowManager, context);
         } catch (CommandException e) {
             throw e;
         } catch (Exception e) {
@@ -1303,6 +1328,7 @@ public class CommandRegistrater {
                 throw new CommandException(Util.parseTranslatableText("fmod.command.flow.save.ioexception", targetFlow.flow.name));
             }
             context.getSource().sendFeedback(() -> Util.parseTranslatableText("fmod.command.flow.save.success", targetFlow.flow.name), true);
+            this.sendFlowProblems(targetFlow, context);
             FlowFileSuggestion.suggest();
         } catch (CommandException e) {
             throw e;
@@ -1313,6 +1339,17 @@ public class CommandRegistrater {
         return Command.SINGLE_SUCCESS;
     }
 
+    private void sendFlowProblems(FlowManager flowManager, CommandContext<ServerCommandSource> context) {
+        List<Text> problems = flowManager.getPlan().getProblems();
+        if (problems.isEmpty()) {
+            return;
+        }
+        context.getSource().sendFeedback(() -> Util.parseTranslatableText("fmod.command.flow.problem", flowManager.flow.name).formatted(Formatting.YELLOW), false);
+        for (Text problem : problems) {
+            context.getSource().sendFeedback(() -> problem, false);
+        }
+    }
+
     private int runListFlowCommand(CommandContext<ServerCommandSource> context) {
         try {
             FlowFileSuggestion.suggest();
@@ -1332,7 +1369,7 @@ public class CommandRegistrater {
                     continue;
                 }
                 String startNodeStr = startNode.name;
-                if (flowManager.isEnabled) {
+                if (flowManager.isEnabled()) {
                     line = Util.parseTranslatableText("fmod.command.flow.list.enabled", flowManager.flow.name, numNodesStr, startNodeStr).styled(s -> s
                         .withHoverEvent(new HoverEvent(HoverEvent.Action.SHOW_TEXT, Util.parseTranslatableText("fmod.misc.clickview").formatted(Formatting.GREEN)))
                         .withClickEvent(new ClickEvent(ClickEvent.Action.RUN_COMMAND, "/f flow view \"" + flowManager.flow.name + "\""))
@@ -1373,9 +1410,9 @@ public class CommandRegistrater {
             if (data.logicFlows.get(newName) != null) {
                 throw new CommandException(Util.parseTranslatableText("fmod.command.flow.exists", newName));
             }
-            data.logicFlows.remove(oldName);
-            targetFlow.flow.name = newName;
-            data.logicFlows.put(newName, targetFlow);
+            data.removeLogicFlow(oldName);
+            targetFlow.renameFlow(newName);
+            data.putLogicFlow(targetFlow);
             context.getSource().sendFeedback(() -> Util.parseTranslatableText("fmod.command.flow.rename.success", oldName, newName), true);
         } catch (CommandException e) {
             throw e;
@@ -1394,7 +1431,7 @@ public class CommandRegistrater {
             if (targetFlow == null) {
                 throw new CommandException(Util.parseTranslatableText("fmod.command.flow.notexists", name));
             }
-            if (targetFlow.isEnabled) {
+            if (targetFlow.isEnabled()) {
                 context.getSource().sendFeedback(() -> Util.parseTranslatableText("fmod.command.flow.enable.get.true", name), false);
             } else {
                 context.getSource().sendFeedback(() -> Util.parseTranslatableText("fmod.command.flow.enable.get.false", name), false);
@@ -1416,9 +1453,10 @@ public class CommandRegistrater {
             if (targetFlow == null) {
                 throw new CommandException(Util.parseTranslatableText("fmod.command.flow.notexists", name));
             }
-            targetFlow.isEnabled = enable;
+            targetFlow.setEnabled(enable);
             if (enable) {
                 context.getSource().sendFeedback(() -> Util.parseTranslatableText("fmod.command.flow.enable.set.true", name), true);
+                this.sendFlowProblems(targetFlow, context);
             } else {
                 context.getSource().sendFeedback(() -> Util.parseTranslatableText("fmod.command.flow.enable.set.false", name), true);
             }
@@ -1460,7 +1498,7 @@ public class CommandRegistrater {
             if (targetFlow == null) {
                 throw new CommandException(Util.parseTranslatableText("fmod.command.trigger.notexists", name));
             }
-            if (targetFlow.isEnabled == false) {
+            if (targetFlow.isEnabled() == false) {
                 throw new CommandException(Util.parseTranslatableText("fmod.command.trigger.notexists", name));
             }
             if (targetFlow.flow.getFirstNode() == null) {
@@ -1493,7 +1531,7 @@ public class CommandRegistrater {
             if (targetFlow == null) {
                 throw new CommandException(Util.parseTranslatableText("fmod.command.flow.notexists", name));
             }
-            data.logicFlows.remove(name);
+            data.removeLogicFlow(name);
             context.getSource().sendFeedback(() -> Util.parseTranslatableText("fmod.command.flow.delete.success", name), true);
         } catch (CommandException e) {
             throw e;
@@ -1504,11 +1542,128 @@ public class CommandRegistrater {
         return Command.SINGLE_SUCCESS;
     }
 
+    private int runTraceFlowCommand(String name, FlowTraceLevel traceLevel, CommandContext<ServerCommandSource> context) {
+        try {
+            FlowFileSuggestion.suggest();
+            ServerData data = Util.getServerData(context.getSource().getServer());
+            FlowManager targetFlow = data.logicFlows.get(name);
+            if (targetFlow == null) {
+                throw new CommandException(Util.parseTranslatableText("fmod.command.flow.notexists", name));
+            }
+            if (traceLevel == null) {
+                context.getSource().sendFeedback(() -> Util.parseTranslatableText("fmod.command.flow.trace.get", name, EnumI18n.getFlowTraceLevelI18n(targetFlow.getTraceLevel())), false);
+            } else {
+                targetFlow.setTraceLevel(traceLevel);
+                context.getSource().sendFeedback(() -> Util.parseTranslatableText("fmod.command.flow.trace.set", name, EnumI18n.getFlowTraceLevelI18n(traceLevel)), true);
+            }
+        } catch (CommandException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.error("FMinecraftMod: Caught unexpected exception when executing command /f flow trace", e);
+            throw new CommandException(Util.parseTranslatableText("fmod.command.unknownerror"));
+        }
+        return Command.SINGLE_SUCCESS;
+    }
+
+    private int runModeFlowCommand(String name, FlowExecutionMode executionMode, CommandContext<ServerCommandSource> context) {
+        try {
+            FlowFileSuggestion.suggest();
+            ServerData data = Util.getServerData(context.getSource().getServer());
+            FlowManager targetFlow = data.logicFlows.get(name);
+            if (targetFlow == null) {
+                throw new CommandException(Util.parseTranslatableText("fmod.command.flow.notexists", name));
+            }
+            if (executionMode == null) {
+                context.getSource().sendFeedback(() -> Util.parseTranslatableText("fmod.command.flow.mode.get", name, EnumI18n.getFlowExecutionModeI18n(targetFlow.getExecutionMode())), false);
+            } else {
+                targetFlow.setExecutionMode(executionMode);
+                context.getSource().sendFeedback(() -> Util.parseTranslatableText("fmod.command.flow.mode.set", name, EnumI18n.getFlowExecutionModeI18n(executionMode)), true);
+            }
+        } catch (CommandException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.error("FMinecraftMod: Caught unexpected exception when executing command /f flow mode", e);
+            throw new CommandException(Util.parseTranslatableText("fmod.command.unknownerror"));
+        }
+        return Command.SINGLE_SUCCESS;
+    }
+
+    private int runOverloadFlowCommand(String name, FlowOverloadPolicy overloadPolicy, CommandContext<ServerCommandSource> context) {
+        try {
+            FlowFileSuggestion.suggest();
+            ServerData data = Util.getServerData(context.getSource().getServer());
+            FlowManager targetFlow = data.logicFlows.get(name);
+            if (targetFlow == null) {
+                throw new CommandException(Util.parseTranslatableText("fmod.command.flow.notexists", name));
+            }
+            if (overloadPolicy == null) {
+                context.getSource().sendFeedback(() -> Util.parseTranslatableText("fmod.command.flow.overload.get", name, EnumI18n.getFlowOverloadPolicyI18n(targetFlow.getOverloadPolicy())), false);
+            } else {
+                targetFlow.setOverloadPolicy(overloadPolicy);
+                context.getSource().sendFeedback(() -> Util.parseTranslatableText("fmod.command.flow.overload.set", name, EnumI18n.getFlowOverloadPolicyI18n(overloadPolicy)), true);
+            }
+        } catch (CommandException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.error("FMinecraftMod: Caught unexpected exception when executing command /f flow overload", e);
+            throw new CommandException(Util.parseTranslatableText("fmod.command.unknownerror"));
+        }
+        return Command.SINGLE_SUCCESS;
+    }
+
+    private int runCancelFlowCommand(String name, CommandContext<ServerCommandSource> context) {
+        try {
+            FlowFileSuggestion.suggest();
+            ServerData data = Util.getServerData(context.getSource().getServer());
+            FlowManager targetFlow = data.logicFlows.get(name);
+            if (targetFlow == null) {
+                throw new CommandException(Util.parseTranslatableText("fmod.command.flow.notexists", name));
+            }
+            int count = data.cancelFlowTasks(targetFlow);
+            if (count == 0) {
+                throw new CommandException(Util.parseTranslatableText("fmod.command.flow.cancel.none", name));
+            }
+            context.getSource().sendFeedback(() -> Util.parseTranslatableText("fmod.command.flow.cancel.success", name, count), true);
+        } catch (CommandException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.error("FMinecraftMod: Caught unexpected exception when executing command /f flow cancel", e);
+            throw new CommandException(Util.parseTranslatableText("fmod.command.unknownerror"));
+        }
+        return Command.SINGLE_SUCCESS;
+    }
+
+    private int runFlowBudgetCommand(CommandContext<ServerCommandSource> context) {
+        try {
+            ServerData data = Util.getServerData(context.getSource().getServer());
+            FlowScheduler scheduler = data.getFlowScheduler();
+            long lastTickMicros = scheduler.getLastTickNanos() / 1000L;
+            int budget = Util.serverConfig.getFlowTickBudget();
+            context.getSource().sendFeedback(() -> Util.parseTranslatableText("fmod.command.flow.budget", lastTickMicros, budget, scheduler.getQueuedCount(), scheduler.getDeferredCount(), scheduler.getDroppedCount()), false);
+        } catch (Exception e) {
+            logger.error("FMinecraftMod: Caught unexpected exception when executing command /f flow budget", e);
+            throw new CommandException(Util.parseTranslatableText("fmod.command.unknownerror"));
+        }
+        return Command.SINGLE_SUCCESS;
+    }
+
+    private int runFlowCacheCommand(CommandContext<ServerCommandSource> context) {
+        try {
+            ServerData data = Util.getServerData(context.getSource().getServer());
+            FlowQueryCache cache = data.getFlowQueryCache();
+            context.getSource().sendFeedback(() -> Util.parseTranslatableText("fmod.command.flow.cache", cache.size(), cache.getHitCount(), cache.getMissCount()), false);
+        } catch (Exception e) {
+            logger.error("FMinecraftMod: Caught unexpected exception when executing command /f flow cache", e);
+            throw new CommandException(Util.parseTranslatableText("fmod.command.unknownerror"));
+        }
+        return Command.SINGLE_SUCCESS;
+    }
+
     private int runFlowHistoryCommand(int pageIndex, CommandContext<ServerCommandSource> context) {
         try {
             FlowFileSuggestion.suggest();
             ServerData data = Util.getServerData(context.getSource().getServer());
-            List<ExecutionContext> history = data.executeHistory;
+            ExecutionHistory history = data.executeHistory;
             // 5 entries per page
             int maxPage = (history.size() + 4) / 5;
             if (maxPage <= 0) {
@@ -1528,9 +1683,9 @@ public class CommandRegistrater {
             String maxPageStr = String.valueOf(maxPage);
             context.getSource().sendFeedback(() -> Util.parseTranslatableText("fmod.command.flow.history.title", indexStr, maxPageStr), false);
             for (int i = start; i < end; i++) {
-                ExecutionContext entry = history.get(i);
+                ExecutionHistory.Entry entry = history.get(i);
                 String iStr = String.valueOf(i + 1);
-                MutableText entryText =  Util.parseTranslatableText("fmod.command.flow.history.entry", iStr, entry.getFlow().name).styled(s -> s
+                MutableText entryText =  Util.parseTranslatableText("fmod.command.flow.history.entry", iStr, entry.getFlowName()).styled(s -> s
                     .withHoverEvent(new HoverEvent(HoverEvent.Action.SHOW_TEXT, Util.parseTranslatableText("fmod.misc.clickview").formatted(Formatting.GREEN)))
                     .withClickEvent(new ClickEvent(ClickEvent.Action.RUN_COMMAND, "/f flow log " + iStr))
                 );
@@ -1584,11 +1739,11 @@ public class CommandRegistrater {
         try {
             FlowFileSuggestion.suggest();
             ServerData data = Util.getServerData(context.getSource().getServer());
-            List<ExecutionContext> history = data.executeHistory;
+            ExecutionHistory history = data.executeHistory;
             if (index <= 0 || index > history.size()) {
                 throw new CommandException(Util.parseTranslatableText("fmod.command.flow.log.indexerror", String.valueOf(index)));
             }
-            ExecutionContext entry = history.get(index - 1);
+            ExecutionHistory.Entry entry = history.get(index - 1);
             Text text = entry.render();
             context.getSource().sendFeedback(() -> text, false);
         } catch (CommandException e) {
@@ -1905,6 +2060,7 @@ public class CommandRegistrater {
             SongFileSuggestion.suggest();
             FlowFileSuggestion.suggest();
             Util.loadServerConfig();
+            NodeRegistry.refreshMetadata();
             context.getSource().sendFeedback(() -> Util.parseTranslatableText("fmod.command.reload.success"), true);
         } catch (CommandException e) {
             throw e;
@@ -2037,10 +2193,22 @@ public class CommandRegistrater {
                         .then(CommandManager.literal("crowd")
                             .then(CommandManager.argument("number", IntegerArgumentType.integer(1))
                                 .then(CommandManager.argument("radius", DoubleArgumentType.doubleArg(0.0))
-                                    .executes(context -> {return runGetCrowdedPlaceCommand(IntegerArgumentType.getInteger(context, "number"), DoubleArgumentType.getDouble(context, "radius"), context);})
+                                    .then(CommandManager.literal("exact").executes(context -> {return runGetCrowdedPlaceCommand(IntegerArgumentType.getInteger(context, "number"), DoubleArgumentType.getDouble(context, "radius"), getExactDensityAlgorithm(), 1, context);}))
+                                    .then(CommandManager.literal("approximate").executes(context -> {return runGetCrowdedPlaceCommand(IntegerArgumentType.getInteger(context, "number"), DoubleArgumentType.getDouble(context, "radius"), EntityDensityAlgorithm.APPROXIMATE, 1, context);}))
+                                    .executes(context -> {return runGetCrowdedPlaceCommand(IntegerArgumentType.getInteger(context, "number"), DoubleArgumentType.getDouble(context, "radius"), Util.serverConfig.getEntityDensityAlgorithm(), 1, context);})
                                 )
                             )
-                            .executes(context -> {return runGetCrowdedPlaceCommand(Util.serverConfig.getEntityDensityNumber(), Util.serverConfig.getEntityDensityRadius(), context);})
+                            .executes(context -> {return runGetCrowdedPlaceCommand(Util.serverConfig.getEntityDensityNumber(), Util.serverConfig.getEntityDensityRadius(), Util.serverConfig.getEntityDensityAlgorithm(), 1, context);})
+                        )
+                        .then(CommandManager.literal("hotspots")
+                            .then(CommandManager.argument("count", IntegerArgumentType.integer(1, 32))
+                                .then(CommandManager.argument("number", IntegerArgumentType.integer(1))
+                                    .then(CommandManager.argument("radius", DoubleArgumentType.doubleArg(0.0))
+                                        .executes(context -> {return runGetCrowdedPlaceCommand(IntegerArgumentType.getInteger(context, "number"), DoubleArgumentType.getDouble(context, "radius"), getExactDensityAlgorithm(), IntegerArgumentType.getInteger(context, "count"), context);})
+                                    )
+                                )
+                                .executes(context -> {return runGetCrowdedPlaceCommand(Util.serverConfig.getEntityDensityNumber(), Util.serverConfig.getEntityDensityRadius(), getExactDensityAlgorithm(), IntegerArgumentType.getInteger(context, "count"), context);})
+                            )
                         )
                     )
                     .then(CommandManager.literal("share")
@@ -2216,6 +2384,44 @@ public class CommandRegistrater {
                                 .executes(context -> {return runGetEnableFlowCommand(StringArgumentType.getString(context, "name"), context);})
                             )
                         )
+                        .then(CommandManager.literal("trace")
+                            .then(CommandManager.argument("name", StringArgumentType.string())
+                                .suggests(LogicFlowSuggestion.suggest(true))
+                                .then(CommandManager.literal("off").executes(context -> {return runTraceFlowCommand(StringArgumentType.getString(context, "name"), FlowTraceLevel.OFF, context);}))
+                                .then(CommandManager.literal("summary").executes(context -> {return runTraceFlowCommand(StringArgumentType.getString(context, "name"), FlowTraceLevel.SUMMARY, context);}))
+                                .then(CommandManager.literal("full").executes(context -> {return runTraceFlowCommand(StringArgumentType.getString(context, "name"), FlowTraceLevel.FULL, context);}))
+                                .executes(context -> {return runTraceFlowCommand(StringArgumentType.getString(context, "name"), null, context);})
+                            )
+                        )
+                        .then(CommandManager.literal("mode")
+                            .then(CommandManager.argument("name", StringArgumentType.string())
+                                .suggests(LogicFlowSuggestion.suggest(true))
+                                .then(CommandManager.literal("complete").executes(context -> {return runModeFlowCommand(StringArgumentType.getString(context, "name"), FlowExecutionMode.RUN_TO_COMPLETION, context);}))
+                                .then(CommandManager.literal("sliced").executes(context -> {return runModeFlowCommand(StringArgumentType.getString(context, "name"), FlowExecutionMode.SLICED, context);}))
+                                .then(CommandManager.literal("offloaded").executes(context -> {return runModeFlowCommand(StringArgumentType.getString(context, "name"), FlowExecutionMode.OFFLOADED, context);}))
+                                .executes(context -> {return runModeFlowCommand(StringArgumentType.getString(context, "name"), null, context);})
+                            )
+                        )
+                        .then(CommandManager.literal("overload")
+                            .then(CommandManager.argument("name", StringArgumentType.string())
+                                .suggests(LogicFlowSuggestion.suggest(true))
+                                .then(CommandManager.literal("defer").executes(context -> {return runOverloadFlowCommand(StringArgumentType.getString(context, "name"), FlowOverloadPolicy.DEFER, context);}))
+                                .then(CommandManager.literal("drop").executes(context -> {return runOverloadFlowCommand(StringArgumentType.getString(context, "name"), FlowOverloadPolicy.DROP, context);}))
+                                .executes(context -> {return runOverloadFlowCommand(StringArgumentType.getString(context, "name"), null, context);})
+                            )
+                        )
+                        .then(CommandManager.literal("cancel")
+                            .then(CommandManager.argument("name", StringArgumentType.string())
+                                .suggests(LogicFlowSuggestion.suggest(true))
+                                .executes(context -> {return runCancelFlowCommand(StringArgumentType.getString(context, "name"), context);})
+                            )
+                        )
+                        .then(CommandManager.literal("budget")
+                            .executes(context -> {return runFlowBudgetCommand(context);})
+                        )
+                        .then(CommandManager.literal("cache")
+                            .executes(context -> {return runFlowCacheCommand(context);})
+                        )
                         .then(CommandManager.literal("execute")
                             .then(CommandManager.argument("name", StringArgumentType.string())
                                 .suggests(LogicFlowSuggestion.suggest(true))
@@ -2272,6 +2478,30 @@ public class CommandRegistrater {
                             )
                             .executes(context -> {return runOptionsCommand("keepFlowExecutionHistory", null, context);})
                         )
+                        .then(CommandManager.literal("keepFlowExecutionDetail")
+                            .then(CommandManager.argument("size", IntegerArgumentType.integer(0))
+                                .executes(context -> {return runOptionsCommand("keepFlowExecutionDetail", IntegerArgumentType.getInteger(context, "size"), context);})
+                            )
+                            .executes(context -> {return runOptionsCommand("keepFlowExecutionDetail", null, context);})
+                        )
+                        .then(CommandManager.literal("keepFlowExecutionMemory")
+                            .then(CommandManager.argument("kilobytes", IntegerArgumentType.integer(0))
+                                .executes(context -> {return runOptionsCommand("keepFlowExecutionMemory", IntegerArgumentType.getInteger(context, "kilobytes"), context);})
+                            )
+                            .executes(context -> {return runOptionsCommand("keepFlowExecutionMemory", null, context);})
+                        )
+                        .then(CommandManager.literal("flowTimeSlice")
+                            .then(CommandManager.argument("microseconds", IntegerArgumentType.integer(0))
+                                .executes(context -> {return runOptionsCommand("flowTimeSlice", IntegerArgumentType.getInteger(context, "microseconds"), context);})
+                            )
+                            .executes(context -> {return runOptionsCommand("flowTimeSlice", null, context);})
+                        )
+                        .then(CommandManager.literal("flowTickBudget")
+                            .then(CommandManager.argument("microseconds", IntegerArgumentType.integer(0))
+                                .executes(context -> {return runOptionsCommand("flowTickBudget", IntegerArgumentType.getInteger(context, "microseconds"), context);})
+                            )
+                            .executes(context -> {return runOptionsCommand("flowTickBudget", null, context);})
+                        )
                         .then(CommandManager.literal("entityDeathMessage")
                             .then(CommandManager.literal("off").executes(context -> {return runOptionsCommand("entityDeathMessage", MessageLocation.NONE, context);}))
                             .then(CommandManager.literal("chat").executes(context -> {return runOptionsCommand("entityDeathMessage", MessageLocation.CHAT, context);}))
@@ -2554,6 +2784,30 @@ public class CommandRegistrater {
                             )
                             .executes(context -> {return runOptionsCommand("entityDensityCheckInterval", null, context);})
                         )
+                        .then(CommandManager.literal("entityDensityAlgorithm")
+                            .then(CommandManager.literal("bruteforce").executes(context -> {return runOptionsCommand("entityDensityAlgorithm", EntityDensityAlgorithm.BRUTE_FORCE, context);}))
+                            .then(CommandManager.literal("grid").executes(context -> {return runOptionsCommand("entityDensityAlgorithm", EntityDensityAlgorithm.SPATIAL_GRID, context);}))
+                            .then(CommandManager.literal("approximate").executes(context -> {return runOptionsCommand("entityDensityAlgorithm", EntityDensityAlgorithm.APPROXIMATE, context);}))
+                            .executes(context -> {return runOptionsCommand("entityDensityAlgorithm", null, context);})
+                        )
+                        .then(CommandManager.literal("entityDensityParallelism")
+                            .then(CommandManager.argument("threads", IntegerArgumentType.integer(1))
+                                .executes(context -> {return runOptionsCommand("entityDensityParallelism", IntegerArgumentType.getInteger(context, "threads"), context);})
+                            )
+                            .executes(context -> {return runOptionsCommand("entityDensityParallelism", null, context);})
+                        )
+                        .then(CommandManager.literal("entityDensityTimeLimit")
+                            .then(CommandManager.argument("milliseconds", IntegerArgumentType.integer(0))
+                                .executes(context -> {return runOptionsCommand("entityDensityTimeLimit", IntegerArgumentType.getInteger(context, "milliseconds"), context);})
+                            )
+                            .executes(context -> {return runOptionsCommand("entityDensityTimeLimit", null, context);})
+                        )
+                        .then(CommandManager.literal("entityDensityHotSections")
+                            .then(CommandManager.argument("enable", BoolArgumentType.bool())
+                                .executes(context -> {return runOptionsCommand("entityDensityHotSections", BoolArgumentType.getBool(context, "enable"), context);})
+                            )
+                            .executes(context -> {return runOptionsCommand("entityDensityHotSections", null, context);})
+                        )
                         .then(CommandManager.literal("playerHurtMessageLocation")
                             .then(CommandManager.literal("off").executes(context -> {return runOptionsCommand("playerHurtMessageLocation", MessageLocation.NONE, context);}))
                             .then(CommandManager.literal("chat").executes(context -> {return runOptionsCommand("playerHurtMessageLocation", MessageLocation.CHAT, context);}))
@@ -2704,6 +2958,7 @@ public class CommandRegistrater {
                         context.getSource().sendFeedback(() -> Util.parseTranslatableText("fmod.command.options.get.translate", EnumI18n.getBooleanValueI18n(Util.serverConfig.isEnableServerTranslation())), false);
                     } else {
                         Util.serverConfig.setEnableServerTranslation((boolean) value);
+                        NodeRegistry.refreshMetadata();
                         context.getSource().sendFeedback(() -> Util.parseTranslatableText("fmod.command.options.translate", EnumI18n.getBooleanValueI18n(Util.serverConfig.isEnableServerTranslation())), true);
                     }
                     break;
@@ -2731,6 +2986,38 @@ public class CommandRegistrater {
                         context.getSource().sendFeedback(() -> Util.parseTranslatableText("fmod.command.options.flowhistory", value), true);
                     }
                     break;
+                case "keepFlowExecutionDetail":
+                    if (value == null) {
+                        context.getSource().sendFeedback(() -> Util.parseTranslatableText("fmod.command.options.get.flowdetail", Util.serverConfig.getKeepFlowHistoryDetailNumber()), false);
+                    } else {
+                        Util.serverConfig.setKeepFlowHistoryDetailNumber((int) value);
+                        context.getSource().sendFeedback(() -> Util.parseTranslatableText("fmod.command.options.flowdetail", value), true);
+                    }
+                    break;
+                case "keepFlowExecutionMemory":
+                    if (value == null) {
+                        context.getSource().sendFeedback(() -> Util.parseTranslatableText("fmod.command.options.get.flowmemory", Util.serverConfig.getKeepFlowHistoryKilobytes()), false);
+                    } else {
+                        Util.serverConfig.setKeepFlowHistoryKilobytes((int) value);
+                        context.getSource().sendFeedback(() -> Util.parseTranslatableText("fmod.command.options.flowmemory", value), true);
+                    }
+                    break;
+                case "flowTimeSlice":
+                    if (value == null) {
+                        context.getSource().sendFeedback(() -> Util.parseTranslatableText("fmod.command.options.get.flowslice", Util.serverConfig.getFlowTimeSlice()), false);
+                    } else {
+                        Util.serverConfig.setFlowTimeSlice((int) value);
+                        context.getSource().sendFeedback(() -> Util.parseTranslatableText("fmod.command.options.flowslice", value), true);
+                    }
+                    break;
+                case "flowTickBudget":
+                    if (value == null) {
+                        context.getSource().sendFeedback(() -> Util.parseTranslatableText("fmod.command.options.get.flowbudget", Util.serverConfig.getFlowTickBudget()), false);
+                    } else {
+                        Util.serverConfig.setFlowTickBudget((int) value);
+                        context.getSource().sendFeedback(() -> Util.parseTranslatableText("fmod.command.options.flowbudget", value), true);
+                    }
+                    break;
                 case "entityDeathMessage":
                     if (value == null) {
                         final MutableText text = EnumI18n.getMessageLocationI18n(Util.serverConfig.getEntityDeathMessage());
@@ -3113,6 +3400,40 @@ public class CommandRegistrater {
                         context.getSource().sendFeedback(() -> Util.parseTranslatableText("fmod.command.options.densityinterval", value), true);
                     }
                     break;
+                case "entityDensityAlgorithm":
+                    if (value == null) {
+                        final MutableText text = EnumI18n.getEntityDensityAlgorithmI18n(Util.serverConfig.getEntityDensityAlgorithm());
+                        context.getSource().sendFeedback(() -> Util.parseTranslatableText("fmod.command.options.get.densityalgorithm", text), false);
+                    } else {
+                        Util.serverConfig.setEntityDensityAlgorithm((EntityDensityAlgorithm) value);
+                        final MutableText text = EnumI18n.getEntityDensityAlgorithmI18n((EntityDensityAlgorithm) value);
+                        context.getSource().sendFeedback(() -> Util.parseTranslatableText("fmod.command.options.densityalgorithm", text), true);
+                    }
+                    break;
+                case "entityDensityParallelism":
+                    if (value == null) {
+                        context.getSource().sendFeedback(() -> Util.parseTranslatableText("fmod.command.options.get.densityparallelism", Util.serverConfig.getEntityDensityParallelism()), false);
+                    } else {
+                        Util.serverConfig.setEntityDensityParallelism((int) value);
+                        context.getSource().sendFeedback(() -> Util.parseTranslatableText("fmod.command.options.densityparallelism", value), true);
+                    }
+                    break;
+                case "entityDensityTimeLimit":
+                    if (value == null) {
+                        context.getSource().sendFeedback(() -> Util.parseTranslatableText("fmod.command.options.get.densitytimelimit", Util.serverConfig.getEntityDensityTimeLimit()), false);
+                    } else {
+                        Util.serverConfig.setEntityDensityTimeLimit((int) value);
+                        context.getSource().sendFeedback(() -> Util.parseTranslatableText("fmod.command.options.densitytimelimit", value), true);
+                    }
+                    break;
+                case "entityDensityHotSections":
+                    if (value == null) {
+                        context.getSource().sendFeedback(() -> Util.parseTranslatableText("fmod.command.options.get.densityhotsections", EnumI18n.getBooleanValueI18n(Util.serverConfig.isEnableEntityDensityHotSections())), false);
+                    } else {
+                        Util.serverConfig.setEnableEntityDensityHotSections((boolean) value);
+                        context.getSource().sendFeedback(() -> Util.parseTranslatableText("fmod.command.options.densityhotsections", EnumI18n.getBooleanValueI18n(Util.serverConfig.isEnableEntityDensityHotSections())), true);
+                    }
+                    break;
                 case "playerHurtMessageLocation":
                     if (value == null) {
                         final MutableText text = EnumI18n.getMessageLocationI18n(Util.serverConfig.getPlayerSeriousHurtLocation());
@@ -80,7 +80,7 @@ public class LogicFlowSuggestion implements SuggestionProvider<ServerCommandSour
                     continue;
                 }
             }
-            if (enabledOnly && manager.isEnabled == false) {
+            if (enabledOnly && manager.isEnabled() == false) {
                 continue;
             }
             if (needQuote) {
@@ -7,6 +7,7 @@ package com.ykn.fmod.server.base.config;
 
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+import com.ykn.fmod.server.base.util.EntityDensityAlgorithm;
 import com.ykn.fmod.server.base.util.MessageReceiver;
 import com.ykn.fmod.server.base.util.MessageLocation;
 
@@ -45,6 +46,34 @@ public class ServerConfig extends ConfigReader {
      */
     protected int keepFlowHistoryNumber;
 
+    /**
+     * How many of the most recent flow executions keep their full execution details in the history.
+     * Older executions are compacted into a rendered summary, which does not keep any game objects alive.
+     * Default: 64
+     */
+    protected int keepFlowHistoryDetailNumber;
+
+    /**
+     * The estimated memory in kilobytes that the history of flow executions may use, or 0 for no limit.
+     * Once it is exceeded, the oldest detailed executions are compacted first, then the oldest executions are dropped.
+     * Default: 65536
+     */
+    protected int keepFlowHistoryKilobytes;
+
+    /**
+     * The longest time in microseconds that a sliced logic flow may run in one server tick.
+     * Once it is used up, the flow yields and continues in the next tick.
+     * Default: 2000
+     */
+    protected int flowTimeSlice;
+
+    /**
+     * The total time in microseconds that logic flows may take in one server tick, or 0 for no limit.
+     * Once it is used up, flows triggered by events are deferred to a later tick or dropped.
+     * Default: 20000
+     */
+    protected int flowTickBudget;
+
     /**
      * The message sent to the client when a non-hostile and non-passive entity dies.
      * Default: NONE
@@ -304,6 +333,40 @@ public class ServerConfig extends ConfigReader {
      */
     protected int entityDensityInterval;
 
+    /**
+     * The algorithm used to search for the most crowded area.
+     * BRUTE_FORCE compares every pair of entities, SPATIAL_GRID only visits nearby grid cells.
+     * Both algorithms give identical results, this option is kept for comparison.
+     * APPROXIMATE only searches from the most crowded grid cells and a random sample of entities.
+     * Default: SPATIAL_GRID
+     */
+    protected EntityDensityAlgorithm entityDensityAlgorithm;
+
+    /**
+     * The number of threads used to search for the most crowded area.
+     * Values larger than 1 split the search across a thread pool shared by all searches, which finishes
+     * large scans faster but uses more CPU cores at the same time.
+     * Values larger than the number of available processors are treated as the number of processors.
+     * Default: 1
+     */
+    protected int entityDensityParallelism;
+
+    /**
+     * The maximum time in milliseconds a search for the most crowded area may run.
+     * When the time is up, the most crowded area found so far is reported.
+     * 0 means no limit.
+     * Default: 10000 (10 seconds)
+     */
+    protected int entityDensityTimeLimit;
+
+    /**
+     * Whether the search for the most crowded area only looks at the neighborhoods of crowded chunk sections
+     * when the density radius fits in one section. This skips the search on most checks, but the reported
+     * radius is capped at the section size.
+     * Default: false
+     */
+    protected boolean entityDensityHotSections;
+
     /**
      * Controls where to show the message when a player is seriously hurt.
      * Default: NONE
@@ -427,6 +490,10 @@ public class ServerConfig extends ConfigReader {
         this.maxFlowLength = 32767;
         this.maxFlowRecursionDepth = 16;
         this.keepFlowHistoryNumber = 32767;
+        this.keepFlowHistoryDetailNumber = 64;
+        this.keepFlowHistoryKilobytes = 65536;
+        this.flowTimeSlice = 2000;
+        this.flowTickBudget = 20000;
         this.entityDeathMessage = MessageLocation.NONE;
         this.hostileDeathMessage = MessageLocation.NONE;
         this.passiveDeathMessage = MessageLocation.NONE;
@@ -468,6 +535,10 @@ public class ServerConfig extends ConfigReader {
         this.entityDensityRadius = 8.0;
         this.entityNumberInterval = 20;
         this.entityDensityInterval = 20;
+        this.entityDensityAlgorithm = EntityDensityAlgorithm.SPATIAL_GRID;
+        this.entityDensityParallelism = 1;
+        this.entityDensityTimeLimit = 10000;
+        this.entityDensityHotSections = false;
         this.playerSeriousHurtLocation = MessageLocation.NONE;
         this.playerSeriousHurtReceiver = MessageReceiver.NONE;
         this.playerHurtThreshold = 0.8;
@@ -582,6 +653,106 @@ public class ServerConfig extends ConfigReader {
         }
     }
 
+    public int getKeepFlowHistoryDetailNumber() {
+        lock.readLock().lock();
+        try {
+            if (keepFlowHistoryDetailNumber < 0) {
+                return 0;
+            }
+            return keepFlowHistoryDetailNumber;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void setKeepFlowHistoryDetailNumber(int keepFlowHistoryDetailNumber) {
+        lock.writeLock().lock();
+        try {
+            if (keepFlowHistoryDetailNumber < 0) {
+                this.keepFlowHistoryDetailNumber = 0;
+            } else {
+                this.keepFlowHistoryDetailNumber = keepFlowHistoryDetailNumber;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int getKeepFlowHistoryKilobytes() {
+        lock.readLock().lock();
+        try {
+            if (keepFlowHistoryKilobytes < 0) {
+                return 0;
+            }
+            return keepFlowHistoryKilobytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void setKeepFlowHistoryKilobytes(int keepFlowHistoryKilobytes) {
+        lock.writeLock().lock();
+        try {
+            if (keepFlowHistoryKilobytes < 0) {
+                this.keepFlowHistoryKilobytes = 0;
+            } else {
+                this.keepFlowHistoryKilobytes = keepFlowHistoryKilobytes;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int getFlowTimeSlice() {
+        lock.readLock().lock();
+        try {
+            if (flowTimeSlice < 0) {
+                return 0;
+            }
+            return flowTimeSlice;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void setFlowTimeSlice(int flowTimeSlice) {
+        lock.writeLock().lock();
+        try {
+            if (flowTimeSlice < 0) {
+                this.flowTimeSlice = 0;
+            } else {
+                this.flowTimeSlice = flowTimeSlice;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int getFlowTickBudget() {
+        lock.readLock().lock();
+        try {
+            if (flowTickBudget < 0) {
+                return 0;
+            }
+            return flowTickBudget;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void setFlowTickBudget(int flowTickBudget) {
+        lock.writeLock().lock();
+        try {
+            if (flowTickBudget < 0) {
+                this.flowTickBudget = 0;
+            } else {
+                this.flowTickBudget = flowTickBudget;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
     public MessageLocation getEntityDeathMessage() {
         lock.readLock().lock();
         try {
@@ -1418,6 +1589,95 @@ public class ServerConfig extends ConfigReader {
         }
     }
 
+    public EntityDensityAlgorithm getEntityDensityAlgorithm() {
+        lock.readLock().lock();
+        try {
+            if (entityDensityAlgorithm == null) {
+                return EntityDensityAlgorithm.SPATIAL_GRID;
+            }
+            return entityDensityAlgorithm;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void setEntityDensityAlgorithm(EntityDensityAlgorithm entityDensityAlgorithm) {
+        lock.writeLock().lock();
+        try {
+            this.entityDensityAlgorithm = entityDensityAlgorithm;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int getEntityDensityParallelism() {
+        lock.readLock().lock();
+        try {
+            if (entityDensityParallelism <= 0) {
+                return 1;
+            }
+            return entityDensityParallelism;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void setEntityDensityParallelism(int entityDensityParallelism) {
+        lock.writeLock().lock();
+        try {
+            if (entityDensityParallelism <= 0) {
+                this.entityDensityParallelism = 1;
+            } else {
+                this.entityDensityParallelism = entityDensityParallelism;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int getEntityDensityTimeLimit() {
+        lock.readLock().lock();
+        try {
+            if (entityDensityTimeLimit < 0) {
+                return 0;
+            }
+            return entityDensityTimeLimit;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void setEntityDensityTimeLimit(int entityDensityTimeLimit) {
+        lock.writeLock().lock();
+        try {
+            if (entityDensityTimeLimit < 0) {
+                this.entityDensityTimeLimit = 0;
+            } else {
+                this.entityDensityTimeLimit = entityDensityTimeLimit;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isEnableEntityDensityHotSections() {
+        lock.readLock().lock();
+        try {
+            return entityDensityHotSections;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void setEnableEntityDensityHotSections(boolean entityDensityHotSections) {
+        lock.writeLock().lock();
+        try {
+            this.entityDensityHotSections = entityDensityHotSections;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
     public MessageLocation getPlayerSeriousHurtLocation() {
         lock.readLock().lock();
         try {
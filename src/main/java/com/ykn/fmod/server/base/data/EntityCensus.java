@@ -0,0 +1,207 @@
+/**
+ * Copyright (c) ykn
+ * This file is under the MIT License
+ */
+
+package com.ykn.fmod.server.base.data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.ykn.fmod.server.base.util.Util;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.EntityType;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.MathHelper;
+import net.minecraft.util.math.Vec3d;
+
+/**
+ * A snapshot of the loaded entities of every world, shared by all features that scan entities
+ * within the same server tick, such as the entity checks, commands and logic flows.
+ * <p>
+ * Each world is only walked once per tick, the first time one of its entities is requested.
+ * The lists by entity type and by chunk are also built lazily from that walk, the first time
+ * they are needed. The census of a world is discarded when an entity is loaded into it, for example
+ * spawned by a command of a logic flow, and its chunk index is discarded when an entity moves to
+ * another chunk section, so later requests in the same tick see those changes. Entities removed
+ * later in the same tick are still listed, so callers should check {@link Entity#isRemoved()}
+ * if that matters to them.
+ * <p>
+ * All returned lists are unmodifiable and only valid for the tick they were requested in.
+ * <p>
+ * Thread Safety: This class must only be accessed from the main server thread.
+ */
+public class EntityCensus {
+
+    private static class WorldCensus {
+
+        /**
+         * All loaded entities of the world that were not removed when the census was taken.
+         */
+        final List<Entity> entities;
+
+        /**
+         * The entities of each entity type, or null if not needed yet.
+         */
+        Map<EntityType<?>, List<Entity>> byType;
+
+        /**
+         * The entities of each chunk, keyed by {@link ChunkPos#toLong(int, int)}, or null if not needed yet.
+         */
+        Long2ObjectOpenHashMap<List<Entity>> byChunk;
+
+        WorldCensus(List<Entity> entities) {
+            this.entities = Collections.unmodifiableList(entities);
+            this.byType = null;
+            this.byChunk = null;
+        }
+    }
+
+    private final Map<Identifier, WorldCensus> worlds;
+    private int tick;
+
+    public EntityCensus() {
+        this.worlds = new HashMap<>();
+        this.tick = -1;
+    }
+
+    /**
+     * Discards the census of the previous tick if the server tick has changed.
+     *
+     * @param serverTick The current server tick.
+     */
+    void validate(int serverTick) {
+        if (this.tick != serverTick) {
+            this.worlds.clear();
+            this.tick = serverTick;
+        }
+    }
+
+    /**
+     * Discards all cached entities, so that the census does not keep removed entities alive.
+     */
+    public void clear() {
+        this.worlds.clear();
+        this.tick = -1;
+    }
+
+    /**
+     * Discards the census of a world because an entity has been loaded into it.
+     *
+     * @param world The world the entity was loaded into.
+     */
+    public void onEntityLoad(@NotNull ServerWorld world) {
+        this.worlds.remove(world.getRegistryKey().getValue());
+    }
+
+    /**
+     * Discards the chunk index of a world because one of its entities has moved to another chunk section.
+     *
+     * @param world The world of the moved entity.
+     */
+    public void onEntityMove(@NotNull ServerWorld world) {
+        WorldCensus census = this.worlds.get(world.getRegistryKey().getValue());
+        if (census != null) {
+            census.byChunk = null;
+        }
+    }
+
+    private WorldCensus getWorldCensus(ServerWorld world) {
+        Identifier dimension = world.getRegistryKey().getValue();
+        WorldCensus census = this.worlds.get(dimension);
+        if (census == null) {
+            census = new WorldCensus(Util.getAllEntities(world));
+            this.worlds.put(dimension, census);
+        }
+        return census;
+    }
+
+    /**
+     * Gets all loaded entities of a world.
+     *
+     * @param world The world to get the entities of.
+     * @return The entities that were not removed when the census of this tick was taken.
+     */
+    @NotNull
+    public List<Entity> getEntities(@NotNull ServerWorld world) {
+        return this.getWorldCensus(world).entities;
+    }
+
+    /**
+     * Gets all loaded entities of a world with a given entity type.
+     *
+     * @param world The world to get the entities of.
+     * @param type The entity type to filter by.
+     * @return The entities of the given type, or an empty list if there are none.
+     */
+    @NotNull
+    public List<Entity> getEntities(@NotNull ServerWorld world, @NotNull EntityType<?> type) {
+        WorldCensus census = this.getWorldCensus(world);
+        if (census.byType == null) {
+            Map<EntityType<?>, List<Entity>> byType = new IdentityHashMap<>();
+            for (Entity entity : census.entities) {
+                byType.computeIfAbsent(entity.getType(), k -> new ArrayList<>()).add(entity);
+            }
+            for (Map.Entry<EntityType<?>, List<Entity>> entry : byType.entrySet()) {
+                entry.setValue(Collections.unmodifiableList(entry.getValue()));
+            }
+            census.byType = byType;
+        }
+        return census.byType.getOrDefault(type, Collections.emptyList());
+    }
+
+    /**
+     * Gets the loaded entities of a world in all chunks that intersect a sphere.
+     * The result may contain entities outside the sphere, so callers still need to check the distance.
+     *
+     * @param world The world to get the entities of.
+     * @param center The center of the sphere.
+     * @param radius The radius of the sphere in blocks.
+     * @return The entities in the chunks around the sphere, or all entities of the world if
+     *         the sphere covers more chunks than there are entities.
+     */
+    @NotNull
+    public List<Entity> getEntitiesNear(@NotNull ServerWorld world, @NotNull Vec3d center, double radius) {
+        WorldCensus census = this.getWorldCensus(world);
+        if (!Double.isFinite(radius)) {
+            return census.entities;
+        }
+        int minChunkX = MathHelper.floor(center.x - radius) >> 4;
+        int maxChunkX = MathHelper.floor(center.x + radius) >> 4;
+        int minChunkZ = MathHelper.floor(center.z - radius) >> 4;
+        int maxChunkZ = MathHelper.floor(center.z + radius) >> 4;
+        long chunkCount = (long) (maxChunkX - minChunkX + 1) * (maxChunkZ - minChunkZ + 1);
+        if (chunkCount > census.entities.size()) {
+            // Walking the chunks would take longer than walking the entities
+            return census.entities;
+        }
+        if (census.byChunk == null) {
+            Long2ObjectOpenHashMap<List<Entity>> byChunk = new Long2ObjectOpenHashMap<>();
+            for (Entity entity : census.entities) {
+                ChunkPos chunkPos = entity.getChunkPos();
+                byChunk.computeIfAbsent(ChunkPos.toLong(chunkPos.x, chunkPos.z), k -> new ArrayList<>()).add(entity);
+            }
+            census.byChunk = byChunk;
+        }
+        List<Entity> result = new ArrayList<>();
+        for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+            for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+                List<Entity> entities = census.byChunk.get(ChunkPos.toLong(chunkX, chunkZ));
+                if (entities != null) {
+                    result.addAll(entities);
+                }
+            }
+        }
+        return Collections.unmodifiableList(result);
+    }
+}
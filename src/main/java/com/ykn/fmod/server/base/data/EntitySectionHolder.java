@@ -0,0 +1,28 @@
+/**
+ * Copyright (c) ykn
+ * This file is under the MIT License
+ */
+
+package com.ykn.fmod.server.base.data;
+
+/**
+ * Implemented by every entity through a mixin, so that the {@link EntitySectionTracker}
+ * can remember which chunk section an entity was counted in without a lookup table.
+ */
+public interface EntitySectionHolder {
+
+    /**
+     * Gets the packed chunk section the entity is currently counted in.
+     *
+     * @return The packed section position, or {@link EntitySectionTracker#NOT_TRACKED}
+     *         if the entity is not counted by the tracker.
+     */
+    long fmod$getTrackedSection();
+
+    /**
+     * Sets the packed chunk section the entity is currently counted in.
+     *
+     * @param section The packed section position, or {@link EntitySectionTracker#NOT_TRACKED}.
+     */
+    void fmod$setTrackedSection(long section);
+}
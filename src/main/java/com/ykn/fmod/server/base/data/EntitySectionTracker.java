@@ -0,0 +1,278 @@
+/**
+ * Copyright (c) ykn
+ * This file is under the MIT License
+ */
+
+package com.ykn.fmod.server.base.data;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.ykn.fmod.server.base.async.EntitySnapshotBuffer;
+import com.ykn.fmod.server.base.util.Util;
+
+import it.unimi.dsi.fastutil.longs.Long2IntMap;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.entity.Entity;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.math.Box;
+import net.minecraft.util.math.ChunkSectionPos;
+
+/**
+ * Keeps the number of loaded entities in every chunk section up to date from entity
+ * load, unload and move events, so that periodic entity checks do not have to walk every entity.
+ * <p>
+ * A section is "hot" if its 3x3x3 section neighborhood holds at least a given number of entities.
+ * Any sphere with a radius of at most {@link #SECTION_SIZE} blocks centered at an entity lies
+ * inside the neighborhood of that entity's section, so such a sphere can only contain that many
+ * entities if its center is in a hot section. The hot sections are re-evaluated only around the
+ * sections whose counts changed since the last check.
+ * <p>
+ * Thread Safety: This class must only be accessed from the main server thread.
+ */
+public class EntitySectionTracker {
+
+    /**
+     * The edge length of a chunk section in blocks.
+     */
+    public static final int SECTION_SIZE = 16;
+
+    /**
+     * Marks an entity that is not counted by the tracker.
+     * This is far outside the world border, so it never collides with a real section.
+     */
+    public static final long NOT_TRACKED = Long.MIN_VALUE;
+
+    private static class DimensionSections {
+
+        /**
+         * The number of entities in each non-empty section.
+         */
+        final Long2IntOpenHashMap counts = new Long2IntOpenHashMap();
+
+        /**
+         * The sections whose counts changed since the hot sections were last updated.
+         */
+        final LongOpenHashSet dirty = new LongOpenHashSet();
+
+        /**
+         * The number of entities in the neighborhood of each hot section.
+         */
+        final Long2IntOpenHashMap hot = new Long2IntOpenHashMap();
+    }
+
+    private final Map<Identifier, DimensionSections> dimensions;
+    private int totalCount;
+    private int hotThreshold;
+
+    public EntitySectionTracker() {
+        this.dimensions = new HashMap<>();
+        this.totalCount = 0;
+        this.hotThreshold = -1;
+    }
+
+    /**
+     * Recounts all loaded entities of the server from scratch.
+     * This is needed when the tracker is created while worlds are already loaded,
+     * for example after the server data has been reset.
+     *
+     * @param server The server to count the entities of.
+     */
+    public void synchronize(MinecraftServer server) {
+        this.dimensions.clear();
+        this.totalCount = 0;
+        this.hotThreshold = -1;
+        for (ServerWorld world : server.getWorlds()) {
+            for (Entity entity : world.iterateEntities()) {
+                if (entity != null && !entity.isRemoved()) {
+                    ((EntitySectionHolder) entity).fmod$setTrackedSection(NOT_TRACKED);
+                    this.onEntityLoad(entity, world);
+                }
+            }
+        }
+    }
+
+    private DimensionSections getSections(Identifier dimension) {
+        return this.dimensions.computeIfAbsent(dimension, k -> new DimensionSections());
+    }
+
+    private void increment(DimensionSections sections, long section) {
+        sections.counts.addTo(section, 1);
+        sections.dirty.add(section);
+    }
+
+    private void decrement(DimensionSections sections, long section) {
+        int count = sections.counts.addTo(section, -1) - 1;
+        if (count <= 0) {
+            sections.counts.remove(section);
+        }
+        sections.dirty.add(section);
+    }
+
+    /**
+     * Starts counting an entity that was loaded into a world.
+     *
+     * @param entity The loaded entity.
+     * @param world The world the entity was loaded into.
+     */
+    public void onEntityLoad(Entity entity, ServerWorld world) {
+        EntitySectionHolder holder = (EntitySectionHolder) entity;
+        if (holder.fmod$getTrackedSection() != NOT_TRACKED) {
+            return;
+        }
+        long section = ChunkSectionPos.toLong(entity.getBlockPos());
+        this.increment(this.getSections(world.getRegistryKey().getValue()), section);
+        holder.fmod$setTrackedSection(section);
+        this.totalCount++;
+    }
+
+    /**
+     * Stops counting an entity that was unloaded from a world.
+     *
+     * @param entity The unloaded entity.
+     * @param world The world the entity was unloaded from.
+     */
+    public void onEntityUnload(Entity entity, ServerWorld world) {
+        EntitySectionHolder holder = (EntitySectionHolder) entity;
+        long section = holder.fmod$getTrackedSection();
+        if (section == NOT_TRACKED) {
+            return;
+        }
+        this.decrement(this.getSections(world.getRegistryKey().getValue()), section);
+        holder.fmod$setTrackedSection(NOT_TRACKED);
+        this.totalCount--;
+    }
+
+    /**
+     * Moves a counted entity to another section of the same world.
+     *
+     * @param entity The moved entity.
+     * @param from The packed section the entity was counted in.
+     * @param to The packed section the entity is in now.
+     */
+    public void onEntityMove(Entity entity, long from, long to) {
+        DimensionSections sections = this.getSections(entity.getWorld().getRegistryKey().getValue());
+        this.decrement(sections, from);
+        this.increment(sections, to);
+        ((EntitySectionHolder) entity).fmod$setTrackedSection(to);
+    }
+
+    /**
+     * Gets the number of loaded entities in all worlds.
+     *
+     * @return The total number of counted entities.
+     */
+    public int getTotalCount() {
+        return this.totalCount;
+    }
+
+    private int getNeighborhoodCount(DimensionSections sections, long section) {
+        int count = 0;
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dz = -1; dz <= 1; dz++) {
+                    count += sections.counts.get(ChunkSectionPos.offset(section, dx, dy, dz));
+                }
+            }
+        }
+        return count;
+    }
+
+    private void updateHotSection(DimensionSections sections, long section, int threshold) {
+        if (sections.counts.get(section) <= 0) {
+            sections.hot.remove(section);
+            return;
+        }
+        int count = this.getNeighborhoodCount(sections, section);
+        if (count >= threshold) {
+            sections.hot.put(section, count);
+        } else {
+            sections.hot.remove(section);
+        }
+    }
+
+    /**
+     * Re-evaluates the hot sections around every section whose count changed since the last call.
+     * If the threshold changed, all sections are re-evaluated once.
+     *
+     * @param threshold The minimum number of entities in the neighborhood of a hot section.
+     * @return The number of hot sections in all worlds.
+     */
+    public int updateHotSections(int threshold) {
+        boolean rebuild = threshold != this.hotThreshold;
+        this.hotThreshold = threshold;
+        int hotCount = 0;
+        for (DimensionSections sections : this.dimensions.values()) {
+            if (rebuild) {
+                sections.hot.clear();
+                LongIterator iterator = sections.counts.keySet().iterator();
+                while (iterator.hasNext()) {
+                    this.updateHotSection(sections, iterator.nextLong(), threshold);
+                }
+            } else {
+                LongIterator iterator = sections.dirty.iterator();
+                while (iterator.hasNext()) {
+                    long changed = iterator.nextLong();
+                    for (int dx = -1; dx <= 1; dx++) {
+                        for (int dy = -1; dy <= 1; dy++) {
+                            for (int dz = -1; dz <= 1; dz++) {
+                                this.updateHotSection(sections, ChunkSectionPos.offset(changed, dx, dy, dz), threshold);
+                            }
+                        }
+                    }
+                }
+            }
+            sections.dirty.clear();
+            hotCount += sections.hot.size();
+        }
+        return hotCount;
+    }
+
+    /**
+     * Snapshots all entities in the neighborhoods of the hot sections found by the last
+     * {@link #updateHotSections(int)} call. Every entity is added at most once.
+     *
+     * @param server The server to collect entities from.
+     * @param snapshots The buffer to add the entities to.
+     */
+    public void collectHotEntities(MinecraftServer server, EntitySnapshotBuffer snapshots) {
+        List<Entity> entities = new ArrayList<>();
+        for (ServerWorld world : server.getWorlds()) {
+            DimensionSections sections = this.dimensions.get(world.getRegistryKey().getValue());
+            if (sections == null || sections.hot.isEmpty()) {
+                continue;
+            }
+            LongOpenHashSet neighborhood = new LongOpenHashSet();
+            for (Long2IntMap.Entry entry : sections.hot.long2IntEntrySet()) {
+                for (int dx = -1; dx <= 1; dx++) {
+                    for (int dy = -1; dy <= 1; dy++) {
+                        for (int dz = -1; dz <= 1; dz++) {
+                            long section = ChunkSectionPos.offset(entry.getLongKey(), dx, dy, dz);
+                            if (sections.counts.get(section) > 0) {
+                                neighborhood.add(section);
+                            }
+                        }
+                    }
+                }
+            }
+            LongIterator iterator = neighborhood.iterator();
+            while (iterator.hasNext()) {
+                final long section = iterator.nextLong();
+                int minX = ChunkSectionPos.getBlockCoord(ChunkSectionPos.unpackX(section));
+                int minY = ChunkSectionPos.getBlockCoord(ChunkSectionPos.unpackY(section));
+                int minZ = ChunkSectionPos.getBlockCoord(ChunkSectionPos.unpackZ(section));
+                Box box = new Box(minX, minY, minZ, minX + SECTION_SIZE, minY + SECTION_SIZE, minZ + SECTION_SIZE);
+                // Bounding boxes may reach into neighbor sections, only keep the entities positioned in this one
+                entities.clear();
+                world.collectEntitiesByType(Util.PASSTHROUGH_FILTER, box, entity -> entity != null && !entity.isRemoved() && ChunkSectionPos.toLong(entity.getBlockPos()) == section, entities, Integer.MAX_VALUE);
+                snapshots.addAll(entities);
+            }
+        }
+    }
+}
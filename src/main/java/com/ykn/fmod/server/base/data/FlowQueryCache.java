@@ -0,0 +1,164 @@
+/**
+ * Copyright (c) ykn
+ * This file is under the MIT License
+ */
+
+package com.ykn.fmod.server.base.data;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Remembers the results of the read-only world queries of logic flows within one server tick,
+ * such as gathering entities, reading blocks and reading the NBT of entities that are not alive.
+ * The NBT of living entities is never cached, as damage and death handled later in the same tick change it.
+ * <p>
+ * Flows triggered by frequent events often repeat the same query many times in the same tick.
+ * The results are keyed on the type of the query node and its resolved inputs, and are shared
+ * by all executions of all flows in the tick. They are discarded at the end of every tick, and
+ * whenever a flow executes a command, since a command may change anything. The {@link EntityCensus}
+ * is discarded together with them, so the entities are gathered again from the world. Other changes
+ * later in the same tick are not seen.
+ * <p>
+ * Thread Safety: This class must only be accessed from the main server thread.
+ */
+public class FlowQueryCache {
+
+    /**
+     * The most results that are cached in one tick. Further queries are not cached.
+     */
+    public static final int MAX_CACHED_RESULTS = 4096;
+
+    /**
+     * Identifies a query by the type of its node and its resolved inputs.
+     * Inputs are compared with {@link Object#equals(Object)}, so entities and worlds are compared by identity.
+     */
+    public static final class Key {
+
+        private final String query;
+        private final Object[] inputs;
+        private final int hash;
+
+        /**
+         * Creates a key for a query.
+         *
+         * @param query The type of the query node.
+         * @param inputs The resolved inputs of the node, which are copied.
+         */
+        public Key(@NotNull String query, @NotNull List<Object> inputs) {
+            this.query = query;
+            this.inputs = inputs.toArray();
+            this.hash = 31 * query.hashCode() + Arrays.hashCode(this.inputs);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return this.hash == other.hash && this.query.equals(other.query) && Arrays.equals(this.inputs, other.inputs);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+    }
+
+    private final Map<Key, Object[]> results;
+    private int tick;
+    private long hitCount;
+    private long missCount;
+
+    public FlowQueryCache() {
+        this.results = new HashMap<>();
+        this.tick = -1;
+        this.hitCount = 0;
+        this.missCount = 0;
+    }
+
+    /**
+     * Discards the results of the previous tick if the server tick has changed.
+     *
+     * @param serverTick The current server tick.
+     */
+    void validate(int serverTick) {
+        if (this.tick != serverTick) {
+            this.results.clear();
+            this.tick = serverTick;
+        }
+    }
+
+    /**
+     * Discards all cached results, for example because the world may have changed.
+     * The hit and miss counters are kept.
+     */
+    public void clear() {
+        this.results.clear();
+    }
+
+    /**
+     * Gets the outputs of a query that has already been executed in this tick.
+     *
+     * @param key The query.
+     * @return The outputs of the query, or null if it has not been cached in this tick.
+     */
+    @Nullable
+    public Object[] get(@NotNull Key key) {
+        Object[] outputs = this.results.get(key);
+        if (outputs == null) {
+            this.missCount++;
+        } else {
+            this.hitCount++;
+        }
+        return outputs;
+    }
+
+    /**
+     * Caches the outputs of a query for the rest of this tick.
+     *
+     * @param key The query.
+     * @param outputs The outputs of the query node, which must not be modified afterwards.
+     */
+    public void put(@NotNull Key key, @NotNull Object[] outputs) {
+        if (this.results.size() < MAX_CACHED_RESULTS || this.results.containsKey(key)) {
+            this.results.put(key, outputs);
+        }
+    }
+
+    /**
+     * Gets the number of results cached in this tick.
+     *
+     * @return The number of cached results.
+     */
+    public int size() {
+        return this.results.size();
+    }
+
+    /**
+     * Gets the number of queries that were answered from the cache since the server started.
+     *
+     * @return The number of cache hits.
+     */
+    public long getHitCount() {
+        return this.hitCount;
+    }
+
+    /**
+     * Gets the number of queries that had to be executed since the server started.
+     *
+     * @return The number of cache misses.
+     */
+    public long getMissCount() {
+        return this.missCount;
+    }
+}
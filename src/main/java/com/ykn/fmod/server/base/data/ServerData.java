@@ -5,19 +5,25 @@
 
 package com.ykn.fmod.server.base.data;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.ConcurrentModificationException;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Queue;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -25,11 +31,16 @@ import org.slf4j.LoggerFactory;
 
 import com.ykn.fmod.server.base.async.AsyncTaskExecutor;
 import com.ykn.fmod.server.base.async.EntityDensityCalculator;
+import com.ykn.fmod.server.base.async.EntitySnapshotBuffer;
+import com.ykn.fmod.server.base.async.OffloadedFlow;
 import com.ykn.fmod.server.base.schedule.ScheduledTask;
+import com.ykn.fmod.server.base.schedule.SlicedFlow;
+import com.ykn.fmod.server.base.util.EntityDensityAlgorithm;
 import com.ykn.fmod.server.base.util.Util;
-import com.ykn.fmod.server.flow.logic.ExecutionContext;
 import com.ykn.fmod.server.flow.logic.FlowNode;
+import com.ykn.fmod.server.flow.tool.ExecutionHistory;
 import com.ykn.fmod.server.flow.tool.FlowManager;
+import com.ykn.fmod.server.flow.tool.FlowScheduler;
 
 import net.minecraft.entity.LivingEntity;
 import net.minecraft.server.MinecraftServer;
@@ -59,14 +70,25 @@ public class ServerData {
     /**
      * Maps flow names to their corresponding FlowManager instances.
      * Manages all loaded logic flows in the system.
+     * Use {@link #putLogicFlow(FlowManager)} and {@link #removeLogicFlow(String)} to modify it,
+     * so that the event subscriptions stay up to date.
      */
     public final HashMap<String, FlowManager> logicFlows;
+
+    private static final FlowManager[] NO_FLOWS = new FlowManager[0];
+
+    /**
+     * Maps event node types to the enabled flows starting with them.
+     * Replaced as a whole whenever a flow is added, removed, enabled or disabled,
+     * so that event hooks can read it with a single volatile read and without locking.
+     */
+    private volatile Map<String, FlowManager[]> eventSubscriptions;
     
     /**
      * History of executed logic flows.
-     * Maintains a chronological record of all flow execution contexts.
+     * Maintains a chronological record of flow executions, compacting older ones into summaries.
      */
-    public final List<ExecutionContext> executeHistory;
+    public final ExecutionHistory executeHistory;
     
     /**
      * List of scheduled tasks to be executed.
@@ -109,6 +131,12 @@ public class ServerData {
      */
     private final ExecutorService asyncTaskPool;
 
+    /**
+     * Thread pool shared by the parallel entity density searches, created on first use.
+     * Must be shut down gracefully before server shutdown.
+     */
+    private ForkJoinPool densitySearchPool;
+
     /**
      * Current server tick count.
      * Increments by 1 each server tick.
@@ -133,6 +161,47 @@ public class ServerData {
      */
     public int lastCheckDensityTick;
 
+    /**
+     * Cleared entity snapshot buffers kept for reuse by the periodic entity checks.
+     * At most {@link #MAX_POOLED_SNAPSHOT_BUFFERS} buffers are kept, one for the running
+     * density calculation and one for the check of the current tick.
+     * Only accessed from the main server thread.
+     */
+    private final ArrayDeque<EntitySnapshotBuffer> snapshotBufferPool;
+
+    /**
+     * The buffers taken from the pool and not released yet, compared by identity.
+     * Only these buffers are returned to the pool, so that buffers owned by someone else are never reused.
+     * Only accessed from the main server thread.
+     */
+    private final Set<EntitySnapshotBuffer> acquiredSnapshotBuffers;
+
+    private static final int MAX_POOLED_SNAPSHOT_BUFFERS = 2;
+
+    /**
+     * Number of loaded entities per chunk section, updated from entity events.
+     * Only accessed from the main server thread.
+     */
+    private final EntitySectionTracker entitySectionTracker;
+
+    /**
+     * Loaded entities of the current tick, shared by all features that scan entities.
+     * Only accessed from the main server thread.
+     */
+    private final EntityCensus entityCensus;
+
+    /**
+     * Limits the time that logic flows take per tick, and defers the executions over the limit.
+     * Only accessed from the main server thread.
+     */
+    private final FlowScheduler flowScheduler;
+
+    /**
+     * Results of the world queries of logic flows in the current tick, shared by all executions.
+     * Only accessed from the main server thread.
+     */
+    private final FlowQueryCache flowQueryCache;
+
     /**
      * Constructs a new ServerData instance for the given server.
      * Initializes all collections, the async task pool, and sets the server tick to 0.
@@ -143,7 +212,8 @@ public class ServerData {
         this.server = server;
         playerData = new HashMap<>();
         logicFlows = new HashMap<>();
-        executeHistory = new ArrayList<>();
+        eventSubscriptions = Collections.emptyMap();
+        executeHistory = new ExecutionHistory();
         scheduledTasks = new ArrayList<>();
         pendingScheduledTasks = new ArrayList<>();
         isTickingScheduledTasks = false;
@@ -151,10 +221,21 @@ public class ServerData {
         gptRequestStatus = new ConcurrentHashMap<>();
         asyncTasks = new ConcurrentLinkedQueue<>();
         asyncTaskPool = Executors.newFixedThreadPool(2);
+        densitySearchPool = null;
         serverTick = 0;
         activeDensityCalculator = null;
         lastCheckEntityTick = 0;
         lastCheckDensityTick = 0;
+        snapshotBufferPool = new ArrayDeque<>();
+        acquiredSnapshotBuffers = Collections.newSetFromMap(new IdentityHashMap<>());
+        entitySectionTracker = new EntitySectionTracker();
+        entityCensus = new EntityCensus();
+        flowScheduler = new FlowScheduler(this);
+        flowQueryCache = new FlowQueryCache();
+        if (server != null) {
+            // Worlds are not loaded yet on server start, but they are if the server data is reset
+            entitySectionTracker.synchronize(server);
+        }
     }
 
     /**
@@ -163,6 +244,7 @@ public class ServerData {
      * and increments the server tick counter.
      */
     public void tick() {
+        flowScheduler.tick();
         try {
             isTickingScheduledTasks = true;
             scheduledTasks.forEach(ScheduledTask::tick);
@@ -194,6 +276,9 @@ public class ServerData {
             }
         }
 
+        // Release the entities of this tick, the census is taken again when needed
+        entityCensus.clear();
+        flowQueryCache.clear();
         serverTick++;
     }
 
@@ -259,6 +344,146 @@ public class ServerData {
         asyncTaskPool.submit(task);
     }
 
+    /**
+     * Cancels the suspended executions of a logic flow, both the sliced ones waiting for the next tick
+     * and the offloaded ones running on the async pool. A cancelled execution is aborted and stored in the history,
+     * the offloaded ones once their async part has stopped.
+     * This must be called from the main server thread.
+     * 
+     * @param flowManager the flow whose executions to cancel
+     * @return the number of executions that were cancelled
+     */
+    public int cancelFlowTasks(@NotNull FlowManager flowManager) {
+        int count = 0;
+        for (ScheduledTask task : scheduledTasks) {
+            if (task instanceof SlicedFlow && ((SlicedFlow) task).getFlowManager() == flowManager && !task.isFinished()) {
+                task.cancel();
+                count++;
+            }
+        }
+        for (ScheduledTask task : pendingScheduledTasks) {
+            if (task instanceof SlicedFlow && ((SlicedFlow) task).getFlowManager() == flowManager && !task.isFinished()) {
+                task.cancel();
+                count++;
+            }
+        }
+        for (AsyncTaskExecutor task : asyncTasks) {
+            if (task instanceof OffloadedFlow && ((OffloadedFlow) task).getFlowManager() == flowManager && !task.isAfterCompletionExecuted() && !task.isCancelled()) {
+                task.cancel();
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Finds a running entity density calculation with the given parameters,
+     * so that repeated requests can wait for its result instead of searching again.
+     * This must be called from the main server thread.
+     * 
+     * @param radius the minimum radius of the search
+     * @param number the minimum number of entities of the search
+     * @param algorithm the search algorithm
+     * @param hotspotCount the number of crowded areas of the search
+     * @param allowPartial whether a calculation that only sees part of the loaded entities may be returned
+     * @return the running calculator, or null if there is none
+     */
+    @Nullable
+    public EntityDensityCalculator findDensityCalculator(double radius, int number, EntityDensityAlgorithm algorithm, int hotspotCount, boolean allowPartial) {
+        for (AsyncTaskExecutor task : asyncTasks) {
+            if (task instanceof EntityDensityCalculator && !task.isAfterCompletionExecuted() && !task.isCancelled()) {
+                EntityDensityCalculator calculator = (EntityDensityCalculator) task;
+                if ((allowPartial || !calculator.isPartial()) && calculator.isSameSearch(radius, number, algorithm, hotspotCount)) {
+                    return calculator;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the tracker that counts loaded entities per chunk section.
+     * This must be called from the main server thread.
+     * 
+     * @return the entity section tracker
+     */
+    @NotNull
+    public EntitySectionTracker getEntitySectionTracker() {
+        return entitySectionTracker;
+    }
+
+    /**
+     * Gets the census of the loaded entities of the current tick.
+     * The census is only taken once per tick, so use this instead of walking the entities of a world.
+     * This must be called from the main server thread.
+     * 
+     * @return the entity census of the current tick
+     */
+    @NotNull
+    public EntityCensus getEntityCensus() {
+        entityCensus.validate(serverTick);
+        return entityCensus;
+    }
+
+    /**
+     * Gets the scheduler that limits the time logic flows take per tick.
+     * Event handlers should start flows through it, so that they are deferred once the budget is used up.
+     * This must be called from the main server thread.
+     * 
+     * @return the flow scheduler
+     */
+    @NotNull
+    public FlowScheduler getFlowScheduler() {
+        return flowScheduler;
+    }
+
+    /**
+     * Gets the results of the world queries of logic flows in the current tick.
+     * The results are discarded at the end of every tick.
+     * This must be called from the main server thread.
+     * 
+     * @return the flow query cache of the current tick
+     */
+    @NotNull
+    public FlowQueryCache getFlowQueryCache() {
+        flowQueryCache.validate(serverTick);
+        return flowQueryCache;
+    }
+
+    /**
+     * Takes an empty entity snapshot buffer from the pool, or creates a new one if the pool is empty.
+     * This must be called from the main server thread.
+     * 
+     * @return an empty snapshot buffer
+     */
+    @NotNull
+    public EntitySnapshotBuffer acquireSnapshotBuffer() {
+        EntitySnapshotBuffer buffer = snapshotBufferPool.poll();
+        if (buffer == null) {
+            buffer = new EntitySnapshotBuffer();
+        }
+        acquiredSnapshotBuffers.add(buffer);
+        return buffer;
+    }
+
+    /**
+     * Clears an entity snapshot buffer and returns it to the pool.
+     * The buffer must not be used by any async task anymore.
+     * Buffers that were not taken from {@link #acquireSnapshotBuffer()}, or were already released, are left alone.
+     * This must be called from the main server thread.
+     * 
+     * @param buffer the buffer to release, may be null
+     */
+    public void releaseSnapshotBuffer(@Nullable EntitySnapshotBuffer buffer) {
+        if (buffer == null || !acquiredSnapshotBuffers.remove(buffer)) {
+            return;
+        }
+        buffer.clear();
+        if (snapshotBufferPool.size() < MAX_POOLED_SNAPSHOT_BUFFERS && !snapshotBufferPool.contains(buffer)) {
+            snapshotBufferPool.offer(buffer);
+        }
+    }
+
     /**
      * Marks an entity as a "killer" by adding its UUID to the killer entities collection.
      * Does nothing if the entity is null.
@@ -314,42 +539,94 @@ public class ServerData {
     }
 
     /**
-     * Returns a list of ExecutionContext instances from the execution history
+     * Returns a list of entries from the execution history
      * whose associated flow name exactly matches the provided name.
-     * If no matching contexts are found, an empty list is returned.
+     * If no matching entries are found, an empty list is returned.
      * 
-     * @param name the flow name to match against each ExecutionContext's flow.name
-     * @return a list of matching ExecutionContext objects, never null
-     */
-    public List<ExecutionContext> gatherHistoryByName(String name) {
-        List<ExecutionContext> result = new ArrayList<>();
-        for (ExecutionContext context : executeHistory) {
-            if (context.getFlow().name.equals(name)) {
-                result.add(context);
+     * @param name the flow name to match against the flow name of each entry
+     * @return a list of matching history entries, never null
+     */
+    public List<ExecutionHistory.Entry> gatherHistoryByName(String name) {
+        List<ExecutionHistory.Entry> result = new ArrayList<>();
+        for (int i = 0; i < executeHistory.size(); i++) {
+            ExecutionHistory.Entry entry = executeHistory.get(i);
+            if (entry.getFlowName().equals(name)) {
+                result.add(entry);
             }
         }
         return result;
     }
 
     /**
-     * Gathers all FlowManager instances whose first node type matches the given type.
-     * Optionally filters to include only enabled flows.
+     * Adds a logic flow, or replaces the flow with the same name.
+     * The flow keeps the event subscriptions up to date when it is enabled or disabled later.
      * 
-     * @param type the node type to match
-     * @param enabledOnly if true, only include enabled flows; if false, include all flows
-     * @return a list of matching FlowManager instances, never null
+     * @param manager the flow to add
      */
-    public List<FlowManager> gatherFlowByFirstNodeType(String type, boolean enabledOnly) {
-        List<FlowManager> result = new ArrayList<>();
+    public void putLogicFlow(@NotNull FlowManager manager) {
+        FlowManager oldManager = logicFlows.put(manager.flow.name, manager);
+        if (oldManager != null && oldManager != manager) {
+            oldManager.setChangeListener(null);
+        }
+        manager.setChangeListener(this::updateEventSubscriptions);
+        updateEventSubscriptions();
+    }
+
+    /**
+     * Removes a logic flow by name.
+     * 
+     * @param name the name of the flow
+     * @return the removed flow, or null if there is no flow with this name
+     */
+    @Nullable
+    public FlowManager removeLogicFlow(String name) {
+        FlowManager manager = logicFlows.remove(name);
+        if (manager != null) {
+            manager.setChangeListener(null);
+            updateEventSubscriptions();
+        }
+        return manager;
+    }
+
+    /**
+     * Rebuilds the event subscriptions from the enabled flows.
+     * Called automatically when flows are added, removed, enabled or disabled.
+     */
+    public void updateEventSubscriptions() {
+        Map<String, List<FlowManager>> subscriptions = new HashMap<>();
         for (FlowManager manager : logicFlows.values()) {
             FlowNode firstNode = manager.flow.getFirstNode();
-            if (firstNode != null && firstNode.getType().equals(type)) {
-                if (enabledOnly == false || manager.isEnabled) {
-                    result.add(manager);
-                }
+            if (firstNode != null && manager.isEnabled()) {
+                subscriptions.computeIfAbsent(firstNode.getType(), k -> new ArrayList<>()).add(manager);
             }
         }
-        return result;
+        if (subscriptions.isEmpty()) {
+            eventSubscriptions = Collections.emptyMap();
+            return;
+        }
+        Map<String, FlowManager[]> result = new HashMap<>();
+        for (Map.Entry<String, List<FlowManager>> entry : subscriptions.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().toArray(new FlowManager[0]));
+        }
+        eventSubscriptions = Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Gets the enabled flows that start with the given event node type.
+     * This is cheap enough to be called from frequent events like entity damage.
+     * The returned array must not be modified.
+     * 
+     * @param type the event node type
+     * @return the subscribed flows, or an empty array if there are none
+     */
+    @NotNull
+    public FlowManager[] getEventSubscribers(String type) {
+        Map<String, FlowManager[]> subscriptions = eventSubscriptions;
+        if (subscriptions.isEmpty()) {
+            return NO_FLOWS;
+        }
+        FlowManager[] flows = subscriptions.get(type);
+        return flows == null ? NO_FLOWS : flows;
     }
 
     /**
@@ -357,7 +634,32 @@ public class ServerData {
      * Should be called before server shutdown to properly terminate all async threads.
      */
     public void shutdownAsyncTaskPool() {
+        // Let long running tasks stop early instead of blocking the threads
+        for (AsyncTaskExecutor task : asyncTasks) {
+            task.cancel();
+        }
         asyncTaskPool.shutdown();
+        if (densitySearchPool != null) {
+            densitySearchPool.shutdown();
+        }
+    }
+
+    /**
+     * Gets the thread pool shared by the parallel entity density searches, with as many threads as
+     * {@link com.ykn.fmod.server.base.config.ServerConfig#getEntityDensityParallelism()} allows.
+     * If that number has changed, a new pool replaces the old one. The old pool is not shut down, so that
+     * a search still running on it can finish, its idle threads exit on their own.
+     * This must be called from the main server thread.
+     * 
+     * @return the shared density search pool
+     */
+    @NotNull
+    public ForkJoinPool getDensitySearchPool() {
+        int parallelism = Math.max(1, Math.min(Util.serverConfig.getEntityDensityParallelism(), Runtime.getRuntime().availableProcessors()));
+        if (densitySearchPool == null || densitySearchPool.getParallelism() != parallelism) {
+            densitySearchPool = new ForkJoinPool(parallelism);
+        }
+        return densitySearchPool;
     }
 
     /**
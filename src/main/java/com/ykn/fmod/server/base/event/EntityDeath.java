@@ -89,7 +89,7 @@ public class EntityDeath {
         }
 
         // Trigger the event for LogicFlow
-        List<FlowManager> deathEventFlow = data.gatherFlowByFirstNodeType("EntityDeathEventNode", true);
+        FlowManager[] deathEventFlow = data.getEventSubscribers("EntityDeathEventNode");
         for (FlowManager flow : deathEventFlow) {
             List<Object> eventOutput = new ArrayList<>();
             eventOutput.add(this.livingEntity);
@@ -98,7 +98,7 @@ public class EntityDeath {
             eventOutput.add(this.damageSource.getSource());
             eventOutput.add(this.damageSource.getPosition());
             eventOutput.add(this.livingEntity.getDamageTracker().getDeathMessage());
-            flow.execute(data, eventOutput, null);
+            data.getFlowScheduler().submitEvent(flow, eventOutput);
         }
     }
 }
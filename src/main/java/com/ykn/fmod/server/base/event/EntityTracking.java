@@ -0,0 +1,47 @@
+/**
+ * Copyright (c) ykn
+ * This file is under the MIT License
+ */
+
+package com.ykn.fmod.server.base.event;
+
+import com.ykn.fmod.server.base.data.ServerData;
+import com.ykn.fmod.server.base.util.Util;
+
+import net.minecraft.entity.Entity;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.world.ServerWorld;
+
+public class EntityTracking {
+
+    private final Entity entity;
+    private final ServerWorld world;
+
+    public EntityTracking(Entity entity, ServerWorld world) {
+        this.entity = entity;
+        this.world = world;
+    }
+
+    /**
+     * This method is called when an entity is loaded into a world.
+     */
+    public void onEntityLoad() {
+        MinecraftServer server = world.getServer();
+        if (server != null && entity != null) {
+            ServerData serverData = Util.getServerData(server);
+            serverData.getEntitySectionTracker().onEntityLoad(entity, world);
+            serverData.getEntityCensus().onEntityLoad(world);
+        }
+    }
+
+    /**
+     * This method is called when an entity is unloaded from a world.
+     */
+    public void onEntityUnload() {
+        MinecraftServer server = world.getServer();
+        if (server != null && entity != null) {
+            Util.getServerData(server).getEntitySectionTracker().onEntityUnload(entity, world);
+        }
+    }
+
+}
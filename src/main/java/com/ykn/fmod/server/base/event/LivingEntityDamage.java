@@ -83,7 +83,7 @@ public class LivingEntityDamage {
         }
 
         // Trigger flow events
-        List<FlowManager> damageEventFlow = serverData.gatherFlowByFirstNodeType("EntityDamageEventNode", true);
+        FlowManager[] damageEventFlow = serverData.getEventSubscribers("EntityDamageEventNode");
         for (FlowManager flow : damageEventFlow) {
             List<Object> eventOutput = new ArrayList<>();
             eventOutput.add(this.entity);
@@ -92,7 +92,7 @@ public class LivingEntityDamage {
             eventOutput.add(this.damageSource.getAttacker());
             eventOutput.add(this.damageSource.getSource());
             eventOutput.add(this.damageSource.getPosition());
-            flow.execute(serverData, eventOutput, null);
+            serverData.getFlowScheduler().submitEvent(flow, eventOutput);
         }
     }
 
@@ -59,7 +59,7 @@ public class ProjectileHitEntity {
         data.submitScheduledTask(new ProjectileMessage(shooter, victim, distance));
 
         // Trigger the event for LogicFlow
-        List<FlowManager> hitEventFlow = data.gatherFlowByFirstNodeType("ProjectileHitEntityEventNode", true);
+        FlowManager[] hitEventFlow = data.getEventSubscribers("ProjectileHitEntityEventNode");
         for (FlowManager flow : hitEventFlow) {
             List<Object> eventOutput = new ArrayList<>();
             eventOutput.add(this.projectile);
@@ -67,7 +67,7 @@ public class ProjectileHitEntity {
             eventOutput.add(victim);
             eventOutput.add(entityHitResult.getPos());
             eventOutput.add(distance);
-            flow.execute(data, eventOutput, null);
+            data.getFlowScheduler().submitEvent(flow, eventOutput);
         }
     }
 
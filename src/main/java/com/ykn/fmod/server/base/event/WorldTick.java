@@ -5,19 +5,21 @@
 
 package com.ykn.fmod.server.base.event;
 
-import java.util.ArrayList;
 import java.util.Deque;
 import java.util.List;
 
 import com.ykn.fmod.server.base.async.EntityDensityCalculator;
+import com.ykn.fmod.server.base.async.EntitySnapshotBuffer;
+import com.ykn.fmod.server.base.data.EntityCensus;
+import com.ykn.fmod.server.base.data.EntitySectionTracker;
 import com.ykn.fmod.server.base.data.PlayerData;
 import com.ykn.fmod.server.base.data.ServerData;
 import com.ykn.fmod.server.base.schedule.BiomeMessage;
+import com.ykn.fmod.server.base.util.EntityDensityAlgorithm;
 import com.ykn.fmod.server.base.util.Util;
 import com.ykn.fmod.server.base.util.GameMath;
 
 import net.minecraft.block.BedBlock;
-import net.minecraft.entity.Entity;
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.network.ServerPlayerEntity;
 import net.minecraft.server.world.ServerWorld;
@@ -61,21 +63,28 @@ public class WorldTick {
         // Check if have finished previous calculation (Happens every tick because async result must be feeded back immediately after finishing)
         if (serverData.activeDensityCalculator != null && serverData.activeDensityCalculator.isAfterCompletionExecuted()) {
             // If finished, retrieve result and clear the task
+            final int entityNumber = serverData.activeDensityCalculator.getTotalNumber();
             if (serverData.activeDensityCalculator.getEntity() == null || serverData.activeDensityCalculator.getCause() == null) {
                 // No result
-                Util.broadcastMessage(server, Util.serverConfig.getEntityNumberWarning(), Util.parseTranslatableText("fmod.message.entitywarning", serverData.activeDensityCalculator.getInputNumber()).formatted(Formatting.RED));
+                Util.broadcastMessage(server, Util.serverConfig.getEntityNumberWarning(), Util.parseTranslatableText("fmod.message.entitywarning", entityNumber).formatted(Formatting.RED));
             } else {
                 // Has result
-                final String totalCount = Integer.toString(serverData.activeDensityCalculator.getInputNumber());
+                final String totalCount = Integer.toString(entityNumber);
                 final Text coordText = Util.parseCoordText(serverData.activeDensityCalculator.getDimension(), serverData.activeDensityCalculator.getBiome(), serverData.activeDensityCalculator.getX(), serverData.activeDensityCalculator.getY(), serverData.activeDensityCalculator.getZ());
                 final String entityRadius = String.format("%.2f", serverData.activeDensityCalculator.getRadius());
                 final String entityCount = Integer.toString(serverData.activeDensityCalculator.getCount());
                 final String causeCount = Integer.toString(serverData.activeDensityCalculator.getNumber());
                 final Text entityCauseText = serverData.activeDensityCalculator.getCause().getDisplayName();
                 Util.broadcastMessage(server, Util.serverConfig.getEntityDensityWarning(), Util.parseTranslatableText("fmod.message.entitydensity", totalCount, coordText, entityRadius, entityCount, causeCount, entityCauseText).formatted(Formatting.RED));
+                final MutableText errorBoundText = serverData.activeDensityCalculator.getErrorBoundText();
+                if (errorBoundText != null) {
+                    Util.broadcastMessage(server, Util.serverConfig.getEntityDensityWarning(), errorBoundText.formatted(Formatting.RED));
+                }
             }
             serverData.lastCheckEntityTick = serverData.getServerTick();
             serverData.lastCheckDensityTick = serverData.getServerTick();
+            // Only returns the buffer to the pool if it was taken from there, not if a command owns the calculator
+            serverData.releaseSnapshotBuffer(serverData.activeDensityCalculator.getSnapshots());
             serverData.activeDensityCalculator = null;
             return;
         }
@@ -94,19 +103,16 @@ public class WorldTick {
             return;
         }
 
-        // Now we should check entity number and density
-        List<Entity> allEntities = new ArrayList<>();
-        for (ServerWorld world : server.getWorlds()) {
-            List<Entity> entities = Util.getAllEntities(world);
-            allEntities.addAll(entities);
-        }
+        // Now we should check entity number and density, the number is kept up to date by the section tracker
+        final EntitySectionTracker tracker = serverData.getEntitySectionTracker();
+        final int entityNumber = tracker.getTotalCount();
 
         // Check if exceed threshold
-        if (allEntities.size() < Util.serverConfig.getEntityNumberThreshold()) {
+        if (entityNumber < Util.serverConfig.getEntityNumberThreshold()) {
             serverData.lastCheckEntityTick = serverData.getServerTick();
             satisfyNumberCondition = false;
         }
-        if (allEntities.size() < Util.serverConfig.getEntityDensityThreshold()) {
+        if (entityNumber < Util.serverConfig.getEntityDensityThreshold()) {
             serverData.lastCheckDensityTick = serverData.getServerTick();
             satisfyDensityCondition = false;
         }
@@ -116,15 +122,50 @@ public class WorldTick {
 
         // Check if we have an active calculator
         if (satisfyDensityCondition) {
+            final double radius = Util.serverConfig.getEntityDensityRadius();
+            final int number = Util.serverConfig.getEntityDensityNumber();
+            final EntityDensityAlgorithm algorithm = Util.serverConfig.getEntityDensityAlgorithm();
+            if (serverData.activeDensityCalculator == null) {
+                // A command may already be searching with the same parameters, wait for its result instead
+                serverData.activeDensityCalculator = serverData.findDensityCalculator(radius, number, algorithm, 1, true);
+            }
             if (serverData.activeDensityCalculator == null) {
-                // No active calculator, create a new one, we will broadcast result after finishing async calculation
-                serverData.lastCheckEntityTick = serverData.getServerTick();
+                // Snapshot the entities into a pooled buffer, the calculator owns it until its result has been broadcast
                 serverData.lastCheckDensityTick = serverData.getServerTick();
-                satisfyNumberCondition = false; // We already start density calculation, no need to start number calculation
-                EntityDensityCalculator calculator = new EntityDensityCalculator(null, allEntities, Util.serverConfig.getEntityDensityRadius(), Util.serverConfig.getEntityDensityNumber());
-                serverData.activeDensityCalculator = calculator;
-                serverData.submitAsyncTask(calculator);
-                return;
+                EntitySnapshotBuffer snapshots = serverData.acquireSnapshotBuffer();
+                // Off by default, as the prefilter caps the reported radius at the section size
+                final boolean hotSectionsOnly = Util.serverConfig.isEnableEntityDensityHotSections() && radius <= EntitySectionTracker.SECTION_SIZE;
+                if (hotSectionsOnly) {
+                    // A crowded sphere this small can only be centered in a hot section, only look at their neighborhoods
+                    if (tracker.updateHotSections(number) > 0) {
+                        tracker.collectHotEntities(server, snapshots);
+                    }
+                } else {
+                    EntityCensus census = serverData.getEntityCensus();
+                    for (ServerWorld world : server.getWorlds()) {
+                        snapshots.addAll(census.getEntities(world));
+                    }
+                }
+                if (snapshots.isEmpty()) {
+                    // Nothing is crowded, only the entity number warning may apply
+                    serverData.releaseSnapshotBuffer(snapshots);
+                } else {
+                    // No active calculator, create a new one, we will broadcast result after finishing async calculation
+                    serverData.lastCheckEntityTick = serverData.getServerTick();
+                    satisfyNumberCondition = false; // We already start density calculation, no need to start number calculation
+                    EntityDensityCalculator calculator = new EntityDensityCalculator(null, snapshots, radius, number, algorithm);
+                    // The calculator may only see the entities around hot sections, so report the tracked total
+                    calculator.setTotalNumber(entityNumber);
+                    if (hotSectionsOnly) {
+                        // Larger spheres may reach beyond the snapshotted neighborhoods
+                        calculator.setMaxRadius(EntitySectionTracker.SECTION_SIZE);
+                        calculator.setPartial();
+                    }
+                    calculator.setSearchPool(serverData.getDensitySearchPool());
+                    serverData.activeDensityCalculator = calculator;
+                    serverData.submitAsyncTask(calculator);
+                    return;
+                }
             } else {
                 // Have active calculator, wait for result
                 serverData.lastCheckDensityTick = serverData.getServerTick();
@@ -133,7 +174,7 @@ public class WorldTick {
 
         if (satisfyNumberCondition) {
             serverData.lastCheckEntityTick = serverData.getServerTick();
-            Util.broadcastMessage(server, Util.serverConfig.getEntityNumberWarning(), Util.parseTranslatableText("fmod.message.entitywarning", allEntities.size()).formatted(Formatting.RED));
+            Util.broadcastMessage(server, Util.serverConfig.getEntityNumberWarning(), Util.parseTranslatableText("fmod.message.entitywarning", entityNumber).formatted(Formatting.RED));
         }
     }
 
@@ -14,6 +14,7 @@ import org.jetbrains.annotations.Nullable;
 
 import com.ykn.fmod.server.base.data.ServerData;
 import com.ykn.fmod.server.base.util.Util;
+import com.ykn.fmod.server.flow.logic.VariableStore;
 import com.ykn.fmod.server.flow.tool.FlowManager;
 
 import net.minecraft.server.MinecraftServer;
@@ -41,6 +42,11 @@ public class ScheduledFlow extends ScheduledTask {
     }
 
     public void addContextVariables(Map<String, Object> variables) {
+        if (this.contextVariables == null && variables instanceof VariableStore) {
+            // Copied only when either flow writes to the variables
+            this.contextVariables = ((VariableStore) variables).fork();
+            return;
+        }
         if (this.contextVariables == null) {
             this.contextVariables = new HashMap<>();
         }
@@ -64,11 +70,28 @@ public class ScheduledFlow extends ScheduledTask {
     public void onTrigger() {
         ServerData data = Util.getServerData(server);
         this.flowManager.execute(data, this.eventNodeOutputs, this.contextVariables);
+        this.releaseContextVariables();
+    }
+
+    @Override
+    public void onCancel() {
+        this.releaseContextVariables();
+    }
+
+    /**
+     * Clears the variables passed on from another flow once they are no longer needed,
+     * so that the other flow can write its variables again without copying them.
+     */
+    private void releaseContextVariables() {
+        if (this.contextVariables instanceof VariableStore) {
+            this.contextVariables.clear();
+            this.contextVariables = null;
+        }
     }
 
     @Override
     public boolean shouldCancel() {
-        if (flowManager == null || server == null || flowManager.isEnabled == false) {
+        if (flowManager == null || server == null || flowManager.isEnabled() == false) {
             return true;
         }
         return false;
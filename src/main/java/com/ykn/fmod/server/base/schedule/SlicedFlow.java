@@ -0,0 +1,77 @@
+/**
+ * Copyright (c) ykn
+ * This file is under the MIT License
+ */
+
+package com.ykn.fmod.server.base.schedule;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.ykn.fmod.server.base.data.ServerData;
+import com.ykn.fmod.server.flow.logic.ExecutionContext;
+import com.ykn.fmod.server.flow.tool.FlowManager;
+
+/**
+ * The continuation of a sliced flow execution that has used up its time slice.
+ * It resumes the execution for one time slice every tick until the flow has finished.
+ * If the flow is deleted in the meantime, the execution is aborted.
+ * If the execution reaches a sub-graph to offload, it is handed over to an
+ * {@link com.ykn.fmod.server.base.async.OffloadedFlow} and this task finishes.
+ *
+ * @see com.ykn.fmod.server.base.util.FlowExecutionMode#SLICED
+ */
+public class SlicedFlow extends ScheduledTask {
+
+    private FlowManager flowManager;
+    private ExecutionContext executionContext;
+    private ServerData serverData;
+    private boolean handedOver;
+
+    public SlicedFlow(@NotNull FlowManager flowManager, @NotNull ExecutionContext executionContext, @NotNull ServerData serverData) {
+        super(0, Integer.MAX_VALUE);
+        this.flowManager = flowManager;
+        this.executionContext = executionContext;
+        this.serverData = serverData;
+        this.handedOver = false;
+    }
+
+    @NotNull
+    public FlowManager getFlowManager() {
+        return this.flowManager;
+    }
+
+    @NotNull
+    public ExecutionContext getExecutionContext() {
+        return this.executionContext;
+    }
+
+    @Override
+    public void onTick() {
+        if (this.flowManager.resume(this.serverData, this.executionContext)) {
+            // Finish after this tick
+            this.reschedule(0, 1);
+        } else if (this.executionContext.isOffloadPending()) {
+            // The async pool owns the execution from now on
+            this.handedOver = true;
+            this.flowManager.continueLater(this.serverData, this.executionContext);
+            this.reschedule(0, 1);
+        }
+    }
+
+    @Override
+    public void onCancel() {
+        if (!this.handedOver) {
+            this.flowManager.abort(this.serverData, this.executionContext);
+        }
+    }
+
+    @Override
+    public boolean shouldCancel() {
+        return !this.serverData.logicFlows.containsValue(this.flowManager);
+    }
+
+    @Override
+    public String toString() {
+        return "SlicedFlow{flow='" + flowManager.flow.name + "'}";
+    }
+}
@@ -0,0 +1,11 @@
+package com.ykn.fmod.server.base.util;
+
+public enum EntityDensityAlgorithm {
+
+    BRUTE_FORCE,
+
+    SPATIAL_GRID,
+
+    APPROXIMATE
+
+}
@@ -45,6 +45,56 @@ public class EnumI18n {
         }
     }
 
+    public static MutableText getEntityDensityAlgorithmI18n(EntityDensityAlgorithm algorithm) {
+        switch (algorithm) {
+            case BRUTE_FORCE:
+                return Util.parseTranslatableText("fmod.message.type.bruteforce").formatted(Formatting.YELLOW);
+            case SPATIAL_GRID:
+                return Util.parseTranslatableText("fmod.message.type.spatialgrid").formatted(Formatting.GREEN);
+            case APPROXIMATE:
+                return Util.parseTranslatableText("fmod.message.type.approximate").formatted(Formatting.AQUA);
+            default:
+                return Text.literal(algorithm.toString());
+        }
+    }
+
+    public static MutableText getFlowTraceLevelI18n(FlowTraceLevel level) {
+        switch (level) {
+            case OFF:
+                return Util.parseTranslatableText("fmod.message.type.traceoff").formatted(Formatting.RED);
+            case SUMMARY:
+                return Util.parseTranslatableText("fmod.message.type.tracesummary").formatted(Formatting.YELLOW);
+            case FULL:
+                return Util.parseTranslatableText("fmod.message.type.tracefull").formatted(Formatting.GREEN);
+            default:
+                return Text.literal(level.toString());
+        }
+    }
+
+    public static MutableText getFlowExecutionModeI18n(FlowExecutionMode mode) {
+        switch (mode) {
+            case RUN_TO_COMPLETION:
+                return Util.parseTranslatableText("fmod.message.type.runtocompletion").formatted(Formatting.GREEN);
+            case SLICED:
+                return Util.parseTranslatableText("fmod.message.type.sliced").formatted(Formatting.YELLOW);
+            case OFFLOADED:
+                return Util.parseTranslatableText("fmod.message.type.offloaded").formatted(Formatting.AQUA);
+            default:
+                return Text.literal(mode.toString());
+        }
+    }
+
+    public static MutableText getFlowOverloadPolicyI18n(FlowOverloadPolicy policy) {
+        switch (policy) {
+            case DEFER:
+                return Util.parseTranslatableText("fmod.message.type.defer").formatted(Formatting.GREEN);
+            case DROP:
+                return Util.parseTranslatableText("fmod.message.type.drop").formatted(Formatting.YELLOW);
+            default:
+                return Text.literal(policy.toString());
+        }
+    }
+
     public static MutableText getBooleanValueI18n(boolean value) {
         if (value) {
             return Util.parseTranslatableText("options.on").formatted(Formatting.GREEN);
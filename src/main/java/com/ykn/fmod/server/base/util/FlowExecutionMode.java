@@ -0,0 +1,11 @@
+package com.ykn.fmod.server.base.util;
+
+public enum FlowExecutionMode {
+
+    RUN_TO_COMPLETION,
+
+    SLICED,
+
+    OFFLOADED
+
+}
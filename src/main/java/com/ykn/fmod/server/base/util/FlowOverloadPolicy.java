@@ -0,0 +1,9 @@
+package com.ykn.fmod.server.base.util;
+
+public enum FlowOverloadPolicy {
+
+    DEFER,
+
+    DROP
+
+}
@@ -0,0 +1,11 @@
+package com.ykn.fmod.server.base.util;
+
+public enum FlowTraceLevel {
+
+    OFF,
+
+    SUMMARY,
+
+    FULL
+
+}
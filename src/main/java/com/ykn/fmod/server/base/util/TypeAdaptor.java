@@ -138,16 +138,7 @@ public class TypeAdaptor {
         } else if (o instanceof Boolean) {
             return (Boolean) o;
         } else {
-            String str = this.asString().strip();
-            if ("yes".equalsIgnoreCase(str) || "true".equalsIgnoreCase(str) || "on".equalsIgnoreCase(str) ||
-                "enable".equalsIgnoreCase(str) || "open".equalsIgnoreCase(str)) {
-                return true;
-            } else if ("no".equalsIgnoreCase(str) || "false".equalsIgnoreCase(str) || "off".equalsIgnoreCase(str) ||
-                       "disable".equalsIgnoreCase(str) || "close".equalsIgnoreCase(str)) {
-                return false;
-            } else {
-                return null;
-            }
+            return parseBoolean(this.asString().strip());
         }
     }
     
@@ -176,12 +167,7 @@ public class TypeAdaptor {
             double count = itemStack.getCount();
             return count;
         } else {
-            String str = this.asString().strip();
-            try {
-                return Double.parseDouble(str);
-            } catch (NumberFormatException e) {
-                return null;
-            }
+            return parseDouble(this.asString().strip());
         }
     }
 
@@ -217,22 +203,7 @@ public class TypeAdaptor {
             return entity.getPos();
         } else {
             // String will usually be in format (x, y, z) in Minecraft
-            String str = this.asString().strip();
-            if (str.startsWith("(") && str.endsWith(")")) {
-                str = str.substring(1, str.length() - 1).strip();
-                String[] parts = str.split(",");
-                if (parts.length == 3) {
-                    try {
-                        double x = Double.parseDouble(parts[0].strip());
-                        double y = Double.parseDouble(parts[1].strip());
-                        double z = Double.parseDouble(parts[2].strip());
-                        return new Vec3d(x, y, z);
-                    } catch (NumberFormatException e) {
-                        return null;
-                    }
-                }
-            }
-            return null;
+            return parseVec3d(splitTuple(this.asString().strip()));
         }
     }
 
@@ -258,21 +229,7 @@ public class TypeAdaptor {
         } else if (o instanceof Vec2f) {
             return (Vec2f) o;
         } else {
-            String str = this.asString().strip();
-            if (str.startsWith("(") && str.endsWith(")")) {
-                str = str.substring(1, str.length() - 1).strip();
-                String[] parts = str.split(",");
-                if (parts.length == 2) {
-                    try {
-                        float x = Float.parseFloat(parts[0].strip());
-                        float y = Float.parseFloat(parts[1].strip());
-                        return new Vec2f(x, y);
-                    } catch (NumberFormatException e) {
-                        return null;
-                    }
-                }
-            }     
-            return null;       
+            return parseVec2f(splitTuple(this.asString().strip()));
         }
     }
 
@@ -308,31 +265,15 @@ public class TypeAdaptor {
             return list;
         } else {
             // List will usually be in format [a, b, c] in Java toString method
-            String str = this.asString().strip();
-            if (str.startsWith("[") && str.endsWith("]")) {
-                str = str.substring(1, str.length() - 1).strip();
-                // We will not parse nested lists here
-                String[] parts = str.split(",");
-                List<Object> list = new ArrayList<>();
-                for (String part : parts) {
-                    if (part.strip().startsWith("[") && part.strip().endsWith("]")) {
-                        // Avoid recursion
-                        list.add(part.strip());
-                    } else {
-                        list.add(TypeAdaptor.parse(part.strip()).autoCast());
-                    }       
-                }
-                return list;
-            } 
-            return null;
+            return parseList(this.asString().strip());
         }
     }
 
     /**
      * Automatically casts the wrapped object to its most appropriate type based on semantic analysis.
      * <p>
-     * This method attempts to intelligently determine the best type for an object by testing
-     * conversions in a specific priority order. The casting priority is:
+     * This method determines the best type for an object by testing conversions in a specific
+     * priority order. The casting priority is:
      * <ol>
      * <li>null (if string is "null")</li>
      * <li>Vec3d (3D vector)</li>
@@ -343,8 +284,11 @@ public class TypeAdaptor {
      * <li>String (fallback, always succeeds)</li>
      * </ol>
      * <p>
-     * The first successful conversion is returned. This method is useful for parsing
-     * dynamically typed configuration values where the type is not known in advance.
+     * The first successful conversion is returned. The string representation is computed and
+     * classified only once, by its first and last characters, and only the winning type is
+     * actually built. So a plain string is never split or copied into a list, and is only parsed
+     * as a number if it can start one. This method is useful for parsing dynamically typed
+     * configuration values where the type is not known in advance.
      * <p>
      * <b>Example:</b>
      * <pre>
@@ -359,25 +303,148 @@ public class TypeAdaptor {
     @Nullable
     public Object autoCast() {
         String s = this.asString();
-        Vec3d vec3d = this.asVec3d();
-        Vec2f vec2f = this.asVec2f();
-        List<Object> list = this.asList();
-        Double d = this.asDouble();
-        Boolean b = this.asBoolean();
-        if (s == null || "null".equals(s)) {
+        if ("null".equals(s)) {
             return null;
-        } else if (vec3d != null) {
-            return vec3d;
-        } else if (vec2f != null) {
-            return vec2f;
-        } else if (list != null) {
+        } else if (o instanceof Vec3d || o instanceof Vec3i || o instanceof Entity) {
+            return this.asVec3d();
+        }
+        String str = s.strip();
+        String[] parts = splitTuple(str);
+        if (parts != null) {
+            // A tuple is split once for both vector types
+            Vec3d vec3d = parseVec3d(parts);
+            if (vec3d != null) {
+                return vec3d;
+            }
+        }
+        if (o instanceof Vec2f) {
+            return o;
+        } else if (parts != null) {
+            Vec2f vec2f = parseVec2f(parts);
+            if (vec2f != null) {
+                return vec2f;
+            }
+        }
+        if (o instanceof Iterable) {
+            return this.asList();
+        }
+        List<Object> list = parseList(str);
+        if (list != null) {
             return list;
-        } else if (d != null) {
+        }
+        Double d = o instanceof Number || o instanceof ItemStack ? this.asDouble() : parseDouble(str);
+        if (d != null) {
             return d;
-        } else if (b != null) {
+        }
+        Boolean b = o instanceof Boolean ? (Boolean) o : parseBoolean(str);
+        if (b != null) {
             return b;
+        }
+        return s;
+    }
+
+    /**
+     * Gets the parts of a string in format (a, b, ...), which are not stripped yet.
+     *
+     * @param str the stripped string
+     * @return the comma-separated parts between the parentheses, or null if the string is not in this format
+     */
+    @Nullable
+    private static String[] splitTuple(String str) {
+        if (str.length() < 2 || str.charAt(0) != '(' || str.charAt(str.length() - 1) != ')') {
+            return null;
+        }
+        return str.substring(1, str.length() - 1).strip().split(",");
+    }
+
+    @Nullable
+    private static Vec3d parseVec3d(@Nullable String[] parts) {
+        if (parts == null || parts.length != 3) {
+            return null;
+        }
+        try {
+            double x = Double.parseDouble(parts[0].strip());
+            double y = Double.parseDouble(parts[1].strip());
+            double z = Double.parseDouble(parts[2].strip());
+            return new Vec3d(x, y, z);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    @Nullable
+    private static Vec2f parseVec2f(@Nullable String[] parts) {
+        if (parts == null || parts.length != 2) {
+            return null;
+        }
+        try {
+            float x = Float.parseFloat(parts[0].strip());
+            float y = Float.parseFloat(parts[1].strip());
+            return new Vec2f(x, y);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Parses a string in format [a, b, c], auto-casting each element, see {@link #autoCast()}.
+     *
+     * @param str the stripped string
+     * @return a new list, or null if the string is not in this format
+     */
+    @Nullable
+    private static List<Object> parseList(String str) {
+        if (str.length() < 2 || str.charAt(0) != '[' || str.charAt(str.length() - 1) != ']') {
+            return null;
+        }
+        // We will not parse nested lists here
+        String[] parts = str.substring(1, str.length() - 1).strip().split(",");
+        List<Object> list = new ArrayList<>(parts.length);
+        for (String part : parts) {
+            String item = part.strip();
+            if (item.startsWith("[") && item.endsWith("]")) {
+                // Avoid recursion
+                list.add(item);
+            } else {
+                list.add(TypeAdaptor.parse(item).autoCast());
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Parses a double, without throwing and catching an exception for strings that cannot start a number.
+     *
+     * @param str the stripped string
+     * @return the double value, or null if the string is not a number
+     */
+    @Nullable
+    private static Double parseDouble(String str) {
+        if (str.isEmpty()) {
+            return null;
+        }
+        // Numbers start with a sign, a digit or a dot, or are NaN or Infinity, after control characters that parseDouble trims
+        char first = str.charAt(0);
+        if (first > ' ' && !(first >= '0' && first <= '9') && first != '-' && first != '+' && first != '.' && first != 'N' && first != 'I') {
+            return null;
+        }
+        try {
+            return Double.parseDouble(str);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    @Nullable
+    private static Boolean parseBoolean(String str) {
+        if ("yes".equalsIgnoreCase(str) || "true".equalsIgnoreCase(str) || "on".equalsIgnoreCase(str) ||
+            "enable".equalsIgnoreCase(str) || "open".equalsIgnoreCase(str)) {
+            return true;
+        } else if ("no".equalsIgnoreCase(str) || "false".equalsIgnoreCase(str) || "off".equalsIgnoreCase(str) ||
+                   "disable".equalsIgnoreCase(str) || "close".equalsIgnoreCase(str)) {
+            return false;
         } else {
-            return s;
+            return null;
         }
     }
-}   
+}
@@ -511,6 +511,8 @@ public class Util {
 
     /**
      * Retrieves all entities from the specified ServerWorld that are loaded and not removed.
+     * This walks every entity of the world, features running every tick should read the shared
+     * {@link com.ykn.fmod.server.base.data.EntityCensus} of the server data instead.
      *
      * @param world the ServerWorld instance from which to collect entities.
      * @return a list of all entities in the specified world that meet the criteria.
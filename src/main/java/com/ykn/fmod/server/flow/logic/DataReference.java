@@ -148,10 +148,9 @@ public class DataReference implements Cloneable {
         if (this.type == ReferenceType.CONSTANT) {
             return this.value;
         } else if (this.type == ReferenceType.NODE_OUTPUT) {
-            LogicFlow flow = context.getFlow();
-            FlowNode node = flow.getNode(this.referenceId);
+            FlowNode node = context.getPlan().getNode(this.referenceId);
             if (node == null) {
-                throw new LogicException(null, Util.parseTranslatableText("fmod.flow.error.nullnode", flow.name), null);
+                throw new LogicException(null, Util.parseTranslatableText("fmod.flow.error.nullnode", context.getFlow().name), null);
             }
             return node.getOutput(context, this.referenceIndex);
         } else {
@@ -6,15 +6,18 @@
 package com.ykn.fmod.server.flow.logic;
 
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
 
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.slf4j.LoggerFactory;
 
+import com.ykn.fmod.server.base.util.FlowTraceLevel;
 import com.ykn.fmod.server.base.util.Util;
 
 import net.minecraft.server.MinecraftServer;
@@ -34,14 +37,15 @@ import net.minecraft.text.Text;
  *   <li>Any exceptions that occur during execution</li>
  * </ul>
  * <p>
- * The ExecutionContext creates a deep copy of the LogicFlow at construction time,
- * ensuring that the original flow remains unmodified. It manages the execution loop,
+ * The ExecutionContext executes a compiled {@link FlowPlan}, which is shared by all executions
+ * and never modified, so only the per-run state (node statuses and variables) is created for
+ * each execution. It manages the execution loop,
  * tracks node execution to prevent infinite loops, and provides access to the
  * Minecraft server for nodes that need to interact with the game world.
  * <p>
  * Typical usage:
  * <pre>
- * ExecutionContext context = new ExecutionContext(flow, server, 1000);
+ * ExecutionContext context = new ExecutionContext(plan, server, 1000, 10);
  * context.execute(startOutputs, initialVariables);
  * if (context.getException() != null) {
  *     // Handle execution error
@@ -49,16 +53,23 @@ import net.minecraft.text.Text;
  * </pre>
  * 
  * @see LogicFlow
+ * @see FlowPlan
  * @see FlowNode
  * @see NodeStatus
  */
 public class ExecutionContext {
 
+    /**
+     * The compiled plan being executed in this context.
+     * It is shared with other executions of the same flow and must not be modified.
+     */
+    private final FlowPlan plan;
+
     /**
      * The logic flow being executed in this context.
-     * This is a deep copy of the original flow to ensure isolation between executions.
+     * This is the flow of the compiled plan, which is isolated from later edits of the original flow.
      */
-    private LogicFlow flow;
+    private final LogicFlow flow;
 
     /**
      * The Minecraft server instance where this flow is executed.
@@ -67,16 +78,27 @@ public class ExecutionContext {
     private MinecraftServer server;
 
     /**
-     * All node execution statuses in this context, mapped by node IDs.
+     * All node execution statuses in this context, indexed like the nodes of the plan.
      * Each NodeStatus tracks inputs, outputs, and execution state for one node.
      */
-    private Map<Long, NodeStatus> nodeStatuses;
+    private final NodeStatus[] nodeStatuses;
+
+    /**
+     * The output values of all nodes in one flat array, laid out by {@link FlowPlan#getOutputOffset(int)}.
+     * The output lists of the node statuses are views of this array.
+     */
+    private final Object[] outputValues;
+
+    /**
+     * The buffer that the inputs of each executed node are resolved into.
+     */
+    private final InputBuffer inputBuffer;
 
     /**
      * Variables that can be read and written during flow execution.
-     * Nodes like SetVariableNode and GetVariableNode use this map to share data.
+     * Nodes like SetVariableNode and GetVariableNode use this store to share data.
      */
-    private Map<String, Object> variables;
+    private final VariableStore variables;
 
     /**
      * The maximum number of node executions allowed in this context.
@@ -96,13 +118,25 @@ public class ExecutionContext {
      */
     private int nodeExecutionCounter;
 
+    /**
+     * How much of the execution is recorded for debugging, see {@link #setTraceLevel(FlowTraceLevel)}.
+     */
+    private FlowTraceLevel traceLevel;
+
     /**
      * The chronological sequence of executed nodes with their final states.
      * Each entry is a snapshot of a NodeStatus after that node completed execution.
      * Used for debugging, visualization, and flow analysis.
+     * Only recorded at {@link FlowTraceLevel#FULL}.
      */
     private List<NodeStatus> executedSequence;
 
+    /**
+     * The chronological sequence of executed nodes, without their states.
+     * Only recorded at {@link FlowTraceLevel#SUMMARY}.
+     */
+    private List<FlowNode> executedPath;
+
     /**
      * The parent execution contexts that led to this context, if any.
      * This is used to track call stacks when flows invoke other flows.
@@ -116,48 +150,101 @@ public class ExecutionContext {
      */
     private LogicException exception;
 
+    /**
+     * The node to continue with when a sliced execution that has yielded is resumed,
+     * or null if the execution is not suspended, see {@link #executeSliced(List, Map, long)}.
+     */
+    @Nullable
+    private FlowNode suspendedNode;
+
+    /**
+     * Whether a sliced execution yields at sub-graphs that can be offloaded to the async pool,
+     * see {@link #setOffloading(boolean)}.
+     */
+    private boolean offloading;
+
+    /**
+     * Whether the suspended execution waits at a sub-graph that should run on the async pool.
+     */
+    private boolean offloadPending;
+
+    /**
+     * Whether the async pool has given the suspended node back to the main thread because of its inputs,
+     * so that the node is not offloaded again at once, see {@link #executeOffloaded(BooleanSupplier)}.
+     */
+    private boolean offloadDeclined;
+
     /**
      * Creates a new execution context for the specified logic flow.
      * <p>
+     * The flow is compiled into a new {@link FlowPlan} first. Callers that execute the same flow
+     * repeatedly should keep the compiled plan and use {@link #ExecutionContext(FlowPlan, MinecraftServer, int, int)}.
+     * 
+     * @param flow The logic flow to execute (will be copied)
+     * @param server The Minecraft server instance for game world interaction
+     * @param maxAllowedNodes The maximum number of node executions allowed to prevent infinite loops
+     * @param maxAllowedRecursions The maximum allowed recursion depth for flow executions
+     */
+    public ExecutionContext(LogicFlow flow, MinecraftServer server, int maxAllowedNodes, int maxAllowedRecursions) {
+        this(FlowPlan.compile(flow), server, maxAllowedNodes, maxAllowedRecursions);
+    }
+
+    /**
+     * Creates a new execution context for the specified compiled plan.
+     * <p>
      * This constructor:
      * <ul>
-     *   <li>Creates a deep copy of the flow to ensure isolation</li>
-     *   <li>Initializes a NodeStatus for each node in the flow</li>
+     *   <li>Initializes a NodeStatus for each node in the plan</li>
      *   <li>Initializes empty variable storage</li>
      *   <li>Resets all counters and state tracking</li>
      * </ul>
+     * The plan itself is not copied, as it is never modified.
      * 
-     * @param flow The logic flow to execute (will be copied)
+     * @param plan The compiled plan to execute
      * @param server The Minecraft server instance for game world interaction
      * @param maxAllowedNodes The maximum number of node executions allowed to prevent infinite loops
      * @param maxAllowedRecursions The maximum allowed recursion depth for flow executions
      */
-    public ExecutionContext(LogicFlow flow, MinecraftServer server, int maxAllowedNodes, int maxAllowedRecursions) {
-        this.flow = flow.copy();
+    public ExecutionContext(FlowPlan plan, MinecraftServer server, int maxAllowedNodes, int maxAllowedRecursions) {
+        this.plan = plan;
+        this.flow = plan.getFlow();
         this.server = server;
-        this.nodeStatuses = new HashMap<>();
-        Collection<FlowNode> nodes = this.flow.getNodes();
-        for (FlowNode node : nodes) {
-            this.nodeStatuses.put(node.getId(), new NodeStatus(node));
+        this.nodeStatuses = new NodeStatus[plan.getNodeCount()];
+        this.outputValues = new Object[plan.getOutputCount()];
+        for (int i = 0; i < this.nodeStatuses.length; i++) {
+            this.nodeStatuses[i] = new NodeStatus(plan.getNodeAt(i), this.outputValues, plan.getOutputOffset(i));
         }
-        this.variables = new HashMap<>();
+        this.inputBuffer = new InputBuffer();
+        this.variables = new VariableStore(plan);
         this.maxAllowedNodes = maxAllowedNodes;
         this.maxAllowedRecursions = maxAllowedRecursions;
         this.nodeExecutionCounter = 0;
+        this.traceLevel = FlowTraceLevel.FULL;
         this.executedSequence = new ArrayList<>();
+        this.executedPath = new ArrayList<>();
         this.parentContexts = new ArrayList<>();
         this.exception = null;
+        this.offloading = false;
     }
 
     /**
      * Gets the logic flow being executed in this context.
      * 
-     * @return The (copied) LogicFlow for this execution
+     * @return The compiled LogicFlow for this execution, which must not be modified
      */
     public LogicFlow getFlow() {
         return this.flow;
     }
 
+    /**
+     * Gets the compiled plan being executed in this context.
+     * 
+     * @return The FlowPlan for this execution
+     */
+    public FlowPlan getPlan() {
+        return this.plan;
+    }
+
     /**
      * Gets the Minecraft server instance for this execution.
      * 
@@ -175,7 +262,40 @@ public class ExecutionContext {
      */
     @Nullable
     public NodeStatus getNodeStatus(long nodeId) {
-        return this.nodeStatuses.get(nodeId);
+        return this.getNodeStatusAt(this.plan.getIndex(nodeId));
+    }
+
+    /**
+     * Gets the execution status for the node at a specific index of the plan.
+     * 
+     * @param index The index of the node in the plan
+     * @return The NodeStatus for the specified node, or null if the index is out of range
+     */
+    @Nullable
+    public NodeStatus getNodeStatusAt(int index) {
+        if (index < 0 || index >= this.nodeStatuses.length) {
+            return null;
+        }
+        return this.nodeStatuses[index];
+    }
+
+    /**
+     * Gets an output value directly from the flat output array.
+     * <p>
+     * This is the fast path of input resolution, using the slot and offset that the plan
+     * has computed for the input, see {@link FlowPlan#getInputSlot(int, int)}.
+     * 
+     * @param index The index of the node that produces the output
+     * @param offset The offset of the output in the flat output array
+     * @return The output value
+     * @throws LogicException If the node has not been executed yet
+     */
+    @Nullable
+    public Object getOutputAt(int index, int offset) throws LogicException {
+        if (!this.nodeStatuses[index].hasExecuted) {
+            throw new LogicException(null, Util.parseTranslatableText("fmod.flow.error.notexecuted", this.nodeStatuses[index].node.name), null);
+        }
+        return this.outputValues[offset];
     }
 
     /**
@@ -185,7 +305,7 @@ public class ExecutionContext {
      */
     @Nullable
     public FlowNode getStartNode() {
-        return this.flow.getFirstNode();
+        return this.plan.getStartNode();
     }
 
     /**
@@ -197,7 +317,7 @@ public class ExecutionContext {
      * @return The number of output ports on the start node, or 0 if no start node exists
      */
     public int getStartNodeOutputNumber() {
-        FlowNode startNode = this.flow.getFirstNode();
+        FlowNode startNode = this.plan.getStartNode();
         if (startNode != null) {
             return startNode.getMetadata().outputNumber;
         }
@@ -240,12 +360,37 @@ public class ExecutionContext {
         return this.variables.get(name);
     }
 
+    /**
+     * Gets a variable by the index that the plan has interned its name to.
+     * This is the fast path for variable names that are constants in the flow.
+     * 
+     * @param index The index of the variable, see {@link FlowPlan#getVariableIndex(String)}
+     * @return The variable value, or null if the variable doesn't exist
+     */
+    @Nullable
+    public Object getVariableAt(int index) {
+        return this.variables.getAt(index);
+    }
+
+    /**
+     * Sets a variable by the index that the plan has interned its name to.
+     * 
+     * @param index The index of the variable, see {@link FlowPlan#getVariableIndex(String)}
+     * @param value The value to store (can be null)
+     */
+    public void setVariableAt(int index, Object value) {
+        this.variables.setAt(index, value);
+    }
+
     /**
      * Gets all variables in this execution context.
+     * <p>
+     * To pass the variables on to another flow, pass a {@link VariableStore#fork()} of them,
+     * which does not copy them.
      * 
-     * @return A map of all variable names to their values
+     * @return The store of all variable names and their values
      */
-    public Map<String, Object> getVariables() {
+    public VariableStore getVariables() {
         return this.variables;
     }
 
@@ -286,10 +431,60 @@ public class ExecutionContext {
         return this.nodeExecutionCounter;
     }
 
+    /**
+     * Gets how much of the execution is recorded.
+     * 
+     * @return The trace level of this context
+     */
+    public FlowTraceLevel getTraceLevel() {
+        return this.traceLevel;
+    }
+
+    /**
+     * Sets how much of the execution is recorded. This should be set before the execution starts.
+     * <ul>
+     *   <li>{@link FlowTraceLevel#OFF}: Nothing is recorded except the exception</li>
+     *   <li>{@link FlowTraceLevel#SUMMARY}: Only the executed nodes and the exception are recorded</li>
+     *   <li>{@link FlowTraceLevel#FULL}: A snapshot of the status of every executed node is recorded</li>
+     * </ul>
+     * Below {@link FlowTraceLevel#FULL}, the node statuses are also discarded after the execution,
+     * so that a context kept in the history does not keep the node outputs alive.
+     * 
+     * @param traceLevel The new trace level
+     */
+    public void setTraceLevel(FlowTraceLevel traceLevel) {
+        this.traceLevel = traceLevel;
+    }
+
+    /**
+     * Gets whether a sliced execution yields at sub-graphs that can be offloaded to the async pool.
+     * 
+     * @return true if pure sub-graphs are offloaded
+     */
+    public boolean isOffloading() {
+        return this.offloading;
+    }
+
+    /**
+     * Sets whether a sliced execution yields at sub-graphs that can be offloaded to the async pool.
+     * This should be set before the execution starts.
+     * <p>
+     * If enabled, a sliced execution is suspended as soon as it reaches a node for which
+     * {@link FlowPlan#isOffloadEntry(int)} is true, and {@link #isOffloadPending()} becomes true.
+     * The caller should then run {@link #executeOffloaded(BooleanSupplier)} on the async pool,
+     * and resume the execution on the main thread afterwards.
+     * 
+     * @param offloading true to offload pure sub-graphs
+     */
+    public void setOffloading(boolean offloading) {
+        this.offloading = offloading;
+    }
+
     /**
      * Gets the sequence of executed nodes in chronological order.
      * <p>
      * Each entry is a snapshot of the node's state after it completed execution.
+     * The list is only filled at {@link FlowTraceLevel#FULL}.
      * 
      * @return A list of NodeStatus snapshots representing the execution history
      */
@@ -297,6 +492,16 @@ public class ExecutionContext {
         return this.executedSequence;
     }
 
+    /**
+     * Gets the executed nodes in chronological order, without their states.
+     * The list is only filled at {@link FlowTraceLevel#SUMMARY}.
+     * 
+     * @return A list of the executed nodes
+     */
+    public List<FlowNode> getExecutedPath() {
+        return this.executedPath;
+    }
+
     /**
      * Retrieves the list of parent execution contexts.
      *
@@ -373,13 +578,17 @@ public class ExecutionContext {
      * instead of reusing an existing one.
      */
     public void resetExecutionStatus() {
-        for (NodeStatus status : this.nodeStatuses.values()) {
+        for (NodeStatus status : this.nodeStatuses) {
             status.reset();
         }
         this.variables.clear();
         this.nodeExecutionCounter = 0;
         this.executedSequence.clear();
+        this.executedPath.clear();
         this.exception = null;
+        this.suspendedNode = null;
+        this.offloadPending = false;
+        this.offloadDeclined = false;
     }
 
     /**
@@ -390,32 +599,115 @@ public class ExecutionContext {
      * @throws Exception If any error occurs during execution
      */
     private void executeFlow(@Nullable List<Object> startNodeOutputs, @Nullable Map<String, Object> initialVariables) throws Exception {
-        if (startNodeOutputs != null) {
-            NodeStatus startNodeStatus = this.nodeStatuses.get(this.flow.startNodeId);
-            if (startNodeStatus != null) {
-                for (int i = 0; i < startNodeOutputs.size() && i < startNodeStatus.node.getMetadata().outputNumber; i++) {
-                    startNodeStatus.setOutput(i, startNodeOutputs.get(i));
-                }
+        FlowNode currentNode = this.startFlow(startNodeOutputs, initialVariables);
+        while (currentNode != null) {
+            this.beforeNode();
+            FlowNode nextNode = currentNode.execute(this);
+            this.afterNode(currentNode);
+            currentNode = nextNode;
+        }
+    }
+
+    /**
+     * Prepares the start node and the variables of an execution.
+     * 
+     * @param startNodeOutputs Optional list of output values to pre-populate for the start node
+     * @param initialVariables Optional map of variables to initialize before execution
+     * @return The start node
+     * @throws LogicException If the flow has no start node or the recursion limit has been reached
+     */
+    private FlowNode startFlow(@Nullable List<Object> startNodeOutputs, @Nullable Map<String, Object> initialVariables) throws LogicException {
+        int startIndex = this.plan.getStartIndex();
+        if (startNodeOutputs != null && startIndex >= 0) {
+            NodeStatus startNodeStatus = this.nodeStatuses[startIndex];
+            for (int i = 0; i < startNodeOutputs.size() && i < startNodeStatus.node.getMetadata().outputNumber; i++) {
+                startNodeStatus.setOutput(i, startNodeOutputs.get(i));
             }
         }
-        if (initialVariables != null) {
+        if (initialVariables instanceof VariableStore) {
+            // Passed on from another flow, copied only when either flow writes to it
+            this.variables.inherit((VariableStore) initialVariables);
+        } else if (initialVariables != null) {
             this.variables.putAll(initialVariables);
         }
-        FlowNode currentNode = this.flow.getFirstNode();
+        FlowNode currentNode = this.plan.getStartNode();
         if (this.parentContexts.size() >= this.maxAllowedRecursions) {
             throw new LogicException(null, Util.parseTranslatableText("fmod.flow.error.recursion"), null);
         }
         if (currentNode == null) {
             throw new LogicException(null, Util.parseTranslatableText("fmod.flow.error.nullstart"), null);
         }
+        return currentNode;
+    }
+
+    /**
+     * Executes nodes until the flow terminates or the deadline has passed.
+     * At least one node is executed, so that every slice makes progress.
+     * 
+     * @param currentNode The node to execute first
+     * @param deadline The {@link System#nanoTime()} after which no further node is started
+     * @return true if the flow has terminated, false if it has been suspended at the deadline
+     * @throws LogicException If an error occurs during execution
+     */
+    private boolean executeSlice(FlowNode currentNode, long deadline) throws LogicException {
+        boolean declined = this.offloadDeclined;
+        this.offloadDeclined = false;
         while (currentNode != null) {
-            if (this.nodeExecutionCounter >= this.maxAllowedNodes) {
-                throw new LogicException(null, Util.parseTranslatableText("fmod.flow.error.deadloop", this.maxAllowedNodes), null);
+            if (declined) {
+                // The async pool has just given this node back, so it runs here
+                declined = false;
+            } else if (this.offloading && this.plan.isOffloadEntry(currentNode.getSlot(this))) {
+                // Leave the pure sub-graph to the async pool
+                this.suspendedNode = currentNode;
+                this.offloadPending = true;
+                return false;
             }
+            this.beforeNode();
             FlowNode nextNode = currentNode.execute(this);
-            this.nodeExecutionCounter++;
-            this.executedSequence.add(this.nodeStatuses.get(currentNode.getId()).copy());
+            this.afterNode(currentNode);
             currentNode = nextNode;
+            if (currentNode != null && System.nanoTime() - deadline >= 0) {
+                this.suspendedNode = currentNode;
+                return false;
+            }
+        }
+        this.suspendedNode = null;
+        return true;
+    }
+
+    /**
+     * Gets the buffer that the inputs of the next node are resolved into.
+     * 
+     * @return The input buffer of this context, shared by all node executions
+     */
+    InputBuffer getInputBuffer() {
+        return this.inputBuffer;
+    }
+
+    /**
+     * Checks whether another node may be executed in this context.
+     * Called before every node execution, by both full and sliced executions.
+     * 
+     * @throws LogicException If the maximum number of node executions has been reached
+     */
+    void beforeNode() throws LogicException {
+        if (this.nodeExecutionCounter >= this.maxAllowedNodes) {
+            throw new LogicException(null, Util.parseTranslatableText("fmod.flow.error.deadloop", this.maxAllowedNodes), null);
+        }
+    }
+
+    /**
+     * Counts and traces a node execution.
+     * Called after every node execution, by both full and sliced executions.
+     * 
+     * @param node The node that has just been executed
+     */
+    void afterNode(FlowNode node) {
+        this.nodeExecutionCounter++;
+        if (this.traceLevel == FlowTraceLevel.FULL) {
+            this.executedSequence.add(this.getNodeStatusAt(node.getSlot(this)).copy());
+        } else if (this.traceLevel == FlowTraceLevel.SUMMARY) {
+            this.executedPath.add(node);
         }
     }
     
@@ -444,18 +736,196 @@ public class ExecutionContext {
         this.resetExecutionStatus();
         try {
             this.executeFlow(startNodeOutputs, initialVariables);
-        } catch (LogicException e) {
-            this.exception = e;
+        } catch (Exception | StackOverflowError e) {
+            this.recordFailure(e);
+        } finally {
+            this.finishExecution();
+        }
+    }
+
+    /**
+     * Starts executing the logic flow in this context, but yields once the deadline has passed.
+     * <p>
+     * This works like {@link #execute(List, Map)}, except that the execution is suspended if the flow
+     * has not terminated by the deadline. A suspended execution keeps all its state in this context
+     * and continues with {@link #resume(long)}, usually in a later server tick, so that a long flow
+     * is spread over several ticks instead of stalling one of them.
+     * 
+     * @param startNodeOutputs Optional list of output values to pre-populate for the start node
+     * @param initialVariables Optional map of variables to initialize before execution
+     * @param deadline The {@link System#nanoTime()} after which no further node is started in this slice
+     * @return true if the execution has finished, false if it has been suspended
+     */
+    public boolean executeSliced(@Nullable List<Object> startNodeOutputs, @Nullable Map<String, Object> initialVariables, long deadline) {
+        this.resetExecutionStatus();
+        boolean finished = true;
+        try {
+            finished = this.executeSlice(this.startFlow(startNodeOutputs, initialVariables), deadline);
+        } catch (Exception | StackOverflowError e) {
+            this.recordFailure(e);
+        } finally {
+            if (finished) {
+                this.finishExecution();
+            } else {
+                this.inputBuffer.release();
+            }
+        }
+        return finished;
+    }
+
+    /**
+     * Continues a suspended sliced execution until the flow terminates or the deadline has passed.
+     * 
+     * @param deadline The {@link System#nanoTime()} after which no further node is started in this slice
+     * @return true if the execution has finished, false if it has been suspended again
+     * @see #executeSliced(List, Map, long)
+     */
+    public boolean resume(long deadline) {
+        if (this.suspendedNode == null) {
+            return true;
+        }
+        boolean finished = true;
+        try {
+            finished = this.executeSlice(this.suspendedNode, deadline);
+        } catch (Exception | StackOverflowError e) {
+            this.recordFailure(e);
+        } finally {
+            if (finished) {
+                this.suspendedNode = null;
+                this.finishExecution();
+            } else {
+                this.inputBuffer.release();
+            }
+        }
+        return finished;
+    }
+
+    /**
+     * Executes the world-safe nodes of a suspended sliced execution that waits at a sub-graph
+     * to be offloaded. This method is meant to be called on the async pool.
+     * <p>
+     * Nodes are executed until the flow terminates or reaches a node that is not world-safe,
+     * or a world-safe node with an input that is not a plain value (see {@link FlowNode#isWorldSafe()}),
+     * where the execution is suspended again, so that it can continue on the main thread with
+     * {@link #resume(long)}. If the flow terminates here, {@link #resume(long)} finishes at once.
+     * While this method runs, the context must not be used by any other thread.
+     * 
+     * @param shouldStop Checked before every node, the execution stays suspended once it returns true
+     * @see #isOffloadPending()
+     */
+    public void executeOffloaded(@NotNull BooleanSupplier shouldStop) {
+        FlowNode currentNode = this.suspendedNode;
+        this.offloadPending = false;
+        if (currentNode == null) {
+            return;
+        }
+        // Lists that are known to hold only plain values, as a list is often the input of every iteration of a loop.
+        // They stay plain, because no node that is executed here has any other value to put into them.
+        Set<Object> plainLists = Collections.newSetFromMap(new IdentityHashMap<>());
+        try {
+            while (currentNode != null && currentNode.isWorldSafe() && !shouldStop.getAsBoolean()) {
+                List<Object> resolvedInputs = currentNode.resolveInputs(this);
+                if (!areAllPlainValues(resolvedInputs, plainLists)) {
+                    // Converting the inputs may read the world, so the node runs on the main thread
+                    this.offloadDeclined = true;
+                    break;
+                }
+                this.beforeNode();
+                FlowNode nextNode = this.plan.getNode(currentNode.executeNode(this, resolvedInputs));
+                this.afterNode(currentNode);
+                currentNode = nextNode;
+            }
+        } catch (Exception | StackOverflowError e) {
+            this.recordFailure(e);
+            currentNode = null;
+        }
+        this.suspendedNode = currentNode;
+        if (currentNode == null) {
+            this.finishExecution();
+        } else {
+            this.inputBuffer.release();
+        }
+    }
+
+    /**
+     * Checks whether all values are plain values, which are null, numbers, booleans, characters, strings,
+     * or lists of plain values. Plain values can be used by world-safe nodes off the main thread.
+     * 
+     * @param values The values to check
+     * @param plainLists The lists that are already known to be plain, which is updated by this method
+     * @return true if all values are plain values
+     */
+    private static boolean areAllPlainValues(List<?> values, Set<Object> plainLists) {
+        for (Object value : values) {
+            if (value == null || value instanceof Number || value instanceof Boolean || value instanceof Character || value instanceof String) {
+                continue;
+            }
+            if (!(value instanceof List)) {
+                return false;
+            }
+            // Marked before the elements are checked, so a list that contains itself does not recurse forever
+            if (plainLists.add(value) && !areAllPlainValues((List<?>) value, plainLists)) {
+                plainLists.remove(value);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether the suspended execution waits at a sub-graph that should be executed
+     * on the async pool with {@link #executeOffloaded(BooleanSupplier)}, instead of being resumed.
+     * 
+     * @return true if the next slice should be offloaded
+     * @see #setOffloading(boolean)
+     */
+    public boolean isOffloadPending() {
+        return this.offloadPending;
+    }
+
+    /**
+     * Terminates a suspended sliced execution without executing any more nodes.
+     * 
+     * @param reason The exception to record as the reason for the termination
+     */
+    public void abort(@NotNull LogicException reason) {
+        if (this.suspendedNode == null) {
+            return;
+        }
+        this.suspendedNode = null;
+        this.exception = reason;
+        this.finishExecution();
+    }
+
+    /**
+     * Checks whether this context holds a sliced execution that has yielded and waits to be resumed.
+     * 
+     * @return true if the execution is suspended
+     */
+    public boolean isSuspended() {
+        return this.suspendedNode != null;
+    }
+
+    private void recordFailure(Throwable e) {
+        if (e instanceof LogicException) {
+            this.exception = (LogicException) e;
             LoggerFactory.getLogger(Util.LOGGERNAME).warn("FMinecraftMod: Logic flow " + flow.name + " terminated with exception", e);
-        } catch (StackOverflowError e) {
+        } else if (e instanceof StackOverflowError) {
             this.exception = new LogicException(null, Util.parseTranslatableText("fmod.flow.error.overflow"), null);
             LoggerFactory.getLogger(Util.LOGGERNAME).warn("FMinecraftMod: Logic flow " + flow.name + " terminated with stack overflow", e);
-        } catch (Exception e) {
-            this.exception = new LogicException(e, null, null);
+        } else {
+            this.exception = new LogicException((Exception) e, null, null);
             LoggerFactory.getLogger(Util.LOGGERNAME).warn("FMinecraftMod: Logic flow " + flow.name + " terminated with unexpected exception", e);
         }
     }
 
+    private void finishExecution() {
+        this.inputBuffer.release();
+        this.discardUntracedState();
+        // The flow that passed its variables on can write them again without copying them
+        this.variables.releaseInherited();
+    }
+
     /**
      * Executes the logic flow in this context within the context of a parent execution.
      * <p>
@@ -483,6 +953,20 @@ public class ExecutionContext {
         } catch (Exception e) {
             this.exception = new LogicException(e, null, null);
             throw this.exception;
+        } finally {
+            this.finishExecution();
+        }
+    }
+
+    /**
+     * Clears the node statuses after the execution if they are not traced,
+     * so that they do not keep any node outputs alive.
+     */
+    private void discardUntracedState() {
+        if (this.traceLevel != FlowTraceLevel.FULL) {
+            for (NodeStatus status : this.nodeStatuses) {
+                status.reset();
+            }
         }
     }
 
@@ -497,7 +981,8 @@ public class ExecutionContext {
      * </ul>
      * <p>
      * Each node in the sequence can be hovered over to see its execution details
-     * (inputs, outputs, and next node).
+     * (inputs, outputs, and next node). At {@link FlowTraceLevel#SUMMARY} only the node names
+     * are shown, and at {@link FlowTraceLevel#OFF} only the exception is shown.
      * <p>
      * Note: This renders dynamic execution state. To render static flow information,
      * use {@link LogicFlow#render()} instead.
@@ -506,6 +991,9 @@ public class ExecutionContext {
      */
     public Text render() {
         MutableText title = Text.literal(this.flow.name).append(" ");
+        for (FlowNode node : this.executedPath) {
+            title = title.append(Text.literal("[").append(node.name).append("] "));
+        }
         for (int i = 0; i < this.executedSequence.size(); i++) { 
             NodeStatus node = this.executedSequence.get(i);
             Text nodeText = node.render(i + 1, this.flow);
@@ -8,6 +8,9 @@ package com.ykn.fmod.server.flow.logic;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.jetbrains.annotations.Nullable;
+
+import com.ykn.fmod.server.base.util.FlowTraceLevel;
 import com.ykn.fmod.server.base.util.Util;
 import com.ykn.fmod.server.flow.tool.NodeRegistry;
 
@@ -68,8 +71,23 @@ public class FlowNode implements Cloneable {
      *   <li>Names and descriptions for each input, output, and branch</li>
      *   <li>Data type information for inputs and outputs</li>
      * </ul>
+     * <p>
+     * The metadata is shared by all nodes of the same type, see {@link NodeRegistry#getMetadata}.
+     * Always access it through {@link #getMetadata()}, which picks up the refreshed metadata
+     * after the translations have changed.
+     */
+    private transient NodeMetadata metadata;
+
+    /**
+     * The version of the shared metadata that {@link #metadata} was taken from.
      */
-    protected final transient NodeMetadata metadata;
+    private transient int metadataVersion;
+
+    /**
+     * The index of this node in the {@link FlowPlan} it was compiled into, or -1 if it is not part of a plan.
+     * Each plan owns a private copy of its nodes, so a node belongs to at most one plan.
+     */
+    private transient int slot;
 
     /**
      * The list of input data references for this node.
@@ -93,7 +111,7 @@ public class FlowNode implements Cloneable {
      * <ul>
      *   <li>All inputs with empty references</li>
      *   <li>All next node IDs to -1 (no connection)</li>
-     *   <li>The node metadata by calling {@link #createMetadata}</li>
+     *   <li>The node metadata, shared by all nodes of the same type</li>
      * </ul>
      * 
      * @param id The unique identifier for this node
@@ -114,7 +132,9 @@ public class FlowNode implements Cloneable {
         for (int i = 0; i < branchNumber; i++) {
             this.nextNodeIds.add(-1L);
         }
-        this.metadata = createMetadata(inputNumber, outputNumber, branchNumber);
+        this.slot = -1;
+        this.metadataVersion = NodeRegistry.getMetadataVersion();
+        this.metadata = NodeRegistry.getMetadata(this.getClass(), inputNumber, outputNumber, branchNumber, () -> createMetadata(inputNumber, outputNumber, branchNumber));
     }
 
     /**
@@ -123,6 +143,9 @@ public class FlowNode implements Cloneable {
      * Subclasses should override this method to provide specific metadata for their node type,
      * including custom display names, descriptions, and input/output specifications.
      * The default implementation creates generic metadata with placeholder text.
+     * <p>
+     * This method is only called once for each node type, and again after the shared metadata
+     * is refreshed, so it must not depend on the state of this node instance.
      * 
      * @param inputNumber The number of inputs for this node
      * @param outputNumber The number of outputs for this node
@@ -159,24 +182,111 @@ public class FlowNode implements Cloneable {
             inputNames, inputDescriptions, inputDataTypes, outputNames, outputDescriptions, outputDataTypes, branchNames, branchDescriptions);
     } 
 
+    /**
+     * Converts a constant input into the form this node works with, once, when the flow is
+     * compiled into a {@link FlowPlan}.
+     * <p>
+     * Subclasses can override this method to parse constant strings, such as paths and identifiers,
+     * ahead of time, so that executing the node does not parse them again. The returned value is
+     * passed to {@link #onExecute} instead of the constant, so the node must accept both forms.
+     * If the constant can never be valid, this method should throw the same exception that
+     * executing the node would throw. The flow then keeps the original constant, and the problem
+     * is reported when the flow is loaded, saved or enabled.
+     * <p>
+     * The default implementation returns the constant unchanged.
+     * 
+     * @param index The index of the input
+     * @param value The constant value of the input, which may be null
+     * @return The value to pass to the node instead of the constant
+     * @throws LogicException If the constant is not a valid value for this input
+     */
+    @Nullable
+    protected Object prepareConstantInput(int index, @Nullable Object value) throws LogicException {
+        return value;
+    }
+
+    /**
+     * Checks whether an input of this node is the name of a variable.
+     * <p>
+     * If such an input is a constant, and {@link #prepareConstantInput(int, Object)} turns it into
+     * a string, the name is interned into an index when the flow is compiled into a {@link FlowPlan},
+     * see {@link #getInputVariableIndex(ExecutionContext, int)}.
+     * <p>
+     * The default implementation returns false.
+     * 
+     * @param index The index of the input
+     * @return true if the input names a variable
+     */
+    protected boolean isVariableNameInput(int index) {
+        return false;
+    }
+
+    /**
+     * Checks whether an input of this node is fed back from a node that is executed after this one,
+     * such as the result of a loop body, see {@link LoopNode}.
+     * <p>
+     * Such an input resolves to null while the referenced node has not been executed yet,
+     * instead of failing the execution.
+     * <p>
+     * The default implementation returns false.
+     * 
+     * @param index The index of the input
+     * @return true if the input is a feedback input
+     */
+    protected boolean isFeedbackInput(int index) {
+        return false;
+    }
+
+    /**
+     * Gets the index of the variable named by a constant input, so that the variable can be
+     * accessed with {@link ExecutionContext#getVariableAt(int)} without looking up its name.
+     * 
+     * @param context The execution context
+     * @param index The index of the input
+     * @return The index of the variable, or -1 if the input is not a constant variable name
+     */
+    protected int getInputVariableIndex(ExecutionContext context, int index) {
+        int slot = this.getSlot(context);
+        return slot < 0 ? -1 : context.getPlan().getInputVariableIndex(slot, index);
+    }
+
     /**
      * Resolves all input references to their actual values.
      * <p>
      * This method iterates through all inputs and resolves each {@link DataReference}
      * to its actual value, either from a constant or from another node's output.
+     * Constants are taken in the form prepared by {@link #prepareConstantInput(int, Object)}.
+     * <p>
+     * The values are resolved into the input buffer of the context, which is reused by every
+     * node execution, so the returned list is unmodifiable and only valid until the next node
+     * of the same context resolves its inputs.
      * 
      * @param context The execution context containing node statuses and variables
      * @return A list of resolved input values in the same order as the inputs
      * @throws LogicException If any input reference is null or cannot be resolved
      */
     protected List<Object> resolveInputs(ExecutionContext context) throws LogicException {
-        List<Object> resolvedInputs = new ArrayList<>();
-        for (DataReference inputRef : inputs) {
+        int slot = this.getSlot(context);
+        FlowPlan plan = context.getPlan();
+        InputBuffer resolvedInputs = context.getInputBuffer();
+        resolvedInputs.reset(this.inputs.size());
+        for (int i = 0; i < this.inputs.size(); i++) {
+            DataReference inputRef = this.inputs.get(i);
             if (inputRef == null) {
                 throw new LogicException(null, Util.parseTranslatableText("fmod.flow.error.nullinput", this.name), null);
+            }
+            int sourceSlot = slot < 0 ? -1 : plan.getInputSlot(slot, i);
+            if (sourceSlot >= 0) {
+                // Fast path: the referenced output was already located when the plan was compiled
+                if (!context.getNodeStatusAt(sourceSlot).hasExecuted && this.isFeedbackInput(i)) {
+                    resolvedInputs.put(i, null);
+                } else {
+                    resolvedInputs.put(i, context.getOutputAt(sourceSlot, plan.getInputOffset(slot, i)));
+                }
+            } else if (slot >= 0 && inputRef.type == DataReference.ReferenceType.CONSTANT) {
+                resolvedInputs.put(i, plan.getConstantInput(slot, i));
             } else {
-                Object resolvedValue = inputRef.resolve(context);
-                resolvedInputs.add(resolvedValue);
+                resolvedInputs.put(i, inputRef.resolve(context));
             }
         }
         return resolvedInputs;
@@ -201,15 +311,43 @@ public class FlowNode implements Cloneable {
      * @throws LogicException If an error occurs during execution
      */
     public FlowNode execute(ExecutionContext context) throws LogicException {
+        return context.getPlan().getNode(this.executeNode(context));
+    }
+
+    /**
+     * Executes this node within the given execution context, like {@link #execute(ExecutionContext)},
+     * but returns the ID of the next node instead of looking the node up.
+     * 
+     * @param context The execution context containing flow state and variables
+     * @return The ID of the next node to execute, or -1 if the flow should terminate
+     * @throws LogicException If an error occurs during execution
+     */
+    long executeNode(ExecutionContext context) throws LogicException {
+        return this.executeNode(context, resolveInputs(context));
+    }
+
+    /**
+     * Executes this node with inputs that have already been resolved by {@link #resolveInputs(ExecutionContext)},
+     * like {@link #executeNode(ExecutionContext)}.
+     * 
+     * @param context The execution context containing flow state and variables
+     * @param resolvedInputs The resolved inputs of this node
+     * @return The ID of the next node to execute, or -1 if the flow should terminate
+     * @throws LogicException If an error occurs during execution
+     */
+    long executeNode(ExecutionContext context, List<Object> resolvedInputs) throws LogicException {
         // Executed multiple times is expected because we allow loops in logic flows, so no need to check hasExecuted here.
-        NodeStatus status = context.getNodeStatus(this.id);
-        List<Object> resolvedInputs = resolveInputs(context);
-        status.inputs = resolvedInputs;
+        NodeStatus status = context.getNodeStatusAt(this.getSlot(context));
+        if (context.getTraceLevel() == FlowTraceLevel.FULL) {
+            // The resolved inputs are reused by the next node, so only keep a copy if they are traced
+            status.recordInputs(resolvedInputs);
+        }
         this.onExecute(context, status, resolvedInputs);
         long nextNodeId = this.getNextNodeId(context, status, resolvedInputs);
         status.setExecuted();
         status.nextBranchId = nextNodeId;
-        return context.getFlow().getNode(nextNodeId);
+        status.executionIndex = context.getNodeExecutionCounter();
+        return nextNodeId;
     }
 
     /**
@@ -258,6 +396,13 @@ public class FlowNode implements Cloneable {
      * @return The NodeMetadata object containing static information about this node
      */
     public NodeMetadata getMetadata() {
+        int version = NodeRegistry.getMetadataVersion();
+        if (this.metadataVersion != version) {
+            NodeMetadata oldMetadata = this.metadata;
+            this.metadataVersion = version;
+            this.metadata = NodeRegistry.getMetadata(this.getClass(), oldMetadata.inputNumber, oldMetadata.outputNumber, oldMetadata.branchNumber,
+                () -> createMetadata(oldMetadata.inputNumber, oldMetadata.outputNumber, oldMetadata.branchNumber));
+        }
         return this.metadata;
     }
 
@@ -295,7 +440,7 @@ public class FlowNode implements Cloneable {
      * @throws IndexOutOfBoundsException If the index is out of range
      */
     public Object getOutput(ExecutionContext context, int index) throws LogicException {
-        NodeStatus status = context.getNodeStatus(this.id);
+        NodeStatus status = context.getNodeStatusAt(this.getSlot(context));
         if (status.hasExecuted == false) {
             throw new LogicException(null, Util.parseTranslatableText("fmod.flow.error.notexecuted", this.name), null);
         }
@@ -312,10 +457,37 @@ public class FlowNode implements Cloneable {
      * @param value The value to set as output
      */
     protected void setOutput(ExecutionContext context, int index, Object value) {
-        NodeStatus status = context.getNodeStatus(this.id);
+        NodeStatus status = context.getNodeStatusAt(this.getSlot(context));
         status.setOutput(index, value);
     }
 
+    /**
+     * Gets the index of this node in the plan executed by the given context.
+     * <p>
+     * Nodes that were compiled into this plan already know their index, other nodes
+     * with the same ID are looked up by their ID.
+     * 
+     * @param context The execution context
+     * @return The index of this node in the plan, or -1 if the plan has no node with this ID
+     */
+    protected int getSlot(ExecutionContext context) {
+        FlowPlan plan = context.getPlan();
+        if (this.slot >= 0 && this.slot < plan.getNodeCount() && plan.getNodeAt(this.slot) == this) {
+            return this.slot;
+        }
+        return plan.getIndex(this.id);
+    }
+
+    /**
+     * Sets the index of this node in the plan it is compiled into.
+     * Only called by {@link FlowPlan} on its private copy of the node.
+     * 
+     * @param slot The index of this node in the plan
+     */
+    void setSlot(int slot) {
+        this.slot = slot;
+    }
+
     /**
      * This method indicates whether this node is an event node.
      * Event nodes should always be the starting point of a logic flow execution.
@@ -328,6 +500,27 @@ public class FlowNode implements Cloneable {
         return false;
     }
 
+    /**
+     * This method indicates whether this node can be executed off the main server thread.
+     * A world-safe node only works with its inputs, its outputs and the variables of the execution,
+     * and never reads or changes the world, the players or the server by itself.
+     * Maximal sub-graphs of world-safe nodes that contain a loop can be executed on the async pool,
+     * see {@link FlowPlan#isOffloadEntry(int)}.
+     * <p>
+     * Being world-safe is not enough on its own, because converting an input may still read the world,
+     * for example the name of an entity or an item stack. So a world-safe node is only executed on the
+     * async pool if all of its resolved inputs are null, numbers, booleans, characters, strings, or lists
+     * of such values. Otherwise the execution returns to the main server thread before the node,
+     * see {@link ExecutionContext#executeOffloaded(java.util.function.BooleanSupplier)}.
+     * <p>
+     * By default, nodes are not world-safe. Override this method in subclasses to specify world-safe nodes.
+     * @return true if this node is world-safe, false otherwise
+     */
+    public boolean isWorldSafe() {
+        // Override in subclasses to specify world-safe nodes
+        return false;
+    }
+
     /**
      * Determines the ID of the next node to execute based on this node's logic.
      * <p>
@@ -375,7 +568,7 @@ public class FlowNode implements Cloneable {
     public FlowNode copy() {
         // Need to keep child class type here, so using NodeRegistry instead of new FlowNode(...)
         FlowNode newNode = NodeRegistry.createNode(this.type, this.id, this.name);
-        for (int i = 0; i < this.metadata.inputNumber; i++) {
+        for (int i = 0; i < this.getMetadata().inputNumber; i++) {
             DataReference inputRef = this.inputs.get(i);
             newNode.inputs.set(i, inputRef.copy());
         }
@@ -410,12 +603,12 @@ public class FlowNode implements Cloneable {
      */
     public Text render(LogicFlow flow) {
         // Render title
-        MutableText text = Util.parseTranslatableText("fmod.flow.node.title", this.name, this.metadata.displayName, this.metadata.description);
+        MutableText text = Util.parseTranslatableText("fmod.flow.node.title", this.name, this.getMetadata().displayName, this.getMetadata().description);
         text = text.append("\n");
         // Render inputs
-        for (int i = 0; i < this.metadata.inputNumber; i++) {
+        for (int i = 0; i < this.getMetadata().inputNumber; i++) {
             DataReference inputRef = this.inputs.get(i);
-            MutableText inputLine = Util.parseTranslatableText("fmod.flow.node.input", this.metadata.inputNames.get(i), this.metadata.inputDescriptions.get(i));
+            MutableText inputLine = Util.parseTranslatableText("fmod.flow.node.input", this.getMetadata().inputNames.get(i), this.getMetadata().inputDescriptions.get(i));
             // Render optional info about the input source
             if (inputRef != null) {
                 if (inputRef.type == DataReference.ReferenceType.CONSTANT && inputRef.value != null) {
@@ -426,7 +619,7 @@ public class FlowNode implements Cloneable {
                     FlowNode refNode = flow.getNode(inputRef.referenceId);
                     if (refNode != null) {
                         inputLine = inputLine.append(" (");
-                        inputLine = inputLine.append(Util.parseTranslatableText("fmod.flow.node.from", refNode.name, refNode.metadata.outputNames.get(inputRef.referenceIndex)));
+                        inputLine = inputLine.append(Util.parseTranslatableText("fmod.flow.node.from", refNode.name, refNode.getMetadata().outputNames.get(inputRef.referenceIndex)));
                         inputLine = inputLine.append(")");
                     }
                 }
@@ -434,12 +627,12 @@ public class FlowNode implements Cloneable {
             text = text.append(inputLine).append("\n");
         }
         // Render outputs
-        for (int i = 0; i < this.metadata.outputNumber; i++) {
-            MutableText outputLine = Util.parseTranslatableText("fmod.flow.node.output", this.metadata.outputNames.get(i), this.metadata.outputDescriptions.get(i));
+        for (int i = 0; i < this.getMetadata().outputNumber; i++) {
+            MutableText outputLine = Util.parseTranslatableText("fmod.flow.node.output", this.getMetadata().outputNames.get(i), this.getMetadata().outputDescriptions.get(i));
             text = text.append(outputLine).append("\n");
         }
         // Render branches
-        if (this.metadata.branchNumber == 1) {
+        if (this.getMetadata().branchNumber == 1) {
             // Directly show the next node
             long nextNodeId = this.nextNodeIds.get(0);
             if (flow.getNode(nextNodeId) == null) {
@@ -450,9 +643,9 @@ public class FlowNode implements Cloneable {
             }
         } else {
             // List all branches and show their next nodes
-            for (int i = 0; i < this.metadata.branchNumber; i++) {
+            for (int i = 0; i < this.getMetadata().branchNumber; i++) {
                 long nextNodeId = this.nextNodeIds.get(i);
-                MutableText branchLine = Util.parseTranslatableText("fmod.flow.node.branch", this.metadata.branchNames.get(i), this.metadata.branchDescriptions.get(i));
+                MutableText branchLine = Util.parseTranslatableText("fmod.flow.node.branch", this.getMetadata().branchNames.get(i), this.getMetadata().branchDescriptions.get(i));
                 // Show optional info about the next node
                 if (flow.getNode(nextNodeId) != null) {
                     FlowNode nextNode = flow.getNode(nextNodeId);
@@ -0,0 +1,440 @@
+/**
+ * Copyright (c) ykn
+ * This file is under the MIT License
+ */
+
+package com.ykn.fmod.server.flow.logic;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.ykn.fmod.server.base.util.Util;
+
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import net.minecraft.text.Text;
+
+/**
+ * An immutable, array-indexed execution plan compiled from a {@link LogicFlow}.
+ * <p>
+ * Compiling takes a private copy of the flow once, so that any number of {@link ExecutionContext}s
+ * can execute the same plan without copying the flow again.
+ * <p>
+ * Every node gets a dense index (its slot), and every output of every node gets an offset into
+ * one flat array, which the execution contexts use to keep their per-run state in arrays.
+ * The node output that each input refers to is also resolved to a slot and an offset here,
+ * so resolving an input during execution only takes two array loads instead of looking up the
+ * referenced node by its ID.
+ * <p>
+ * Compiling also analyzes the constant inputs of every node once with
+ * {@link FlowNode#prepareConstantInput(int, Object)}, so that nodes get their constants
+ * already converted, and constants that can never be valid are reported by {@link #getProblems()}
+ * before the flow is executed.
+ * <p>
+ * A plan is never modified after it has been compiled. Editing the original flow does not affect
+ * the plan, so {@link com.ykn.fmod.server.flow.tool.FlowManager} compiles a new plan after every edit.
+ *
+ * @see ExecutionContext
+ * @see com.ykn.fmod.server.flow.tool.FlowManager#getPlan()
+ */
+public final class FlowPlan {
+
+    /**
+     * The private copy of the compiled flow. It must never be modified.
+     */
+    private final LogicFlow flow;
+
+    /**
+     * The nodes of the flow, sorted by their IDs.
+     */
+    private final FlowNode[] nodes;
+
+    /**
+     * Maps node IDs to their indices in {@link #nodes}, or -1 if there is no such node.
+     */
+    private final Long2IntOpenHashMap indices;
+
+    /**
+     * The offset of the first output of each node in the flat output array.
+     */
+    private final int[] outputOffsets;
+
+    /**
+     * The total number of outputs of all nodes, which is the size of the flat output array.
+     */
+    private final int outputCount;
+
+    /**
+     * For each input of each node, the index of the node whose output it refers to,
+     * or -1 if the input is a constant or refers to a node or output that does not exist.
+     */
+    private final int[][] inputSlots;
+
+    /**
+     * For each input of each node, the offset of the output it refers to in the flat output array,
+     * or -1 if {@link #inputSlots} is -1 for this input.
+     */
+    private final int[][] inputOffsets;
+
+    /**
+     * For each input of each node, the prepared value of the constant,
+     * or null if the input is not a constant.
+     */
+    private final Object[][] constantInputs;
+
+    /**
+     * For each input of each node, the index of the variable named by the constant,
+     * or -1 if the input is not a constant variable name, see {@link FlowNode#isVariableNameInput(int)}.
+     */
+    private final int[][] inputVariableIndices;
+
+    /**
+     * Maps the variable names used as constants in the flow to their indices, or -1 if the name is not used.
+     */
+    private final Object2IntOpenHashMap<String> variableIndices;
+
+    /**
+     * The variable names used as constants in the flow, by their indices.
+     */
+    private final String[] variableNames;
+
+    /**
+     * The problems found while preparing the constant inputs.
+     */
+    private final List<Text> problems;
+
+    /**
+     * For each node, whether a sliced execution that reaches it may hand it to the async pool,
+     * see {@link #isOffloadEntry(int)}.
+     */
+    private final boolean[] offloadEntries;
+
+    /**
+     * The index of the start node, or -1 if the flow has no start node.
+     */
+    private final int startIndex;
+
+    private FlowPlan(LogicFlow flow) {
+        this.flow = flow;
+        List<FlowNode> nodeList = flow.getNodes().stream().sorted(Comparator.comparingLong(FlowNode::getId)).toList();
+        this.nodes = nodeList.toArray(new FlowNode[0]);
+        this.indices = new Long2IntOpenHashMap(this.nodes.length);
+        this.indices.defaultReturnValue(-1);
+        this.outputOffsets = new int[this.nodes.length];
+        int offset = 0;
+        for (int i = 0; i < this.nodes.length; i++) {
+            this.indices.put(this.nodes[i].getId(), i);
+            this.nodes[i].setSlot(i);
+            this.outputOffsets[i] = offset;
+            offset += this.nodes[i].getMetadata().outputNumber;
+        }
+        this.outputCount = offset;
+        this.inputSlots = new int[this.nodes.length][];
+        this.inputOffsets = new int[this.nodes.length][];
+        this.constantInputs = new Object[this.nodes.length][];
+        this.inputVariableIndices = new int[this.nodes.length][];
+        this.variableIndices = new Object2IntOpenHashMap<>();
+        this.variableIndices.defaultReturnValue(-1);
+        List<Text> problemList = new ArrayList<>();
+        for (int i = 0; i < this.nodes.length; i++) {
+            int inputNumber = this.nodes[i].getMetadata().inputNumber;
+            this.inputSlots[i] = new int[inputNumber];
+            this.inputOffsets[i] = new int[inputNumber];
+            this.constantInputs[i] = new Object[inputNumber];
+            this.inputVariableIndices[i] = new int[inputNumber];
+            for (int j = 0; j < inputNumber; j++) {
+                this.inputSlots[i][j] = -1;
+                this.inputOffsets[i][j] = -1;
+                this.inputVariableIndices[i][j] = -1;
+                DataReference inputRef = this.nodes[i].getInput(j);
+                if (inputRef != null && inputRef.type == DataReference.ReferenceType.CONSTANT) {
+                    this.constantInputs[i][j] = this.prepareConstant(this.nodes[i], j, inputRef.value, problemList);
+                    if (this.nodes[i].isVariableNameInput(j) && this.constantInputs[i][j] instanceof String) {
+                        // Intern the name, every node that uses it gets the same index
+                        String variableName = (String) this.constantInputs[i][j];
+                        this.variableIndices.putIfAbsent(variableName, this.variableIndices.size());
+                        this.inputVariableIndices[i][j] = this.variableIndices.getInt(variableName);
+                    }
+                }
+                if (inputRef == null || inputRef.type != DataReference.ReferenceType.NODE_OUTPUT) {
+                    continue;
+                }
+                int sourceSlot = this.getIndex(inputRef.referenceId);
+                if (sourceSlot < 0 || inputRef.referenceIndex < 0 || inputRef.referenceIndex >= this.nodes[sourceSlot].getMetadata().outputNumber) {
+                    // Leave it to DataReference#resolve to report the broken reference
+                    continue;
+                }
+                this.inputSlots[i][j] = sourceSlot;
+                this.inputOffsets[i][j] = this.outputOffsets[sourceSlot] + inputRef.referenceIndex;
+            }
+        }
+        this.problems = Collections.unmodifiableList(problemList);
+        this.variableNames = new String[this.variableIndices.size()];
+        for (Object2IntMap.Entry<String> entry : this.variableIndices.object2IntEntrySet()) {
+            this.variableNames[entry.getIntValue()] = entry.getKey();
+        }
+        this.offloadEntries = new boolean[this.nodes.length];
+        byte[] states = new byte[this.nodes.length];
+        for (int i = 0; i < this.nodes.length; i++) {
+            this.offloadEntries[i] = this.nodes[i].isWorldSafe() && this.reachesWorldSafeLoop(i, states);
+        }
+        this.startIndex = this.getIndex(flow.startNodeId);
+    }
+
+    private Object prepareConstant(FlowNode node, int index, Object value, List<Text> problemList) {
+        try {
+            return node.prepareConstantInput(index, value);
+        } catch (LogicException e) {
+            // Keep the original constant, so executing the node reports the same problem again
+            problemList.add(Util.parseTranslatableText("fmod.flow.problem", node.name, e.getMessageText()));
+            return value;
+        }
+    }
+
+    /**
+     * Checks with a depth-first search whether a loop of world-safe nodes can be reached from
+     * a world-safe node without passing any other node.
+     *
+     * @param index The index of a world-safe node
+     * @param states The search state of each node: 0 not visited, 1 on the search path,
+     *               2 cannot reach a loop, 3 can reach a loop
+     * @return true if a loop of world-safe nodes can be reached
+     */
+    private boolean reachesWorldSafeLoop(int index, byte[] states) {
+        if (states[index] != 0) {
+            // A node on the search path closes a loop
+            return states[index] != 2;
+        }
+        states[index] = 1;
+        boolean result = false;
+        for (long nextNodeId : this.nodes[index].nextNodeIds) {
+            int nextIndex = this.getIndex(nextNodeId);
+            if (nextIndex >= 0 && this.nodes[nextIndex].isWorldSafe() && this.reachesWorldSafeLoop(nextIndex, states)) {
+                result = true;
+            }
+        }
+        states[index] = result ? (byte) 3 : (byte) 2;
+        return result;
+    }
+
+    /**
+     * Compiles a logic flow into an execution plan.
+     * <p>
+     * The flow is copied, so later changes to it are not visible to the plan.
+     *
+     * @param flow The logic flow to compile
+     * @return The compiled plan
+     */
+    @NotNull
+    public static FlowPlan compile(@NotNull LogicFlow flow) {
+        return new FlowPlan(flow.copy());
+    }
+
+    /**
+     * Gets the compiled copy of the logic flow.
+     * <p>
+     * The returned flow is shared by all executions of this plan and must not be modified.
+     *
+     * @return The compiled flow
+     */
+    @NotNull
+    public LogicFlow getFlow() {
+        return this.flow;
+    }
+
+    /**
+     * Gets the number of nodes in this plan.
+     *
+     * @return The number of nodes
+     */
+    public int getNodeCount() {
+        return this.nodes.length;
+    }
+
+    /**
+     * Gets a node by its index in this plan.
+     *
+     * @param index The index of the node, from 0 to {@link #getNodeCount()} - 1
+     * @return The node at this index
+     * @throws IndexOutOfBoundsException If the index is out of range
+     */
+    @NotNull
+    public FlowNode getNodeAt(int index) {
+        return this.nodes[index];
+    }
+
+    /**
+     * Gets the index of a node in this plan.
+     *
+     * @param nodeId The ID of the node
+     * @return The index of the node, or -1 if there is no node with this ID
+     */
+    public int getIndex(long nodeId) {
+        return this.indices.get(nodeId);
+    }
+
+    /**
+     * Gets a node by its ID.
+     *
+     * @param nodeId The ID of the node
+     * @return The node with this ID, or null if there is none
+     */
+    @Nullable
+    public FlowNode getNode(long nodeId) {
+        int index = this.getIndex(nodeId);
+        return index < 0 ? null : this.nodes[index];
+    }
+
+    /**
+     * Gets the total number of outputs of all nodes in this plan.
+     *
+     * @return The size of the flat output array of an execution
+     */
+    public int getOutputCount() {
+        return this.outputCount;
+    }
+
+    /**
+     * Gets the offset of the first output of a node in the flat output array.
+     *
+     * @param index The index of the node
+     * @return The offset of its first output
+     */
+    public int getOutputOffset(int index) {
+        return this.outputOffsets[index];
+    }
+
+    /**
+     * Gets the index of the node that an input refers to.
+     *
+     * @param index The index of the node that owns the input
+     * @param inputIndex The index of the input
+     * @return The index of the referenced node, or -1 if the input is a constant or its reference is broken
+     */
+    public int getInputSlot(int index, int inputIndex) {
+        return this.inputSlots[index][inputIndex];
+    }
+
+    /**
+     * Gets the offset in the flat output array of the output that an input refers to.
+     *
+     * @param index The index of the node that owns the input
+     * @param inputIndex The index of the input
+     * @return The offset of the referenced output, or -1 if {@link #getInputSlot(int, int)} is -1
+     */
+    public int getInputOffset(int index, int inputIndex) {
+        return this.inputOffsets[index][inputIndex];
+    }
+
+    /**
+     * Gets the prepared value of a constant input.
+     *
+     * @param index The index of the node that owns the input
+     * @param inputIndex The index of the input
+     * @return The constant as prepared by {@link FlowNode#prepareConstantInput(int, Object)},
+     *         or null if the input is not a constant
+     */
+    @Nullable
+    public Object getConstantInput(int index, int inputIndex) {
+        return this.constantInputs[index][inputIndex];
+    }
+
+    /**
+     * Gets the index of the variable that a constant input names.
+     *
+     * @param index The index of the node that owns the input
+     * @param inputIndex The index of the input
+     * @return The index of the variable, or -1 if the input is not a constant variable name
+     * @see FlowNode#isVariableNameInput(int)
+     */
+    public int getInputVariableIndex(int index, int inputIndex) {
+        return this.inputVariableIndices[index][inputIndex];
+    }
+
+    /**
+     * Gets the number of variable names that are used as constants in the flow.
+     *
+     * @return The number of indexed variables
+     */
+    public int getVariableCount() {
+        return this.variableNames.length;
+    }
+
+    /**
+     * Gets the index that a variable name has been interned to when this plan was compiled.
+     * Only the names that are constants in the flow are interned, names that are only known at
+     * runtime are not.
+     *
+     * @param name The name of the variable
+     * @return The index of the variable, or -1 if the name is not interned
+     * @see VariableStore
+     */
+    public int getVariableIndex(String name) {
+        return this.variableIndices.getInt(name);
+    }
+
+    /**
+     * Gets the name of an indexed variable.
+     *
+     * @param index The index of the variable, from 0 to {@link #getVariableCount()} - 1
+     * @return The name of the variable
+     */
+    @NotNull
+    public String getVariableName(int index) {
+        return this.variableNames[index];
+    }
+
+    /**
+     * Gets the problems found while analyzing the constant inputs of the flow, such as constants
+     * of the wrong type. Executing a node with such a constant fails with the same message.
+     *
+     * @return The problems found when this plan was compiled, which may be empty
+     */
+    @NotNull
+    public List<Text> getProblems() {
+        return this.problems;
+    }
+
+    /**
+     * Checks whether an execution that reaches a node may continue on the async pool.
+     * <p>
+     * This is the case for every world-safe node from which a loop of world-safe nodes can be
+     * reached without passing any other node, such as the first node of a long arithmetic loop
+     * over a list. The async pool then executes nodes until it reaches a node that is not world-safe.
+     * Straight runs of world-safe nodes are not worth the round trip to the async pool,
+     * so they stay on the main thread.
+     *
+     * @param index The index of the node
+     * @return true if the node starts a sub-graph that can be offloaded
+     * @see FlowNode#isWorldSafe()
+     * @see ExecutionContext#executeOffloaded(java.util.function.BooleanSupplier)
+     */
+    public boolean isOffloadEntry(int index) {
+        return index >= 0 && index < this.offloadEntries.length && this.offloadEntries[index];
+    }
+
+    /**
+     * Gets the index of the start node.
+     *
+     * @return The index of the start node, or -1 if the flow has no start node
+     */
+    public int getStartIndex() {
+        return this.startIndex;
+    }
+
+    /**
+     * Gets the start node.
+     *
+     * @return The start node, or null if the flow has no start node
+     */
+    @Nullable
+    public FlowNode getStartNode() {
+        return this.startIndex < 0 ? null : this.nodes[this.startIndex];
+    }
+}
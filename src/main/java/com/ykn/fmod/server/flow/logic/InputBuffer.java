@@ -0,0 +1,80 @@
+/**
+ * Copyright (c) ykn
+ * This file is under the MIT License
+ */
+
+package com.ykn.fmod.server.flow.logic;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * The reusable buffer that an {@link ExecutionContext} resolves the inputs of each node into.
+ * <p>
+ * Every node execution in the same context resolves its inputs into the same buffer, so executing
+ * a node does not allocate a new list. The buffer is an unmodifiable list view for the node, and its
+ * contents are only valid until the next node of the same context resolves its inputs. Anything that
+ * needs the inputs for longer, such as the execution trace, must copy them.
+ * <p>
+ * Thread Safety: This class is not thread-safe, like the execution context that owns it.
+ *
+ * @see FlowNode#resolveInputs(ExecutionContext)
+ */
+final class InputBuffer extends AbstractList<Object> implements RandomAccess {
+
+    /**
+     * Enough for most nodes, the buffer grows if a node has more inputs.
+     */
+    private static final int INITIAL_CAPACITY = 8;
+
+    private Object[] values;
+    private int size;
+
+    InputBuffer() {
+        this.values = new Object[INITIAL_CAPACITY];
+        this.size = 0;
+    }
+
+    /**
+     * Empties the buffer and prepares it for the inputs of a node.
+     *
+     * @param inputNumber The number of inputs the buffer will hold
+     */
+    void reset(int inputNumber) {
+        if (inputNumber > this.values.length) {
+            this.values = new Object[inputNumber];
+        } else {
+            Arrays.fill(this.values, 0, this.size, null);
+        }
+        this.size = inputNumber;
+    }
+
+    /**
+     * Stores a resolved input value.
+     *
+     * @param index The index of the input, from 0 to the number of inputs passed to {@link #reset(int)} - 1
+     * @param value The resolved value
+     */
+    void put(int index, Object value) {
+        this.values[Objects.checkIndex(index, this.size)] = value;
+    }
+
+    /**
+     * Empties the buffer, so that it does not keep any resolved values alive.
+     */
+    void release() {
+        this.reset(0);
+    }
+
+    @Override
+    public Object get(int index) {
+        return this.values[Objects.checkIndex(index, this.size)];
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+}
@@ -0,0 +1,242 @@
+/**
+ * Copyright (c) ykn
+ * This file is under the MIT License
+ */
+
+package com.ykn.fmod.server.flow.logic;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import com.ykn.fmod.server.base.util.TypeAdaptor;
+
+/**
+ * Base class for nodes that execute a loop body once for every element of a list.
+ * <p>
+ * A loop node has two branches. The first branch is the loop body, a sub-graph whose last node
+ * is connected back to the loop node. The second branch is executed once all elements have been
+ * visited. Every visit of the loop node moves on to the next element, so an iteration counts
+ * against the maximum number of node executions like any other node.
+ * <p>
+ * The list is resolved only once, when the loop starts, and is iterated in place, so lists,
+ * other collections and entity lists are never copied. The iteration is kept in the
+ * {@link NodeStatus} of the node until the loop has finished. The iteration remembers the node
+ * that has started the loop. If that node is executed again before the loop node is reached,
+ * for example by an outer loop after the body has left the loop early, or if the list has changed,
+ * a new loop is started. Otherwise the loop node has been reached from its body, and the
+ * running loop goes on.
+ * <p>
+ * The loop body can pass a value back to the loop node through a feedback input, see
+ * {@link FlowNode#isFeedbackInput(int)}. Such an input refers to the output of a node in the
+ * loop body, and is only read after the body has been executed.
+ * <p>
+ * Subclasses must:
+ * <ul>
+ *   <li>Use the first input for the list, and the first two outputs for the element and its index</li>
+ *   <li>Implement {@link #onBodyFinished} and {@link #onLoopFinished}, and optionally {@link #onLoopStart} and {@link #onNextElement}</li>
+ * </ul>
+ *
+ * @see FlowNode
+ * @see Iteration
+ */
+public abstract class LoopNode extends FlowNode {
+
+    /**
+     * The state of a running loop in one execution.
+     */
+    public static final class Iteration {
+
+        /**
+         * The list being iterated, as resolved when the loop started.
+         */
+        public final Object source;
+
+        private final Iterator<?> iterator;
+
+        /**
+         * The current element, or null before the first element.
+         */
+        public Object element;
+
+        /**
+         * The index of the current element, or -1 before the first element.
+         */
+        public int index;
+
+        /**
+         * The value that subclasses accumulate over the loop, such as the result list of a map.
+         */
+        public Object accumulator;
+
+        /**
+         * The index of the node that went on to the loop node when the loop started, or -1 if there was none.
+         */
+        private final int entrySlot;
+
+        private Iteration(Object source, Iterator<?> iterator, int entrySlot) {
+            this.source = source;
+            this.iterator = iterator;
+            this.entrySlot = entrySlot;
+            this.element = null;
+            this.index = -1;
+            this.accumulator = null;
+        }
+    }
+
+    /**
+     * Creates a new loop node with two branches, the loop body and the branch after the loop.
+     *
+     * @param id The unique identifier for this node
+     * @param name The user-defined name for this node
+     * @param inputNumber The number of input ports, the first one is the list
+     * @param outputNumber The number of output ports, the first two are the element and its index
+     */
+    public LoopNode(long id, String name, int inputNumber, int outputNumber) {
+        super(id, name, inputNumber, outputNumber, 2);
+        this.type = "AbstractLoopNode";
+    }
+
+    @Override
+    public boolean isWorldSafe() {
+        return true;
+    }
+
+    /**
+     * Starts the loop, or finishes the previous element of the running loop, and moves on to the next element.
+     *
+     * @param context The execution context
+     * @param status The node status, which keeps the running loop
+     * @param resolvedInputs The resolved inputs
+     * @throws LogicException If an error occurs during node execution
+     */
+    @Override
+    protected void onExecute(ExecutionContext context, NodeStatus status, List<Object> resolvedInputs) throws LogicException {
+        Iteration iteration = (Iteration) status.loopState;
+        Object source = resolvedInputs.get(0);
+        if (iteration == null || iteration.source != source || isEnteredAgain(context, status, iteration)) {
+            iteration = new Iteration(source, iterate(source), findPreviousSlot(context));
+            this.onLoopStart(iteration, resolvedInputs);
+        } else {
+            this.onBodyFinished(iteration, resolvedInputs);
+        }
+        if (iteration.iterator.hasNext()) {
+            iteration.element = iteration.iterator.next();
+            iteration.index++;
+            status.loopState = iteration;
+            status.setOutput(0, iteration.element);
+            status.setOutput(1, iteration.index);
+            this.onNextElement(status, iteration);
+        } else {
+            status.loopState = null;
+            status.setOutput(0, null);
+            status.setOutput(1, iteration.index + 1);
+            this.onLoopFinished(status, iteration);
+        }
+    }
+
+    /**
+     * Checks whether the node that has started the running loop has been executed again since
+     * the loop node was executed last, so the loop node has been reached from outside its body.
+     *
+     * @param context The execution context
+     * @param status The status of the loop node, which still holds its previous execution
+     * @param iteration The running loop
+     * @return true if a new loop should be started
+     */
+    private static boolean isEnteredAgain(ExecutionContext context, NodeStatus status, Iteration iteration) {
+        return iteration.entrySlot >= 0 && context.getNodeStatusAt(iteration.entrySlot).executionIndex > status.executionIndex;
+    }
+
+    /**
+     * Finds the node that has gone on to the loop node, which is the node executed last.
+     *
+     * @param context The execution context
+     * @return The index of the node, or -1 if no node has been executed yet
+     */
+    private static int findPreviousSlot(ExecutionContext context) {
+        int previousIndex = context.getNodeExecutionCounter() - 1;
+        if (previousIndex < 0) {
+            return -1;
+        }
+        // Only done when a loop starts, not for every element
+        int nodeCount = context.getPlan().getNodeCount();
+        for (int i = 0; i < nodeCount; i++) {
+            if (context.getNodeStatusAt(i).executionIndex == previousIndex) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Goes to the loop body while the loop is running, and to the second branch once it has finished.
+     */
+    @Override
+    public long getNextNodeId(ExecutionContext context, NodeStatus status, List<Object> resolvedInputs) throws LogicException {
+        return status.loopState != null ? this.nextNodeIds.get(0) : this.nextNodeIds.get(1);
+    }
+
+    /**
+     * Called when a new loop starts, before the first element.
+     * The default implementation does nothing.
+     *
+     * @param iteration The new loop
+     * @param resolvedInputs The resolved inputs
+     * @throws LogicException If an input is not valid
+     */
+    protected void onLoopStart(Iteration iteration, List<Object> resolvedInputs) throws LogicException {
+        // To be overridden by subclasses that need to prepare the accumulator
+    }
+
+    /**
+     * Called when the loop moves on to the next element, after the element and its index have been set as outputs.
+     * The default implementation does nothing.
+     *
+     * @param status The node status to set further outputs on
+     * @param iteration The running loop, with the new element
+     * @throws LogicException If an error occurs
+     */
+    protected void onNextElement(NodeStatus status, Iteration iteration) throws LogicException {
+        // To be overridden by subclasses that expose the accumulator while the loop is running
+    }
+
+    /**
+     * Called when the loop body has been executed for the current element.
+     * The feedback inputs hold the values computed by the loop body for this element.
+     *
+     * @param iteration The running loop, with the element the body has been executed for
+     * @param resolvedInputs The resolved inputs
+     * @throws LogicException If an input is not valid
+     */
+    protected abstract void onBodyFinished(Iteration iteration, List<Object> resolvedInputs) throws LogicException;
+
+    /**
+     * Called when all elements have been visited, to set the outputs of the loop.
+     *
+     * @param status The node status to set the outputs on
+     * @param iteration The finished loop
+     * @throws LogicException If an error occurs
+     */
+    protected abstract void onLoopFinished(NodeStatus status, Iteration iteration) throws LogicException;
+
+    /**
+     * Iterates over a value in place. Iterables are not copied, and a value that is not a list
+     * is converted once, or treated as a list with one element.
+     *
+     * @param source The value to iterate over
+     * @return An iterator over its elements
+     */
+    private static Iterator<?> iterate(Object source) {
+        if (source == null) {
+            return Collections.emptyIterator();
+        } else if (source instanceof Iterable) {
+            return ((Iterable<?>) source).iterator();
+        } else if (source instanceof Object[]) {
+            return Arrays.asList((Object[]) source).iterator();
+        }
+        List<Object> list = TypeAdaptor.parse(source).asList();
+        return list == null ? Collections.singletonList(source).iterator() : list.iterator();
+    }
+}
@@ -6,6 +6,7 @@
 package com.ykn.fmod.server.flow.logic;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import com.ykn.fmod.server.base.util.Util;
@@ -47,6 +48,9 @@ public class NodeStatus implements Cloneable {
      * The resolved input values for this node's execution.
      * Each element corresponds to an input port on the node.
      * Values are resolved from DataReferences before execution.
+     * <p>
+     * They are only recorded here if the execution is traced at {@link com.ykn.fmod.server.base.util.FlowTraceLevel#FULL},
+     * see {@link #recordInputs(List)}.
      */
     public List<Object> inputs;
 
@@ -56,10 +60,19 @@ public class NodeStatus implements Cloneable {
      */
     public boolean hasExecuted;
 
+    /**
+     * The number of nodes that had been executed in the current execution context when this node
+     * was executed last, or -1 if it has not been executed. A node executed later has a larger index.
+     */
+    public int executionIndex;
+
     /**
      * The output values generated by this node's execution.
      * Each element corresponds to an output port on the node.
      * Values are set by the node during {@link FlowNode#onExecute}.
+     * <p>
+     * For the statuses owned by an {@link ExecutionContext}, this is a fixed-size view of the
+     * flat output array of the context.
      */
     public List<Object> outputs;
 
@@ -69,6 +82,13 @@ public class NodeStatus implements Cloneable {
      */
     public long nextBranchId;
 
+    /**
+     * The state that a node keeps between its executions in the current execution context,
+     * such as the running loop of a {@link LoopNode}, or null if there is none.
+     * It is not copied into snapshots.
+     */
+    public Object loopState;
+
     /**
      * Creates a new NodeStatus for the specified node.
      * <p>
@@ -78,24 +98,52 @@ public class NodeStatus implements Cloneable {
      *   <li>Output list with null values (one per output port)</li>
      *   <li>hasExecuted to false</li>
      *   <li>nextBranchId to -1</li>
+     *   <li>executionIndex to -1</li>
      * </ul>
      * 
      * @param node The FlowNode this status tracks
      */
     public NodeStatus(FlowNode node) {
         this.node = node;
-        int inputNumber = node.metadata.inputNumber;
+        int inputNumber = node.getMetadata().inputNumber;
         this.inputs = new ArrayList<>();
         for (int i = 0; i < inputNumber; i++) {
             this.inputs.add(null);
         }
         this.hasExecuted = false;
-        int outputNumber = node.metadata.outputNumber;
+        int outputNumber = node.getMetadata().outputNumber;
         this.outputs = new ArrayList<>();
         for (int i = 0; i < outputNumber; i++) {
             this.outputs.add(null);
         }
         this.nextBranchId = -1;
+        this.executionIndex = -1;
+        this.loopState = null;
+    }
+
+    /**
+     * Creates a new NodeStatus for the specified node, whose outputs are stored in a shared array.
+     * <p>
+     * The output list is a fixed-size view of the array, starting at the given offset,
+     * so writing an output writes it into the array as well.
+     * 
+     * @param node The FlowNode this status tracks
+     * @param outputStore The array to store the outputs in
+     * @param outputOffset The offset of the first output of this node in the array
+     */
+    public NodeStatus(FlowNode node, Object[] outputStore, int outputOffset) {
+        this.node = node;
+        int inputNumber = node.getMetadata().inputNumber;
+        this.inputs = new ArrayList<>();
+        for (int i = 0; i < inputNumber; i++) {
+            this.inputs.add(null);
+        }
+        this.hasExecuted = false;
+        int outputNumber = node.getMetadata().outputNumber;
+        this.outputs = Arrays.asList(outputStore).subList(outputOffset, outputOffset + outputNumber);
+        this.nextBranchId = -1;
+        this.executionIndex = -1;
+        this.loopState = null;
     }
 
     /**
@@ -114,18 +162,19 @@ public class NodeStatus implements Cloneable {
      */
     public NodeStatus copy() {
         NodeStatus cloned = new NodeStatus(node);
-        int inputNumber = node.metadata.inputNumber;
+        int inputNumber = node.getMetadata().inputNumber;
         cloned.inputs = new ArrayList<>();
         for (int i = 0; i < inputNumber; i++) {
             cloned.inputs.add(this.inputs.get(i));
         }
         cloned.hasExecuted = this.hasExecuted;
-        int outputNumber = node.metadata.outputNumber;
+        int outputNumber = node.getMetadata().outputNumber;
         cloned.outputs = new ArrayList<>();
         for (int i = 0; i < outputNumber; i++) {
             cloned.outputs.add(this.outputs.get(i));
         }
         cloned.nextBranchId = this.nextBranchId;
+        cloned.executionIndex = this.executionIndex;
         return cloned;
     }
 
@@ -134,6 +183,20 @@ public class NodeStatus implements Cloneable {
         return this.copy();
     }
 
+    /**
+     * Records the resolved input values of an execution of this node.
+     * <p>
+     * The values are copied into the input list of this status, so the given list may be reused afterwards.
+     * 
+     * @param resolvedInputs The resolved input values
+     */
+    public void recordInputs(List<Object> resolvedInputs) {
+        this.inputs.clear();
+        for (int i = 0; i < resolvedInputs.size(); i++) {
+            this.inputs.add(resolvedInputs.get(i));
+        }
+    }
+
     /**
      * Marks this node as having been executed.
      * <p>
@@ -152,6 +215,8 @@ public class NodeStatus implements Cloneable {
      *   <li>All output values (set to null)</li>
      *   <li>The execution flag (set to false)</li>
      *   <li>The next branch ID (set to -1)</li>
+     *   <li>The execution index (set to -1)</li>
+     *   <li>The loop state (set to null)</li>
      * </ul>
      * <p>
      * Called by {@link ExecutionContext#resetExecutionStatus()}.
@@ -165,6 +230,8 @@ public class NodeStatus implements Cloneable {
             this.outputs.set(i, null);
         }
         this.nextBranchId = -1;
+        this.executionIndex = -1;
+        this.loopState = null;
     }
 
     /**
@@ -203,25 +270,25 @@ public class NodeStatus implements Cloneable {
      */
     public Text render(long index, LogicFlow flow) {
         // Render title
-        MutableText text = Util.parseTranslatableText("fmod.flow.execute.node", String.valueOf(index), this.node.name, this.node.metadata.displayName);
+        MutableText text = Util.parseTranslatableText("fmod.flow.execute.node", String.valueOf(index), this.node.name, this.node.getMetadata().displayName);
         text = text.append("\n");
         // Render inputs
-        for (int i = 0; i < this.node.metadata.inputNumber; i++) {
+        for (int i = 0; i < this.node.getMetadata().inputNumber; i++) {
             Object inputValue = this.inputs.get(i);
             if (inputValue == null) {
-                text = text.append(Util.parseTranslatableText("fmod.flow.execute.input", this.node.metadata.inputNames.get(i), Util.parseTranslatableText("fmod.misc.null")));
+                text = text.append(Util.parseTranslatableText("fmod.flow.execute.input", this.node.getMetadata().inputNames.get(i), Util.parseTranslatableText("fmod.misc.null")));
             } else {
-                text = text.append(Util.parseTranslatableText("fmod.flow.execute.input", this.node.metadata.inputNames.get(i), String.valueOf(inputValue)));
+                text = text.append(Util.parseTranslatableText("fmod.flow.execute.input", this.node.getMetadata().inputNames.get(i), String.valueOf(inputValue)));
             }
             text = text.append("\n");
         }
         // Render outputs
-        for (int i = 0; i < this.node.metadata.outputNumber; i++) {
+        for (int i = 0; i < this.node.getMetadata().outputNumber; i++) {
             Object outputValue = this.outputs.get(i);
             if (outputValue == null) {
-                text = text.append(Util.parseTranslatableText("fmod.flow.execute.output", this.node.metadata.outputNames.get(i), Util.parseTranslatableText("fmod.misc.null")));
+                text = text.append(Util.parseTranslatableText("fmod.flow.execute.output", this.node.getMetadata().outputNames.get(i), Util.parseTranslatableText("fmod.misc.null")));
             } else {
-                text = text.append(Util.parseTranslatableText("fmod.flow.execute.output", this.node.metadata.outputNames.get(i), String.valueOf(outputValue)));
+                text = text.append(Util.parseTranslatableText("fmod.flow.execute.output", this.node.getMetadata().outputNames.get(i), String.valueOf(outputValue)));
             }
             text = text.append("\n");
         }
@@ -0,0 +1,420 @@
+/**
+ * Copyright (c) ykn
+ * This file is under the MIT License
+ */
+
+package com.ykn.fmod.server.flow.logic;
+
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The variables of an {@link ExecutionContext}.
+ * <p>
+ * The variable names that a flow uses as constants are interned into indices when the flow is
+ * compiled, see {@link FlowPlan#getVariableIndex(String)}. The values of these variables are kept
+ * in arrays, so accessing them by their index needs no hashing at all, and numbers and booleans
+ * are stored without boxing, see {@link #setNumberAt(int, double)}. Variables with names that
+ * are only known at runtime are kept in an ordinary map.
+ * <p>
+ * Stores are passed to child flows and scheduled flows with copy-on-write semantics, see
+ * {@link #fork()}, so passing the variables on never copies them, and the flows never see
+ * each other's changes. The values are only copied if they are written while another store
+ * still shares them, so a store that is no longer needed should be cleared, see {@link #clear()}.
+ * <p>
+ * The store is a {@link Map} for compatibility, but removing single variables is not supported,
+ * and the {@link #entrySet()} is an unmodifiable snapshot.
+ * <p>
+ * Thread Safety: This class is not thread-safe, like the execution context that owns it.
+ * Different stores that share their values may be used by different threads.
+ */
+public final class VariableStore extends AbstractMap<String, Object> {
+
+    /**
+     * Marks the indexed variables that have not been set, as null is a valid value.
+     */
+    private static final Object UNSET = new Object();
+
+    private static final byte OBJECT = 0;
+    private static final byte NUMBER = 1;
+    private static final byte BOOLEAN = 2;
+
+    /**
+     * The values of the variables, which may be shared by several stores.
+     */
+    private static final class Values {
+
+        /**
+         * The values of the indexed variables of kind {@link #OBJECT}, or {@link #UNSET}.
+         * For the kind {@link #NUMBER}, the boxed number if there is one, so that reading it does not box it again.
+         */
+        final Object[] indexed;
+
+        /**
+         * What each indexed variable holds: {@link #OBJECT}, {@link #NUMBER} or {@link #BOOLEAN}.
+         */
+        final byte[] kinds;
+
+        /**
+         * The unboxed values of the indexed variables of kind {@link #NUMBER}, and 1 or 0 for the kind {@link #BOOLEAN}.
+         */
+        final double[] numbers;
+
+        /**
+         * The variables whose names are not indexed by the plan, or null if there are none.
+         */
+        @Nullable
+        Map<String, Object> extra;
+
+        /**
+         * The number of stores that share these values. The values must not be written while it is more than 1.
+         */
+        final AtomicInteger owners;
+
+        Values(Object[] indexed, byte[] kinds, double[] numbers, @Nullable Map<String, Object> extra) {
+            this.indexed = indexed;
+            this.kinds = kinds;
+            this.numbers = numbers;
+            this.extra = extra;
+            this.owners = new AtomicInteger(1);
+        }
+
+        static Values empty(int count) {
+            Object[] indexed = new Object[count];
+            Arrays.fill(indexed, UNSET);
+            return new Values(indexed, new byte[count], new double[count], null);
+        }
+
+        Values copy() {
+            return new Values(this.indexed.clone(), this.kinds.clone(), this.numbers.clone(), this.extra == null ? null : new HashMap<>(this.extra));
+        }
+
+        boolean isSet(int index) {
+            return this.kinds[index] != OBJECT || this.indexed[index] != UNSET;
+        }
+
+        void clear() {
+            Arrays.fill(this.indexed, UNSET);
+            Arrays.fill(this.kinds, OBJECT);
+            this.extra = null;
+        }
+    }
+
+    /**
+     * The plan whose variable indices this store uses.
+     */
+    private final FlowPlan plan;
+
+    /**
+     * The values of this store, which are copied before they are written if they are shared.
+     */
+    private Values values;
+
+    /**
+     * The variables passed on from another flow, which are visible until they are overwritten, or null.
+     */
+    @Nullable
+    private VariableStore inherited;
+
+    VariableStore(FlowPlan plan) {
+        this.plan = plan;
+        this.values = Values.empty(plan.getVariableCount());
+        this.inherited = null;
+    }
+
+    private VariableStore(VariableStore source) {
+        this.plan = source.plan;
+        this.values = source.values;
+        this.values.owners.incrementAndGet();
+        this.inherited = source.inherited == null ? null : source.inherited.fork();
+    }
+
+    /**
+     * Creates a copy of this store in constant time.
+     * <p>
+     * The copy shares the values with this store until either of them is written,
+     * which copies the shared values once. So neither store sees later changes to the other.
+     * Once the copy is cleared, this store can be written without copying the values again.
+     *
+     * @return A new store with the same variables
+     */
+    @NotNull
+    public VariableStore fork() {
+        return new VariableStore(this);
+    }
+
+    /**
+     * Makes the variables of another store visible in this store, until they are overwritten here.
+     * The other store is forked, so later changes to it are not visible here.
+     * This replaces the variables inherited before, but keeps the variables set in this store.
+     *
+     * @param source The store to inherit the variables from
+     */
+    void inherit(@NotNull VariableStore source) {
+        this.releaseInherited();
+        this.inherited = source.isEmpty() ? null : source.fork();
+    }
+
+    /**
+     * Stops inheriting the variables of another store, so that the other store can be written
+     * again without copying its variables. The variables set in this store are kept.
+     */
+    void releaseInherited() {
+        if (this.inherited != null) {
+            this.inherited.clear();
+            this.inherited = null;
+        }
+    }
+
+    private void ensureOwned() {
+        Values current = this.values;
+        if (current.owners.get() > 1) {
+            // Copied before the other stores are told, so none of them writes the values while they are copied
+            this.values = current.copy();
+            current.owners.decrementAndGet();
+        }
+    }
+
+    /**
+     * Gets the value of an indexed variable.
+     *
+     * @param index The index of the variable, see {@link FlowPlan#getVariableIndex(String)}
+     * @return The value of the variable, or null if it does not exist
+     */
+    @Nullable
+    public Object getAt(int index) {
+        Values current = this.values;
+        switch (current.kinds[index]) {
+            case NUMBER:
+                Object boxed = current.indexed[index];
+                if (boxed == UNSET) {
+                    boxed = current.numbers[index];
+                    if (current.owners.get() == 1) {
+                        current.indexed[index] = boxed;
+                    }
+                }
+                return boxed;
+            case BOOLEAN:
+                return current.numbers[index] != 0.0;
+            default:
+                Object value = current.indexed[index];
+                if (value != UNSET) {
+                    return value;
+                }
+                return this.inherited == null ? null : this.inherited.get(this.plan.getVariableName(index));
+        }
+    }
+
+    /**
+     * Sets the value of an indexed variable.
+     * Doubles and booleans are stored unboxed, but a boxed double is kept as well,
+     * so reading the variable as an object returns it again.
+     *
+     * @param index The index of the variable, see {@link FlowPlan#getVariableIndex(String)}
+     * @param value The new value, which may be null
+     */
+    public void setAt(int index, @Nullable Object value) {
+        if (value instanceof Double) {
+            this.setNumberAt(index, (Double) value);
+            this.values.indexed[index] = value;
+        } else if (value instanceof Boolean) {
+            this.setBooleanAt(index, (Boolean) value);
+        } else {
+            this.ensureOwned();
+            this.values.kinds[index] = OBJECT;
+            this.values.indexed[index] = value;
+        }
+    }
+
+    /**
+     * Checks whether an indexed variable holds a number, which can be read with {@link #getNumberAt(int)}.
+     * Inherited variables are not checked, so this is false for a number that is only inherited.
+     *
+     * @param index The index of the variable
+     * @return true if the variable holds a number
+     */
+    public boolean isNumberAt(int index) {
+        return this.values.kinds[index] == NUMBER;
+    }
+
+    /**
+     * Gets the value of an indexed variable that holds a number, without boxing it.
+     *
+     * @param index The index of the variable
+     * @return The number, or 0 if the variable does not hold a number, see {@link #isNumberAt(int)}
+     */
+    public double getNumberAt(int index) {
+        Values current = this.values;
+        return current.kinds[index] == NUMBER ? current.numbers[index] : 0.0;
+    }
+
+    /**
+     * Sets an indexed variable to a number without boxing it.
+     *
+     * @param index The index of the variable
+     * @param value The new value
+     */
+    public void setNumberAt(int index, double value) {
+        this.ensureOwned();
+        Values current = this.values;
+        current.kinds[index] = NUMBER;
+        current.numbers[index] = value;
+        current.indexed[index] = UNSET;
+    }
+
+    /**
+     * Checks whether an indexed variable holds a boolean, which can be read with {@link #getBooleanAt(int)}.
+     * Inherited variables are not checked, so this is false for a boolean that is only inherited.
+     *
+     * @param index The index of the variable
+     * @return true if the variable holds a boolean
+     */
+    public boolean isBooleanAt(int index) {
+        return this.values.kinds[index] == BOOLEAN;
+    }
+
+    /**
+     * Gets the value of an indexed variable that holds a boolean.
+     *
+     * @param index The index of the variable
+     * @return The boolean, or false if the variable does not hold a boolean, see {@link #isBooleanAt(int)}
+     */
+    public boolean getBooleanAt(int index) {
+        Values current = this.values;
+        return current.kinds[index] == BOOLEAN && current.numbers[index] != 0.0;
+    }
+
+    /**
+     * Sets an indexed variable to a boolean.
+     *
+     * @param index The index of the variable
+     * @param value The new value
+     */
+    public void setBooleanAt(int index, boolean value) {
+        this.ensureOwned();
+        Values current = this.values;
+        current.kinds[index] = BOOLEAN;
+        current.numbers[index] = value ? 1.0 : 0.0;
+        current.indexed[index] = UNSET;
+    }
+
+    @Override
+    @Nullable
+    public Object get(Object key) {
+        int index = key instanceof String ? this.plan.getVariableIndex((String) key) : -1;
+        if (index >= 0) {
+            return this.getAt(index);
+        }
+        Map<String, Object> extra = this.values.extra;
+        if (extra != null && extra.containsKey(key)) {
+            return extra.get(key);
+        }
+        return this.inherited == null ? null : this.inherited.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        int index = key instanceof String ? this.plan.getVariableIndex((String) key) : -1;
+        if (index >= 0 ? this.values.isSet(index) : this.values.extra != null && this.values.extra.containsKey(key)) {
+            return true;
+        }
+        return this.inherited != null && this.inherited.containsKey(key);
+    }
+
+    /**
+     * Sets a variable by its name.
+     *
+     * @param key The name of the variable
+     * @param value The new value, which may be null
+     * @return Always null, the previous value is not looked up
+     */
+    @Override
+    @Nullable
+    public Object put(String key, @Nullable Object value) {
+        int index = this.plan.getVariableIndex(key);
+        if (index >= 0) {
+            this.setAt(index, value);
+        } else {
+            this.ensureOwned();
+            if (this.values.extra == null) {
+                this.values.extra = new HashMap<>();
+            }
+            this.values.extra.put(key, value);
+        }
+        return null;
+    }
+
+    /**
+     * Removes all variables, including the inherited ones.
+     * If the values are shared with other stores, they are left to them, so they can be written without copying them.
+     */
+    @Override
+    public void clear() {
+        Values current = this.values;
+        if (current.owners.get() > 1) {
+            this.values = Values.empty(current.indexed.length);
+            current.owners.decrementAndGet();
+        } else {
+            current.clear();
+        }
+        this.releaseInherited();
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super String, ? super Object> action) {
+        for (Map.Entry<String, Object> entry : this.entrySet()) {
+            action.accept(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public int size() {
+        return this.entrySet().size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        if (this.values.extra != null && !this.values.extra.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < this.values.indexed.length; i++) {
+            if (this.values.isSet(i)) {
+                return false;
+            }
+        }
+        return this.inherited == null || this.inherited.isEmpty();
+    }
+
+    /**
+     * Gets a snapshot of all variables, including the inherited ones that have not been overwritten.
+     * This copies the variables, so it should not be used on hot paths.
+     *
+     * @return An unmodifiable set of the variables
+     */
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        if (this.inherited != null) {
+            snapshot.putAll(this.inherited);
+        }
+        for (int i = 0; i < this.values.indexed.length; i++) {
+            if (this.values.isSet(i)) {
+                snapshot.put(this.plan.getVariableName(i), this.getAt(i));
+            }
+        }
+        if (this.values.extra != null) {
+            snapshot.putAll(this.values.extra);
+        }
+        return Collections.unmodifiableMap(snapshot).entrySet();
+    }
+}
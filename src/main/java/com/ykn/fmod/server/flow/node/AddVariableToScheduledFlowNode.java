@@ -91,11 +91,11 @@ public class AddVariableToScheduledFlowNode extends FlowNode {
 
     private ScheduledFlow parseScheduledFlow(Object flowObj) throws LogicException {
         if (flowObj == null) {
-            throw new LogicException(null, Util.parseTranslatableText("fmod.node.error.inputnull", this.name, this.metadata.inputNames.get(0)), null);
+            throw new LogicException(null, Util.parseTranslatableText("fmod.node.error.inputnull", this.name, this.getMetadata().inputNames.get(0)), null);
         } else if (flowObj instanceof ScheduledFlow) {
             return (ScheduledFlow) flowObj;
         } else {
-            throw new LogicException(null, Util.parseTranslatableText("fmod.node.error.classcast", this.name, this.metadata.inputNames.get(0), this.metadata.inputDataTypes.get(0)), null);
+            throw new LogicException(null, Util.parseTranslatableText("fmod.node.error.classcast", this.name, this.getMetadata().inputNames.get(0), this.getMetadata().inputDataTypes.get(0)), null);
         }
     }
 }
@@ -6,7 +6,9 @@
 package com.ykn.fmod.server.flow.node;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import com.ykn.fmod.server.base.util.TypeAdaptor;
 import com.ykn.fmod.server.base.util.Util;
@@ -30,9 +32,80 @@ import net.minecraft.util.math.Vec3d;
  * Outputs:
  * 1. Number - The result of the operation.
  * Branches: 1 (Next node)
+ * <p>
+ * The operation is resolved into an {@link Operator} once. If it is a constant, this happens
+ * when the flow is compiled, so executions do not parse it again.
  */
 public class BinaryArithmeticNode extends FlowNode {
 
+    /**
+     * The operations of this node, each with the case-insensitive strings that select it.
+     */
+    public enum Operator {
+        ADD("+"),
+        SUBTRACT("-"),
+        MULTIPLY("*", "x"),
+        DIVIDE("/"),
+        MODULO("%"),
+        POWER("^"),
+        EQUAL("=", "=="),
+        NOT_EQUAL("!="),
+        GREATER(">"),
+        LESS("<"),
+        GREATER_EQUAL(">="),
+        LESS_EQUAL("<="),
+        MAX("max"),
+        MIN("min"),
+        LOG("log"),
+        ATAN2("atan2"),
+        HYPOT("hypot"),
+        DOT("@"),
+        CROSS("#"),
+        AND("and", "&&"),
+        OR("or", "||"),
+        APPEND("append"),
+        CONTAINS("contains"),
+        STARTS_WITH("startswith"),
+        ENDS_WITH("endswith"),
+        SPLIT("split"),
+        INDEX_OF("indexof"),
+        LAST_INDEX_OF("lastindexof");
+
+        private static final Map<String, Operator> BY_SYMBOL = new HashMap<>();
+
+        static {
+            for (Operator op : values()) {
+                for (String symbol : op.symbols) {
+                    BY_SYMBOL.put(symbol, op);
+                }
+            }
+        }
+
+        private final String[] symbols;
+
+        Operator(String... symbols) {
+            this.symbols = symbols;
+        }
+
+        /**
+         * Resolves an operation input into an operator.
+         *
+         * @param value The operation, either a string or an already resolved operator
+         * @return The operator, or null if the operation is not supported
+         */
+        public static Operator of(Object value) {
+            if (value instanceof Operator) {
+                return (Operator) value;
+            }
+            return BY_SYMBOL.get(TypeAdaptor.parse(value).asString().strip().toLowerCase());
+        }
+
+        @Override
+        public String toString() {
+            return this.symbols[0];
+        }
+    }
+
     public BinaryArithmeticNode(long id, String name) {
         super(id, name, 3, 1, 1);
         this.type = "BinaryArithmeticNode";
@@ -68,15 +141,30 @@ public class BinaryArithmeticNode extends FlowNode {
             inputNames, inputDescriptions, inputDataTypes, outputNames, outputDescriptions, outputDataTypes, branchNames, branchDescriptions);
     }
 
+    @Override
+    public boolean isWorldSafe() {
+        return true;
+    }
+
+    @Override
+    protected Object prepareConstantInput(int index, Object value) throws LogicException {
+        if (index == 2) {
+            Operator op = Operator.of(value);
+            // Unsupported operations are kept, so that executions still report them
+            return op == null ? value : op;
+        }
+        return value;
+    }
+
     @Override
     protected void onExecute(ExecutionContext context, NodeStatus status, List<Object> resolvedInputs) throws LogicException {
         Object num1Obj = resolvedInputs.get(0);
         Object num2Obj = resolvedInputs.get(1);
         Object opObj = resolvedInputs.get(2);
-        String operation = TypeAdaptor.parse(opObj).asString().strip().toLowerCase();
+        Operator op = Operator.of(opObj);
 
         // Special handling for "==" operator
-        if ("=".equals(operation) || "==".equals(operation)) {
+        if (op == Operator.EQUAL) {
             if (num1Obj == null && num2Obj == null) {
                 status.setOutput(0, true);
             } else if (num1Obj == null || num2Obj == null) {
@@ -87,7 +175,7 @@ public class BinaryArithmeticNode extends FlowNode {
             return;
         }
 
-        if ("!=".equals(operation)) {
+        if (op == Operator.NOT_EQUAL) {
             if (num1Obj == null && num2Obj == null) {
                 status.setOutput(0, false);
             } else if (num1Obj == null || num2Obj == null) {
@@ -110,6 +198,16 @@ public class BinaryArithmeticNode extends FlowNode {
             return;
         }
 
+        if (op == null) {
+            throw this.unsupported(opObj);
+        }
+
+        // Fast path for two doubles, which are neither vectors nor need to be converted
+        if (num1Obj instanceof Double && num2Obj instanceof Double) {
+            status.setOutput(0, this.applyDoubles(op, opObj, (Double) num1Obj, (Double) num2Obj));
+            return;
+        }
+
         // Hanlding Unique cases for some specific data types
         Double tryDoubleNum1 = TypeAdaptor.parse(num1Obj).asDouble();
         Double tryDoubleNum2 = TypeAdaptor.parse(num2Obj).asDouble();
@@ -119,31 +217,30 @@ public class BinaryArithmeticNode extends FlowNode {
         Vec3d tryVec3dNum2 = TypeAdaptor.parse(num2Obj).asVec3d();
         if (tryVec3dNum1 != null && tryVec3dNum2 != null) {
             Vec3d result;
-            switch (operation) {
-                case "+":
+            switch (op) {
+                case ADD:
                     result = tryVec3dNum1.add(tryVec3dNum2);
                     break;
-                case "-":
+                case SUBTRACT:
                     result = tryVec3dNum1.subtract(tryVec3dNum2);
                     break;
-                case "*":
-                case "x":
+                case MULTIPLY:
                     result = new Vec3d(tryVec3dNum1.x * tryVec3dNum2.x, tryVec3dNum1.y * tryVec3dNum2.y, tryVec3dNum1.z * tryVec3dNum2.z);
                     break;
-                case "/":
+                case DIVIDE:
                     // NaN is valid here to represent division by zero
                     result = new Vec3d(tryVec3dNum1.x / tryVec3dNum2.x, tryVec3dNum1.y / tryVec3dNum2.y, tryVec3dNum1.z / tryVec3dNum2.z);
                     break;
-                case "@":
+                case DOT:
                     // dot product
                     status.setOutput(0, tryVec3dNum1.dotProduct(tryVec3dNum2));
                     return;
-                case "#":
+                case CROSS:
                     // cross product
                     result = tryVec3dNum1.crossProduct(tryVec3dNum2);
                     break;
                 default:
-                    throw new LogicException(null, Util.parseTranslatableText("fmod.node.bialu.error.unsupported", this.name, operation), null);
+                    throw this.unsupported(opObj);
             }
             status.setOutput(0, result);
             return;
@@ -151,46 +248,44 @@ public class BinaryArithmeticNode extends FlowNode {
 
         if (tryVec3dNum1 != null && tryDoubleNum2 != null) {
             Vec3d result;
-            switch (operation) {
-                case "+":
+            switch (op) {
+                case ADD:
                     result = new Vec3d(tryVec3dNum1.x + tryDoubleNum2, tryVec3dNum1.y + tryDoubleNum2, tryVec3dNum1.z + tryDoubleNum2);
                     break;
-                case "-":
+                case SUBTRACT:
                     result = new Vec3d(tryVec3dNum1.x - tryDoubleNum2, tryVec3dNum1.y - tryDoubleNum2, tryVec3dNum1.z - tryDoubleNum2);
                     break;
-                case "*":
-                case "x":
+                case MULTIPLY:
                     result = new Vec3d(tryVec3dNum1.x * tryDoubleNum2, tryVec3dNum1.y * tryDoubleNum2, tryVec3dNum1.z * tryDoubleNum2);
                     break;
-                case "/":
+                case DIVIDE:
                     // NaN is valid here to represent division by zero
                     result = new Vec3d(tryVec3dNum1.x / tryDoubleNum2, tryVec3dNum1.y / tryDoubleNum2, tryVec3dNum1.z / tryDoubleNum2);
                     break;
                 default:
-                    throw new LogicException(null, Util.parseTranslatableText("fmod.node.bialu.error.unsupported", this.name, operation), null);
+                    throw this.unsupported(opObj);
             }
             status.setOutput(0, result);
             return;
         }
         if (tryDoubleNum1 != null && tryVec3dNum2 != null) {
             Vec3d result;
-            switch (operation) {
-                case "+":
+            switch (op) {
+                case ADD:
                     result = new Vec3d(tryDoubleNum1 + tryVec3dNum2.x, tryDoubleNum1 + tryVec3dNum2.y, tryDoubleNum1 + tryVec3dNum2.z);
                     break;
-                case "-":
+                case SUBTRACT:
                     result = new Vec3d(tryDoubleNum1 - tryVec3dNum2.x, tryDoubleNum1 - tryVec3dNum2.y, tryDoubleNum1 - tryVec3dNum2.z);
                     break;
-                case "*":
-                case "x":
+                case MULTIPLY:
                     result = new Vec3d(tryDoubleNum1 * tryVec3dNum2.x, tryDoubleNum1 * tryVec3dNum2.y, tryDoubleNum1 * tryVec3dNum2.z);
                     break;
-                case "/":
+                case DIVIDE:
                     // NaN is valid here to represent division by zero
                     result = new Vec3d(tryDoubleNum1 / tryVec3dNum2.x, tryDoubleNum1 / tryVec3dNum2.y, tryDoubleNum1 / tryVec3dNum2.z);
                     break;
                 default:
-                    throw new LogicException(null, Util.parseTranslatableText("fmod.node.bialu.error.unsupported", this.name, operation), null);
+                    throw this.unsupported(opObj);
             }
             status.setOutput(0, result);
             return;
@@ -202,26 +297,25 @@ public class BinaryArithmeticNode extends FlowNode {
 
         if (tryVec2fNum1 != null && tryVec2fNum2 != null) {
             Vec2f result;
-            switch (operation) {
-                case "+":
+            switch (op) {
+                case ADD:
                     result = tryVec2fNum1.add(tryVec2fNum2);
                     break;
-                case "-":
+                case SUBTRACT:
                     result = new Vec2f(tryVec2fNum1.x - tryVec2fNum2.x, tryVec2fNum1.y - tryVec2fNum2.y);
                     break;
-                case "*":
-                case "x":
+                case MULTIPLY:
                     result = new Vec2f(tryVec2fNum1.x * tryVec2fNum2.x, tryVec2fNum1.y * tryVec2fNum2.y);
                     break;
-                case "/":
+                case DIVIDE:
                     result = new Vec2f(tryVec2fNum1.x / tryVec2fNum2.x, tryVec2fNum1.y / tryVec2fNum2.y);
                     break;
-                case "@":
+                case DOT:
                     // dot product
                     status.setOutput(0, tryVec2fNum1.dot(tryVec2fNum2));
                     return;
                 default:
-                    throw new LogicException(null, Util.parseTranslatableText("fmod.node.bialu.error.unsupported", this.name, operation), null);
+                    throw this.unsupported(opObj);
             }
             status.setOutput(0, result);
             return;
@@ -230,22 +324,21 @@ public class BinaryArithmeticNode extends FlowNode {
         if (tryVec2fNum1 != null && tryDoubleNum2 != null) {
             float scalarF = tryDoubleNum2.floatValue();
             Vec2f result;
-            switch (operation) {
-                case "+":
+            switch (op) {
+                case ADD:
                     result = new Vec2f(tryVec2fNum1.x + scalarF, tryVec2fNum1.y + scalarF);
                     break;
-                case "-":
+                case SUBTRACT:
                     result = new Vec2f(tryVec2fNum1.x - scalarF, tryVec2fNum1.y - scalarF);
                     break;
-                case "*":
-                case "x":
+                case MULTIPLY:
                     result = new Vec2f(tryVec2fNum1.x * scalarF, tryVec2fNum1.y * scalarF);
                     break;
-                case "/":
+                case DIVIDE:
                     result = new Vec2f(tryVec2fNum1.x / scalarF, tryVec2fNum1.y / scalarF);
                     break;
                 default:
-                    throw new LogicException(null, Util.parseTranslatableText("fmod.node.bialu.error.unsupported", this.name, operation), null);
+                    throw this.unsupported(opObj);
             }
             status.setOutput(0, result);
             return;
@@ -253,22 +346,21 @@ public class BinaryArithmeticNode extends FlowNode {
         if (tryDoubleNum1 != null && tryVec2fNum2 != null) {
             float scalarF = tryDoubleNum1.floatValue();
             Vec2f result;
-            switch (operation) {
-                case "+":
+            switch (op) {
+                case ADD:
                     result = new Vec2f(scalarF + tryVec2fNum2.x, scalarF + tryVec2fNum2.y);
                     break;
-                case "-":
+                case SUBTRACT:
                     result = new Vec2f(scalarF - tryVec2fNum2.x, scalarF - tryVec2fNum2.y);
                     break;
-                case "*":
-                case "x":
+                case MULTIPLY:
                     result = new Vec2f(scalarF * tryVec2fNum2.x, scalarF * tryVec2fNum2.y);
                     break;
-                case "/":
+                case DIVIDE:
                     result = new Vec2f(scalarF / tryVec2fNum2.x, scalarF / tryVec2fNum2.y);
                     break;
                 default:
-                    throw new LogicException(null, Util.parseTranslatableText("fmod.node.bialu.error.unsupported", this.name, operation), null);
+                    throw this.unsupported(opObj);
             }
             status.setOutput(0, result);
             return;
@@ -276,64 +368,8 @@ public class BinaryArithmeticNode extends FlowNode {
 
         // Double operations
         if (tryDoubleNum1 != null && tryDoubleNum2 != null) {
-            try {
-                switch (operation) {
-                    case "+":
-                        status.setOutput(0, tryDoubleNum1 + tryDoubleNum2);
-                        return;
-                    case "-":
-                        status.setOutput(0, tryDoubleNum1 - tryDoubleNum2);
-                        return;
-                    case "*":
-                    case "x":
-                        status.setOutput(0, tryDoubleNum1 * tryDoubleNum2);
-                        return;
-                    case "/":
-                        // NaN is valid here to represent division by zero
-                        status.setOutput(0, tryDoubleNum1 / tryDoubleNum2);
-                        return;
-                    case "%":
-                        if (tryDoubleNum2 == 0) {
-                            throw new LogicException(null, Util.parseTranslatableText("fmod.node.bialu.error.divzero", this.name), null);
-                        }
-                        status.setOutput(0, tryDoubleNum1 % tryDoubleNum2);
-                        return;
-                    case ">":
-                        status.setOutput(0, tryDoubleNum1 > tryDoubleNum2);
-                        return;
-                    case "<":
-                        status.setOutput(0, tryDoubleNum1 < tryDoubleNum2);
-                        return;
-                    case ">=":
-                        status.setOutput(0, tryDoubleNum1 >= tryDoubleNum2);
-                        return;
-                    case "<=":
-                        status.setOutput(0, tryDoubleNum1 <= tryDoubleNum2);
-                        return;
-                    case "^":
-                        status.setOutput(0, Math.pow(tryDoubleNum1, tryDoubleNum2));
-                        return;
-                    case "max":
-                        status.setOutput(0, Math.max(tryDoubleNum1, tryDoubleNum2));
-                        return;
-                    case "min":
-                        status.setOutput(0, Math.min(tryDoubleNum1, tryDoubleNum2));
-                        return;
-                    case "log":
-                        status.setOutput(0, Math.log(tryDoubleNum2) / Math.log(tryDoubleNum1));
-                        return;
-                    case "atan2":
-                        status.setOutput(0, Math.atan2(tryDoubleNum1, tryDoubleNum2));
-                        return;
-                    case "hypot":
-                        status.setOutput(0, Math.hypot(tryDoubleNum1, tryDoubleNum2));
-                        return;
-                    default:
-                        throw new LogicException(null, Util.parseTranslatableText("fmod.node.bialu.error.unsupported", this.name, operation), null);
-                }
-            } catch (ArithmeticException ex) {
-                throw new LogicException(ex, Util.parseTranslatableText("fmod.node.bialu.error.arithmetic", this.name), null);
-            }
+            status.setOutput(0, this.applyDoubles(op, opObj, tryDoubleNum1, tryDoubleNum2));
+            return;
         }
 
         // Logic expressions for boolean inputs
@@ -341,17 +377,15 @@ public class BinaryArithmeticNode extends FlowNode {
         Boolean tryBoolNum2 = TypeAdaptor.parse(num2Obj).asBoolean();
 
         if (tryBoolNum1 != null && tryBoolNum2 != null) {
-            switch (operation) {
-                case "and":
-                case "&&":
+            switch (op) {
+                case AND:
                     status.setOutput(0, tryBoolNum1 && tryBoolNum2);
                     return;
-                case "or":
-                case "||":
+                case OR:
                     status.setOutput(0, tryBoolNum1 || tryBoolNum2);
                     return;
                 default:
-                    throw new LogicException(null, Util.parseTranslatableText("fmod.node.bialu.error.unsupported", this.name, operation), null);
+                    throw this.unsupported(opObj);
             }
         }
 
@@ -360,43 +394,43 @@ public class BinaryArithmeticNode extends FlowNode {
             Text text1 = (Text) num1Obj;
             Text text2 = (Text) num2Obj;
             MutableText result = Text.empty();
-            if ("+".equals(operation)) {
+            if (op == Operator.ADD) {
                 result = result.append(text1).append(text2);
                 status.setOutput(0, result);
                 return;
             } else {
-                throw new LogicException(null, Util.parseTranslatableText("fmod.node.bialu.error.unsupported", this.name, operation), null);
+                throw this.unsupported(opObj);
             }
         } else if (num1Obj instanceof Text) {
             String str2 = TypeAdaptor.parse(num2Obj).asString();
             Text text1 = (Text) num1Obj;
             MutableText result = Text.empty();
-            if ("+".equals(operation)) {
+            if (op == Operator.ADD) {
                 result = result.append(text1).append(str2);
                 status.setOutput(0, result);
                 return;
             } else {
-                throw new LogicException(null, Util.parseTranslatableText("fmod.node.bialu.error.unsupported", this.name, operation), null);
+                throw this.unsupported(opObj);
             }
         }
 
         String str1 = TypeAdaptor.parse(num1Obj).asString();
         String str2 = TypeAdaptor.parse(num2Obj).asString();
-        switch (operation) {
-            case "+":
-            case "append":
+        switch (op) {
+            case ADD:
+            case APPEND:
                 status.setOutput(0, str1 + str2);
                 return;
-            case "contains":
+            case CONTAINS:
                 status.setOutput(0, str1.contains(str2));
                 return;
-            case "startsWith":
+            case STARTS_WITH:
                 status.setOutput(0, str1.startsWith(str2));
                 return;
-            case "endsWith":
+            case ENDS_WITH:
                 status.setOutput(0, str1.endsWith(str2));
                 return;
-            case "split":
+            case SPLIT:
                 try {
                     String[] parts = str1.split(str2);
                     List<String> listResult = new ArrayList<>();
@@ -408,14 +442,64 @@ public class BinaryArithmeticNode extends FlowNode {
                     throw new LogicException(ex, Util.parseTranslatableText("fmod.node.bialu.error.arithmetic", this.name), null);
                 }
                 return;
-            case "indexOf":
+            case INDEX_OF:
                 status.setOutput(0, str1.indexOf(str2));
                 return;
-            case "lastIndexOf":
+            case LAST_INDEX_OF:
                 status.setOutput(0, str1.lastIndexOf(str2));
                 return;
             default:
-                 throw new LogicException(null, Util.parseTranslatableText("fmod.node.bialu.error.unsupported", this.name, operation), null);
+                 throw this.unsupported(opObj);
         }
     }
+
+    private Object applyDoubles(Operator op, Object opObj, double num1, double num2) throws LogicException {
+        try {
+            switch (op) {
+                case ADD:
+                    return num1 + num2;
+                case SUBTRACT:
+                    return num1 - num2;
+                case MULTIPLY:
+                    return num1 * num2;
+                case DIVIDE:
+                    // NaN is valid here to represent division by zero
+                    return num1 / num2;
+                case MODULO:
+                    if (num2 == 0) {
+                        throw new LogicException(null, Util.parseTranslatableText("fmod.node.bialu.error.divzero", this.name), null);
+                    }
+                    return num1 % num2;
+                case GREATER:
+                    return num1 > num2;
+                case LESS:
+                    return num1 < num2;
+                case GREATER_EQUAL:
+                    return num1 >= num2;
+                case LESS_EQUAL:
+                    return num1 <= num2;
+                case POWER:
+                    return Math.pow(num1, num2);
+                case MAX:
+                    return Math.max(num1, num2);
+                case MIN:
+                    return Math.min(num1, num2);
+                case LOG:
+                    return Math.log(num2) / Math.log(num1);
+                case ATAN2:
+                    return Math.atan2(num1, num2);
+                case HYPOT:
+                    return Math.hypot(num1, num2);
+                default:
+                    throw this.unsupported(opObj);
+            }
+        } catch (ArithmeticException ex) {
+            throw new LogicException(ex, Util.parseTranslatableText("fmod.node.bialu.error.arithmetic", this.name), null);
+        }
+    }
+
+    private LogicException unsupported(Object opObj) {
+        String operation = TypeAdaptor.parse(opObj).asString().strip().toLowerCase();
+        return new LogicException(null, Util.parseTranslatableText("fmod.node.bialu.error.unsupported", this.name, operation), null);
+    }
 }
@@ -94,7 +94,7 @@ public class BroadcastMessageNode extends FlowNode {
         } else if (playerObj instanceof ServerPlayerEntity) {
             return (ServerPlayerEntity) playerObj;
         } else {
-            throw new LogicException(null, Util.parseTranslatableText("fmod.node.error.classcast", this.name, this.metadata.inputNames.get(0), this.metadata.inputDataTypes.get(0)), null);
+            throw new LogicException(null, Util.parseTranslatableText("fmod.node.error.classcast", this.name, this.getMetadata().inputNames.get(0), this.getMetadata().inputDataTypes.get(0)), null);
         }
     }
 
@@ -121,7 +121,7 @@ public class BroadcastMessageNode extends FlowNode {
             } else if ("selfop".equalsIgnoreCase(receiverStr)) {
                 return MessageReceiver.SELFOP;
             } else {
-                throw new LogicException(null, Util.parseTranslatableText("fmod.node.error.classcast", this.name, this.metadata.inputNames.get(1), this.metadata.inputDataTypes.get(1)), null);
+                throw new LogicException(null, Util.parseTranslatableText("fmod.node.error.classcast", this.name, this.getMetadata().inputNames.get(1), this.getMetadata().inputDataTypes.get(1)), null);
             }
         }
     }
@@ -138,14 +138,14 @@ public class BroadcastMessageNode extends FlowNode {
             } else if ("chat".equalsIgnoreCase(typeStr)) {
                 return MessageLocation.CHAT;
             } else {
-                throw new LogicException(null, Util.parseTranslatableText("fmod.node.error.classcast", this.name, this.metadata.inputNames.get(2), this.metadata.inputDataTypes.get(2)), null);
+                throw new LogicException(null, Util.parseTranslatableText("fmod.node.error.classcast", this.name, this.getMetadata().inputNames.get(2), this.getMetadata().inputDataTypes.get(2)), null);
             }
         }
     }
 
     private Text parseMessage(Object messageObj) throws LogicException {
         if (messageObj == null) {
-            throw new LogicException(null, Util.parseTranslatableText("fmod.node.error.inputnull", this.name, this.metadata.inputNames.get(3)), null);
+            throw new LogicException(null, Util.parseTranslatableText("fmod.node.error.inputnull", this.name, this.getMetadata().inputNames.get(3)), null);
         } else if (messageObj instanceof Text) {
             return (Text) messageObj;
         } else {
@@ -73,11 +73,11 @@ public class CancelScheduledTaskNode extends FlowNode {
 
     private ScheduledTask parseScheduledTask(Object obj) throws LogicException {
         if (obj == null) {
-            throw new LogicException(null, Util.parseTranslatableText("fmod.node.error.inputnull", this.name, this.metadata.inputNames.get(0)), null);
+            throw new LogicException(null, Util.parseTranslatableText("fmod.node.error.inputnull", this.name, this.getMetadata().inputNames.get(0)), null);
         } else if (obj instanceof ScheduledTask) {
             return (ScheduledTask) obj;
         } else {
-            throw new LogicException(null, Util.parseTranslatableText("fmod.node.error.classcast", this.name, this.metadata.inputNames.get(0), this.metadata.inputDataTypes.get(0)), null);
+            throw new LogicException(null, Util.parseTranslatableText("fmod.node.error.classcast", this.name, this.getMetadata().inputNames.get(0), this.getMetadata().inputDataTypes.get(0)), null);
         }
     }
     
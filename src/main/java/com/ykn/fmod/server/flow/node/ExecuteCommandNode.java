@@ -8,6 +8,7 @@ package com.ykn.fmod.server.flow.node;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.ykn.fmod.server.base.data.ServerData;
 import com.ykn.fmod.server.base.util.RedirectedCommandOutput;
 import com.ykn.fmod.server.base.util.TypeAdaptor;
 import com.ykn.fmod.server.base.util.Util;
@@ -77,6 +78,10 @@ public class ExecuteCommandNode extends FlowNode {
         String command = parseCommand(resolvedInputs.get(1));
         RedirectedCommandOutput output = RedirectedCommandOutput.create();
         int result = Util.runCommand(output, sourceEntity, command, 4);
+        // The command may have changed the world, so queries must be executed again on fresh entities
+        ServerData serverData = Util.getServerData(context.getServer());
+        serverData.getFlowQueryCache().clear();
+        serverData.getEntityCensus().clear();
         status.setOutput(0, output.getAllMessage());
         status.setOutput(1, output.getRawOutput());
         status.setOutput(2, result);
@@ -84,21 +89,21 @@ public class ExecuteCommandNode extends FlowNode {
 
     private Entity parseEntity(Object entityObject) throws LogicException {
         if (entityObject == null) {
-            throw new LogicException(null, Util.parseTranslatableText("fmod.node.error.inputnull", this.name, this.metadata.inputNames.get(0)), null);
+            throw new LogicException(null, Util.parseTranslatableText("fmod.node.error.inputnull", this.name, this.getMetadata().inputNames.get(0)), null);
         } else if (entityObject instanceof Entity) {
             return (Entity) entityObject;
         } else {
-            throw new LogicException(null, Util.parseTranslatableText("fmod.node.error.classcast", this.name, this.metadata.inputNames.get(0), this.metadata.inputDataTypes.get(0)), null);
+            throw new LogicException(null, Util.parseTranslatableText("fmod.node.error.classcast", this.name, this.getMetadata().inputNames.get(0), this.getMetadata().inputDataTypes.get(0)), null);
         }
     }
 
     private String parseCommand(Object commandObject) throws LogicException {
         if (commandObject == null) {
-            throw new LogicException(null, Util.parseTranslatableText("fmod.node.error.inputnull", this.name, this.metadata.inputNames.get(1)), null);
+            throw new LogicException(null, Util.parseTranslatableText("fmod.node.error.inputnull", this.name, this.getMetadata().inputNames.get(1)), null);
         }
         String command = TypeAdaptor.parse(commandObject).asString().strip();
         if (command.isEmpty()) {
-            throw new LogicException(null, Util.parseTranslatableText("fmod.node.error.inputnull", this.name, this.metadata.inputNames.get(1)), null);
+            throw new LogicException(null, Util.parseTranslatableText("fmod.node.error.inputnull", this.name, this.getMetadata().inputNames.get(1)), null);
         }
         return command;
     }
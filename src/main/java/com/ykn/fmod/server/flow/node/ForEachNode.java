@@ -0,0 +1,76 @@
+/**
+ * Copyright (c) ykn
+ * This file is under the MIT License
+ */
+
+package com.ykn.fmod.server.flow.node;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.ykn.fmod.server.base.util.Util;
+import com.ykn.fmod.server.flow.logic.LogicException;
+import com.ykn.fmod.server.flow.logic.LoopNode;
+import com.ykn.fmod.server.flow.logic.NodeMetadata;
+import com.ykn.fmod.server.flow.logic.NodeStatus;
+
+import net.minecraft.text.Text;
+
+/**
+ * A flow node that executes the loop body once for every element of a list.
+ * The last node of the loop body should be connected back to this node.
+ * Inputs:
+ * 1. List - The list to iterate over.
+ * Outputs:
+ * 1. Object - The current element.
+ * 2. Integer - The index of the current element, or the number of elements after the loop.
+ * Branches:
+ * 1. Loop body
+ * 2. Done
+ */
+public class ForEachNode extends LoopNode {
+
+    public ForEachNode(long id, String name) {
+        super(id, name, 1, 2);
+        this.type = "ForEachNode";
+    }
+
+    @Override
+    protected NodeMetadata createMetadata(int inputNumber, int outputNumber, int branchNumber) {
+        Text displayName = Util.parseTranslatableText("fmod.node.foreach.title.name");
+        Text description = Util.parseTranslatableText("fmod.node.foreach.title.feat");
+        List<Text> inputNames = new ArrayList<>();
+        List<Text> inputDescriptions = new ArrayList<>();
+        List<Text> inputDataTypes = new ArrayList<>();
+        inputNames.add(Util.parseTranslatableText("fmod.node.foreach.input.list.name"));
+        inputDescriptions.add(Util.parseTranslatableText("fmod.node.foreach.input.list.feat"));
+        inputDataTypes.add(Util.parseTranslatableText("fmod.node.foreach.input.list.type"));
+        List<Text> outputNames = new ArrayList<>();
+        List<Text> outputDescriptions = new ArrayList<>();
+        List<Text> outputDataTypes = new ArrayList<>();
+        outputNames.add(Util.parseTranslatableText("fmod.node.foreach.output.element.name"));
+        outputDescriptions.add(Util.parseTranslatableText("fmod.node.foreach.output.element.feat"));
+        outputDataTypes.add(Util.parseTranslatableText("fmod.node.foreach.output.element.type"));
+        outputNames.add(Util.parseTranslatableText("fmod.node.foreach.output.index.name"));
+        outputDescriptions.add(Util.parseTranslatableText("fmod.node.foreach.output.index.feat"));
+        outputDataTypes.add(Util.parseTranslatableText("fmod.node.foreach.output.index.type"));
+        List<Text> branchNames = new ArrayList<>();
+        List<Text> branchDescriptions = new ArrayList<>();
+        branchNames.add(Util.parseTranslatableText("fmod.node.foreach.branch.body.name"));
+        branchDescriptions.add(Util.parseTranslatableText("fmod.node.foreach.branch.body.feat"));
+        branchNames.add(Util.parseTranslatableText("fmod.node.foreach.branch.done.name"));
+        branchDescriptions.add(Util.parseTranslatableText("fmod.node.foreach.branch.done.feat"));
+        return new NodeMetadata(inputNumber, outputNumber, branchNumber, displayName, description,
+            inputNames, inputDescriptions, inputDataTypes, outputNames, outputDescriptions, outputDataTypes, branchNames, branchDescriptions);
+    }
+
+    @Override
+    protected void onBodyFinished(Iteration iteration, List<Object> resolvedInputs) throws LogicException {
+        // Nothing is collected from the loop body
+    }
+
+    @Override
+    protected void onLoopFinished(NodeStatus status, Iteration iteration) throws LogicException {
+        // The element and the number of elements are set by the loop
+    }
+}
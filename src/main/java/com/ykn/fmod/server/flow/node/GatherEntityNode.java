@@ -9,6 +9,8 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
+import com.ykn.fmod.server.base.data.EntityCensus;
+import com.ykn.fmod.server.base.data.FlowQueryCache;
 import com.ykn.fmod.server.base.util.GameMath;
 import com.ykn.fmod.server.base.util.TypeAdaptor;
 import com.ykn.fmod.server.base.util.Util;
@@ -81,8 +83,25 @@ public class GatherEntityNode extends FlowNode {
             inputNames, inputDescriptions, inputDataTypes, outputNames, outputDescriptions, outputDataTypes, branchNames, branchDescriptions);
     }
 
+    @Override
+    protected Object prepareConstantInput(int index, Object value) throws LogicException {
+        if (index == 1) {
+            return parseIdentifier(value);
+        }
+        return value;
+    }
+
     @Override
     protected void onExecute(ExecutionContext context, NodeStatus status, List<Object> resolvedInputs) throws LogicException {
+        // Gathering with the same filters again in the same tick finds the same entities
+        FlowQueryCache queryCache = Util.getServerData(context.getServer()).getFlowQueryCache();
+        FlowQueryCache.Key queryKey = new FlowQueryCache.Key(this.type, resolvedInputs);
+        Object[] cached = queryCache.get(queryKey);
+        if (cached != null && !containsRemoved(cached[0])) {
+            status.setOutput(0, cached[0]);
+            return;
+        }
+
         String uuidStr = TypeAdaptor.parse(resolvedInputs.get(0)).asString().strip();
         Identifier typeFilter = parseIdentifier(resolvedInputs.get(1));
         ServerWorld worldFilter = parseWorld(resolvedInputs.get(2));
@@ -90,10 +109,10 @@ public class GatherEntityNode extends FlowNode {
         Double radiusFilter = TypeAdaptor.parse(resolvedInputs.get(4)).asDouble();
 
         if (positionFilter == null && radiusFilter != null) {
-            throw new LogicException(null, Util.parseTranslatableText("fmod.node.error.inputnull", this.name, this.metadata.inputNames.get(3)), null);
+            throw new LogicException(null, Util.parseTranslatableText("fmod.node.error.inputnull", this.name, this.getMetadata().inputNames.get(3)), null);
         }
         if (positionFilter != null && radiusFilter == null) {
-            throw new LogicException(null, Util.parseTranslatableText("fmod.node.error.inputnull", this.name, this.metadata.inputNames.get(4)), null);
+            throw new LogicException(null, Util.parseTranslatableText("fmod.node.error.inputnull", this.name, this.getMetadata().inputNames.get(4)), null);
         }
 
         if (radiusFilter != null) {
@@ -127,16 +146,30 @@ public class GatherEntityNode extends FlowNode {
                 worldsToSearch = context.getServer().getWorlds();
             }
 
+            // Read from the census of this tick, so that gathering again in the same tick does not walk all entities
+            EntityCensus census = Util.getServerData(context.getServer()).getEntityCensus();
+            EntityType<?> entityType = null;
+            if (typeFilter != null) {
+                entityType = EntityType.get(typeFilter.toString()).orElse(null);
+            }
+
             for (ServerWorld world : worldsToSearch) {
-                List<Entity> entities = Util.getAllEntities(world);
+                if (typeFilter != null && entityType == null) {
+                    // No entity can have an unknown type
+                    break;
+                }
+                List<Entity> entities;
+                if (entityType != null) {
+                    entities = census.getEntities(world, entityType);
+                } else if (positionFilter != null && radiusFilter != null) {
+                    entities = census.getEntitiesNear(world, positionFilter, radiusFilter);
+                } else {
+                    entities = census.getEntities(world);
+                }
                 
                 for (Entity entity : entities) {
-                    // Type filter
-                    if (typeFilter != null) {
-                        Identifier entityType = EntityType.getId(entity.getType());
-                        if (entityType == null || !entityType.equals(typeFilter)) {
-                            continue;
-                        }
+                    if (entity.isRemoved()) {
+                        continue;
                     }
 
                     // Position and radius filter
@@ -152,13 +185,29 @@ public class GatherEntityNode extends FlowNode {
             }
         }
 
+        Object result;
         if (resultEntities.isEmpty()) {
-            status.setOutput(0, null);
+            result = null;
         } else if (resultEntities.size() == 1) {
-            status.setOutput(0, resultEntities.get(0));
+            result = resultEntities.get(0);
         } else {
-            status.setOutput(0, resultEntities);
+            result = resultEntities;
+        }
+        queryCache.put(queryKey, new Object[] {result});
+        status.setOutput(0, result);
+    }
+
+    private static boolean containsRemoved(Object result) {
+        if (result instanceof Entity) {
+            return ((Entity) result).isRemoved();
+        } else if (result instanceof List) {
+            for (Object entity : (List<?>) result) {
+                if (((Entity) entity).isRemoved()) {
+                    return true;
+                }
+            }
         }
+        return false;
     }
     
     private Identifier parseIdentifier(Object obj) throws LogicException {
@@ -174,7 +223,7 @@ public class GatherEntityNode extends FlowNode {
             try {
                 return new Identifier(str);
             } catch (Exception e) {
-                throw new LogicException(null, Util.parseTranslatableText("fmod.node.error.classcast", this.name, this.metadata.inputNames.get(1), this.metadata.inputDataTypes.get(1)), null);
+                throw new LogicException(null, Util.parseTranslatableText("fmod.node.error.classcast", this.name, this.getMetadata().inputNames.get(1), this.getMetadata().inputDataTypes.get(1)), null);
             }
         }
     }
@@ -185,7 +234,7 @@ public class GatherEntityNode extends FlowNode {
         } else if (obj instanceof ServerWorld) {
             return (ServerWorld) obj;
         } else {
-            throw new LogicException(null, Util.parseTranslatableText("fmod.node.error.classcast", this.name, this.metadata.inputNames.get(2), this.metadata.inputDataTypes.get(2)), null);
+            throw new LogicException(null, Util.parseTranslatableText("fmod.node.error.classcast", this.name, this.getMetadata().inputNames.get(2), this.getMetadata().inputDataTypes.get(2)), null);
         }
     }
 }
@@ -8,6 +8,7 @@ package com.ykn.fmod.server.flow.node;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.ykn.fmod.server.base.data.FlowQueryCache;
 import com.ykn.fmod.server.base.util.TypeAdaptor;
 import com.ykn.fmod.server.base.util.Util;
 import com.ykn.fmod.server.flow.logic.ExecutionContext;
@@ -80,6 +81,16 @@ public class GetBlockNode extends FlowNode {
 
     @Override
     protected void onExecute(ExecutionContext context, NodeStatus status, List<Object> resolvedInputs) throws LogicException {
+        FlowQueryCache queryCache = Util.getServerData(context.getServer()).getFlowQueryCache();
+        FlowQueryCache.Key queryKey = new FlowQueryCache.Key(this.type, resolvedInputs);
+        Object[] cached = queryCache.get(queryKey);
+        if (cached != null) {
+            status.setOutput(0, cached[0]);
+            status.setOutput(1, cached[1]);
+            status.setOutput(2, cached[2]);
+            return;
+        }
+
         World world = parseWorld(resolvedInputs.get(0));
         Vec3d position = parsePosition(resolvedInputs.get(1));
         int x = (int) Math.round(position.x);
@@ -88,6 +99,7 @@ public class GetBlockNode extends FlowNode {
 
         BlockPos blockPos = new BlockPos(x, y, z);
         if (world.isInBuildLimit(blockPos) == false || world.isChunkLoaded(ChunkSectionPos.getSectionCoord(x), ChunkSectionPos.getSectionCoord(z)) == false) {
+            queryCache.put(queryKey, new Object[] {null, null, null});
             status.setOutput(0, null);
             status.setOutput(1, null);
             status.setOutput(2, null);
@@ -101,6 +113,7 @@ public class GetBlockNode extends FlowNode {
         if (blockState.hasBlockEntity()) {
             blockEntity = world.getBlockEntity(blockPos);
         }
+        queryCache.put(queryKey, new Object[] {identifier, blockState, blockEntity});
         status.setOutput(0, identifier);
         status.setOutput(1, blockState);
         status.setOutput(2, blockEntity);
@@ -108,21 +121,21 @@ public class GetBlockNode extends FlowNode {
 
     private World parseWorld(Object obj) throws LogicException {
         if (obj == null) {
-            throw new LogicException(null, Util.parseTranslatableText("fmod.node.error.inputnull", this.name, this.metadata.inputNames.get(0)), null);
+            throw new LogicException(null, Util.parseTranslatableText("fmod.node.error.inputnull", this.name, this.getMetadata().inputNames.get(0)), null);
         } else if (obj instanceof World) {
             return (World) obj;
         } else {
-            throw new LogicException(null, Util.parseTranslatableText("fmod.node.error.classcast", this.name, this.metadata.inputNames.get(0), this.metadata.inputDataTypes.get(0)), null);
+            throw new LogicException(null, Util.parseTranslatableText("fmod.node.error.classcast", this.name, this.getMetadata().inputNames.get(0), this.getMetadata().inputDataTypes.get(0)), null);
         }
     }
 
     private Vec3d parsePosition(Object obj) throws LogicException {
         if (obj == null) {
-            throw new LogicException(null, Util.parseTranslatableText("fmod.node.error.inputnull", this.name, this.metadata.inputNames.get(1)), null);
+            throw new LogicException(null, Util.parseTranslatableText("fmod.node.error.inputnull", this.name, this.getMetadata().inputNames.get(1)), null);
         } else {
             Vec3d position = TypeAdaptor.parse(obj).asVec3d();
             if (position == null) {
-                throw new LogicException(null, Util.parseTranslatableText("fmod.node.error.classcast", this.name, this.metadata.inputNames.get(1), this.metadata.inputDataTypes.get(1)), null);
+                throw new LogicException(null, Util.parseTranslatableText("fmod.node.error.classcast", this.name, this.getMetadata().inputNames.get(1), this.getMetadata().inputDataTypes.get(1)), null);
             }
             return position;
         }
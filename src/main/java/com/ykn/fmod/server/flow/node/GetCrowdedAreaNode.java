@@ -0,0 +1,225 @@
+/**
+ * Copyright (c) ykn
+ * This file is under the MIT License
+ */
+
+package com.ykn.fmod.server.flow.node;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.ykn.fmod.server.base.async.EntityDensityCalculator;
+import com.ykn.fmod.server.base.async.EntityDensityCalculator.EntityHotspot;
+import com.ykn.fmod.server.base.async.EntitySnapshotBuffer;
+import com.ykn.fmod.server.base.data.EntityCensus;
+import com.ykn.fmod.server.base.data.FlowQueryCache;
+import com.ykn.fmod.server.base.data.ServerData;
+import com.ykn.fmod.server.base.util.EntityDensityAlgorithm;
+import com.ykn.fmod.server.base.util.TypeAdaptor;
+import com.ykn.fmod.server.base.util.Util;
+import com.ykn.fmod.server.flow.logic.ExecutionContext;
+import com.ykn.fmod.server.flow.logic.FlowNode;
+import com.ykn.fmod.server.flow.logic.LogicException;
+import com.ykn.fmod.server.flow.logic.NodeMetadata;
+import com.ykn.fmod.server.flow.logic.NodeStatus;
+
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.EntityType;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.text.Text;
+import net.minecraft.util.Identifier;
+
+/**
+ * Find the most crowded non-overlapping areas, using the same search as the /f get hotspots command.
+ * The search runs on the main server thread without helper threads, so it is stopped after {@link #MAX_SEARCH_MILLISECONDS}
+ * and reports the areas found so far. The result is reused for the same inputs within a tick.
+ * Inputs:
+ * 1. World - The world to search in (optional, defaults to all loaded worlds).
+ * 2. Number - The number of areas to find (optional, defaults to 1).
+ * 3. Number - The minimum number of entities in an area (optional, defaults to the server config).
+ * 4. Number - The minimum radius of an area (optional, defaults to the server config).
+ * Outputs:
+ * 1. List[Entity] - The entity at the center of each area, most crowded first.
+ * 2. List[Number] - The radius of each area.
+ * 3. List[Number] - The number of entities in each area.
+ * 4. List[List[Enum]] - The entity types in each area, most common first.
+ * 5. List[List[Number]] - The number of entities of each of those types.
+ * 6. Boolean - Whether the search was stopped by the time limit before it finished.
+ * Branches: 1 (Next node)
+ */
+public class GetCrowdedAreaNode extends FlowNode {
+
+    /**
+     * The longest time a single search may block the server thread.
+     */
+    public static final long MAX_SEARCH_MILLISECONDS = 10;
+
+    public GetCrowdedAreaNode(long id, String name) {
+        super(id, name, 4, 6, 1);
+        this.type = "GetCrowdedAreaNode";
+    }
+
+    @Override
+    protected NodeMetadata createMetadata(int inputNumber, int outputNumber, int branchNumber) {
+        Text displayName = Util.parseTranslatableText("fmod.node.crowdedarea.title.name");
+        Text description = Util.parseTranslatableText("fmod.node.crowdedarea.title.feat");
+        List<Text> inputNames = new ArrayList<>();
+        List<Text> inputDescriptions = new ArrayList<>();
+        List<Text> inputDataTypes = new ArrayList<>();
+        inputNames.add(Util.parseTranslatableText("fmod.node.crowdedarea.input.world.name"));
+        inputDescriptions.add(Util.parseTranslatableText("fmod.node.crowdedarea.input.world.feat"));
+        inputDataTypes.add(Util.parseTranslatableText("fmod.node.crowdedarea.input.world.type"));
+        inputNames.add(Util.parseTranslatableText("fmod.node.crowdedarea.input.count.name"));
+        inputDescriptions.add(Util.parseTranslatableText("fmod.node.crowdedarea.input.count.feat"));
+        inputDataTypes.add(Util.parseTranslatableText("fmod.node.crowdedarea.input.count.type"));
+        inputNames.add(Util.parseTranslatableText("fmod.node.crowdedarea.input.number.name"));
+        inputDescriptions.add(Util.parseTranslatableText("fmod.node.crowdedarea.input.number.feat"));
+        inputDataTypes.add(Util.parseTranslatableText("fmod.node.crowdedarea.input.number.type"));
+        inputNames.add(Util.parseTranslatableText("fmod.node.crowdedarea.input.radius.name"));
+        inputDescriptions.add(Util.parseTranslatableText("fmod.node.crowdedarea.input.radius.feat"));
+        inputDataTypes.add(Util.parseTranslatableText("fmod.node.crowdedarea.input.radius.type"));
+        List<Text> outputNames = new ArrayList<>();
+        List<Text> outputDescriptions = new ArrayList<>();
+        List<Text> outputDataTypes = new ArrayList<>();
+        outputNames.add(Util.parseTranslatableText("fmod.node.crowdedarea.output.centers.name"));
+        outputDescriptions.add(Util.parseTranslatableText("fmod.node.crowdedarea.output.centers.feat"));
+        outputDataTypes.add(Util.parseTranslatableText("fmod.node.crowdedarea.output.centers.type"));
+        outputNames.add(Util.parseTranslatableText("fmod.node.crowdedarea.output.radius.name"));
+        outputDescriptions.add(Util.parseTranslatableText("fmod.node.crowdedarea.output.radius.feat"));
+        outputDataTypes.add(Util.parseTranslatableText("fmod.node.crowdedarea.output.radius.type"));
+        outputNames.add(Util.parseTranslatableText("fmod.node.crowdedarea.output.count.name"));
+        outputDescriptions.add(Util.parseTranslatableText("fmod.node.crowdedarea.output.count.feat"));
+        outputDataTypes.add(Util.parseTranslatableText("fmod.node.crowdedarea.output.count.type"));
+        outputNames.add(Util.parseTranslatableText("fmod.node.crowdedarea.output.types.name"));
+        outputDescriptions.add(Util.parseTranslatableText("fmod.node.crowdedarea.output.types.feat"));
+        outputDataTypes.add(Util.parseTranslatableText("fmod.node.crowdedarea.output.types.type"));
+        outputNames.add(Util.parseTranslatableText("fmod.node.crowdedarea.output.typecounts.name"));
+        outputDescriptions.add(Util.parseTranslatableText("fmod.node.crowdedarea.output.typecounts.feat"));
+        outputDataTypes.add(Util.parseTranslatableText("fmod.node.crowdedarea.output.typecounts.type"));
+        outputNames.add(Util.parseTranslatableText("fmod.node.crowdedarea.output.stopped.name"));
+        outputDescriptions.add(Util.parseTranslatableText("fmod.node.crowdedarea.output.stopped.feat"));
+        outputDataTypes.add(Util.parseTranslatableText("fmod.node.crowdedarea.output.stopped.type"));
+        List<Text> branchNames = new ArrayList<>();
+        List<Text> branchDescriptions = new ArrayList<>();
+        branchNames.add(Util.parseTranslatableText("fmod.node.default.branch.name"));
+        branchDescriptions.add(Util.parseTranslatableText("fmod.node.default.branch.feat"));
+        return new NodeMetadata(inputNumber, outputNumber, branchNumber, displayName, description,
+            inputNames, inputDescriptions, inputDataTypes, outputNames, outputDescriptions, outputDataTypes, branchNames, branchDescriptions);
+    }
+
+    @Override
+    protected void onExecute(ExecutionContext context, NodeStatus status, List<Object> resolvedInputs) throws LogicException {
+        // Searching with the same inputs again in the same tick finds the same areas
+        ServerData serverData = Util.getServerData(context.getServer());
+        FlowQueryCache queryCache = serverData.getFlowQueryCache();
+        FlowQueryCache.Key queryKey = new FlowQueryCache.Key(this.type, resolvedInputs);
+        Object[] cached = queryCache.get(queryKey);
+        if (cached != null && !containsRemoved(cached[0])) {
+            for (int i = 0; i < cached.length; i++) {
+                status.setOutput(i, cached[i]);
+            }
+            return;
+        }
+
+        ServerWorld worldFilter = parseWorld(resolvedInputs.get(0));
+        Double countInput = TypeAdaptor.parse(resolvedInputs.get(1)).asDouble();
+        Double numberInput = TypeAdaptor.parse(resolvedInputs.get(2)).asDouble();
+        Double radiusInput = TypeAdaptor.parse(resolvedInputs.get(3)).asDouble();
+
+        int count = countInput == null ? 1 : countInput.intValue();
+        int number = numberInput == null ? Util.serverConfig.getEntityDensityNumber() : numberInput.intValue();
+        double radius = radiusInput == null ? Util.serverConfig.getEntityDensityRadius() : radiusInput;
+        if (countInput != null && (countInput.isNaN() || count < 1)) {
+            throw new LogicException(null, Util.parseTranslatableText("fmod.node.crowdedarea.error.count", countInput), null);
+        }
+        if (numberInput != null && (numberInput.isNaN() || number < 1)) {
+            throw new LogicException(null, Util.parseTranslatableText("fmod.node.crowdedarea.error.number", numberInput), null);
+        }
+        if (Double.isNaN(radius) || radius < 0) {
+            throw new LogicException(null, Util.parseTranslatableText("fmod.node.crowdedarea.error.radius", radius), null);
+        }
+
+        EntitySnapshotBuffer snapshots = serverData.acquireSnapshotBuffer();
+        List<Entity> centers = new ArrayList<>();
+        List<Double> radiusList = new ArrayList<>();
+        List<Double> countList = new ArrayList<>();
+        List<List<Identifier>> typeList = new ArrayList<>();
+        List<List<Double>> typeCountList = new ArrayList<>();
+        boolean stopped = false;
+        try {
+            EntityCensus census = serverData.getEntityCensus();
+            if (worldFilter != null) {
+                snapshots.addAll(census.getEntities(worldFilter));
+            } else {
+                for (ServerWorld world : context.getServer().getWorlds()) {
+                    snapshots.addAll(census.getEntities(world));
+                }
+            }
+            EntityDensityAlgorithm algorithm = Util.serverConfig.getEntityDensityAlgorithm();
+            EntityDensityCalculator calculator = new EntityDensityCalculator(null, snapshots, radius, number, algorithm, count);
+            long timeLimit = Util.serverConfig.getEntityDensityTimeLimit();
+            calculator.setTimeBudget(timeLimit <= 0 ? MAX_SEARCH_MILLISECONDS : Math.min(timeLimit, MAX_SEARCH_MILLISECONDS));
+            // A thread pool would be created for every execution, which costs more than such a short search saves
+            calculator.setParallelism(1);
+            calculator.run();
+            calculator.runAfterCompletion();
+            stopped = calculator.isSearchStopped();
+            List<EntityHotspot> hotspots = calculator.getHotspots();
+            if (hotspots != null) {
+                for (EntityHotspot hotspot : hotspots) {
+                    centers.add(hotspot.getEntity());
+                    radiusList.add(hotspot.getRadius());
+                    countList.add((double) hotspot.getCount());
+                    typeList.add(hotspot.getEntityTypes());
+                    List<Double> typeCounts = new ArrayList<>();
+                    for (Integer typeCount : hotspot.getEntityTypeCounts()) {
+                        typeCounts.add(typeCount.doubleValue());
+                    }
+                    typeCountList.add(typeCounts);
+                }
+            } else if (calculator.getEntity() != null) {
+                // Only the most crowded area was searched
+                centers.add(calculator.getEntity());
+                radiusList.add(calculator.getRadius());
+                countList.add((double) calculator.getCount());
+                List<Identifier> types = new ArrayList<>();
+                List<Double> typeCounts = new ArrayList<>();
+                if (calculator.getCause() != null) {
+                    types.add(EntityType.getId(calculator.getCause().getType()));
+                    typeCounts.add((double) calculator.getNumber());
+                }
+                typeList.add(types);
+                typeCountList.add(typeCounts);
+            }
+        } finally {
+            serverData.releaseSnapshotBuffer(snapshots);
+        }
+
+        status.setOutput(0, centers);
+        status.setOutput(1, radiusList);
+        status.setOutput(2, countList);
+        status.setOutput(3, typeList);
+        status.setOutput(4, typeCountList);
+        status.setOutput(5, stopped);
+        queryCache.put(queryKey, new Object[] {centers, radiusList, countList, typeList, typeCountList, stopped});
+    }
+
+    private static boolean containsRemoved(Object centers) {
+        for (Object entity : (List<?>) centers) {
+            if (((Entity) entity).isRemoved()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private ServerWorld parseWorld(Object obj) throws LogicException {
+        if (obj == null) {
+            return null;
+        } else if (obj instanceof ServerWorld) {
+            return (ServerWorld) obj;
+        } else {
+            throw new LogicException(null, Util.parseTranslatableText("fmod.node.error.classcast", this.name, this.getMetadata().inputNames.get(0), this.getMetadata().inputDataTypes.get(0)), null);
+        }
+    }
+}
@@ -6,10 +6,12 @@
 package com.ykn.fmod.server.flow.node;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import com.mojang.brigadier.StringReader;
 import com.mojang.brigadier.exceptions.CommandSyntaxException;
+import com.ykn.fmod.server.base.data.FlowQueryCache;
 import com.ykn.fmod.server.base.util.TypeAdaptor;
 import com.ykn.fmod.server.base.util.Util;
 import com.ykn.fmod.server.flow.logic.ExecutionContext;
@@ -23,6 +25,7 @@ import net.minecraft.command.BlockDataObject;
 import net.minecraft.command.EntityDataObject;
 import net.minecraft.command.argument.NbtPathArgumentType;
 import net.minecraft.entity.Entity;
+import net.minecraft.entity.LivingEntity;
 import net.minecraft.item.ItemStack;
 import net.minecraft.nbt.NbtByte;
 import net.minecraft.nbt.NbtByteArray;
@@ -86,8 +89,37 @@ public class GetNbtValueNode extends FlowNode {
             inputNames, inputDescriptions, inputDataTypes, outputNames, outputDescriptions, outputDataTypes, branchNames, branchDescriptions);
     }
 
+    @Override
+    protected Object prepareConstantInput(int index, Object value) throws LogicException {
+        if (index == 1) {
+            // Parse a constant path only once
+            return parsePath(value);
+        } else if (index == 2) {
+            return TypeAdaptor.parse(value).asDouble();
+        }
+        return value;
+    }
+
     @Override
     protected void onExecute(ExecutionContext context, NodeStatus status, List<Object> resolvedInputs) throws LogicException {
+        // Only reading entities and block entities is worth caching, other sources are already NBT.
+        // Living entities are not cached, as damage and death later in the same tick change their NBT.
+        FlowQueryCache queryCache = null;
+        FlowQueryCache.Key queryKey = null;
+        Object source = resolvedInputs.get(0);
+        if ((source instanceof Entity && !(source instanceof LivingEntity)) || source instanceof BlockEntity) {
+            queryCache = Util.getServerData(context.getServer()).getFlowQueryCache();
+            // Parsed paths do not implement equals, so they are keyed by the string they were parsed from
+            Object path = resolvedInputs.get(1);
+            Object pathKey = path instanceof NbtPathArgumentType.NbtPath ? path.toString() : path;
+            queryKey = new FlowQueryCache.Key(this.type, Arrays.asList(source, pathKey, resolvedInputs.get(2)));
+            Object[] cached = queryCache.get(queryKey);
+            if (cached != null) {
+                status.setOutput(0, cached[0]);
+                return;
+            }
+        }
+
         NbtElement sourceNbt = parseSource(resolvedInputs.get(0));
         NbtPathArgumentType.NbtPath nbtPath = parsePath(resolvedInputs.get(1));
         Double scale = TypeAdaptor.parse(resolvedInputs.get(2)).asDouble();
@@ -105,6 +137,9 @@ public class GetNbtValueNode extends FlowNode {
 
             List<NbtElement> collection = nbtPath.get(sourceNbt);
             Object result = convertCollection(collection, scaleValue);
+            if (queryCache != null) {
+                queryCache.put(queryKey, new Object[] {result});
+            }
             status.setOutput(0, result);
         } catch (CommandSyntaxException e) {
             throw new LogicException(e, Util.parseTranslatableText("fmod.node.getnbt.error.pathsyntax", resolvedInputs.get(1)), e.getMessage());
@@ -115,7 +150,7 @@ public class GetNbtValueNode extends FlowNode {
 
     private NbtElement parseSource(Object input) throws LogicException {
         if (input == null) {
-            throw new LogicException(null, Util.parseTranslatableText("fmod.node.error.inputnull", this.name, this.metadata.inputNames.get(0)), null);
+            throw new LogicException(null, Util.parseTranslatableText("fmod.node.error.inputnull", this.name, this.getMetadata().inputNames.get(0)), null);
         } else if (input instanceof Entity) {
             Entity entity = (Entity) input;
             EntityDataObject entityData = new EntityDataObject(entity);
@@ -132,11 +167,14 @@ public class GetNbtValueNode extends FlowNode {
             NbtElement nbtCompound = (NbtElement) input;
             return nbtCompound;
         } else {
-            throw new LogicException(null, Util.parseTranslatableText("fmod.node.error.classcast", this.name, this.metadata.inputNames.get(0), this.metadata.inputDataTypes.get(0)), null);
+            throw new LogicException(null, Util.parseTranslatableText("fmod.node.error.classcast", this.name, this.getMetadata().inputNames.get(0), this.getMetadata().inputDataTypes.get(0)), null);
         }
     }
 
     private NbtPathArgumentType.NbtPath parsePath(Object path) throws LogicException {
+        if (path instanceof NbtPathArgumentType.NbtPath) {
+            return (NbtPathArgumentType.NbtPath) path;
+        }
         String inputPath = TypeAdaptor.parse(path).asString();
         try {
             NbtPathArgumentType.NbtPath nbtPath = NbtPathArgumentType.nbtPath().parse(new StringReader(inputPath));
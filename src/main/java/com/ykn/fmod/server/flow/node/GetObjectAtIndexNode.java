@@ -69,6 +69,24 @@ public class GetObjectAtIndexNode extends FlowNode {
             inputNames, inputDescriptions, inputDataTypes, outputNames, outputDescriptions, outputDataTypes, branchNames, branchDescriptions);
     }
 
+    @Override
+    public boolean isWorldSafe() {
+        return true;
+    }
+
+    @Override
+    protected boolean isVariableNameInput(int index) {
+        return index == 2;
+    }
+
+    @Override
+    protected Object prepareConstantInput(int index, Object value) throws LogicException {
+        if (index == 2) {
+            return value == null ? null : TypeAdaptor.parse(value).asString();
+        }
+        return value;
+    }
+
     @Override
     protected void onExecute(ExecutionContext context, NodeStatus status, List<Object> resolvedInputs) throws LogicException {
         List<Object> list = parseList(resolvedInputs.get(0));
@@ -93,16 +111,23 @@ public class GetObjectAtIndexNode extends FlowNode {
             resultObj = list.get(listSize - 1);
         }
 
-        if (varName != null) {
+        int varIndex = this.getInputVariableIndex(context, 2);
+        if (varIndex >= 0) {
+            context.setVariableAt(varIndex, resultObj);
+        } else if (varName != null) {
             context.setVariable(varName, resultObj);
         }
         status.setOutput(0, resultObj);
         status.setOutput(1, listSize);
     }
 
+    @SuppressWarnings("unchecked")
     private List<Object> parseList(Object obj) {
         if (obj == null) {
             return new ArrayList<Object>();
+        } else if (obj instanceof List) {
+            // The list is only read, so there is no need to copy it
+            return (List<Object>) obj;
         }
         List<Object> tryCastList = TypeAdaptor.parse(obj).asList();
         if (tryCastList == null) {
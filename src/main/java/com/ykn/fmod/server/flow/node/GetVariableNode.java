@@ -15,6 +15,7 @@ import com.ykn.fmod.server.flow.logic.FlowNode;
 import com.ykn.fmod.server.flow.logic.LogicException;
 import com.ykn.fmod.server.flow.logic.NodeMetadata;
 import com.ykn.fmod.server.flow.logic.NodeStatus;
+import com.ykn.fmod.server.flow.logic.VariableStore;
 
 import net.minecraft.text.Text;
 
@@ -57,8 +58,37 @@ public class GetVariableNode extends FlowNode {
             inputNames, inputDescriptions, inputDataTypes, outputNames, outputDescriptions, outputDataTypes, branchNames, branchDescriptions);
     }
 
+    @Override
+    public boolean isWorldSafe() {
+        return true;
+    }
+
+    @Override
+    protected boolean isVariableNameInput(int index) {
+        return index == 0;
+    }
+
+    @Override
+    protected Object prepareConstantInput(int index, Object value) throws LogicException {
+        if (index == 0) {
+            return TypeAdaptor.parse(value).asString();
+        }
+        return value;
+    }
+
     @Override
     protected void onExecute(ExecutionContext context, NodeStatus status, List<Object> resolvedInputs) throws LogicException {
+        int varIndex = this.getInputVariableIndex(context, 0);
+        if (varIndex >= 0) {
+            VariableStore variables = context.getVariables();
+            if (variables.isBooleanAt(varIndex)) {
+                status.setOutput(0, variables.getBooleanAt(varIndex));
+            } else {
+                // A number slot returns the box it was set with, or boxes the number once
+                status.setOutput(0, variables.getAt(varIndex));
+            }
+            return;
+        }
         Object varNameObj = resolvedInputs.get(0);
         String varName = TypeAdaptor.parse(varNameObj).asString();
         Object value = context.getVariable(varName);
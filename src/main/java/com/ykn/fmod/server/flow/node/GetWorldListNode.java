@@ -59,6 +59,14 @@ public class GetWorldListNode extends FlowNode {
             inputNames, inputDescriptions, inputDataTypes, outputNames, outputDescriptions, outputDataTypes, branchNames, branchDescriptions);
     }
 
+    @Override
+    protected Object prepareConstantInput(int index, Object value) throws LogicException {
+        if (index == 0) {
+            return parseIdentifier(value);
+        }
+        return value;
+    }
+
     @Override
     protected void onExecute(ExecutionContext context, NodeStatus status, List<Object> resolvedInputs) throws LogicException {
         Identifier dimensionFilter = parseIdentifier(resolvedInputs.get(0));
@@ -94,7 +102,7 @@ public class GetWorldListNode extends FlowNode {
             try {
                 return new Identifier(str);
             } catch (Exception e) {
-                throw new LogicException(null, Util.parseTranslatableText("fmod.node.error.classcast", this.name, this.metadata.inputNames.get(0), this.metadata.inputDataTypes.get(0)), null);
+                throw new LogicException(null, Util.parseTranslatableText("fmod.node.error.classcast", this.name, this.getMetadata().inputNames.get(0), this.getMetadata().inputDataTypes.get(0)), null);
             }
         }
     }
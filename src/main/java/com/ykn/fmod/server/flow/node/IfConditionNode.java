@@ -57,12 +57,17 @@ public class IfConditionNode extends FlowNode {
             inputNames, inputDescriptions, inputDataTypes, outputNames, outputDescriptions, outputDataTypes, branchNames, branchDescriptions);
     }
 
+    @Override
+    public boolean isWorldSafe() {
+        return true;
+    }
+
     @Override
     public long getNextNodeId(ExecutionContext context, NodeStatus status, List<Object> resolvedInputs) throws LogicException {
         Object conditionObj = resolvedInputs.get(0);
         Boolean condition = TypeAdaptor.parse(conditionObj).asBoolean();
         if (condition == null) {
-            throw new LogicException(null, Util.parseTranslatableText("fmod.node.if.error.classcast", this.name, this.metadata.inputNames.get(0)), null);
+            throw new LogicException(null, Util.parseTranslatableText("fmod.node.if.error.classcast", this.name, this.getMetadata().inputNames.get(0)), null);
         } else if (condition == true) {
             return this.nextNodeIds.get(0); // True branch
         } else {
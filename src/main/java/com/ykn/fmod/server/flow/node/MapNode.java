@@ -0,0 +1,103 @@
+/**
+ * Copyright (c) ykn
+ * This file is under the MIT License
+ */
+
+package com.ykn.fmod.server.flow.node;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.ykn.fmod.server.base.util.Util;
+import com.ykn.fmod.server.flow.logic.LogicException;
+import com.ykn.fmod.server.flow.logic.LoopNode;
+import com.ykn.fmod.server.flow.logic.NodeMetadata;
+import com.ykn.fmod.server.flow.logic.NodeStatus;
+
+import net.minecraft.text.Text;
+
+/**
+ * A flow node that executes the loop body once for every element of a list, and collects the values computed by the body into a new list.
+ * The last node of the loop body should be connected back to this node.
+ * Inputs:
+ * 1. List - The list to iterate over.
+ * 2. Object - The value computed by the loop body for the current element, usually an output of a node in the loop body.
+ * Outputs:
+ * 1. Object - The current element.
+ * 2. Integer - The index of the current element, or the number of elements after the loop.
+ * 3. List - The values collected so far, or all of them after the loop.
+ * Branches:
+ * 1. Loop body
+ * 2. Done
+ */
+public class MapNode extends LoopNode {
+
+    public MapNode(long id, String name) {
+        super(id, name, 2, 3);
+        this.type = "MapNode";
+    }
+
+    @Override
+    protected NodeMetadata createMetadata(int inputNumber, int outputNumber, int branchNumber) {
+        Text displayName = Util.parseTranslatableText("fmod.node.map.title.name");
+        Text description = Util.parseTranslatableText("fmod.node.map.title.feat");
+        List<Text> inputNames = new ArrayList<>();
+        List<Text> inputDescriptions = new ArrayList<>();
+        List<Text> inputDataTypes = new ArrayList<>();
+        inputNames.add(Util.parseTranslatableText("fmod.node.map.input.list.name"));
+        inputDescriptions.add(Util.parseTranslatableText("fmod.node.map.input.list.feat"));
+        inputDataTypes.add(Util.parseTranslatableText("fmod.node.map.input.list.type"));
+        inputNames.add(Util.parseTranslatableText("fmod.node.map.input.value.name"));
+        inputDescriptions.add(Util.parseTranslatableText("fmod.node.map.input.value.feat"));
+        inputDataTypes.add(Util.parseTranslatableText("fmod.node.map.input.value.type"));
+        List<Text> outputNames = new ArrayList<>();
+        List<Text> outputDescriptions = new ArrayList<>();
+        List<Text> outputDataTypes = new ArrayList<>();
+        outputNames.add(Util.parseTranslatableText("fmod.node.map.output.element.name"));
+        outputDescriptions.add(Util.parseTranslatableText("fmod.node.map.output.element.feat"));
+        outputDataTypes.add(Util.parseTranslatableText("fmod.node.map.output.element.type"));
+        outputNames.add(Util.parseTranslatableText("fmod.node.map.output.index.name"));
+        outputDescriptions.add(Util.parseTranslatableText("fmod.node.map.output.index.feat"));
+        outputDataTypes.add(Util.parseTranslatableText("fmod.node.map.output.index.type"));
+        outputNames.add(Util.parseTranslatableText("fmod.node.map.output.result.name"));
+        outputDescriptions.add(Util.parseTranslatableText("fmod.node.map.output.result.feat"));
+        outputDataTypes.add(Util.parseTranslatableText("fmod.node.map.output.result.type"));
+        List<Text> branchNames = new ArrayList<>();
+        List<Text> branchDescriptions = new ArrayList<>();
+        branchNames.add(Util.parseTranslatableText("fmod.node.map.branch.body.name"));
+        branchDescriptions.add(Util.parseTranslatableText("fmod.node.map.branch.body.feat"));
+        branchNames.add(Util.parseTranslatableText("fmod.node.map.branch.done.name"));
+        branchDescriptions.add(Util.parseTranslatableText("fmod.node.map.branch.done.feat"));
+        return new NodeMetadata(inputNumber, outputNumber, branchNumber, displayName, description,
+            inputNames, inputDescriptions, inputDataTypes, outputNames, outputDescriptions, outputDataTypes, branchNames, branchDescriptions);
+    }
+
+    @Override
+    protected boolean isFeedbackInput(int index) {
+        return index == 1;
+    }
+
+    @Override
+    protected void onLoopStart(Iteration iteration, List<Object> resolvedInputs) throws LogicException {
+        iteration.accumulator = new ArrayList<Object>();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void onBodyFinished(Iteration iteration, List<Object> resolvedInputs) throws LogicException {
+        ((List<Object>) iteration.accumulator).add(resolvedInputs.get(1));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void onNextElement(NodeStatus status, Iteration iteration) throws LogicException {
+        // The list is still being filled, so other nodes must not change it
+        status.setOutput(2, Collections.unmodifiableList((List<Object>) iteration.accumulator));
+    }
+
+    @Override
+    protected void onLoopFinished(NodeStatus status, Iteration iteration) throws LogicException {
+        status.setOutput(2, iteration.accumulator);
+    }
+}
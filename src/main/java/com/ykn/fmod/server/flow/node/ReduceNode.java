@@ -0,0 +1,104 @@
+/**
+ * Copyright (c) ykn
+ * This file is under the MIT License
+ */
+
+package com.ykn.fmod.server.flow.node;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.ykn.fmod.server.base.util.Util;
+import com.ykn.fmod.server.flow.logic.LogicException;
+import com.ykn.fmod.server.flow.logic.LoopNode;
+import com.ykn.fmod.server.flow.logic.NodeMetadata;
+import com.ykn.fmod.server.flow.logic.NodeStatus;
+
+import net.minecraft.text.Text;
+
+/**
+ * A flow node that combines all elements of a list into one value, by executing the loop body once for every element.
+ * The loop body computes the next value of the accumulator from the accumulator and the current element.
+ * The last node of the loop body should be connected back to this node.
+ * Inputs:
+ * 1. List - The list to iterate over.
+ * 2. Object - The value of the accumulator before the first element.
+ * 3. Object - The next value of the accumulator, usually an output of a node in the loop body.
+ * Outputs:
+ * 1. Object - The current element.
+ * 2. Integer - The index of the current element, or the number of elements after the loop.
+ * 3. Object - The current value of the accumulator, or the result after the loop.
+ * Branches:
+ * 1. Loop body
+ * 2. Done
+ */
+public class ReduceNode extends LoopNode {
+
+    public ReduceNode(long id, String name) {
+        super(id, name, 3, 3);
+        this.type = "ReduceNode";
+    }
+
+    @Override
+    protected NodeMetadata createMetadata(int inputNumber, int outputNumber, int branchNumber) {
+        Text displayName = Util.parseTranslatableText("fmod.node.reduce.title.name");
+        Text description = Util.parseTranslatableText("fmod.node.reduce.title.feat");
+        List<Text> inputNames = new ArrayList<>();
+        List<Text> inputDescriptions = new ArrayList<>();
+        List<Text> inputDataTypes = new ArrayList<>();
+        inputNames.add(Util.parseTranslatableText("fmod.node.reduce.input.list.name"));
+        inputDescriptions.add(Util.parseTranslatableText("fmod.node.reduce.input.list.feat"));
+        inputDataTypes.add(Util.parseTranslatableText("fmod.node.reduce.input.list.type"));
+        inputNames.add(Util.parseTranslatableText("fmod.node.reduce.input.initial.name"));
+        inputDescriptions.add(Util.parseTranslatableText("fmod.node.reduce.input.initial.feat"));
+        inputDataTypes.add(Util.parseTranslatableText("fmod.node.reduce.input.initial.type"));
+        inputNames.add(Util.parseTranslatableText("fmod.node.reduce.input.next.name"));
+        inputDescriptions.add(Util.parseTranslatableText("fmod.node.reduce.input.next.feat"));
+        inputDataTypes.add(Util.parseTranslatableText("fmod.node.reduce.input.next.type"));
+        List<Text> outputNames = new ArrayList<>();
+        List<Text> outputDescriptions = new ArrayList<>();
+        List<Text> outputDataTypes = new ArrayList<>();
+        outputNames.add(Util.parseTranslatableText("fmod.node.reduce.output.element.name"));
+        outputDescriptions.add(Util.parseTranslatableText("fmod.node.reduce.output.element.feat"));
+        outputDataTypes.add(Util.parseTranslatableText("fmod.node.reduce.output.element.type"));
+        outputNames.add(Util.parseTranslatableText("fmod.node.reduce.output.index.name"));
+        outputDescriptions.add(Util.parseTranslatableText("fmod.node.reduce.output.index.feat"));
+        outputDataTypes.add(Util.parseTranslatableText("fmod.node.reduce.output.index.type"));
+        outputNames.add(Util.parseTranslatableText("fmod.node.reduce.output.accumulator.name"));
+        outputDescriptions.add(Util.parseTranslatableText("fmod.node.reduce.output.accumulator.feat"));
+        outputDataTypes.add(Util.parseTranslatableText("fmod.node.reduce.output.accumulator.type"));
+        List<Text> branchNames = new ArrayList<>();
+        List<Text> branchDescriptions = new ArrayList<>();
+        branchNames.add(Util.parseTranslatableText("fmod.node.reduce.branch.body.name"));
+        branchDescriptions.add(Util.parseTranslatableText("fmod.node.reduce.branch.body.feat"));
+        branchNames.add(Util.parseTranslatableText("fmod.node.reduce.branch.done.name"));
+        branchDescriptions.add(Util.parseTranslatableText("fmod.node.reduce.branch.done.feat"));
+        return new NodeMetadata(inputNumber, outputNumber, branchNumber, displayName, description,
+            inputNames, inputDescriptions, inputDataTypes, outputNames, outputDescriptions, outputDataTypes, branchNames, branchDescriptions);
+    }
+
+    @Override
+    protected boolean isFeedbackInput(int index) {
+        return index == 2;
+    }
+
+    @Override
+    protected void onLoopStart(Iteration iteration, List<Object> resolvedInputs) throws LogicException {
+        iteration.accumulator = resolvedInputs.get(1);
+    }
+
+    @Override
+    protected void onBodyFinished(Iteration iteration, List<Object> resolvedInputs) throws LogicException {
+        iteration.accumulator = resolvedInputs.get(2);
+    }
+
+    @Override
+    protected void onNextElement(NodeStatus status, Iteration iteration) throws LogicException {
+        status.setOutput(2, iteration.accumulator);
+    }
+
+    @Override
+    protected void onLoopFinished(NodeStatus status, Iteration iteration) throws LogicException {
+        status.setOutput(2, iteration.accumulator);
+    }
+}
@@ -70,6 +70,18 @@ public class RunFlowNode extends FlowNode {
             inputNames, inputDescriptions, inputDataTypes, outputNames, outputDescriptions, outputDataTypes, branchNames, branchDescriptions);
     }
 
+    @Override
+    protected Object prepareConstantInput(int index, Object value) throws LogicException {
+        if (index == 0) {
+            return parseFlowName(value);
+        } else if (index == 1) {
+            return value == null ? null : (double) parseDelay(value);
+        } else if (index == 2) {
+            return value == null ? null : parseKeepVariables(value);
+        }
+        return value;
+    }
+
     @Override
     protected void onExecute(ExecutionContext context, NodeStatus status, List<Object> resolvedInputs) throws LogicException {
         String flowName = parseFlowName(resolvedInputs.get(0));
@@ -82,7 +94,7 @@ public class RunFlowNode extends FlowNode {
         if (targetFlow == null) {
             throw new LogicException(null, Util.parseTranslatableText("fmod.node.runflow.error.noflow", flowName), null);
         }
-        if (targetFlow.isEnabled == false) {
+        if (targetFlow.isEnabled() == false) {
             throw new LogicException(null, Util.parseTranslatableText("fmod.node.runflow.error.disabled", flowName), null);
         }
         if (delayInput <= 0) {
@@ -99,7 +111,7 @@ public class RunFlowNode extends FlowNode {
             }
             status.setOutput(0, null);
         } else {
-            ScheduledTask scheduledFlow = new ScheduledFlow(targetFlow, null, keepVariables ? context.getVariables() : null, server, delayInput);
+            ScheduledTask scheduledFlow = new ScheduledFlow(targetFlow, null, keepVariables ? context.getVariables().fork() : null, server, delayInput);
             data.submitScheduledTask(scheduledFlow);
             status.setOutput(0, scheduledFlow);
         }
@@ -107,7 +119,7 @@ public class RunFlowNode extends FlowNode {
 
     private String parseFlowName(Object flowObj) throws LogicException {
         if (flowObj == null) {
-            throw new LogicException(null, Util.parseTranslatableText("fmod.node.error.inputnull", this.name, this.metadata.inputNames.get(0)), null);
+            throw new LogicException(null, Util.parseTranslatableText("fmod.node.error.inputnull", this.name, this.getMetadata().inputNames.get(0)), null);
         } else {
             return TypeAdaptor.parse(flowObj).asString();
         }
@@ -119,7 +131,7 @@ public class RunFlowNode extends FlowNode {
         }
         Double delay = TypeAdaptor.parse(delayObj).asDouble();
         if (delay == null) {
-            throw new LogicException(null, Util.parseTranslatableText("fmod.node.error.classcast", this.name, this.metadata.inputNames.get(1), this.metadata.inputDataTypes.get(1)), null);
+            throw new LogicException(null, Util.parseTranslatableText("fmod.node.error.classcast", this.name, this.getMetadata().inputNames.get(1), this.getMetadata().inputDataTypes.get(1)), null);
         }
         int delayInt = delay.intValue();
         if (delayInt < 0) {
@@ -134,7 +146,7 @@ public class RunFlowNode extends FlowNode {
         }
         Boolean keepVar = TypeAdaptor.parse(keepVarObj).asBoolean();
         if (keepVar == null) {
-            throw new LogicException(null, Util.parseTranslatableText("fmod.node.error.classcast", this.name, this.metadata.inputNames.get(2), this.metadata.inputDataTypes.get(2)), null);
+            throw new LogicException(null, Util.parseTranslatableText("fmod.node.error.classcast", this.name, this.getMetadata().inputNames.get(2), this.getMetadata().inputDataTypes.get(2)), null);
         }
         return keepVar;
     }
@@ -89,6 +89,11 @@ public class SetObjectAtIndexNode extends FlowNode {
             inputNames, inputDescriptions, inputDataTypes, outputNames, outputDescriptions, outputDataTypes, branchNames, branchDescriptions);
     }
 
+    @Override
+    public boolean isWorldSafe() {
+        return true;
+    }
+
     @Override
     protected void onExecute(ExecutionContext context, NodeStatus status, List<Object> resolvedInputs) throws LogicException {
         List<Object> inputList = parseList(resolvedInputs.get(0));
@@ -15,6 +15,7 @@ import com.ykn.fmod.server.flow.logic.FlowNode;
 import com.ykn.fmod.server.flow.logic.LogicException;
 import com.ykn.fmod.server.flow.logic.NodeMetadata;
 import com.ykn.fmod.server.flow.logic.NodeStatus;
+import com.ykn.fmod.server.flow.logic.VariableStore;
 
 import net.minecraft.text.Text;
 
@@ -61,8 +62,40 @@ public class SetVariableNode extends FlowNode {
             inputNames, inputDescriptions, inputDataTypes, outputNames, outputDescriptions, outputDataTypes, branchNames, branchDescriptions);
     }
 
+    @Override
+    public boolean isWorldSafe() {
+        return true;
+    }
+
+    @Override
+    protected boolean isVariableNameInput(int index) {
+        return index == 0;
+    }
+
+    @Override
+    protected Object prepareConstantInput(int index, Object value) throws LogicException {
+        if (index == 0) {
+            return TypeAdaptor.parse(value).asString();
+        }
+        return value;
+    }
+
     @Override
     protected void onExecute(ExecutionContext context, NodeStatus status, List<Object> resolvedInputs) throws LogicException {
+        int varIndex = this.getInputVariableIndex(context, 0);
+        if (varIndex >= 0) {
+            Object valueObj = resolvedInputs.get(1);
+            VariableStore variables = context.getVariables();
+            Object rawValue = variables.getAt(varIndex);
+            if (valueObj instanceof Boolean) {
+                variables.setBooleanAt(varIndex, (Boolean) valueObj);
+            } else {
+                // Doubles go into the number slot, which keeps their box for reading them back
+                variables.setAt(varIndex, valueObj);
+            }
+            status.setOutput(0, rawValue);
+            return;
+        }
         Object varNameObj = resolvedInputs.get(0);
         String varName = TypeAdaptor.parse(varNameObj).asString();
         Object valueObj = resolvedInputs.get(1);
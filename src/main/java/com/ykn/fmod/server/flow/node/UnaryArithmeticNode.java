@@ -6,7 +6,9 @@
 package com.ykn.fmod.server.flow.node;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import com.ykn.fmod.server.base.util.TypeAdaptor;
 import com.ykn.fmod.server.base.util.Util;
@@ -28,8 +30,84 @@ import net.minecraft.util.math.Vec3d;
  * Outputs:
  * 1. Number - The result of the operation.
  * Branches: 1 (Next node)
+ * <p>
+ * The operation is resolved into an {@link Operator} once. If it is a constant, this happens
+ * when the flow is compiled, so executions do not parse it again.
  */
 public class UnaryArithmeticNode extends FlowNode {
+
+    /**
+     * The operations of this node, each with the case-insensitive strings that select it.
+     */
+    public enum Operator {
+        NEGATE("-"),
+        INVERT("~"),
+        ABS("abs"),
+        SQRT("sqrt"),
+        CBRT("cbrt"),
+        EXP("exp"),
+        LN("ln"),
+        LG("lg"),
+        SIN("sin"),
+        COS("cos"),
+        TAN("tan"),
+        ASIN("asin"),
+        ACOS("acos"),
+        ATAN("atan"),
+        SINH("sinh"),
+        COSH("cosh"),
+        TANH("tanh"),
+        CEIL("ceil"),
+        FLOOR("floor"),
+        ROUND("round"),
+        RAD("rad"),
+        DEG("deg"),
+        SGN("sgn"),
+        ERF("erf"),
+        LENGTH("length", "len"),
+        NORMALIZE("normalize", "norm"),
+        X("x"),
+        Y("y"),
+        Z("z"),
+        NOT("!", "not"),
+        LOWER("lower"),
+        IS_EMPTY("isempty"),
+        STRIP("strip");
+
+        private static final Map<String, Operator> BY_SYMBOL = new HashMap<>();
+
+        static {
+            for (Operator op : values()) {
+                for (String symbol : op.symbols) {
+                    BY_SYMBOL.put(symbol, op);
+                }
+            }
+        }
+
+        private final String[] symbols;
+
+        Operator(String... symbols) {
+            this.symbols = symbols;
+        }
+
+        /**
+         * Resolves an operation input into an operator.
+         *
+         * @param value The operation, either a string or an already resolved operator
+         * @return The operator, or null if the operation is not supported
+         */
+        public static Operator of(Object value) {
+            if (value instanceof Operator) {
+                return (Operator) value;
+            }
+            return BY_SYMBOL.get(TypeAdaptor.parse(value).asString().strip().toLowerCase());
+        }
+
+        @Override
+        public String toString() {
+            return this.symbols[0];
+        }
+    }
 	public UnaryArithmeticNode(long id, String name) {
 		super(id, name, 2, 1, 1);
 		this.type = "UnaryArithmeticNode";
@@ -62,11 +140,26 @@ public class UnaryArithmeticNode extends FlowNode {
 			inputNames, inputDescriptions, inputDataTypes, outputNames, outputDescriptions, outputDataTypes, branchNames, branchDescriptions);
 	}
 
+	@Override
+	public boolean isWorldSafe() {
+		return true;
+	}
+
+	@Override
+	protected Object prepareConstantInput(int index, Object value) throws LogicException {
+		if (index == 1) {
+			Operator op = Operator.of(value);
+			// Unsupported operations are kept, so that executions still report them
+			return op == null ? value : op;
+		}
+		return value;
+	}
+
 	@Override
 	protected void onExecute(ExecutionContext context, NodeStatus status, List<Object> resolvedInputs) throws LogicException {
 		Object numObj = resolvedInputs.get(0);
 		Object opObj = resolvedInputs.get(1);
-		String operation = TypeAdaptor.parse(opObj).asString().strip().toLowerCase();
+		Operator op = Operator.of(opObj);
 
         // Special handling for null inputs
 		if (numObj == null) {
@@ -74,199 +167,188 @@ public class UnaryArithmeticNode extends FlowNode {
 			return;
 		}
 
+		if (op == null) {
+			throw this.unsupported(opObj);
+		}
+
+        // Fast path for doubles, which are neither vectors nor need to be converted
+        if (numObj instanceof Double) {
+            status.setOutput(0, this.applyDouble(op, opObj, (Double) numObj));
+            return;
+        }
+
         Double tryDouble = TypeAdaptor.parse(numObj).asDouble();
 
         // Try Vec3d operations
         Vec3d tryVec3d = TypeAdaptor.parse(numObj).asVec3d();
         if (tryVec3d != null) {
-            switch (operation) {
-                case "length":
-                case "len":
+            switch (op) {
+                case LENGTH:
                     status.setOutput(0, tryVec3d.length());
                     return;
-                case "normalize":
-                case "norm":
+                case NORMALIZE:
                     status.setOutput(0, tryVec3d.normalize());
                     return;
-                case "-":
+                case NEGATE:
                     status.setOutput(0, tryVec3d.multiply(-1));
                     return;
-                case "x":
+                case X:
                     status.setOutput(0, tryVec3d.x);
                     return;
-                case "y":
+                case Y:
                     status.setOutput(0, tryVec3d.y);
                     return;
-                case "z":
+                case Z:
                     status.setOutput(0, tryVec3d.z);    
                     return;
                 default:
-                    throw new LogicException(null, Util.parseTranslatableText("fmod.node.unalu.error.unsupported", this.name, operation), null);
+                    throw this.unsupported(opObj);
             }
         }
 
         // Try Vec2f operations
         Vec2f tryVec2f = TypeAdaptor.parse(numObj).asVec2f();
         if (tryVec2f != null) {
-            switch (operation) {
-                case "length":
-                case "len":
+            switch (op) {
+                case LENGTH:
                     status.setOutput(0, tryVec2f.length());
                     return;
-                case "normalize":
-                case "norm":
+                case NORMALIZE:
                     status.setOutput(0, tryVec2f.normalize());
                     return;
-                case "-":
+                case NEGATE:
                     status.setOutput(0, new Vec2f(-tryVec2f.x, -tryVec2f.y));
                     return;
-                case "x":
+                case X:
                     status.setOutput(0, tryVec2f.x);
                     return;
-                case "y":
+                case Y:
                     status.setOutput(0, tryVec2f.y);
                     return;
                 default:
-                    throw new LogicException(null, Util.parseTranslatableText("fmod.node.unalu.error.unsupported", this.name, operation), null);
+                    throw this.unsupported(opObj);
             }
         }
 
         // Try double operations
         if (tryDouble != null) {
-            switch (operation) {
-                case "-":
-                    status.setOutput(0, -tryDouble);
-                    return;
-                case "~":
-                    status.setOutput(0, (double) ~tryDouble.longValue());
-                    return;
-                case "abs":
-                    status.setOutput(0, Math.abs(tryDouble));
-                    return;
-                case "sqrt":
-                    status.setOutput(0, Math.sqrt(tryDouble));
-                    return;
-                case "cbrt":
-                    status.setOutput(0, Math.cbrt(tryDouble));
-                    return;
-                case "exp":
-                    status.setOutput(0, Math.exp(tryDouble));
-                    return;
-                case "ln":
-                    status.setOutput(0, Math.log(tryDouble));
-                    return;
-                case "lg":
-                    status.setOutput(0, Math.log10(tryDouble));
-                    return;
-                case "sin":
-                    status.setOutput(0, Math.sin(tryDouble));
-                    return;
-                case "cos":
-                    status.setOutput(0, Math.cos(tryDouble));
-                    return;
-                case "tan":
-                    status.setOutput(0, Math.tan(tryDouble));
-                    return;
-                case "asin":
-                    status.setOutput(0, Math.asin(tryDouble));
-                    return;
-                case "acos":
-                    status.setOutput(0, Math.acos(tryDouble));
-                    return;
-                case "atan":
-                    status.setOutput(0, Math.atan(tryDouble));
-                    return;
-                case "sinh":
-                    status.setOutput(0, Math.sinh(tryDouble));
-                    return;
-                case "cosh":
-                    status.setOutput(0, Math.cosh(tryDouble));
-                    return;
-                case "tanh":
-                    status.setOutput(0, Math.tanh(tryDouble));
-                    return;
-                case "ceil":
-                    status.setOutput(0, Math.ceil(tryDouble));
-                    return;
-                case "floor":
-                    status.setOutput(0, Math.floor(tryDouble));
-                    return;
-                case "round":
-                    status.setOutput(0, (double) Math.round(tryDouble));
-                    return;
-                case "rad":
-                    status.setOutput(0, Math.toRadians(tryDouble));
-                    return;
-                case "deg":
-                    status.setOutput(0, Math.toDegrees(tryDouble));
-                    return;
-                case "sgn":
-                    status.setOutput(0, Math.signum(tryDouble));
-                    return;
-                case "erf":
-                    // Java's Math class does not have an erf function
-                    throw new LogicException(null, Util.parseTranslatableText("fmod.node.unalu.error.unsupported", this.name, operation), null);
-                    // status.setOutput(0, Math.erf(tryDouble));
-                    // return;
-                default:
-                    throw new LogicException(null, Util.parseTranslatableText("fmod.node.unalu.error.unsupported", this.name, operation), null);
-            }
+            status.setOutput(0, this.applyDouble(op, opObj, tryDouble));
+            return;
         }
 
         // Try boolean operations
         Boolean tryBool = TypeAdaptor.parse(numObj).asBoolean();
         if (tryBool != null) {
-            switch (operation) {
-                case "!":
-                case "not":
+            switch (op) {
+                case NOT:
                     status.setOutput(0, !tryBool);
                     return;
                 default:
-                    throw new LogicException(null, Util.parseTranslatableText("fmod.node.unalu.error.unsupported", this.name, operation), null);
+                    throw this.unsupported(opObj);
             }
         }
 
         // Special Use case for String and Text
         if (numObj instanceof Text) {
             Text text = (Text) numObj;
-            switch (operation) {
-                case "length":
-                case "len":
+            switch (op) {
+                case LENGTH:
                     status.setOutput(0, text.getString().length());
                     return;
-                case "lower":
+                case LOWER:
                     status.setOutput(0, text.getString().toLowerCase());
                     return;
-                case "isempty":
+                case IS_EMPTY:
                     status.setOutput(0, text.getString().isEmpty());
                     return;
                 default:
-                    throw new LogicException(null, Util.parseTranslatableText("fmod.node.unalu.error.unsupported", this.name, operation), null);
+                    throw this.unsupported(opObj);
             }
         }
 
         String tryString = TypeAdaptor.parse(numObj).asString();
         if (tryString != null) {
-            switch (operation) {
-                case "length":
-                case "len":
+            switch (op) {
+                case LENGTH:
                     status.setOutput(0, tryString.length());
                     return;
-                case "lower":
+                case LOWER:
                     status.setOutput(0, tryString.toLowerCase());
                     return;
-                case "isempty":
+                case IS_EMPTY:
                     status.setOutput(0, tryString.isEmpty());
                     return;
-                case "strip":
+                case STRIP:
                     status.setOutput(0, tryString.strip());
                     return;
                 default:
-                    throw new LogicException(null, Util.parseTranslatableText("fmod.node.unalu.error.unsupported", this.name, operation), null);
+                    throw this.unsupported(opObj);
             }
         }
 
         // If we reach here, the input type is unsupported
-        throw new LogicException(null, Util.parseTranslatableText("fmod.node.unalu.error.unsupported", this.name, operation), null);
+        throw this.unsupported(opObj);
 	}
+
+    private Object applyDouble(Operator op, Object opObj, double num) throws LogicException {
+        switch (op) {
+            case NEGATE:
+                return -num;
+            case INVERT:
+                return (double) ~(long) num;
+            case ABS:
+                return Math.abs(num);
+            case SQRT:
+                return Math.sqrt(num);
+            case CBRT:
+                return Math.cbrt(num);
+            case EXP:
+                return Math.exp(num);
+            case LN:
+                return Math.log(num);
+            case LG:
+                return Math.log10(num);
+            case SIN:
+                return Math.sin(num);
+            case COS:
+                return Math.cos(num);
+            case TAN:
+                return Math.tan(num);
+            case ASIN:
+                return Math.asin(num);
+            case ACOS:
+                return Math.acos(num);
+            case ATAN:
+                return Math.atan(num);
+            case SINH:
+                return Math.sinh(num);
+            case COSH:
+                return Math.cosh(num);
+            case TANH:
+                return Math.tanh(num);
+            case CEIL:
+                return Math.ceil(num);
+            case FLOOR:
+                return Math.floor(num);
+            case ROUND:
+                return (double) Math.round(num);
+            case RAD:
+                return Math.toRadians(num);
+            case DEG:
+                return Math.toDegrees(num);
+            case SGN:
+                return Math.signum(num);
+            case ERF:
+                // Java's Math class does not have an erf function
+                throw this.unsupported(opObj);
+                // return Math.erf(num);
+            default:
+                throw this.unsupported(opObj);
+        }
+    }
+
+    private LogicException unsupported(Object opObj) {
+        String operation = TypeAdaptor.parse(opObj).asString().strip().toLowerCase();
+        return new LogicException(null, Util.parseTranslatableText("fmod.node.unalu.error.unsupported", this.name, operation), null);
+    }
 }
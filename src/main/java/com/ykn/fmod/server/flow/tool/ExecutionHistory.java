@@ -0,0 +1,318 @@
+/**
+ * Copyright (c) ykn
+ * This file is under the MIT License
+ */
+
+package com.ykn.fmod.server.flow.tool;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.ykn.fmod.server.base.util.Util;
+import com.ykn.fmod.server.flow.logic.ExecutionContext;
+import com.ykn.fmod.server.flow.logic.NodeStatus;
+
+import net.minecraft.text.Text;
+
+/**
+ * The history of flow executions, kept for debugging with {@code /f flow history} and {@code /f flow log}.
+ * <p>
+ * The history is a ring buffer, so the oldest entry is dropped in constant time once the history
+ * is full. It has three budgets, all read from the server config every time an entry is added:
+ * <ul>
+ *   <li>{@link com.ykn.fmod.server.base.config.ServerConfig#getKeepFlowHistoryNumber()}: The number of entries to keep</li>
+ *   <li>{@link com.ykn.fmod.server.base.config.ServerConfig#getKeepFlowHistoryDetailNumber()}: The number of
+ *       most recent entries that keep their {@link ExecutionContext}</li>
+ *   <li>{@link com.ykn.fmod.server.base.config.ServerConfig#getKeepFlowHistoryKilobytes()}: The estimated memory
+ *       of all entries. Once it is exceeded, the oldest detailed entries are compacted first, then the oldest
+ *       entries are dropped, but the newest entry is always kept.</li>
+ * </ul>
+ * Older entries are compacted: the execution context is rendered into a text summary once and then
+ * dropped, together with the node statuses, variables and any entities or worlds they refer to.
+ * <p>
+ * The memory of an entry is only estimated from the number of node statuses and values it keeps,
+ * or from the length of its summary. The values themselves are not measured, as they are usually
+ * game objects that are kept alive by the game anyway.
+ * <p>
+ * Thread Safety: This class must only be accessed from the main server thread.
+ */
+public class ExecutionHistory {
+
+    /**
+     * A single flow execution in the history.
+     */
+    public static class Entry {
+
+        /**
+         * The name of the flow when it was executed. It is kept apart from the context, so it is still
+         * known after the entry is compacted, and it does not change if the flow is renamed later.
+         */
+        private final String flowName;
+
+        /**
+         * The execution context, or null if this entry has been compacted.
+         */
+        @Nullable
+        private ExecutionContext context;
+
+        /**
+         * The rendered execution, or null if this entry has not been compacted yet.
+         */
+        @Nullable
+        private Text summary;
+
+        /**
+         * The estimated memory of this entry in bytes, see {@link #estimateBytes(ExecutionContext)}.
+         */
+        private long estimatedBytes;
+
+        private Entry(ExecutionContext context) {
+            this.flowName = context.getFlow().name;
+            this.context = context;
+            this.summary = null;
+            this.estimatedBytes = estimateBytes(context);
+        }
+
+        /**
+         * Gets the name the flow had when it was executed.
+         *
+         * @return The name of the executed flow
+         */
+        @NotNull
+        public String getFlowName() {
+            return this.flowName;
+        }
+
+        /**
+         * Gets the execution context of this entry.
+         *
+         * @return The execution context, or null if this entry has been compacted into a summary
+         */
+        @Nullable
+        public ExecutionContext getContext() {
+            return this.context;
+        }
+
+        /**
+         * Checks whether this entry has been compacted into a summary.
+         *
+         * @return true if only the summary of this execution is kept
+         */
+        public boolean isCompacted() {
+            return this.context == null;
+        }
+
+        /**
+         * Renders this execution, see {@link ExecutionContext#render()}.
+         *
+         * @return The rendered execution
+         */
+        @NotNull
+        public Text render() {
+            if (this.context != null) {
+                return this.context.render();
+            }
+            return this.summary;
+        }
+
+        /**
+         * Gets the estimated memory of this entry, which is much smaller once it is compacted.
+         *
+         * @return The estimated memory in bytes
+         */
+        public long getEstimatedBytes() {
+            return this.estimatedBytes;
+        }
+
+        private void compact() {
+            if (this.context != null) {
+                this.summary = this.context.render();
+                this.context = null;
+                this.estimatedBytes = estimateBytes(this.summary);
+            }
+        }
+    }
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Rough sizes in bytes of what an entry keeps, used to estimate its memory.
+     */
+    private static final long ENTRY_BYTES = 64;
+    private static final long CONTEXT_BYTES = 512;
+    private static final long STATUS_BYTES = 64;
+    private static final long VALUE_BYTES = 16;
+    private static final long CHAR_BYTES = 2;
+
+    /**
+     * The ring buffer. It grows on demand up to the configured history size, so a large limit
+     * does not allocate a large array up front.
+     */
+    private Entry[] entries;
+
+    /**
+     * The index of the oldest entry in {@link #entries}.
+     */
+    private int head;
+
+    private int size;
+
+    /**
+     * The sum of the estimated memory of all entries.
+     */
+    private long totalBytes;
+
+    public ExecutionHistory() {
+        this.entries = new Entry[INITIAL_CAPACITY];
+        this.head = 0;
+        this.size = 0;
+        this.totalBytes = 0;
+    }
+
+    /**
+     * Adds a finished execution to the history, then drops and compacts older entries
+     * according to the server config.
+     *
+     * @param context The execution context to add
+     */
+    public void add(@NotNull ExecutionContext context) {
+        int historyLimit = Util.serverConfig.getKeepFlowHistoryNumber();
+        int detailLimit = Util.serverConfig.getKeepFlowHistoryDetailNumber();
+        long byteLimit = Util.serverConfig.getKeepFlowHistoryKilobytes() * 1024L;
+        if (historyLimit <= 0) {
+            this.clear();
+            return;
+        }
+        while (this.size >= historyLimit) {
+            this.removeOldest();
+        }
+        if (this.size == this.entries.length) {
+            this.grow(historyLimit);
+        }
+        Entry added = new Entry(context);
+        this.entries[(this.head + this.size) % this.entries.length] = added;
+        this.size++;
+        this.totalBytes += added.estimatedBytes;
+        // Entries older than the detail limit are compacted, and everything before them has been compacted already
+        for (int i = this.size - 1 - detailLimit; i >= 0; i--) {
+            Entry entry = this.get(i);
+            if (entry.isCompacted()) {
+                break;
+            }
+            this.compact(entry);
+        }
+        if (byteLimit > 0) {
+            this.fitBytes(byteLimit);
+        }
+    }
+
+    /**
+     * Gets the estimated memory of all entries in the history.
+     *
+     * @return The estimated memory in bytes
+     */
+    public long getEstimatedBytes() {
+        return this.totalBytes;
+    }
+
+    /**
+     * Gets an entry of the history.
+     *
+     * @param index The index of the entry, from 0 (the oldest) to {@link #size()} - 1 (the newest)
+     * @return The entry at this index
+     * @throws IndexOutOfBoundsException If the index is out of range
+     */
+    @NotNull
+    public Entry get(int index) {
+        if (index < 0 || index >= this.size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + this.size);
+        }
+        return this.entries[(this.head + index) % this.entries.length];
+    }
+
+    /**
+     * Gets the number of entries in the history.
+     *
+     * @return The number of entries
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Removes all entries from the history.
+     */
+    public void clear() {
+        this.entries = new Entry[INITIAL_CAPACITY];
+        this.head = 0;
+        this.size = 0;
+        this.totalBytes = 0;
+    }
+
+    /**
+     * Compacts the oldest detailed entries, then drops the oldest entries, until the history fits into the byte limit
+     * or only the newest entry is left.
+     */
+    private void fitBytes(long byteLimit) {
+        // The compacted entries are always the oldest ones, so this compacts the oldest detailed entries first
+        for (int i = 0; i < this.size - 1 && this.totalBytes > byteLimit; i++) {
+            Entry entry = this.get(i);
+            if (!entry.isCompacted()) {
+                this.compact(entry);
+            }
+        }
+        while (this.size > 1 && this.totalBytes > byteLimit) {
+            this.removeOldest();
+        }
+    }
+
+    private void compact(Entry entry) {
+        this.totalBytes -= entry.estimatedBytes;
+        entry.compact();
+        this.totalBytes += entry.estimatedBytes;
+    }
+
+    private void removeOldest() {
+        this.totalBytes -= this.entries[this.head].estimatedBytes;
+        this.entries[this.head] = null;
+        this.head = (this.head + 1) % this.entries.length;
+        this.size--;
+    }
+
+    private static long estimateBytes(ExecutionContext context) {
+        long bytes = ENTRY_BYTES + CONTEXT_BYTES;
+        int nodeCount = context.getPlan().getNodeCount();
+        for (int i = 0; i < nodeCount; i++) {
+            bytes += estimateBytes(context.getNodeStatusAt(i));
+        }
+        for (NodeStatus status : context.getExecutedSequence()) {
+            bytes += estimateBytes(status);
+        }
+        return bytes;
+    }
+
+    private static long estimateBytes(NodeStatus status) {
+        long bytes = STATUS_BYTES;
+        if (status.inputs != null) {
+            bytes += VALUE_BYTES * status.inputs.size();
+        }
+        if (status.outputs != null) {
+            bytes += VALUE_BYTES * status.outputs.size();
+        }
+        return bytes;
+    }
+
+    private static long estimateBytes(Text summary) {
+        return ENTRY_BYTES + CHAR_BYTES * summary.getString().length();
+    }
+
+    private void grow(int historyLimit) {
+        int newCapacity = (int) Math.min((long) this.entries.length * 2, historyLimit);
+        Entry[] newEntries = new Entry[Math.max(newCapacity, this.size + 1)];
+        for (int i = 0; i < this.size; i++) {
+            newEntries[i] = this.get(i);
+        }
+        this.entries = newEntries;
+        this.head = 0;
+    }
+}
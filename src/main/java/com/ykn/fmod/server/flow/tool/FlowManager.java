@@ -13,10 +13,16 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import com.ykn.fmod.server.base.data.ServerData;
+import com.ykn.fmod.server.base.async.OffloadedFlow;
+import com.ykn.fmod.server.base.schedule.SlicedFlow;
+import com.ykn.fmod.server.base.util.FlowExecutionMode;
+import com.ykn.fmod.server.base.util.FlowOverloadPolicy;
+import com.ykn.fmod.server.base.util.FlowTraceLevel;
 import com.ykn.fmod.server.base.util.Util;
 import com.ykn.fmod.server.flow.logic.DataReference;
 import com.ykn.fmod.server.flow.logic.ExecutionContext;
 import com.ykn.fmod.server.flow.logic.FlowNode;
+import com.ykn.fmod.server.flow.logic.FlowPlan;
 import com.ykn.fmod.server.flow.logic.LogicException;
 import com.ykn.fmod.server.flow.logic.LogicFlow;
 
@@ -51,7 +57,7 @@ import com.ykn.fmod.server.flow.logic.LogicFlow;
  * manager.createNode("BinaryArithmeticNode", "AddOne");
  * manager.setConstInput("AddOne", 0, 1.0);
  * manager.setNextNode("OnDeath", 0, "AddOne");
- * manager.isEnabled = true;
+ * manager.setEnabled(true);
  * </pre>
  * 
  * @see LogicFlow
@@ -74,7 +80,39 @@ public class FlowManager {
      * Only enabled flows will be automatically executed when their triggering
      * events occur (e.g., entity death, player interaction).
      */
-    public boolean isEnabled;
+    private boolean isEnabled;
+
+    /**
+     * Called whenever this flow is enabled or disabled, so that the owner can keep
+     * its event subscriptions up to date. May be null.
+     */
+    @Nullable
+    private Runnable changeListener;
+
+    /**
+     * The compiled execution plan of the current flow, or null if the flow was edited
+     * since the plan was last compiled.
+     */
+    @Nullable
+    private FlowPlan plan;
+
+    /**
+     * How much of each execution of this flow is recorded in the execution history.
+     * Flows that run very often, such as on every entity damage, can lower this to avoid
+     * the cost of recording every node, while a flow being debugged keeps the full trace.
+     */
+    private FlowTraceLevel traceLevel;
+
+    /**
+     * Whether executions of this flow run to completion at once, or are spread over several
+     * server ticks so that a long flow does not stall a single tick.
+     */
+    private FlowExecutionMode executionMode;
+
+    /**
+     * What happens to an execution triggered by an event once the flow budget of the tick has been used up.
+     */
+    private FlowOverloadPolicy overloadPolicy;
 
     /**
      * Stack of operations that can be redone.
@@ -102,6 +140,11 @@ public class FlowManager {
     public FlowManager(LogicFlow flow) {
         this.flow = flow;
         this.isEnabled = false;
+        this.changeListener = null;
+        this.plan = null;
+        this.traceLevel = FlowTraceLevel.FULL;
+        this.executionMode = FlowExecutionMode.RUN_TO_COMPLETION;
+        this.overloadPolicy = FlowOverloadPolicy.DEFER;
         this.redoPath = new Stack<>();
         this.undoPath = new Stack<>();
     }
@@ -122,10 +165,163 @@ public class FlowManager {
         this.flow.addNode(startNode);
         this.flow.startNodeId = startNode.getId();
         this.isEnabled = false;
+        this.changeListener = null;
+        this.plan = null;
+        this.traceLevel = FlowTraceLevel.FULL;
+        this.executionMode = FlowExecutionMode.RUN_TO_COMPLETION;
+        this.overloadPolicy = FlowOverloadPolicy.DEFER;
         this.redoPath = new Stack<>();
         this.undoPath = new Stack<>();
     }
 
+    /**
+     * Checks whether this flow is enabled for automatic event triggering.
+     * 
+     * @return True if the flow is enabled
+     */
+    public boolean isEnabled() {
+        return this.isEnabled;
+    }
+
+    /**
+     * Enables or disables this flow for automatic event triggering.
+     * <p>
+     * The change listener is notified if the state actually changes.
+     * 
+     * @param enabled Whether the flow should be enabled
+     */
+    public void setEnabled(boolean enabled) {
+        if (this.isEnabled == enabled) {
+            return;
+        }
+        this.isEnabled = enabled;
+        if (this.changeListener != null) {
+            this.changeListener.run();
+        }
+    }
+
+    /**
+     * Gets the compiled execution plan of the flow, compiling it first if the flow was edited.
+     * <p>
+     * The plan is shared by all executions until the next edit, so executing an unchanged
+     * flow does not copy it again.
+     * 
+     * @return The execution plan of the current flow
+     */
+    @NotNull
+    public FlowPlan getPlan() {
+        if (this.plan == null) {
+            this.plan = FlowPlan.compile(this.flow);
+        }
+        return this.plan;
+    }
+
+    /**
+     * Gets how much of each execution of this flow is recorded.
+     * 
+     * @return The trace level of this flow
+     */
+    public FlowTraceLevel getTraceLevel() {
+        return this.traceLevel;
+    }
+
+    /**
+     * Sets how much of each execution of this flow is recorded.
+     * <p>
+     * At {@link FlowTraceLevel#OFF}, executions are not added to the execution history at all.
+     * At {@link FlowTraceLevel#SUMMARY}, only the executed nodes and the exception are kept.
+     * 
+     * @param traceLevel The new trace level
+     * @see ExecutionContext#setTraceLevel(FlowTraceLevel)
+     */
+    public void setTraceLevel(FlowTraceLevel traceLevel) {
+        this.traceLevel = traceLevel;
+    }
+
+    /**
+     * Gets whether executions of this flow run to completion or are sliced over several ticks.
+     * 
+     * @return The execution mode of this flow
+     */
+    public FlowExecutionMode getExecutionMode() {
+        return this.executionMode;
+    }
+
+    /**
+     * Sets whether executions of this flow run to completion or are sliced over several ticks.
+     * <p>
+     * At {@link FlowExecutionMode#SLICED}, an execution yields once it has run for the time slice
+     * in the server config, and continues in the next server tick. Only the executions started by
+     * events, schedules and commands are sliced. A flow run by another flow always runs to
+     * completion within the time of the calling flow.
+     * <p>
+     * At {@link FlowExecutionMode#OFFLOADED}, executions are sliced, and in addition every
+     * sub-graph of world-safe nodes that contains a loop is executed on the async pool, so that
+     * heavy computation does not take time from the server tick at all.
+     * Changing the mode does not affect executions that have already started.
+     * 
+     * @param executionMode The new execution mode
+     * @see ExecutionContext#executeSliced(List, Map, long)
+     */
+    public void setExecutionMode(FlowExecutionMode executionMode) {
+        this.executionMode = executionMode;
+    }
+
+    /**
+     * Gets what happens to executions triggered by events once the flow budget of a tick has been used up.
+     * 
+     * @return The overload policy of this flow
+     */
+    public FlowOverloadPolicy getOverloadPolicy() {
+        return this.overloadPolicy;
+    }
+
+    /**
+     * Sets what happens to executions triggered by events once the flow budget of a tick has been used up.
+     * <p>
+     * At {@link FlowOverloadPolicy#DEFER}, the execution waits in a queue and runs in a later tick.
+     * At {@link FlowOverloadPolicy#DROP}, the execution is skipped, which suits flows whose events
+     * are only worth handling right away.
+     * 
+     * @param overloadPolicy The new overload policy
+     * @see FlowScheduler
+     */
+    public void setOverloadPolicy(FlowOverloadPolicy overloadPolicy) {
+        this.overloadPolicy = overloadPolicy;
+    }
+
+    /**
+     * Renames the managed flow.
+     * <p>
+     * Unlike editing operations, renaming does not disable the flow and cannot be undone.
+     * 
+     * @param name The new name of the flow
+     */
+    public void renameFlow(String name) {
+        this.flow.name = name;
+        this.plan = null;
+    }
+
+    /**
+     * Discards the compiled plan and disables the flow after an editing operation.
+     */
+    private void markEdited() {
+        this.plan = null;
+        this.setEnabled(false);
+    }
+
+    /**
+     * Sets the callback that is notified whenever this flow is enabled or disabled.
+     * <p>
+     * Editing operations disable the flow, so the listener also learns about every edit
+     * of an enabled flow, including a change of its event node.
+     * 
+     * @param listener The callback, or null to remove it
+     */
+    public void setChangeListener(@Nullable Runnable listener) {
+        this.changeListener = listener;
+    }
+
     /**
      * Creates a new node and adds it to the flow.
      * <p>
@@ -140,7 +336,7 @@ public class FlowManager {
         FlowNode node = NodeRegistry.createNode(type, flow.generateId(), name);
         this.flow.addNode(node);
         this.undoPath.add(new NodeEditPath(f -> f.addNode(node), f -> f.removeNode(node.getId())));
-        this.isEnabled = false;
+        this.markEdited();
     }
 
     /**
@@ -159,7 +355,7 @@ public class FlowManager {
         if (node != null) {
             this.flow.removeNode(node.getId());
             this.undoPath.add(new NodeEditPath(f -> f.removeNode(node.getId()), f -> f.addNode(node)));
-            this.isEnabled = false;
+            this.markEdited();
         }
     }
 
@@ -195,7 +391,7 @@ public class FlowManager {
                     f.removeNode(newNode.getId());
                 }
             ));
-            this.isEnabled = false;
+            this.markEdited();
         }
     }
 
@@ -227,7 +423,7 @@ public class FlowManager {
                     }
                 }
             ));
-            this.isEnabled = false;
+            this.markEdited();
         }
     }
 
@@ -261,7 +457,7 @@ public class FlowManager {
                     }
                 }
             ));
-            this.isEnabled = false;
+            this.markEdited();
         }
     }
 
@@ -299,7 +495,7 @@ public class FlowManager {
                     }
                 }
             ));
-            this.isEnabled = false;
+            this.markEdited();
         }
     }
 
@@ -331,7 +527,7 @@ public class FlowManager {
                     }
                 }
             ));
-            this.isEnabled = false;
+            this.markEdited();
         }
     }
 
@@ -369,7 +565,7 @@ public class FlowManager {
                     }
                 }
             ));
-            this.isEnabled = false;
+            this.markEdited();
         }
     }
 
@@ -403,7 +599,7 @@ public class FlowManager {
                     }
                 }
             ));
-            this.isEnabled = false;
+            this.markEdited();
         }
     }
 
@@ -418,7 +614,7 @@ public class FlowManager {
             NodeEditPath edit = this.redoPath.pop();
             edit.redo(this.flow);
             this.undoPath.push(edit);
-            this.isEnabled = false;
+            this.markEdited();
         }
     }
 
@@ -433,7 +629,7 @@ public class FlowManager {
             NodeEditPath edit = this.undoPath.pop();
             edit.undo(this.flow);
             this.redoPath.push(edit);
-            this.isEnabled = false;
+            this.markEdited();
         }
     }
 
@@ -442,10 +638,10 @@ public class FlowManager {
      * <p>
      * This method:
      * <ol>
-     *   <li>Creates a new ExecutionContext for this flow</li>
+     *   <li>Creates a new ExecutionContext for the compiled plan of this flow</li>
      *   <li>Executes the flow with the specified parameters</li>
-     *   <li>Stores the execution context in the server's history</li>
-     *   <li>Trims the history if it exceeds the configured limit</li>
+     *   <li>Stores the execution context in the server's history, unless the trace level is OFF</li>
+     *   <li>Drops or compacts older history entries as configured</li>
      *   <li>Returns any exception that occurred during execution</li>
      * </ol>
      * <p>
@@ -466,12 +662,16 @@ public class FlowManager {
      * <p>
      * This method:
      * <ol>
-     *   <li>Creates a new ExecutionContext for this flow</li>
+     *   <li>Creates a new ExecutionContext for the compiled plan of this flow</li>
      *   <li>Executes the flow with the specified parameters</li>
-     *   <li>Stores the execution context in the server's history</li>
-     *   <li>Trims the history if it exceeds the configured limit</li>
+     *   <li>Stores the execution context in the server's history, unless the trace level is OFF</li>
+     *   <li>Drops or compacts older history entries as configured</li>
      *   <li>Returns any exception that occurred during execution</li>
      * </ol>
+     * <p>
+     * If the flow is {@link FlowExecutionMode#SLICED} or {@link FlowExecutionMode#OFFLOADED} and does not
+     * finish within its first time slice, it continues in the next server ticks or on the async pool,
+     * and is only added to the history once it has finished.
      * 
      * @param serverData The server data containing the server instance and execution history
      * @param maxFlowLength The maximum number of nodes to execute before forcibly stopping
@@ -479,28 +679,96 @@ public class FlowManager {
      * @param startNodeOutputs Optional output values to pre-populate for the start node (e.g., event parameters)
      * @param initialVariables Optional initial variables for the execution context
      * @return The LogicException that terminated execution, or null if execution completed successfully
+     *         or has been sliced and is still running
      */
     @Nullable
     public LogicException execute(@NotNull ServerData serverData, int maxFlowLength, int maxRecursionDepth, @Nullable List<Object> startNodeOutputs, @Nullable Map<String, Object> initialVariables) {
-        ExecutionContext executionContext = new ExecutionContext(this.flow, serverData.server, maxFlowLength, maxRecursionDepth);
-        executionContext.execute(startNodeOutputs, initialVariables);
-        serverData.executeHistory.add(executionContext);
-        int historyLimit = Util.serverConfig.getKeepFlowHistoryNumber();
-        while (serverData.executeHistory.size() > historyLimit) {
-            serverData.executeHistory.remove(0);
+        ExecutionContext executionContext = new ExecutionContext(this.getPlan(), serverData.server, maxFlowLength, maxRecursionDepth);
+        executionContext.setTraceLevel(this.traceLevel);
+        long startTime = System.nanoTime();
+        try {
+            if (this.executionMode != FlowExecutionMode.RUN_TO_COMPLETION) {
+                executionContext.setOffloading(this.executionMode == FlowExecutionMode.OFFLOADED);
+                if (!executionContext.executeSliced(startNodeOutputs, initialVariables, getSliceDeadline())) {
+                    this.continueLater(serverData, executionContext);
+                    return null;
+                }
+            } else {
+                executionContext.execute(startNodeOutputs, initialVariables);
+            }
+        } finally {
+            serverData.getFlowScheduler().addExecutionTime(System.nanoTime() - startTime);
         }
+        this.addToHistory(serverData, executionContext);
         return executionContext.getException();
     }
 
+    /**
+     * Continues a sliced execution of this flow for another time slice,
+     * and stores the execution context in the server's history once it has finished.
+     * 
+     * @param serverData The server data containing the execution history
+     * @param executionContext The suspended execution context
+     * @return true if the execution has finished, false if it needs to continue later,
+     *         see {@link #continueLater(ServerData, ExecutionContext)}
+     * @see SlicedFlow
+     * @see OffloadedFlow
+     */
+    public boolean resume(@NotNull ServerData serverData, @NotNull ExecutionContext executionContext) {
+        long startTime = System.nanoTime();
+        boolean finished = executionContext.resume(getSliceDeadline());
+        serverData.getFlowScheduler().addExecutionTime(System.nanoTime() - startTime);
+        if (!finished) {
+            return false;
+        }
+        this.addToHistory(serverData, executionContext);
+        return true;
+    }
+
+    /**
+     * Schedules a suspended execution of this flow to continue. If the execution waits at a sub-graph
+     * of world-safe nodes, it continues on the async pool, otherwise in the next server tick.
+     * 
+     * @param serverData The server data to submit the continuation to
+     * @param executionContext The suspended execution context
+     * @see ExecutionContext#isOffloadPending()
+     */
+    public void continueLater(@NotNull ServerData serverData, @NotNull ExecutionContext executionContext) {
+        if (executionContext.isOffloadPending()) {
+            serverData.submitAsyncTask(new OffloadedFlow(this, executionContext, serverData));
+        } else {
+            serverData.submitScheduledTask(new SlicedFlow(this, executionContext, serverData));
+        }
+    }
+
+    /**
+     * Terminates a suspended sliced execution of this flow, and stores the execution context
+     * in the server's history.
+     * 
+     * @param serverData The server data containing the execution history
+     * @param executionContext The suspended execution context
+     */
+    public void abort(@NotNull ServerData serverData, @NotNull ExecutionContext executionContext) {
+        if (!executionContext.isSuspended()) {
+            return;
+        }
+        executionContext.abort(new LogicException(null, Util.parseTranslatableText("fmod.flow.error.aborted"), null));
+        this.addToHistory(serverData, executionContext);
+    }
+
+    private static long getSliceDeadline() {
+        return System.nanoTime() + Util.serverConfig.getFlowTimeSlice() * 1000L;
+    }
+
     /**
      * Executes this flow within a parent execution context and stores the execution context in the server's history.
      * <p>
      * This method:
      * <ol>
-     *   <li>Creates a new ExecutionContext for this flow</li>
+     *   <li>Creates a new ExecutionContext for the compiled plan of this flow</li>
      *   <li>Executes the flow within the provided parent context</li>
-     *   <li>Stores the execution context in the server's history</li>
-     *   <li>Trims the history if it exceeds the configured limit</li>
+     *   <li>Stores the execution context in the server's history, unless the trace level is OFF</li>
+     *   <li>Drops or compacts older history entries as configured</li>
      * </ol>
      * 
      * @param serverData The server data containing the server instance and execution history
@@ -512,12 +780,26 @@ public class FlowManager {
      * @throws LogicException If an error occurs during flow execution
      */
     public void execute(@NotNull ServerData serverData, ExecutionContext parentContext, int maxFlowLength, int maxRecursionDepth, @Nullable List<Object> startNodeOutputs, @Nullable Map<String, Object> initialVariables) throws LogicException {
-        ExecutionContext executionContext = new ExecutionContext(this.flow, serverData.server, maxFlowLength, maxRecursionDepth);
-        serverData.executeHistory.add(executionContext);
-        int historyLimit = Util.serverConfig.getKeepFlowHistoryNumber();
-        while (serverData.executeHistory.size() > historyLimit) {
-            serverData.executeHistory.remove(0);
+        ExecutionContext executionContext = new ExecutionContext(this.getPlan(), serverData.server, maxFlowLength, maxRecursionDepth);
+        executionContext.setTraceLevel(this.traceLevel);
+        try {
+            executionContext.execute(parentContext, startNodeOutputs, initialVariables);
+        } finally {
+            this.addToHistory(serverData, executionContext);
         }
-        executionContext.execute(parentContext, startNodeOutputs, initialVariables);
+    }
+
+    /**
+     * Stores a finished execution context in the server's history, unless tracing is off for this flow.
+     * The history itself drops and compacts older entries according to the configured limits.
+     * 
+     * @param serverData The server data containing the execution history
+     * @param executionContext The execution context to store
+     */
+    private void addToHistory(@NotNull ServerData serverData, ExecutionContext executionContext) {
+        if (this.traceLevel == FlowTraceLevel.OFF) {
+            return;
+        }
+        serverData.executeHistory.add(executionContext);
     }
 }
@@ -0,0 +1,199 @@
+/**
+ * Copyright (c) ykn
+ * This file is under the MIT License
+ */
+
+package com.ykn.fmod.server.flow.tool;
+
+import java.util.ArrayDeque;
+import java.util.List;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.ykn.fmod.server.base.data.ServerData;
+import com.ykn.fmod.server.base.util.FlowOverloadPolicy;
+import com.ykn.fmod.server.base.util.Util;
+
+/**
+ * Limits the total time that logic flows may take in one server tick.
+ * <p>
+ * Every execution started by {@link FlowManager} adds its time to the current tick. Once the time
+ * exceeds {@link com.ykn.fmod.server.base.config.ServerConfig#getFlowTickBudget()}, further executions
+ * triggered by events are not started in this tick. Depending on the {@link FlowOverloadPolicy}
+ * of the flow, such an execution is either deferred into a bounded queue, which is drained at the
+ * start of the following ticks, or dropped. Executions started by commands, schedules and other
+ * flows are never deferred, but their time still counts.
+ * <p>
+ * A deferred execution keeps the outputs of its event node, so it still sees the entities of the
+ * event, even if they have been removed by the time it runs.
+ * <p>
+ * Thread Safety: This class must only be accessed from the main server thread.
+ */
+public class FlowScheduler {
+
+    /**
+     * The most executions that can wait in the queue. Further executions are dropped.
+     */
+    public static final int MAX_DEFERRED_EXECUTIONS = 4096;
+
+    /**
+     * An execution of a flow for an event that waits in the queue for a tick with budget left.
+     */
+    private static class DeferredExecution {
+
+        /**
+         * The flow to execute, which is dropped instead if it has been disabled in the meantime.
+         */
+        final FlowManager flowManager;
+
+        /**
+         * The outputs of the event node, captured when the event happened.
+         */
+        final List<Object> startNodeOutputs;
+
+        DeferredExecution(FlowManager flowManager, List<Object> startNodeOutputs) {
+            this.flowManager = flowManager;
+            this.startNodeOutputs = startNodeOutputs;
+        }
+    }
+
+    /**
+     * The server data that executions are started with.
+     */
+    private final ServerData serverData;
+
+    /**
+     * The executions waiting for a later tick, oldest first.
+     */
+    private final ArrayDeque<DeferredExecution> deferredExecutions;
+
+    /**
+     * The time spent executing flows in the current tick, in nanoseconds.
+     */
+    private long tickNanos;
+
+    /**
+     * The time spent executing flows in the previous tick, in nanoseconds.
+     */
+    private long lastTickNanos;
+
+    /**
+     * The number of executions deferred since the server started, see {@link #getDeferredCount()}.
+     */
+    private long deferredCount;
+
+    /**
+     * The number of executions dropped since the server started, see {@link #getDroppedCount()}.
+     */
+    private long droppedCount;
+
+    /**
+     * Creates a scheduler with an empty queue and no time spent.
+     *
+     * @param serverData The server data to start the executions with
+     */
+    public FlowScheduler(@NotNull ServerData serverData) {
+        this.serverData = serverData;
+        this.deferredExecutions = new ArrayDeque<>();
+        this.tickNanos = 0;
+        this.lastTickNanos = 0;
+        this.deferredCount = 0;
+        this.droppedCount = 0;
+    }
+
+    /**
+     * Starts a new tick, then runs the deferred executions for as long as the budget of the new tick allows.
+     * Called at the start of every server tick, see {@link ServerData#tick()}.
+     */
+    public void tick() {
+        this.lastTickNanos = this.tickNanos;
+        this.tickNanos = 0;
+        // The budget is fresh, so at least one deferred execution runs every tick
+        while (!this.deferredExecutions.isEmpty() && this.hasBudget()) {
+            DeferredExecution execution = this.deferredExecutions.poll();
+            if (!execution.flowManager.isEnabled()) {
+                this.droppedCount++;
+                continue;
+            }
+            execution.flowManager.execute(this.serverData, execution.startNodeOutputs, null);
+        }
+    }
+
+    /**
+     * Executes a flow for an event, or defers or drops the execution if the flow budget of this tick has been used up.
+     * While executions are waiting in the queue, a flow that defers is queued behind them even if there is
+     * budget left, so that the events of such flows are always executed in the order they happened.
+     *
+     * @param flowManager The flow to execute
+     * @param startNodeOutputs The outputs of the event node
+     */
+    public void submitEvent(@NotNull FlowManager flowManager, @Nullable List<Object> startNodeOutputs) {
+        boolean defers = flowManager.getOverloadPolicy() == FlowOverloadPolicy.DEFER;
+        if (this.hasBudget() && (!defers || this.deferredExecutions.isEmpty())) {
+            flowManager.execute(this.serverData, startNodeOutputs, null);
+        } else if (defers && this.deferredExecutions.size() < MAX_DEFERRED_EXECUTIONS) {
+            this.deferredExecutions.add(new DeferredExecution(flowManager, startNodeOutputs));
+            this.deferredCount++;
+        } else {
+            this.droppedCount++;
+        }
+    }
+
+    /**
+     * Adds the time of a flow execution to the current tick.
+     *
+     * @param nanos The time the execution took, in nanoseconds
+     */
+    public void addExecutionTime(long nanos) {
+        this.tickNanos += nanos;
+    }
+
+    /**
+     * Checks whether flows may still be started by events in the current tick.
+     *
+     * @return true if the budget has not been used up, or if there is no budget
+     */
+    public boolean hasBudget() {
+        long budget = Util.serverConfig.getFlowTickBudget();
+        return budget <= 0 || this.tickNanos < budget * 1000L;
+    }
+
+    /**
+     * Gets the time spent executing flows in the previous tick.
+     *
+     * @return The time in nanoseconds
+     */
+    public long getLastTickNanos() {
+        return this.lastTickNanos;
+    }
+
+    /**
+     * Gets the number of executions that are waiting for the next tick.
+     *
+     * @return The size of the queue
+     */
+    public int getQueuedCount() {
+        return this.deferredExecutions.size();
+    }
+
+    /**
+     * Gets the number of executions that have been deferred to a later tick since the server started.
+     *
+     * @return The number of deferred executions
+     */
+    public long getDeferredCount() {
+        return this.deferredCount;
+    }
+
+    /**
+     * Gets the number of executions that have been dropped since the server started, because the
+     * budget was used up and the flow does not defer, because the queue was full, or because the
+     * flow was disabled before its deferred execution could run.
+     *
+     * @return The number of dropped executions
+     */
+    public long getDroppedCount() {
+        return this.droppedCount;
+    }
+}
@@ -8,11 +8,14 @@ package com.ykn.fmod.server.flow.tool;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 import org.jetbrains.annotations.Nullable;
 
 import com.ykn.fmod.server.flow.node.*;
 import com.ykn.fmod.server.flow.logic.FlowNode;
+import com.ykn.fmod.server.flow.logic.NodeMetadata;
 
 /**
  * Central registry for all node types in the logic flow system.
@@ -33,6 +36,9 @@ import com.ykn.fmod.server.flow.logic.FlowNode;
  * <p>
  * All nodes must be registered during mod initialization using {@link #registerDefaultNodes()}.
  * <p>
+ * The registry also caches the {@link NodeMetadata} of each node type, so that all nodes of the
+ * same type share one metadata object instead of building their translated texts again.
+ * <p>
  * Example registration:
  * <pre>
  * NodeRegistry.register("BinaryArithmeticNode", BinaryArithmeticNode::new);
@@ -55,6 +61,18 @@ public class NodeRegistry {
      */
     private static Map<String, NodeFactory> eventNodes = new HashMap<>();
 
+    /**
+     * Map of node classes to their shared metadata.
+     * Nodes can be created outside the server thread, such as by the client GUI, so this map is concurrent.
+     */
+    private static Map<Class<? extends FlowNode>, NodeMetadata> metadataCache = new ConcurrentHashMap<>();
+
+    /**
+     * Increased every time the shared metadata is refreshed, so that existing nodes know they
+     * should fetch their metadata again.
+     */
+    private static volatile int metadataVersion = 0;
+
     /**
      * Factory interface for creating node instances.
      * <p>
@@ -138,6 +156,56 @@ public class NodeRegistry {
         }
     }
 
+    /**
+     * Gets the shared metadata of a node type, creating it first if it is not cached yet.
+     * <p>
+     * The metadata only depends on the node type and the translations, so it is created once
+     * for each node class and shared by all of its instances until {@link #refreshMetadata()} is called.
+     * If a node of the same class was created with a different number of inputs, outputs or
+     * branches, a separate metadata object is created for it and not cached.
+     * 
+     * @param nodeClass The class of the node
+     * @param inputNumber The number of inputs of the node
+     * @param outputNumber The number of outputs of the node
+     * @param branchNumber The number of branches of the node
+     * @param factory Creates the metadata if it is not cached
+     * @return The shared metadata of this node type
+     */
+    public static NodeMetadata getMetadata(Class<? extends FlowNode> nodeClass, int inputNumber, int outputNumber, int branchNumber, Supplier<NodeMetadata> factory) {
+        NodeMetadata metadata = metadataCache.get(nodeClass);
+        if (metadata == null) {
+            metadata = factory.get();
+            NodeMetadata existing = metadataCache.putIfAbsent(nodeClass, metadata);
+            if (existing != null) {
+                metadata = existing;
+            }
+        }
+        if (metadata.inputNumber != inputNumber || metadata.outputNumber != outputNumber || metadata.branchNumber != branchNumber) {
+            return factory.get();
+        }
+        return metadata;
+    }
+
+    /**
+     * Gets the version of the shared metadata, which changes every time it is refreshed.
+     * 
+     * @return The current metadata version
+     */
+    public static int getMetadataVersion() {
+        return metadataVersion;
+    }
+
+    /**
+     * Discards the shared metadata of all node types, so that it is created again with the current translations.
+     * <p>
+     * This should be called when the configuration is reloaded or when the server translation option is changed.
+     * Existing nodes pick up the new metadata the next time {@link FlowNode#getMetadata()} is called.
+     */
+    public static void refreshMetadata() {
+        metadataCache.clear();
+        metadataVersion++;
+    }
+
     /**
      * Registers all default node types that come with the mod.
      * <p>
@@ -158,8 +226,11 @@ public class NodeRegistry {
         NodeRegistry.register("BroadcastMessageNode", BroadcastMessageNode::new);
         NodeRegistry.register("CancelScheduledTaskNode", CancelScheduledTaskNode::new);
         NodeRegistry.register("ExecuteCommandNode", ExecuteCommandNode::new);
+        NodeRegistry.register("FilterNode", FilterNode::new);
+        NodeRegistry.register("ForEachNode", ForEachNode::new);
         NodeRegistry.register("GatherEntityNode", GatherEntityNode::new);
         NodeRegistry.register("GetBlockNode", GetBlockNode::new);
+        NodeRegistry.register("GetCrowdedAreaNode", GetCrowdedAreaNode::new);
         NodeRegistry.register("GetEntityDataNode", GetEntityDataNode::new);
         NodeRegistry.register("GetNbtValueNode", GetNbtValueNode::new);
         NodeRegistry.register("GetObjectAtIndexNode", GetObjectAtIndexNode::new);
@@ -167,6 +238,8 @@ public class NodeRegistry {
         NodeRegistry.register("GetVariableNode", GetVariableNode::new);
         NodeRegistry.register("GetWorldListNode", GetWorldListNode::new);
         NodeRegistry.register("IfConditionNode", IfConditionNode::new);
+        NodeRegistry.register("MapNode", MapNode::new);
+        NodeRegistry.register("ReduceNode", ReduceNode::new);
         NodeRegistry.register("SetObjectAtIndexNode", SetObjectAtIndexNode::new);
         NodeRegistry.register("SetVariableNode", SetVariableNode::new);
         NodeRegistry.register("RunFlowNode", RunFlowNode::new);
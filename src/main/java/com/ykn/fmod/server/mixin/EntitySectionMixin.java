@@ -0,0 +1,63 @@
+/**
+ * Copyright (c) ykn
+ * This file is under the MIT License
+ */
+
+package com.ykn.fmod.server.mixin;
+
+import org.slf4j.LoggerFactory;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Unique;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+import com.ykn.fmod.server.base.data.EntitySectionHolder;
+import com.ykn.fmod.server.base.data.EntitySectionTracker;
+import com.ykn.fmod.server.base.data.ServerData;
+import com.ykn.fmod.server.base.util.Util;
+
+import net.minecraft.entity.Entity;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.math.ChunkSectionPos;
+
+@Mixin(Entity.class)
+public class EntitySectionMixin implements EntitySectionHolder {
+
+    @Unique
+    private long fmod$trackedSection = EntitySectionTracker.NOT_TRACKED;
+
+    @Override
+    public long fmod$getTrackedSection() {
+        return this.fmod$trackedSection;
+    }
+
+    @Override
+    public void fmod$setTrackedSection(long section) {
+        this.fmod$trackedSection = section;
+    }
+
+    @Inject(method = "setPos(DDD)V", at = @At("TAIL"))
+    private void onSetPos(double x, double y, double z, CallbackInfo info) {
+        // Most position updates stay in the same section, keep this path as cheap as possible
+        if (this.fmod$trackedSection == EntitySectionTracker.NOT_TRACKED) {
+            return;
+        }
+        try {
+            Entity entity = (Entity) (Object) this;
+            long section = ChunkSectionPos.toLong(entity.getBlockPos());
+            if (section != this.fmod$trackedSection && entity.getWorld() instanceof ServerWorld) {
+                ServerWorld world = (ServerWorld) entity.getWorld();
+                MinecraftServer server = world.getServer();
+                if (server != null) {
+                    ServerData serverData = Util.getServerData(server);
+                    serverData.getEntitySectionTracker().onEntityMove(entity, this.fmod$trackedSection, section);
+                    serverData.getEntityCensus().onEntityMove(world);
+                }
+            }
+        } catch (Exception e) {
+            LoggerFactory.getLogger(Util.LOGGERNAME).error("FMinecraftMod: Caught exception from EntityMoveEvent.", e);
+        }
+    }
+}
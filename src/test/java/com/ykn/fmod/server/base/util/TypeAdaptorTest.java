@@ -0,0 +1,79 @@
+/**
+ * Copyright (c) ykn
+ * This file is under the MIT License
+ */
+
+package com.ykn.fmod.server.base.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import net.minecraft.util.math.Vec2f;
+import net.minecraft.util.math.Vec3d;
+
+public class TypeAdaptorTest {
+
+    private static Object autoCast(Object o) {
+        return TypeAdaptor.parse(o).autoCast();
+    }
+
+    @Test
+    public void testNull() {
+        assertNull(autoCast("null"));
+        // A null object is an empty string, which is not a number
+        assertEquals("", autoCast(null));
+    }
+
+    @Test
+    public void testNumbers() {
+        assertEquals(123.0, autoCast("123"));
+        assertEquals(-1.5, autoCast(" -1.5 "));
+        assertEquals(0.5, autoCast(".5"));
+        assertEquals(3.0, autoCast(3));
+        assertEquals(Double.NaN, autoCast("NaN"));
+        assertEquals(Double.POSITIVE_INFINITY, autoCast("Infinity"));
+    }
+
+    @Test
+    public void testVectors() {
+        assertEquals(new Vec3d(1, 2, 3), autoCast("(1, 2, 3)"));
+        Vec3d vec3d = new Vec3d(4, 5, 6);
+        assertEquals(vec3d, autoCast(vec3d));
+        Object vec2f = autoCast("(1, 2)");
+        assertInstanceOf(Vec2f.class, vec2f);
+        assertEquals(1.0f, ((Vec2f) vec2f).x);
+        assertEquals(2.0f, ((Vec2f) vec2f).y);
+        Vec2f original = new Vec2f(7, 8);
+        assertSame(original, autoCast(original));
+        // A tuple that is not made of numbers stays a string
+        assertEquals("(a, b)", autoCast("(a, b)"));
+        assertEquals("(1, 2, 3, 4)", autoCast("(1, 2, 3, 4)"));
+    }
+
+    @Test
+    public void testLists() {
+        assertEquals(Arrays.asList(1.0, "a", true), autoCast("[1, a, true]"));
+        assertEquals(Arrays.asList("x", 2.0), autoCast(" [ x , 2 ] "));
+    }
+
+    @Test
+    public void testBooleans() {
+        assertEquals(Boolean.TRUE, autoCast("true"));
+        assertEquals(Boolean.TRUE, autoCast("on"));
+        assertEquals(Boolean.FALSE, autoCast("No"));
+        assertEquals(Boolean.FALSE, autoCast(false));
+    }
+
+    @Test
+    public void testStrings() {
+        assertEquals("hello", autoCast("hello"));
+        assertEquals("", autoCast(""));
+        assertEquals("1x", autoCast("1x"));
+    }
+}
@@ -0,0 +1,153 @@
+/**
+ * Copyright (c) ykn
+ * This file is under the MIT License
+ */
+
+package com.ykn.fmod.server.flow.logic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.ykn.fmod.server.flow.node.BinaryArithmeticNode;
+import com.ykn.fmod.server.flow.node.ForEachNode;
+import com.ykn.fmod.server.flow.node.GetVariableNode;
+import com.ykn.fmod.server.flow.node.IfConditionNode;
+import com.ykn.fmod.server.flow.node.SetVariableNode;
+import com.ykn.fmod.server.flow.node.TriggerNode;
+import com.ykn.fmod.server.flow.tool.NodeRegistry;
+
+public class LoopNodeTest {
+
+    private LogicFlow flow;
+
+    @BeforeAll
+    public static void registerNodes() {
+        NodeRegistry.registerDefaultNodes();
+    }
+
+    private <T extends FlowNode> T add(T node) {
+        this.flow.addNode(node);
+        return node;
+    }
+
+    private static DataReference output(FlowNode node, int index) {
+        return DataReference.createNodeOutputReference(node.getId(), index);
+    }
+
+    private static DataReference constant(Object value) {
+        return DataReference.createConstantReference(value);
+    }
+
+    private ExecutionContext execute() {
+        ExecutionContext context = new ExecutionContext(FlowPlan.compile(this.flow), null, 1000, 5);
+        context.execute(Arrays.asList((Object) null, null), null);
+        return context;
+    }
+
+    /**
+     * Builds an outer loop over two elements with an inner loop over three elements. The inner loop body
+     * counts its first element in the variable "count", and goes back to the outer loop at its second
+     * element, so the inner loop never finishes.
+     *
+     * @return The inner loop node
+     */
+    private ForEachNode buildNestedLoopWithBreak() {
+        this.flow = new LogicFlow("loop");
+        TriggerNode start = add(new TriggerNode(this.flow.generateId(), "start"));
+        this.flow.startNodeId = start.getId();
+        ForEachNode outer = add(new ForEachNode(this.flow.generateId(), "outer"));
+        outer.setInput(0, constant(Arrays.asList(1.0, 2.0)));
+        ForEachNode inner = add(new ForEachNode(this.flow.generateId(), "inner"));
+        inner.setInput(0, constant(Arrays.asList("a", "b", "c")));
+        BinaryArithmeticNode isFirst = add(new BinaryArithmeticNode(this.flow.generateId(), "isFirst"));
+        isFirst.setInput(0, output(inner, 1));
+        isFirst.setInput(1, constant(1.0));
+        isFirst.setInput(2, constant("<"));
+        IfConditionNode branch = add(new IfConditionNode(this.flow.generateId(), "branch"));
+        branch.setInput(0, output(isFirst, 0));
+        GetVariableNode get = add(new GetVariableNode(this.flow.generateId(), "get"));
+        get.setInput(0, constant("count"));
+        BinaryArithmeticNode increment = add(new BinaryArithmeticNode(this.flow.generateId(), "increment"));
+        increment.setInput(0, output(get, 0));
+        increment.setInput(1, constant(1.0));
+        increment.setInput(2, constant("+"));
+        SetVariableNode set = add(new SetVariableNode(this.flow.generateId(), "set"));
+        set.setInput(0, constant("count"));
+        set.setInput(1, output(increment, 0));
+
+        start.setNextNodeId(0, outer.getId());
+        outer.setNextNodeId(0, inner.getId());
+        inner.setNextNodeId(0, isFirst.getId());
+        inner.setNextNodeId(1, outer.getId());
+        isFirst.setNextNodeId(0, branch.getId());
+        branch.setNextNodeId(0, get.getId());
+        // Leave the inner loop early, for the next element of the outer loop
+        branch.setNextNodeId(1, outer.getId());
+        get.setNextNodeId(0, increment.getId());
+        increment.setNextNodeId(0, set.getId());
+        set.setNextNodeId(0, inner.getId());
+        return inner;
+    }
+
+    @Test
+    public void testReenteredLoopStartsAgain() {
+        ForEachNode inner = this.buildNestedLoopWithBreak();
+        ExecutionContext context = this.execute();
+        assertNull(context.getException());
+        // Each element of the outer loop visits the first element of the inner loop again
+        assertEquals(2.0, context.getVariable("count"));
+        // The inner loop was left at its second element both times
+        assertEquals(1, context.getNodeStatus(inner.getId()).outputs.get(1));
+    }
+
+    @Test
+    public void testLoopBodyContinuesTheLoop() {
+        this.flow = new LogicFlow("count");
+        TriggerNode start = add(new TriggerNode(this.flow.generateId(), "start"));
+        this.flow.startNodeId = start.getId();
+        ForEachNode loop = add(new ForEachNode(this.flow.generateId(), "loop"));
+        loop.setInput(0, constant(Arrays.asList("a", "b", "c")));
+        GetVariableNode get = add(new GetVariableNode(this.flow.generateId(), "get"));
+        get.setInput(0, constant("count"));
+        BinaryArithmeticNode increment = add(new BinaryArithmeticNode(this.flow.generateId(), "increment"));
+        increment.setInput(0, output(get, 0));
+        increment.setInput(1, constant(1.0));
+        increment.setInput(2, constant("+"));
+        SetVariableNode set = add(new SetVariableNode(this.flow.generateId(), "set"));
+        set.setInput(0, constant("count"));
+        set.setInput(1, output(increment, 0));
+        start.setNextNodeId(0, loop.getId());
+        loop.setNextNodeId(0, get.getId());
+        get.setNextNodeId(0, increment.getId());
+        increment.setNextNodeId(0, set.getId());
+        set.setNextNodeId(0, loop.getId());
+
+        ExecutionContext context = this.execute();
+        assertNull(context.getException());
+        assertEquals(3.0, context.getVariable("count"));
+        assertEquals(3, context.getNodeStatus(loop.getId()).outputs.get(1));
+        assertNull(context.getNodeStatus(loop.getId()).loopState);
+    }
+
+    @Test
+    public void testEmptyLoopBodyContinuesTheLoop() {
+        this.flow = new LogicFlow("empty");
+        TriggerNode start = add(new TriggerNode(this.flow.generateId(), "start"));
+        this.flow.startNodeId = start.getId();
+        ForEachNode loop = add(new ForEachNode(this.flow.generateId(), "loop"));
+        loop.setInput(0, constant(Arrays.asList("a", "b", "c", "d")));
+        start.setNextNodeId(0, loop.getId());
+        loop.setNextNodeId(0, loop.getId());
+
+        ExecutionContext context = this.execute();
+        assertNull(context.getException());
+        assertEquals(4, context.getNodeStatus(loop.getId()).outputs.get(1));
+        // The start node and five visits of the loop node
+        assertEquals(6, context.getNodeExecutionCounter());
+    }
+}
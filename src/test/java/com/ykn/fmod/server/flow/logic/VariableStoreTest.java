@@ -0,0 +1,168 @@
+/**
+ * Copyright (c) ykn
+ * This file is under the MIT License
+ */
+
+package com.ykn.fmod.server.flow.logic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.ykn.fmod.server.flow.node.SetVariableNode;
+import com.ykn.fmod.server.flow.node.TriggerNode;
+import com.ykn.fmod.server.flow.tool.NodeRegistry;
+
+public class VariableStoreTest {
+
+    private FlowPlan plan;
+    private int x;
+
+    @BeforeAll
+    public static void registerNodes() {
+        NodeRegistry.registerDefaultNodes();
+    }
+
+    @BeforeEach
+    public void compilePlan() {
+        // The constant variable name "x" is interned by the plan, other names are not
+        LogicFlow flow = new LogicFlow("variables");
+        TriggerNode start = new TriggerNode(flow.generateId(), "start");
+        flow.addNode(start);
+        flow.startNodeId = start.getId();
+        SetVariableNode set = new SetVariableNode(flow.generateId(), "set");
+        set.setInput(0, DataReference.createConstantReference("x"));
+        flow.addNode(set);
+        start.setNextNodeId(0, set.getId());
+        this.plan = FlowPlan.compile(flow);
+        this.x = this.plan.getVariableIndex("x");
+    }
+
+    @Test
+    public void testInternedAndDynamicNames() {
+        assertEquals(1, this.plan.getVariableCount());
+        assertEquals(0, this.x);
+        assertEquals(-1, this.plan.getVariableIndex("y"));
+
+        VariableStore store = new VariableStore(this.plan);
+        store.put("x", "a");
+        store.put("y", "b");
+        assertEquals("a", store.getAt(this.x));
+        assertEquals("b", store.get("y"));
+        Map<String, Object> expected = new HashMap<>();
+        expected.put("x", "a");
+        expected.put("y", "b");
+        assertEquals(expected, store);
+        store.put("x", null);
+        assertTrue(store.containsKey("x"));
+        assertNull(store.get("x"));
+    }
+
+    @Test
+    public void testTypedSlots() {
+        VariableStore store = new VariableStore(this.plan);
+        store.setNumberAt(this.x, 4.5);
+        assertTrue(store.isNumberAt(this.x));
+        assertEquals(4.5, store.getNumberAt(this.x));
+        assertEquals(4.5, store.get("x"));
+        // Boxed once, then the box is kept
+        assertSame(store.getAt(this.x), store.getAt(this.x));
+
+        Double boxed = 7.0;
+        store.setAt(this.x, boxed);
+        assertSame(boxed, store.getAt(this.x));
+        assertEquals(7.0, store.getNumberAt(this.x));
+
+        store.setAt(this.x, true);
+        assertTrue(store.isBooleanAt(this.x));
+        assertFalse(store.isNumberAt(this.x));
+        assertEquals(Boolean.TRUE, store.get("x"));
+
+        store.setAt(this.x, "text");
+        assertFalse(store.isBooleanAt(this.x));
+        assertEquals(0.0, store.getNumberAt(this.x));
+        assertEquals("text", store.getAt(this.x));
+    }
+
+    @Test
+    public void testForkIsCopyOnWrite() {
+        VariableStore parent = new VariableStore(this.plan);
+        parent.put("x", 1.0);
+        parent.put("y", "parent");
+        VariableStore fork = parent.fork();
+        assertEquals(parent, fork);
+
+        parent.put("x", 2.0);
+        parent.put("y", "changed");
+        assertEquals(1.0, fork.get("x"));
+        assertEquals("parent", fork.get("y"));
+
+        fork.setNumberAt(this.x, 3.0);
+        assertEquals(2.0, parent.get("x"));
+        assertEquals(3.0, fork.get("x"));
+    }
+
+    @Test
+    public void testClearedForkLeavesTheParentAlone() {
+        VariableStore parent = new VariableStore(this.plan);
+        parent.put("x", 1.0);
+        VariableStore fork = parent.fork();
+        fork.clear();
+        assertTrue(fork.isEmpty());
+        assertFalse(fork.containsKey("x"));
+        assertEquals(1.0, parent.get("x"));
+
+        parent.put("x", 2.0);
+        assertTrue(fork.isEmpty());
+        assertEquals(2.0, parent.get("x"));
+    }
+
+    @Test
+    public void testInheritReadsThroughAndWritesLocally() {
+        VariableStore parent = new VariableStore(this.plan);
+        parent.put("x", 1.0);
+        parent.put("y", "parent");
+        VariableStore child = new VariableStore(this.plan);
+        child.inherit(parent);
+        assertEquals(1.0, child.get("x"));
+        assertEquals("parent", child.get("y"));
+        assertEquals(2, child.size());
+
+        child.put("x", 5.0);
+        parent.put("y", "changed");
+        assertEquals(5.0, child.get("x"));
+        assertEquals("parent", child.get("y"));
+        assertEquals(1.0, parent.get("x"));
+
+        // Once released, only the variables set in the child are left
+        child.releaseInherited();
+        assertEquals(5.0, child.get("x"));
+        assertNull(child.get("y"));
+        assertEquals(1, child.size());
+    }
+
+    @Test
+    public void testClearRemovesEverything() {
+        VariableStore parent = new VariableStore(this.plan);
+        parent.put("y", "parent");
+        VariableStore store = new VariableStore(this.plan);
+        store.inherit(parent);
+        store.setBooleanAt(this.x, true);
+        store.put("z", 1.0);
+        store.clear();
+        assertTrue(store.isEmpty());
+        assertEquals(0, store.size());
+        assertNull(store.get("y"));
+        assertFalse(store.isBooleanAt(this.x));
+        assertEquals("parent", parent.get("y"));
+    }
+}
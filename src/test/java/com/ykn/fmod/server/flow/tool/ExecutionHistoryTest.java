@@ -0,0 +1,138 @@
+/**
+ * Copyright (c) ykn
+ * This file is under the MIT License
+ */
+
+package com.ykn.fmod.server.flow.tool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.ykn.fmod.server.base.config.ServerConfig;
+import com.ykn.fmod.server.base.util.Util;
+import com.ykn.fmod.server.flow.logic.ExecutionContext;
+import com.ykn.fmod.server.flow.logic.FlowPlan;
+import com.ykn.fmod.server.flow.logic.LogicFlow;
+
+public class ExecutionHistoryTest {
+
+    private FlowPlan plan;
+    private ExecutionHistory history;
+
+    @BeforeEach
+    public void createHistory() {
+        this.plan = FlowPlan.compile(new LogicFlow("history"));
+        this.history = new ExecutionHistory();
+    }
+
+    @AfterEach
+    public void restoreConfig() {
+        Util.serverConfig = new ServerConfig();
+    }
+
+    private List<ExecutionContext> addExecutions(int count) {
+        List<ExecutionContext> contexts = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ExecutionContext context = new ExecutionContext(this.plan, null, 1, 1);
+            contexts.add(context);
+            this.history.add(context);
+        }
+        return contexts;
+    }
+
+    @Test
+    public void testOnlyTheLatestEntriesKeepTheirDetails() {
+        Util.serverConfig.setKeepFlowHistoryNumber(50);
+        Util.serverConfig.setKeepFlowHistoryDetailNumber(5);
+        List<ExecutionContext> contexts = this.addExecutions(137);
+        assertEquals(50, this.history.size());
+        for (int i = 0; i < 50; i++) {
+            ExecutionHistory.Entry entry = this.history.get(i);
+            assertEquals("history", entry.getFlowName());
+            if (i < 45) {
+                assertTrue(entry.isCompacted(), "entry " + i);
+                assertNull(entry.getContext());
+            } else {
+                // The detailed entries are the latest executions, oldest first
+                assertSame(contexts.get(87 + i), entry.getContext());
+            }
+        }
+    }
+
+    @Test
+    public void testLoweredLimitsCompactAndEvict() {
+        Util.serverConfig.setKeepFlowHistoryNumber(50);
+        Util.serverConfig.setKeepFlowHistoryDetailNumber(5);
+        this.addExecutions(20);
+        Util.serverConfig.setKeepFlowHistoryNumber(10);
+        Util.serverConfig.setKeepFlowHistoryDetailNumber(0);
+        this.addExecutions(1);
+        assertEquals(10, this.history.size());
+        for (int i = 0; i < 10; i++) {
+            assertTrue(this.history.get(i).isCompacted(), "entry " + i);
+            assertNotNull(this.history.get(i).getFlowName());
+        }
+    }
+
+    @Test
+    public void testByteLimitCompactsBeforeDropping() {
+        Util.serverConfig.setKeepFlowHistoryNumber(100);
+        Util.serverConfig.setKeepFlowHistoryDetailNumber(100);
+        Util.serverConfig.setKeepFlowHistoryKilobytes(1);
+        List<ExecutionContext> contexts = this.addExecutions(10);
+        int size = this.history.size();
+        assertTrue(size >= 1);
+        assertTrue(this.history.getEstimatedBytes() <= 1024 || size == 1);
+        // The newest entry keeps its details, the older ones are compacted
+        assertSame(contexts.get(9), this.history.get(size - 1).getContext());
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            if (i < size - 1) {
+                assertTrue(this.history.get(i).isCompacted(), "entry " + i);
+            }
+            total += this.history.get(i).getEstimatedBytes();
+        }
+        assertEquals(total, this.history.getEstimatedBytes());
+    }
+
+    @Test
+    public void testNoByteLimit() {
+        Util.serverConfig.setKeepFlowHistoryNumber(100);
+        Util.serverConfig.setKeepFlowHistoryDetailNumber(100);
+        Util.serverConfig.setKeepFlowHistoryKilobytes(0);
+        this.addExecutions(10);
+        assertEquals(10, this.history.size());
+        for (int i = 0; i < 10; i++) {
+            assertFalse(this.history.get(i).isCompacted(), "entry " + i);
+        }
+    }
+
+    @Test
+    public void testNoHistoryIsKept() {
+        Util.serverConfig.setKeepFlowHistoryNumber(0);
+        this.addExecutions(3);
+        assertEquals(0, this.history.size());
+        assertThrows(IndexOutOfBoundsException.class, () -> this.history.get(0));
+    }
+
+    @Test
+    public void testClear() {
+        this.addExecutions(3);
+        assertEquals(3, this.history.size());
+        this.history.clear();
+        assertEquals(0, this.history.size());
+        assertEquals(0, this.history.getEstimatedBytes());
+    }
+}